@@ -106,7 +106,7 @@ public class Injector extends Trader implements Runnable {
     options.addOption(Option.builder("p").longOpt("port").hasArg(true).desc("remote port")
         .type(Number.class).build());
     options.addOption(Option.builder("u").longOpt("uri").hasArg(true)
-        .desc("API URI as wss://host.apipath:port").type(URI.class).build());
+        .desc("API URI as wss://host.apipath:port or tcp://host:port").type(URI.class).build());
     options.addOption(Option.builder("t").longOpt("timeout").hasArg(true).desc("timeout seconds")
         .type(Number.class).build());
     options.addOption(Option.builder("k").longOpt("keepalive").hasArg(true)
@@ -115,6 +115,7 @@ public class Injector extends Trader implements Runnable {
         .desc("number of injection batches").type(Number.class).build());
     options.addOption(Option.builder("w").longOpt("wait").hasArg(true)
         .desc("wait between injection batches in seconds").type(Number.class).build());
+    options.addOption("f", "framed", false, "request framed binary messages");
     options.addOption("?", "help", false, "disply usage");
 
     DefaultParser parser = new DefaultParser();
@@ -136,6 +137,9 @@ public class Injector extends Trader implements Runnable {
         String encoding = cmd.getOptionValue("e");
         builder.encoding(encoding);
       }
+      if (cmd.hasOption("f")) {
+        builder.framed(true);
+      }
       if (cmd.hasOption("a")) {
         String apiPath = cmd.getOptionValue("a");
         builder.apiPath(apiPath);
@@ -34,6 +34,8 @@ import io.fixprotocol.conga.buffer.BufferPool;
 import io.fixprotocol.conga.buffer.BufferSupplier;
 import io.fixprotocol.conga.buffer.RingBufferSupplier;
 import io.fixprotocol.conga.client.io.ClientEndpoint;
+import io.fixprotocol.conga.client.io.ClientTransport;
+import io.fixprotocol.conga.client.io.TcpClientEndpoint;
 import io.fixprotocol.conga.client.session.ClientSession;
 import io.fixprotocol.conga.messages.appl.ApplicationMessageConsumer;
 import io.fixprotocol.conga.messages.appl.Message;
@@ -98,6 +100,7 @@ public class Trader implements AutoCloseable {
     public Subscriber<? super SessionEvent> sessionEventSubscriber;
     private String encoding = DEFAULT_ENCODING;
     private Consumer<Throwable> errorListener = Throwable::printStackTrace;
+    private boolean isFramed = false;
     //private String outputPath = DEFAULT_OUTPUT_PATH;
     private long heartbeatInterval = DEFAULT_HEARTBEAT_INTERVAL;
     private String host = DEFAULT_HOST;
@@ -138,6 +141,20 @@ public class Trader implements AutoCloseable {
       return (B) this;
     }
     
+    /**
+     * Request that responses of a binary encoding be packed into frames with Simple Open Framing
+     * Header, so that the server may send several messages in one frame
+     * 
+     * @param isFramed if {@code true}, request framed binary subprotocol. Default is
+     *        {@code false}. Ignored for a text encoding.
+     * @return this Builder
+     */
+    @SuppressWarnings("unchecked")
+    public B framed(boolean isFramed) {
+      this.isFramed = isFramed;
+      return (B) this;
+    }
+
     /**
      * Set heartbeat interval 
      * @param heartbeatInterval keepalive interval in millis
@@ -185,6 +202,12 @@ public class Trader implements AutoCloseable {
       return (B) this;
     }
 
+    /**
+     * Set the URI of the server, overriding host, port and path
+     * 
+     * @param uri a WebSocket URI, or a URI with scheme {@code tcp} to connect by plain TCP
+     * @return this Builder
+     */
     @SuppressWarnings("unchecked")
     public B uri(URI uri) {
       this.uri = Objects.requireNonNull(uri);
@@ -198,7 +221,7 @@ public class Trader implements AutoCloseable {
   }
 
   private ApplicationMessageConsumer applicationMessageConsumer = null;
-  private final ClientEndpoint endpoint;
+  private final ClientTransport endpoint;
 
   private final Consumer<Throwable> errorListener;
 
@@ -309,8 +332,19 @@ public class Trader implements AutoCloseable {
     sessionStateCondition = sessionStateLock.newCondition();
     this.sessionEventSubscriber = builder.sessionEventSubscriber;
     this.heartbeatInterval = builder.heartbeatInterval;
-    this.endpoint = new ClientEndpoint(ringBuffer, builder.uri, isBinary ? "binary" : "text",
-        builder.timeoutSeconds);
+    if (TcpClientEndpoint.SCHEME.equals(builder.uri.getScheme())) {
+      this.endpoint = new TcpClientEndpoint(ringBuffer, builder.uri,
+          messageProvider.encodingType(), builder.timeoutSeconds);
+    } else {
+      final String subprotocol;
+      if (isBinary) {
+        subprotocol = builder.isFramed ? ClientEndpoint.FRAMED_SUBPROTOCOL : "binary";
+      } else {
+        subprotocol = "text";
+      }
+      this.endpoint = new ClientEndpoint(ringBuffer, builder.uri, subprotocol,
+          builder.timeoutSeconds);
+    }
   }
 
 
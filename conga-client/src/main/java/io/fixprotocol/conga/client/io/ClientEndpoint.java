@@ -32,6 +32,8 @@ import javax.net.ssl.SSLSessionContext;
 
 import io.fixprotocol.conga.buffer.BufferSupplier.BufferSupply;
 import io.fixprotocol.conga.buffer.RingBufferSupplier;
+import io.fixprotocol.conga.io.SofhDecoder;
+import io.fixprotocol.conga.io.SofhEncoder;
 
 import java.net.http.HttpClient;
 import java.net.http.HttpTimeoutException;
@@ -44,7 +46,15 @@ import java.net.http.WebSocketHandshakeException;
  * @author Don Mendelson
  *
  */
-public class ClientEndpoint implements AutoCloseable {
+public class ClientEndpoint implements ClientTransport {
+
+  /**
+   * Binary subprotocol in which several messages, each preceded by Simple Open Framing Header, may
+   * be received in one frame
+   */
+  public static final String FRAMED_SUBPROTOCOL = "sofh";
+
+  private static final int INITIAL_PARTIAL_CAPACITY = 4096;
 
   private final AtomicBoolean connectedCriticalSection = new AtomicBoolean();
 
@@ -56,7 +66,9 @@ public class ClientEndpoint implements AutoCloseable {
 
     public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer src, boolean last) {
 
-      if (src.hasRemaining()) {
+      if (isFramed) {
+        unframe(src);
+      } else if (src.hasRemaining()) {
         BufferSupply bufferSupply = ringBuffer.get();
         bufferSupply.acquireAndCopy(src);
         bufferSupply.release();
@@ -111,6 +123,9 @@ public class ClientEndpoint implements AutoCloseable {
 
   };
 
+  private final boolean isFramed;
+  // holds a partial message until the rest of it is received
+  private ByteBuffer partial = ByteBuffer.allocate(INITIAL_PARTIAL_CAPACITY);
   private final RingBufferSupplier ringBuffer;
   private String source;
   private final String subprotocol;
@@ -123,7 +138,8 @@ public class ClientEndpoint implements AutoCloseable {
    * 
    * @param ringBuffer buffer to queue incoming events
    * @param uri WebSocket URI of the remote server
-   * @param subprotocol WebSocket subprotocol
+   * @param subprotocol WebSocket subprotocol; if {@link #FRAMED_SUBPROTOCOL}, received messages
+   *        are unpacked from frames
    * @param timeoutSeconds timeout of open and send operations
    */
   public ClientEndpoint(RingBufferSupplier ringBuffer, URI uri, String subprotocol,
@@ -132,6 +148,7 @@ public class ClientEndpoint implements AutoCloseable {
     this.uri = uri;
     this.timeoutSeconds = timeoutSeconds;
     this.subprotocol = subprotocol;
+    this.isFramed = FRAMED_SUBPROTOCOL.equals(subprotocol);
   }
 
   @Override
@@ -148,6 +165,7 @@ public class ClientEndpoint implements AutoCloseable {
     }
   }
 
+  @Override
   public String getSource() {
     return source;
   }
@@ -171,6 +189,7 @@ public class ClientEndpoint implements AutoCloseable {
    *         </ul>
    * 
    */
+  @Override
   public void open() throws Exception {
     while (!connectedCriticalSection.compareAndSet(false, true)) {
       Thread.yield();
@@ -203,6 +222,7 @@ public class ClientEndpoint implements AutoCloseable {
    * @throws InterruptedException if the current thread is interrupted
    * @throws IOException if an I/O error occurs or the WebSocket is not open
    */
+  @Override
   public CompletableFuture<ByteBuffer> send(ByteBuffer data) throws Exception {
     CompletableFuture<WebSocket> future;
     if (null != webSocket) {
@@ -221,6 +241,58 @@ public class ClientEndpoint implements AutoCloseable {
     }
   }
 
+  private void copyMessage(ByteBuffer src, int offset, int length) {
+    final BufferSupply bufferSupply = ringBuffer.get();
+    final ByteBuffer message = src.duplicate();
+    message.limit(offset + length).position(offset);
+    bufferSupply.acquireAndCopy(message);
+    bufferSupply.release();
+  }
+
+  /**
+   * Publishes each complete message in a received fragment; an incomplete message is held until
+   * its remainder is received. Invoked only by the listener, one fragment at a time.
+   */
+  private void unframe(ByteBuffer src) {
+    if (partial.position() > 0) {
+      if (partial.remaining() < src.remaining()) {
+        final int capacity = Math.max(partial.capacity() * 2, partial.position() + src.remaining());
+        final ByteBuffer larger = ByteBuffer.allocate(capacity);
+        partial.flip();
+        larger.put(partial);
+        partial = larger;
+      }
+      partial.put(src);
+      partial.flip();
+      unframeMessages(partial);
+      partial.compact();
+    } else {
+      unframeMessages(src);
+      if (src.hasRemaining()) {
+        if (partial.capacity() < src.remaining()) {
+          partial = ByteBuffer.allocate(src.remaining());
+        }
+        partial.put(src);
+      }
+    }
+  }
+
+  private void unframeMessages(ByteBuffer src) {
+    int offset = src.position();
+    while (src.limit() - offset >= SofhEncoder.ENCODED_LENGTH) {
+      final int length = SofhDecoder.messageLength(src, offset);
+      final int messageOffset = offset + SofhEncoder.ENCODED_LENGTH;
+      if (src.limit() - messageOffset < length) {
+        break;
+      }
+      if (length > 0) {
+        copyMessage(src, messageOffset, length);
+      }
+      offset = messageOffset + length;
+    }
+    src.position(offset);
+  }
+
   @Override
   public String toString() {
     StringBuilder builder = new StringBuilder();
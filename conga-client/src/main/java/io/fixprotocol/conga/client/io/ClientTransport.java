@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.client.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Client side of a connection to an exchange
+ * <p>
+ * Received messages are enqueued in a ring buffer for asynchronous processing.
+ * 
+ * @author Don Mendelson
+ *
+ */
+public interface ClientTransport extends AutoCloseable {
+
+  /**
+   * @return identity of this client, known after the transport is opened
+   */
+  String getSource();
+
+  /**
+   * Opens a connection to the server
+   * 
+   * @throws Exception if the connection cannot be opened
+   */
+  void open() throws Exception;
+
+  /**
+   * Sends a buffer containing a complete message to the server
+   * 
+   * @param data The message consists of bytes from the buffer's position to its limit. Upon normal
+   *        completion the buffer will have no remaining bytes.
+   * @return if successful, returns a future containing the buffer that was sent upon completion
+   * @throws Exception if the transport is not open or the message cannot be sent
+   */
+  CompletableFuture<ByteBuffer> send(ByteBuffer data) throws Exception;
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.client.io;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.fixprotocol.conga.buffer.BufferSupplier.BufferSupply;
+import io.fixprotocol.conga.buffer.RingBufferSupplier;
+import io.fixprotocol.conga.io.SofhDecoder;
+import io.fixprotocol.conga.io.SofhEncoder;
+
+/**
+ * Plain TCP client endpoint
+ * <p>
+ * Each message in either direction is preceded by a Simple Open Framing Header. Sends are written
+ * synchronously with the header in one gathering write; received messages are read by a dedicated
+ * thread. Intended for clients co-located with the exchange, since there is no TLS.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class TcpClientEndpoint implements ClientTransport {
+
+  /**
+   * URI scheme of a TCP endpoint, for example {@code tcp://localhost:8026}
+   */
+  public static final String SCHEME = "tcp";
+
+  private static final int READ_BUFFER_CAPACITY = 64 * 1024;
+
+  private volatile SocketChannel channel = null;
+  private final short encodingCode;
+  // header and message of a send, guarded by this
+  private final ByteBuffer header;
+  private final ByteBuffer[] outbound = new ByteBuffer[2];
+  private Thread reader = null;
+  private final RingBufferSupplier ringBuffer;
+  private String source;
+  private final long timeoutSeconds;
+  private final URI uri;
+
+  /**
+   * Construct a TCP client endpoint
+   *
+   * @param ringBuffer buffer to queue incoming events
+   * @param uri URI of the remote server, with scheme {@link #SCHEME}
+   * @param encodingCode SOFH encoding type of sent messages
+   * @param timeoutSeconds timeout of open operation
+   */
+  public TcpClientEndpoint(RingBufferSupplier ringBuffer, URI uri, short encodingCode,
+      int timeoutSeconds) {
+    this.ringBuffer = ringBuffer;
+    this.uri = uri;
+    this.encodingCode = encodingCode;
+    this.timeoutSeconds = timeoutSeconds;
+    this.header = ByteBuffer.allocateDirect(SofhEncoder.ENCODED_LENGTH);
+    this.outbound[0] = header;
+  }
+
+  @Override
+  public synchronized void close() throws Exception {
+    final SocketChannel channel = this.channel;
+    if (channel != null) {
+      this.channel = null;
+      channel.close();
+    }
+    if (reader != null) {
+      reader.join(TimeUnit.SECONDS.toMillis(timeoutSeconds));
+      reader = null;
+    }
+  }
+
+  @Override
+  public String getSource() {
+    return source;
+  }
+
+  @Override
+  public synchronized void open() throws Exception {
+    if (channel == null) {
+      final SocketChannel channel = SocketChannel.open();
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      channel.socket().connect(new InetSocketAddress(uri.getHost(), uri.getPort()),
+          (int) TimeUnit.SECONDS.toMillis(timeoutSeconds));
+      final InetSocketAddress localAddress = (InetSocketAddress) channel.getLocalAddress();
+      source = localAddress.getHostString();
+      this.channel = channel;
+      reader = new Thread(() -> read(channel), "Tcp-reader");
+      reader.setDaemon(true);
+      reader.start();
+    }
+  }
+
+  /**
+   * Sends a buffer containing a complete message to the server synchronously
+   *
+   * @param data The message consists of bytes from the buffer's position to its limit. Upon normal
+   *        completion the buffer will have no remaining bytes.
+   * @return a completed future containing the buffer that was sent
+   * @throws IOException if an I/O error occurs or the socket is not open
+   */
+  @Override
+  public CompletableFuture<ByteBuffer> send(ByteBuffer data) throws IOException {
+    final SocketChannel channel = this.channel;
+    if (null == channel) {
+      throw new IOException("Socket not open");
+    }
+    synchronized (this) {
+      header.clear();
+      SofhEncoder.encode(header, 0, data.remaining(), encodingCode);
+      outbound[1] = data;
+      try {
+        while (header.hasRemaining() || data.hasRemaining()) {
+          channel.write(outbound);
+        }
+      } finally {
+        outbound[1] = null;
+      }
+    }
+    return CompletableFuture.completedFuture(data);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("TcpClientEndpoint [source=").append(source).append(", timeoutSeconds=")
+        .append(timeoutSeconds).append(", uri=").append(uri).append("]");
+    return builder.toString();
+  }
+
+  private void read(SocketChannel channel) {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_CAPACITY);
+    try {
+      while (channel.read(buffer) >= 0) {
+        buffer.flip();
+        int offset = buffer.position();
+        while (buffer.limit() - offset >= SofhEncoder.ENCODED_LENGTH) {
+          final int length = SofhDecoder.messageLength(buffer, offset);
+          if (length < 0 || length > buffer.capacity() - SofhEncoder.ENCODED_LENGTH) {
+            throw new IOException("Invalid message length " + length);
+          }
+          final int messageOffset = offset + SofhEncoder.ENCODED_LENGTH;
+          if (buffer.limit() - messageOffset < length) {
+            break;
+          }
+          final ByteBuffer message = buffer.duplicate();
+          message.limit(messageOffset + length).position(messageOffset);
+          final BufferSupply bufferSupply = ringBuffer.get();
+          bufferSupply.acquireAndCopy(message);
+          bufferSupply.release();
+          offset = messageOffset + length;
+        }
+        buffer.position(offset);
+        buffer.compact();
+      }
+    } catch (IOException e) {
+      // closed locally or by the server
+    } finally {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // already closed
+      }
+      if (this.channel == channel) {
+        this.channel = null;
+      }
+    }
+  }
+}
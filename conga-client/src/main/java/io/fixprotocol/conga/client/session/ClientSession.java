@@ -21,7 +21,7 @@ import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
-import io.fixprotocol.conga.client.io.ClientEndpoint;
+import io.fixprotocol.conga.client.io.ClientTransport;
 import io.fixprotocol.conga.session.Session;
 
 /**
@@ -30,7 +30,7 @@ import io.fixprotocol.conga.session.Session;
  */
 public class ClientSession extends Session {
 
-  private ClientEndpoint transport;
+  private ClientTransport transport;
   
   public static class Builder extends Session.Builder<ClientSession, Builder> {
 
@@ -52,10 +52,10 @@ public class ClientSession extends Session {
 
   @Override
   public boolean connected(Object transport, String principal) {
-    if (!(transport instanceof ClientEndpoint)) {
+    if (!(transport instanceof ClientTransport)) {
       throw new IllegalArgumentException("Unknown transport type");
     }
-    this.transport = (ClientEndpoint) transport;
+    this.transport = (ClientTransport) transport;
     return super.connected(transport, principal);
   }
 
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.client;
+
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import io.fixprotocol.conga.messages.appl.ApplicationMessageConsumer;
+import io.fixprotocol.conga.messages.appl.Message;
+import io.fixprotocol.conga.messages.appl.MutableNewOrderSingle;
+import io.fixprotocol.conga.messages.appl.OrdType;
+import io.fixprotocol.conga.messages.appl.Side;
+import io.fixprotocol.conga.session.SessionEvent;
+import io.fixprotocol.conga.session.SessionState;
+
+/**
+ * Compares round trip latency of an order and its execution report over WebSocket and plain TCP
+ * <p>
+ * Requires running Exchange with SBE encoding and the TCP transport enabled, e.g.
+ * {@code Exchange -e SBE -r 8026}
+ *
+ * @author Don Mendelson
+ *
+ */
+@Ignore
+public class TransportLatencyTest {
+
+  private static class LatencyListener
+      implements ApplicationMessageConsumer, Subscriber<SessionEvent> {
+    final Semaphore established = new Semaphore(0);
+    final Semaphore responses = new Semaphore(0);
+
+    @Override
+    public void accept(String source, Message message, long seqNo) {
+      responses.release();
+    }
+
+    @Override
+    public void onComplete() {
+
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      throwable.printStackTrace();
+    }
+
+    @Override
+    public void onNext(SessionEvent item) {
+      if (item.getState() == SessionState.ESTABLISHED) {
+        established.release();
+      }
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      subscription.request(Long.MAX_VALUE);
+    }
+  }
+
+  private static final String ENCODING = "SBE";
+  private static final int MEASURED = 10000;
+  private static final int WARMUP = 10000;
+
+  @Test
+  public void compare() throws Exception {
+    final long[] webSocket = measure(new URI("wss://localhost:8025/trade"));
+    final long[] tcp = measure(new URI("tcp://localhost:8026"));
+    report("WebSocket", webSocket);
+    report("TCP", tcp);
+    assertTrue(tcp[tcp.length / 2] > 0 && webSocket[webSocket.length / 2] > 0);
+  }
+
+  private long[] measure(URI uri) throws Exception {
+    final LatencyListener listener = new LatencyListener();
+    final Trader trader = Trader.builder().uri(uri).timeoutSeconds(2).messageListener(listener)
+        .encoding(ENCODING).sessionEventSubscriber(listener).build();
+    try {
+      trader.open();
+      assertTrue(listener.established.tryAcquire(2, TimeUnit.SECONDS));
+      final long[] latencies = new long[MEASURED];
+      for (int i = 0; i < WARMUP + MEASURED; i++) {
+        final long start = System.nanoTime();
+        // a resting order is acknowledged by one execution report
+        MutableNewOrderSingle order = trader.createOrder();
+        order.setClOrdId("L" + i);
+        order.setOrderQty(1);
+        order.setOrdType(OrdType.Limit);
+        order.setPrice(new BigDecimal("1.00"));
+        order.setSide(Side.Buy);
+        order.setSymbol("LAT");
+        order.setTransactTime(Instant.now());
+        trader.send(order);
+        assertTrue(listener.responses.tryAcquire(2, TimeUnit.SECONDS));
+        if (i >= WARMUP) {
+          latencies[i - WARMUP] = System.nanoTime() - start;
+        }
+      }
+      Arrays.sort(latencies);
+      return latencies;
+    } finally {
+      trader.close();
+    }
+  }
+
+  private static void report(String transport, long[] sorted) {
+    System.out.format("%s round trip micros: 50%%=%d 99%%=%d 99.9%%=%d max=%d%n", transport,
+        TimeUnit.NANOSECONDS.toMicros(sorted[sorted.length / 2]),
+        TimeUnit.NANOSECONDS.toMicros(sorted[(int) (sorted.length * 0.99)]),
+        TimeUnit.NANOSECONDS.toMicros(sorted[(int) (sorted.length * 0.999)]),
+        TimeUnit.NANOSECONDS.toMicros(sorted[sorted.length - 1]));
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.buffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Consumes buffers delivered in batches
+ *
+ * <p>
+ * A batch is a contiguous run of buffers that were available to a consumer at once. A consumer may
+ * defer expensive work, such as flushing output, until the last buffer of a batch is delivered.
+ *
+ * @author Don Mendelson
+ *
+ */
+@FunctionalInterface
+public interface BufferBatchConsumer {
+
+  /**
+   * Consume a buffer
+   *
+   * @param source originator of the buffer
+   * @param buffer holds a message to consume. Only valid for the duration of this invocation.
+   * @param endOfBatch {@code true} if this is the last buffer of a batch
+   */
+  void accept(String source, ByteBuffer buffer, boolean endOfBatch);
+
+}
@@ -17,23 +17,128 @@ package io.fixprotocol.conga.buffer;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * A thread-safe, non-blocking, fixed-size buffer pool
- * 
+ * A thread-safe, lock-free, fixed-size buffer pool
+ *
+ * <p>
+ * Pooled buffers are allocated when the pool is constructed and are held in a bounded queue that
+ * supports multiple producers and consumers without locks, so buffers may be got and released on
+ * any thread. The number of pooled buffers never exceeds the pool size. When the pool is empty,
+ * {@link #get()} acts according to an {@link ExhaustedPolicy}. Buffers allocated outside the pool
+ * are also bounded, so memory use of the pool is capped under any policy.
+ * <p>
+ * Hits, misses and the outcome of misses are counted.
+ *
  * @author Don Mendelson
  *
  */
 public class BufferPool implements BufferSupplier {
 
+  /**
+   * Action of {@link BufferPool#get()} when no pooled buffer is available
+   */
+  public enum ExhaustedPolicy {
+    /**
+     * Allocate a buffer that is not pooled; it is discarded when released. When the maximum
+     * number of such buffers is outstanding, wait as under {@link #Block}.
+     */
+    Allocate,
+    /**
+     * Wait until another thread releases a pooled buffer
+     */
+    Block,
+    /**
+     * Fail immediately; {@link BufferSupply#acquire()} of the returned supply returns
+     * {@code null}
+     */
+    Reject
+  }
+
+  public static class Builder {
+    private int capacity = DEFAULT_BUFFER_CAPACITY;
+    private ExhaustedPolicy exhaustedPolicy = ExhaustedPolicy.Allocate;
+    // defaults to pool size
+    private int maxOverflow = -1;
+    private ByteOrder order = ByteOrder.nativeOrder();
+    private int poolSize = DEFAULT_POOL_SIZE;
+
+    protected Builder() {
+
+    }
+
+    public BufferPool build() {
+      return new BufferPool(this);
+    }
+
+    /**
+     * @param capacity capacity of each buffer
+     * @return this Builder
+     */
+    public Builder capacity(int capacity) {
+      if (capacity <= 0) {
+        throw new IllegalArgumentException("Invalid buffer capacity");
+      }
+      this.capacity = capacity;
+      return this;
+    }
+
+    public Builder exhaustedPolicy(ExhaustedPolicy exhaustedPolicy) {
+      this.exhaustedPolicy = Objects.requireNonNull(exhaustedPolicy);
+      return this;
+    }
+
+    /**
+     * @param maxOverflow maximum number of buffers allocated outside the pool under
+     *        {@link ExhaustedPolicy#Allocate} that are not yet released; defaults to the pool size
+     * @return this Builder
+     */
+    public Builder maxOverflow(int maxOverflow) {
+      if (maxOverflow < 0) {
+        throw new IllegalArgumentException("Invalid maximum overflow");
+      }
+      this.maxOverflow = maxOverflow;
+      return this;
+    }
+
+    public Builder order(ByteOrder order) {
+      this.order = Objects.requireNonNull(order);
+      return this;
+    }
+
+    /**
+     * @param poolSize maximum number of pooled buffers
+     * @return this Builder
+     */
+    public Builder poolSize(int poolSize) {
+      if (poolSize <= 0) {
+        throw new IllegalArgumentException("Invalid pool size");
+      }
+      this.poolSize = poolSize;
+      return this;
+    }
+  }
+
   private class BufferPoolSupply implements BufferSupply {
 
     private final ByteBuffer buffer;
+    // true while held by the queue; guards against releasing twice
+    private final AtomicBoolean isAvailable = new AtomicBoolean();
+    private final boolean isPooled;
     private String source = null;
 
-    BufferPoolSupply() {
+    BufferPoolSupply(boolean isPooled) {
       this.buffer = ByteBuffer.allocateDirect(capacity).order(order);
+      this.isPooled = isPooled;
     }
 
     @Override
@@ -49,9 +154,15 @@ public class BufferPool implements BufferSupplier {
 
     @Override
     public void release() {
-      buffer.clear();
-      assert !queue.contains(this) : "BufferSupply already released to BufferPool";
-      queue.offer(this);
+      // a second release must not reset a buffer already supplied to another holder
+      if (isAvailable.compareAndSet(false, true)) {
+        buffer.clear();
+        if (isPooled) {
+          queue.offer(this);
+        } else {
+          overflowInUse.decrementAndGet();
+        }
+      }
     }
 
     @Override
@@ -61,51 +172,279 @@ public class BufferPool implements BufferSupplier {
 
   }
 
-  private final int capacity;
-  private final ArrayBlockingQueue<BufferPoolSupply> queue;
-  private final ByteOrder order;
+  /**
+   * Bounded multi-producer, multi-consumer queue
+   *
+   * <p>
+   * Each slot has a sequence number that tells producers and consumers whether it is free for the
+   * current lap, so a slot is claimed by a single compare-and-set of the head or tail.
+   */
+  private static final class SupplyQueue {
+    private final AtomicLong head = new AtomicLong();
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final AtomicReferenceArray<BufferPoolSupply> slots;
+    private final AtomicLong tail = new AtomicLong();
+
+    SupplyQueue(int minCapacity) {
+      int capacity = 1;
+      while (capacity < minCapacity) {
+        capacity <<= 1;
+      }
+      this.mask = capacity - 1;
+      this.slots = new AtomicReferenceArray<>(capacity);
+      this.sequences = new AtomicLongArray(capacity);
+      for (int i = 0; i < capacity; i++) {
+        sequences.set(i, i);
+      }
+    }
+
+    boolean offer(BufferPoolSupply supply) {
+      long position = tail.get();
+      for (;;) {
+        final int index = (int) position & mask;
+        final long difference = sequences.get(index) - position;
+        if (difference == 0) {
+          if (tail.compareAndSet(position, position + 1)) {
+            slots.lazySet(index, supply);
+            sequences.set(index, position + 1);
+            return true;
+          }
+          position = tail.get();
+        } else if (difference < 0) {
+          // slot may be claimed by a consumer that has not yet freed it
+          if (position - head.get() > mask) {
+            return false;
+          }
+          Thread.onSpinWait();
+          position = tail.get();
+        } else {
+          position = tail.get();
+        }
+      }
+    }
+
+    BufferPoolSupply poll() {
+      long position = head.get();
+      for (;;) {
+        final int index = (int) position & mask;
+        final long difference = sequences.get(index) - (position + 1);
+        if (difference == 0) {
+          if (head.compareAndSet(position, position + 1)) {
+            final BufferPoolSupply supply = slots.get(index);
+            slots.lazySet(index, null);
+            sequences.set(index, position + mask + 1);
+            return supply;
+          }
+          position = head.get();
+        } else if (difference < 0) {
+          // slot may be claimed by a producer that has not yet filled it
+          if (position >= tail.get()) {
+            return null;
+          }
+          Thread.onSpinWait();
+          position = head.get();
+        } else {
+          position = head.get();
+        }
+      }
+    }
+
+    int size() {
+      final long size = tail.get() - head.get();
+      return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+  }
 
   public static final int DEFAULT_BUFFER_CAPACITY = 1024;
   public static final int DEFAULT_POOL_SIZE = 16;
-  
+
+  private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+  private static final BufferSupply REJECTED = new BufferSupply() {
+
+    @Override
+    public ByteBuffer acquire() {
+      return null;
+    }
+
+    @Override
+    public String getSource() {
+      throw new IllegalStateException("Buffer not acquired");
+    }
+
+    @Override
+    public void release() {
+      // nothing acquired
+    }
+
+    @Override
+    public void setSource(String source) {
+      throw new IllegalStateException("Buffer not acquired");
+    }
+
+  };
+
+  /**
+   * Create a Builder
+   *
+   * @return a new Builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final int capacity;
+  private final ExhaustedPolicy exhaustedPolicy;
+  private final LongAdder hitCount = new LongAdder();
+  private final int maxOverflow;
+  private final LongAdder missCount = new LongAdder();
+  private final ByteOrder order;
+  private final LongAdder overflowCount = new LongAdder();
+  // buffers allocated outside the pool and not yet released
+  private final AtomicInteger overflowInUse = new AtomicInteger();
+  private final int poolSize;
+  private final SupplyQueue queue;
+  private final LongAdder rejectCount = new LongAdder();
+
   /**
    * Constructor with default capacity and pool size
    */
   public BufferPool() {
-    this(DEFAULT_BUFFER_CAPACITY, DEFAULT_POOL_SIZE, ByteOrder.nativeOrder());
+    this(builder());
   }
 
   /**
    * Constructor
-   * 
+   *
    * @param capacity buffer capacity
    * @param poolSize number of buffers in the pool
    * @param order byte order of each buffer
    */
   public BufferPool(int capacity, int poolSize, ByteOrder order) {
-    this.capacity = capacity;
-    this.order = order;
-    queue = new ArrayBlockingQueue<>(poolSize);
+    this(builder().capacity(capacity).poolSize(poolSize).order(order));
+  }
+
+  protected BufferPool(Builder builder) {
+    this.capacity = builder.capacity;
+    this.order = builder.order;
+    this.poolSize = builder.poolSize;
+    this.exhaustedPolicy = builder.exhaustedPolicy;
+    this.maxOverflow = builder.maxOverflow >= 0 ? builder.maxOverflow : builder.poolSize;
+    this.queue = new SupplyQueue(poolSize);
     for (int i = 0; i < poolSize; i++) {
-      queue.offer(newInstance());
+      final BufferPoolSupply supply = new BufferPoolSupply(true);
+      supply.isAvailable.set(true);
+      queue.offer(supply);
     }
   }
 
   @Override
   public BufferSupply get() {
-    BufferPoolSupply supply = queue.poll();
-    if (null == supply) {
-      supply = newInstance();
+    final BufferPoolSupply supply = queue.poll();
+    if (null != supply) {
+      hitCount.increment();
+      supply.isAvailable.set(false);
+      return supply;
     }
-    return supply;
+    missCount.increment();
+    switch (exhaustedPolicy) {
+      case Allocate:
+        // at the overflow limit, wait as under Block
+        return reserveOverflow() ? allocateOverflow() : awaitSupply();
+      case Block:
+        return awaitSupply();
+      default:
+        rejectCount.increment();
+        return REJECTED;
+    }
+  }
+
+  /**
+   * @return the number of times a pooled buffer was available
+   */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /**
+   * @return maximum number of buffers allocated outside the pool that are not yet released
+   */
+  public int getMaxOverflow() {
+    return maxOverflow;
+  }
+
+  /**
+   * @return the number of times no pooled buffer was available
+   */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * @return the number of buffers allocated outside the pool under
+   *         {@link ExhaustedPolicy#Allocate}, including those since released
+   */
+  public long getOverflowCount() {
+    return overflowCount.sum();
   }
 
+  /**
+   * @return maximum number of pooled buffers
+   */
+  public int getPoolSize() {
+    return poolSize;
+  }
+
+  /**
+   * @return the number of buffers not supplied under {@link ExhaustedPolicy#Reject}, or under
+   *         {@link ExhaustedPolicy#Block} if the waiting thread was interrupted
+   */
+  public long getRejectCount() {
+    return rejectCount.sum();
+  }
+
+  /**
+   * @return the number of pooled buffers currently available
+   */
   public int size() {
     return queue.size();
   }
 
-  private BufferPoolSupply newInstance() {
-    return new BufferPoolSupply();
+  private BufferSupply allocateOverflow() {
+    overflowCount.increment();
+    return new BufferPoolSupply(false);
+  }
+
+  /**
+   * Waits for a pooled buffer to be released or, under {@link ExhaustedPolicy#Allocate}, for an
+   * overflow buffer to be released
+   */
+  private BufferSupply awaitSupply() {
+    BufferPoolSupply supply;
+    while (null == (supply = queue.poll())) {
+      if (Thread.currentThread().isInterrupted()) {
+        rejectCount.increment();
+        return REJECTED;
+      }
+      if (exhaustedPolicy == ExhaustedPolicy.Allocate && reserveOverflow()) {
+        return allocateOverflow();
+      }
+      LockSupport.parkNanos(BLOCK_PARK_NANOS);
+    }
+    supply.isAvailable.set(false);
+    return supply;
+  }
+
+  private boolean reserveOverflow() {
+    int inUse;
+    do {
+      inUse = overflowInUse.get();
+      if (inUse >= maxOverflow) {
+        return false;
+      }
+    } while (!overflowInUse.compareAndSet(inUse, inUse + 1));
+    return true;
   }
 
 }
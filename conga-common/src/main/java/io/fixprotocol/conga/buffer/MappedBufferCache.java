@@ -0,0 +1,304 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.buffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A cache of message buffers that spills older messages to a memory-mapped file
+ *
+ * <p>
+ * Like {@link BufferCache}, messages are indexed by sequence number and may only be added in
+ * sequence. The most recent messages are held in memory by a {@link SlabBufferCache}, bounded by a
+ * number of messages and a size in bytes. When a message is evicted from the window, it is appended
+ * to a spill file, and its offset is recorded in a memory-mapped index, so that every message added
+ * since this cache was created or cleared remains available. Heap use does not grow with the
+ * number of messages.
+ * <p>
+ * Spilled messages are returned as slices of the mapped file, without copying. Files are only
+ * created when the first message is spilled, in a directory given to the Builder, and they are
+ * deleted when this cache is closed.
+ * <p>
+ * Null element values are not accepted. Not thread-safe; a Session serializes adding and reading
+ * messages.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class MappedBufferCache extends AbstractList<ByteBuffer> implements Closeable {
+
+  public static class Builder {
+    private final Path directory;
+    private ByteOrder order = ByteOrder.nativeOrder();
+    private int regionSize = DEFAULT_REGION_SIZE;
+    private int windowCapacity = SlabBufferCache.DEFAULT_CACHE_CAPACITY;
+    private int windowSize = SlabBufferCache.DEFAULT_SLAB_SIZE;
+
+    protected Builder(Path directory) {
+      this.directory = Objects.requireNonNull(directory);
+    }
+
+    public MappedBufferCache build() {
+      if (windowSize + Integer.BYTES > regionSize) {
+        throw new IllegalArgumentException("Region size cannot hold largest message");
+      }
+      return new MappedBufferCache(this);
+    }
+
+    public Builder order(ByteOrder order) {
+      this.order = Objects.requireNonNull(order);
+      return this;
+    }
+
+    /**
+     * @param regionSize size in bytes of each mapped region of spill and index files
+     * @return this Builder
+     */
+    public Builder regionSize(int regionSize) {
+      if (regionSize < Long.BYTES) {
+        throw new IllegalArgumentException("Invalid region size");
+      }
+      this.regionSize = regionSize;
+      return this;
+    }
+
+    /**
+     * @param windowCapacity maximum number of recent messages held in memory
+     * @return this Builder
+     */
+    public Builder windowCapacity(int windowCapacity) {
+      if (windowCapacity <= 0) {
+        throw new IllegalArgumentException("Invalid window capacity");
+      }
+      this.windowCapacity = windowCapacity;
+      return this;
+    }
+
+    /**
+     * @param windowSize maximum total size in bytes of recent messages held in memory; also the
+     *        maximum size of a message
+     * @return this Builder
+     */
+    public Builder windowSize(int windowSize) {
+      if (windowSize <= 0) {
+        throw new IllegalArgumentException("Invalid window size");
+      }
+      this.windowSize = windowSize;
+      return this;
+    }
+  }
+
+  public static final int DEFAULT_REGION_SIZE = 16 * 1024 * 1024;
+
+  /**
+   * Create a Builder
+   *
+   * @param directory directory of spill files
+   * @return a new Builder
+   */
+  public static Builder builder(Path directory) {
+    return new Builder(directory);
+  }
+
+  private FileChannel dataChannel = null;
+  private final List<MappedByteBuffer> dataRegions = new ArrayList<>();
+  // offset in spill file of the next spilled message
+  private long dataTail = 0;
+  private final Path directory;
+  private FileChannel indexChannel = null;
+  private final List<MappedByteBuffer> indexRegions = new ArrayList<>();
+  private final ByteOrder order;
+  private final int regionSize;
+  private final SlabBufferCache window;
+
+  protected MappedBufferCache(Builder builder) {
+    this.directory = builder.directory;
+    this.order = builder.order;
+    this.regionSize = builder.regionSize;
+    this.window =
+        new SlabBufferCache(builder.windowCapacity, builder.windowSize, order, this::spill);
+  }
+
+  /**
+   * Append a message
+   *
+   * @param src buffer to be copied into the cache. Its position is not changed.
+   * @return {@code true} if added, or {@code false} if src is {@code null}
+   * @throws java.nio.BufferOverflowException if the message is larger than the window
+   * @throws UncheckedIOException if an older message in memory could not be spilled
+   */
+  @Override
+  public boolean add(ByteBuffer src) {
+    return window.add(src);
+  }
+
+  /**
+   * Insert a new buffer value. The optional operation is supported only under the condition that
+   * {@code index} is the next expected value.
+   *
+   * @param index index at which the specified element is to be inserted
+   * @param src buffer to be copied into the cache
+   */
+  @Override
+  public void add(int index, ByteBuffer src) {
+    window.add(index, src);
+  }
+
+  /**
+   * Remove all messages. Spill files are retained for reuse.
+   */
+  @Override
+  public void clear() {
+    window.clear();
+    dataTail = 0;
+  }
+
+  /**
+   * Release memory mappings and delete spill files
+   */
+  @Override
+  public void close() throws IOException {
+    clear();
+    dataRegions.clear();
+    indexRegions.clear();
+    if (dataChannel != null) {
+      dataChannel.close();
+      dataChannel = null;
+    }
+    if (indexChannel != null) {
+      indexChannel.close();
+      indexChannel = null;
+    }
+  }
+
+  /**
+   * Returns a message
+   *
+   * @param index sequence number of a message
+   * @return a buffer positioned at the start of the message, limited to its length. A spilled
+   *         message is a view of the mapped file.
+   * @throws IndexOutOfBoundsException if the index is negative or not yet added
+   */
+  @Override
+  public ByteBuffer get(int index) {
+    if (index < 0 || index >= window.getMinimumIndex()) {
+      return window.get(index);
+    }
+    final long offset = indexRegions.get(index / entriesPerRegion())
+        .getLong((index % entriesPerRegion()) * Long.BYTES);
+    final MappedByteBuffer region = dataRegions.get((int) (offset / regionSize));
+    final int position = (int) (offset % regionSize);
+    final int length = region.getInt(position);
+    final ByteBuffer message = region.duplicate();
+    message.limit(position + Integer.BYTES + length).position(position + Integer.BYTES);
+    return message.slice().order(order);
+  }
+
+  /**
+   * @return the number of messages that have been spilled to file
+   */
+  public int getSpilledCount() {
+    return window.getMinimumIndex();
+  }
+
+  /**
+   * Replace a message in memory. Spilled messages may not be replaced.
+   *
+   * @param index sequence number of a message
+   * @param src buffer to be copied into the cache
+   * @return the replacing element
+   * @throws IndexOutOfBoundsException if the message is not held in memory
+   */
+  @Override
+  public ByteBuffer set(int index, ByteBuffer src) {
+    return window.set(index, src);
+  }
+
+  @Override
+  public int size() {
+    return window.size();
+  }
+
+  private int entriesPerRegion() {
+    return regionSize / Long.BYTES;
+  }
+
+  private static MappedByteBuffer map(FileChannel channel, List<MappedByteBuffer> regions,
+      int regionSize) throws IOException {
+    final MappedByteBuffer region =
+        channel.map(MapMode.READ_WRITE, (long) regions.size() * regionSize, regionSize);
+    regions.add(region);
+    return region;
+  }
+
+  private static FileChannel open(Path directory, String suffix) throws IOException {
+    Files.createDirectories(directory);
+    final Path path = Files.createTempFile(directory, "send", suffix);
+    return FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+        StandardOpenOption.DELETE_ON_CLOSE);
+  }
+
+  /**
+   * Appends a message that is evicted from the window to the spill file
+   */
+  private void spill(ByteBuffer src, int index) {
+    final int length = src.remaining();
+    try {
+      if (dataChannel == null) {
+        dataChannel = open(directory, ".dat");
+        indexChannel = open(directory, ".idx");
+      }
+      int position = (int) (dataTail % regionSize);
+      // a message is not split across regions
+      if (position + Integer.BYTES + length > regionSize) {
+        dataTail += regionSize - position;
+        position = 0;
+      }
+      final int regionIndex = (int) (dataTail / regionSize);
+      final MappedByteBuffer region = regionIndex < dataRegions.size()
+          ? dataRegions.get(regionIndex)
+          : map(dataChannel, dataRegions, regionSize);
+      region.putInt(position, length);
+      final ByteBuffer dest = region.duplicate();
+      dest.position(position + Integer.BYTES);
+      dest.put(src);
+
+      final int indexRegionIndex = index / entriesPerRegion();
+      final MappedByteBuffer indexRegion = indexRegionIndex < indexRegions.size()
+          ? indexRegions.get(indexRegionIndex)
+          : map(indexChannel, indexRegions, regionSize);
+      indexRegion.putLong((index % entriesPerRegion()) * Long.BYTES, dataTail);
+      dataTail += Integer.BYTES + length;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+}
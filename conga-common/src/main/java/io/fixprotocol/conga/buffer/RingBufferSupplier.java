@@ -17,14 +17,19 @@ package io.fixprotocol.conga.buffer;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Objects;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 
+import com.lmax.disruptor.BlockingWaitStrategy;
 import com.lmax.disruptor.BusySpinWaitStrategy;
 import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.InsufficientCapacityException;
 import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 
@@ -32,13 +37,129 @@ import com.lmax.disruptor.dsl.ProducerType;
  * A circular buffer of reusable buffers
  * 
  * <p>
- * Supports a single writer thread only.
+ * By default, multiple writer threads are supported. Each thread is given its own
+ * {@link BufferSupply} by {@link #get()}, so a buffer must be acquired, populated and released on
+ * the same thread. If it is known that there is only one writer thread, the cost of coordinating
+ * producers may be avoided with {@link Builder#multiProducer(boolean)}.
+ * <p>
+ * When the circular buffer is full, a writer experiences backpressure. Occurrences are counted and
+ * handled according to a {@link BackpressurePolicy}.
+ * <p>
+ * Buffers are delivered to the consumer thread in batches of those available when it wakes. A
+ * {@link BufferBatchConsumer} is told the end of each batch so that it may amortize work such as
+ * flushing output over all buffers of the batch.
  * 
  * @author Don Mendelson
  *
  */
 public class RingBufferSupplier implements BufferSupplier {
 
+  /**
+   * Action of a writer when the circular buffer is full
+   */
+  public enum BackpressurePolicy {
+    /**
+     * Wait until the consumer frees a slot
+     */
+    Block,
+    /**
+     * Fail to acquire a buffer immediately; {@link BufferSupply#acquire()} returns {@code null}
+     */
+    Reject
+  }
+
+  /**
+   * Strategy of the consumer thread while waiting for buffers, trading latency for CPU usage
+   */
+  public enum WaitStrategy {
+    /**
+     * Lowest latency; consumes a core
+     */
+    BusySpin,
+    /**
+     * Spins, then yields to other threads
+     */
+    Yielding,
+    /**
+     * Spins, then yields, then sleeps briefly
+     */
+    Sleeping,
+    /**
+     * Waits on a lock; lowest CPU usage but highest latency
+     */
+    Blocking
+  }
+
+  public static class Builder {
+    private BackpressurePolicy backpressurePolicy = BackpressurePolicy.Block;
+    private int capacity = DEFAULT_BUFFER_CAPACITY;
+    private final BufferBatchConsumer consumer;
+    private boolean isMultiProducer = true;
+    private ByteOrder order = ByteOrder.nativeOrder();
+    private int queueDepth = DEFAULT_QUEUE_DEPTH;
+    private ThreadFactory threadFactory = Executors.defaultThreadFactory();
+    private WaitStrategy waitStrategy = WaitStrategy.BusySpin;
+
+    protected Builder(BufferBatchConsumer consumer) {
+      this.consumer = Objects.requireNonNull(consumer);
+    }
+
+    public RingBufferSupplier build() {
+      return new RingBufferSupplier(this);
+    }
+
+    public Builder backpressurePolicy(BackpressurePolicy backpressurePolicy) {
+      this.backpressurePolicy = Objects.requireNonNull(backpressurePolicy);
+      return this;
+    }
+
+    /**
+     * @param capacity capacity of each buffer. Should be a multiple of cache line.
+     * @return this Builder
+     */
+    public Builder capacity(int capacity) {
+      this.capacity = capacity;
+      return this;
+    }
+
+    /**
+     * @param isMultiProducer {@code true} if buffers may be supplied to more than one thread
+     * @return this Builder
+     */
+    public Builder multiProducer(boolean isMultiProducer) {
+      this.isMultiProducer = isMultiProducer;
+      return this;
+    }
+
+    public Builder order(ByteOrder order) {
+      this.order = Objects.requireNonNull(order);
+      return this;
+    }
+
+    /**
+     * @param queueDepth number of slots in the circular buffer. Must be a power of 2.
+     * @return this Builder
+     */
+    public Builder queueDepth(int queueDepth) {
+      this.queueDepth = queueDepth;
+      return this;
+    }
+
+    /**
+     * @param threadFactory creates a thread to dequeue buffers and invoke consumer
+     * @return this Builder
+     */
+    public Builder threadFactory(ThreadFactory threadFactory) {
+      this.threadFactory = Objects.requireNonNull(threadFactory);
+      return this;
+    }
+
+    public Builder waitStrategy(WaitStrategy waitStrategy) {
+      this.waitStrategy = Objects.requireNonNull(waitStrategy);
+      return this;
+    }
+  }
+
   private class BufferEvent {
     private final ByteBuffer buffer;
     private String source = null;
@@ -61,48 +182,42 @@ public class RingBufferSupplier implements BufferSupplier {
 
   }
 
-  public static final int DEFAULT_BUFFER_CAPACITY = 1024;
-  public static final int DEFAULT_QUEUE_DEPTH = 64;
-
-  private final int capacity;
-  private final BiConsumer<String, ByteBuffer> consumer;
-  private Disruptor<BufferEvent> disruptor;
-
-  private final EventHandler<BufferEvent> eventHandler = new EventHandler<>() {
-
-    @Override
-    public void onEvent(BufferEvent event, long sequence, boolean endOfBatch) throws Exception {
-      consumer.accept(event.getSource(), event.getBuffer());
-    }
-
-  };
-
-  private final int queueDepth;
-
-  private RingBuffer<BufferEvent> ringBuffer = null;
-
-  private final BufferSupplier.BufferSupply supply = new BufferSupplier.BufferSupply() {
+  /**
+   * Claims slots of the circular buffer for one writer thread
+   */
+  private class RingBufferSupply implements BufferSupplier.BufferSupply {
 
     private BufferEvent bufferEvent = null;
-    private final AtomicReference<BufferEvent> eventRef = new AtomicReference<>();
     private long sequence;
 
     @Override
     public ByteBuffer acquire() {
-      sequence = ringBuffer.next();
-      if (eventRef.compareAndSet(null, ringBuffer.get(sequence))) {
-        bufferEvent = eventRef.get();
-        final ByteBuffer buffer = bufferEvent.getBuffer();
-        buffer.clear();
-        return buffer;
-      } else {
-        return null;
+      if (null != bufferEvent) {
+        throw new IllegalStateException("Buffer already acquired");
       }
+      final RingBuffer<BufferEvent> ring = ringBuffer;
+      if (null == ring) {
+        throw new IllegalStateException("RingBufferSupplier not started");
+      }
+      try {
+        sequence = ring.tryNext();
+      } catch (InsufficientCapacityException e) {
+        backpressureCount.incrementAndGet();
+        if (backpressurePolicy == BackpressurePolicy.Reject) {
+          rejectCount.incrementAndGet();
+          return null;
+        }
+        sequence = ring.next();
+      }
+      bufferEvent = ring.get(sequence);
+      final ByteBuffer buffer = bufferEvent.getBuffer();
+      buffer.clear();
+      return buffer;
     }
 
     @Override
     public String getSource() {
-      if ((null != bufferEvent) && eventRef.compareAndSet(bufferEvent, bufferEvent)) {
+      if (null != bufferEvent) {
         return bufferEvent.getSource();
       } else {
         throw new IllegalStateException("Buffer not acquired");
@@ -111,24 +226,71 @@ public class RingBufferSupplier implements BufferSupplier {
 
     @Override
     public void release() {
-      if ((null != bufferEvent) && eventRef.compareAndSet(bufferEvent, null)) {
+      if (null != bufferEvent) {
+        bufferEvent = null;
         ringBuffer.publish(sequence);
       }
     }
 
     @Override
     public void setSource(String source) {
-      if ((null != bufferEvent) && eventRef.compareAndSet(bufferEvent, bufferEvent)) {
+      if (null != bufferEvent) {
         bufferEvent.setSource(source);
       } else {
         throw new IllegalStateException("Buffer not acquired");
       }
     }
 
+  }
+
+  public static final int DEFAULT_BUFFER_CAPACITY = 1024;
+  public static final int DEFAULT_QUEUE_DEPTH = 64;
+
+  /**
+   * Create a Builder
+   * 
+   * @param consumer handles queued buffers
+   * @return a new Builder
+   */
+  public static Builder builder(BiConsumer<String, ByteBuffer> consumer) {
+    Objects.requireNonNull(consumer);
+    return new Builder((source, buffer, endOfBatch) -> consumer.accept(source, buffer));
+  }
+
+  /**
+   * Create a Builder for a consumer that is told the end of each batch
+   * 
+   * @param consumer handles queued buffers
+   * @return a new Builder
+   */
+  public static Builder builder(BufferBatchConsumer consumer) {
+    return new Builder(consumer);
+  }
+
+  private final AtomicLong backpressureCount = new AtomicLong();
+  private final BackpressurePolicy backpressurePolicy;
+  private final int capacity;
+  private final BufferBatchConsumer consumer;
+  private Disruptor<BufferEvent> disruptor;
+
+  private final EventHandler<BufferEvent> eventHandler = new EventHandler<>() {
+
+    @Override
+    public void onEvent(BufferEvent event, long sequence, boolean endOfBatch) throws Exception {
+      consumer.accept(event.getSource(), event.getBuffer(), endOfBatch);
+    }
+
   };
 
-  private final ThreadFactory threadFactory;
+  private final boolean isMultiProducer;
   private final ByteOrder order;
+  private final int queueDepth;
+  private final AtomicLong rejectCount = new AtomicLong();
+  private volatile RingBuffer<BufferEvent> ringBuffer = null;
+  private final ThreadLocal<RingBufferSupply> supply =
+      ThreadLocal.withInitial(RingBufferSupply::new);
+  private final ThreadFactory threadFactory;
+  private final WaitStrategy waitStrategy;
 
   /**
    * Constructor with default thread factory and capacity
@@ -136,7 +298,7 @@ public class RingBufferSupplier implements BufferSupplier {
    * @param consumer handles queued buffers
    */
   public RingBufferSupplier(BiConsumer<String, ByteBuffer> consumer) {
-    this(consumer, DEFAULT_BUFFER_CAPACITY, ByteOrder.nativeOrder(), DEFAULT_QUEUE_DEPTH, Executors.defaultThreadFactory());
+    this(builder(consumer));
   }
 
   /**
@@ -147,7 +309,7 @@ public class RingBufferSupplier implements BufferSupplier {
    * @param queueDepth number of slots in the circular buffer. Must be a power of 2.
    */
   public RingBufferSupplier(BiConsumer<String, ByteBuffer> consumer, int capacity, int queueDepth) {
-    this(consumer, capacity, ByteOrder.nativeOrder(), queueDepth, Executors.defaultThreadFactory());
+    this(builder(consumer).capacity(capacity).queueDepth(queueDepth));
   }
 
   /**
@@ -161,16 +323,57 @@ public class RingBufferSupplier implements BufferSupplier {
    */
   public RingBufferSupplier(BiConsumer<String, ByteBuffer> consumer, int capacity, ByteOrder order, int queueDepth,
       ThreadFactory threadFactory) {
-    this.capacity = capacity;
-    this.order = order;
-    this.threadFactory = threadFactory;
-    this.consumer = consumer;
-    this.queueDepth = queueDepth;
+    this(builder(consumer).capacity(capacity).order(order).queueDepth(queueDepth)
+        .threadFactory(threadFactory));
   }
 
+  protected RingBufferSupplier(Builder builder) {
+    this.capacity = builder.capacity;
+    this.order = builder.order;
+    this.threadFactory = builder.threadFactory;
+    this.consumer = builder.consumer;
+    this.queueDepth = builder.queueDepth;
+    this.isMultiProducer = builder.isMultiProducer;
+    this.waitStrategy = builder.waitStrategy;
+    this.backpressurePolicy = builder.backpressurePolicy;
+  }
+
+  /**
+   * Returns the buffer supply of the current thread
+   */
   @Override
   public BufferSupply get() {
-    return supply;
+    return supply.get();
+  }
+
+  /**
+   * @return the capacity of each buffer; a larger message cannot be supplied
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the number of times a writer found the circular buffer full
+   */
+  public long getBackpressureCount() {
+    return backpressureCount.get();
+  }
+
+  /**
+   * @return the number of buffers that were not supplied because the circular buffer was full
+   *         under {@link BackpressurePolicy#Reject}
+   */
+  public long getRejectCount() {
+    return rejectCount.get();
+  }
+
+  /**
+   * @return the number of free slots in the circular buffer, or zero if not started
+   */
+  public long getRemainingCapacity() {
+    final RingBuffer<BufferEvent> ring = ringBuffer;
+    return ring != null ? ring.remainingCapacity() : 0L;
   }
 
   /**
@@ -179,7 +382,7 @@ public class RingBufferSupplier implements BufferSupplier {
   public void start() {
     if (disruptor == null) {
       disruptor = new Disruptor<BufferEvent>(BufferEvent::new, queueDepth, threadFactory,
-          ProducerType.SINGLE, new BusySpinWaitStrategy());
+          isMultiProducer ? ProducerType.MULTI : ProducerType.SINGLE, newWaitStrategy());
 
       // Connect the handler
       disruptor.handleEventsWith(eventHandler);
@@ -201,5 +404,17 @@ public class RingBufferSupplier implements BufferSupplier {
     }
   }
 
+  private com.lmax.disruptor.WaitStrategy newWaitStrategy() {
+    switch (waitStrategy) {
+      case Blocking:
+        return new BlockingWaitStrategy();
+      case Sleeping:
+        return new SleepingWaitStrategy();
+      case Yielding:
+        return new YieldingWaitStrategy();
+      default:
+        return new BusySpinWaitStrategy();
+    }
+  }
 
 }
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.buffer;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractList;
+import java.util.Objects;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A cache of recent message buffers packed into a single off-heap slab
+ *
+ * <p>
+ * Unlike {@link BufferCache}, which preallocates a buffer of maximum message size for each entry,
+ * messages of any length are copied back-to-back into one direct buffer that is used circularly.
+ * The offset and length of each message are indexed by its position in the list. A message is
+ * never split; if it does not fit at the end of the slab, it is written at the start.
+ * <p>
+ * The cache is bounded by a number of messages and by the size of the slab. When adding a message
+ * would exceed either bound, the oldest messages are evicted. An eviction listener, if any, is
+ * invoked with each message before its space is reused.
+ * <p>
+ * Messages are returned as views of the slab, without copying. A view is only valid until its
+ * message is evicted. Null element values are not accepted. Not thread-safe; a Session serializes
+ * adding and reading messages.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class SlabBufferCache extends AbstractList<ByteBuffer> {
+
+  public static final int DEFAULT_CACHE_CAPACITY = 1024;
+  public static final int DEFAULT_SLAB_SIZE = 64 * 1024;
+
+  private final ObjIntConsumer<ByteBuffer> evictionListener;
+  // offset in slab of the next message
+  private int head = 0;
+  private final int[] lengths;
+  private volatile int maxIndex = -1;
+  private int minIndex = 0;
+  private final int[] offsets;
+  private final ByteOrder order;
+  private final ByteBuffer slab;
+
+  /**
+   * Constructor with default capacity and slab size
+   */
+  public SlabBufferCache() {
+    this(DEFAULT_CACHE_CAPACITY, DEFAULT_SLAB_SIZE, ByteOrder.nativeOrder());
+  }
+
+  /**
+   * Constructor with capacity limits
+   *
+   * @param cacheCapacity maximum number of messages in this cache
+   * @param slabSize maximum total size in bytes of messages in this cache
+   * @param order byte order of returned buffers
+   */
+  public SlabBufferCache(int cacheCapacity, int slabSize, ByteOrder order) {
+    this(cacheCapacity, slabSize, order, null);
+  }
+
+  /**
+   * Constructor with capacity limits and an eviction listener
+   *
+   * @param cacheCapacity maximum number of messages in this cache
+   * @param slabSize maximum total size in bytes of messages in this cache
+   * @param order byte order of returned buffers
+   * @param evictionListener invoked with each evicted message and its index, in order of index,
+   *        or {@code null}
+   */
+  public SlabBufferCache(int cacheCapacity, int slabSize, ByteOrder order,
+      ObjIntConsumer<ByteBuffer> evictionListener) {
+    if (cacheCapacity <= 0) {
+      throw new IllegalArgumentException("Invalid cache capacity");
+    }
+    if (slabSize <= 0) {
+      throw new IllegalArgumentException("Invalid slab size");
+    }
+    this.order = Objects.requireNonNull(order);
+    this.slab = ByteBuffer.allocateDirect(slabSize);
+    this.offsets = new int[cacheCapacity];
+    this.lengths = new int[cacheCapacity];
+    this.evictionListener = evictionListener;
+  }
+
+  /**
+   * Append a message
+   *
+   * @param src buffer to be copied into the cache. Its position is not changed.
+   * @return {@code true} if added, or {@code false} if src is {@code null}
+   * @throws BufferOverflowException if the message is larger than the slab
+   */
+  @Override
+  public boolean add(ByteBuffer src) {
+    if (null == src) {
+      return false;
+    }
+    final int length = src.remaining();
+    if (length > slab.capacity()) {
+      throw new BufferOverflowException();
+    }
+    final int index = maxIndex + 1;
+    final boolean isWrapped = head + length > slab.capacity();
+    final int offset = isWrapped ? 0 : head;
+    while (minIndex < index) {
+      final int slot = minIndex % offsets.length;
+      final int oldOffset = offsets[slot];
+      // an empty message occupies its position so that ring order is kept
+      final int oldEnd = oldOffset + Math.max(lengths[slot], 1);
+      if (index - minIndex == offsets.length || (isWrapped && oldOffset >= head)
+          || (oldOffset < offset + length && offset < oldEnd)) {
+        evict();
+      } else {
+        break;
+      }
+    }
+    final ByteBuffer dest = slab.duplicate();
+    dest.position(offset);
+    dest.put(src.duplicate());
+    final int slot = index % offsets.length;
+    offsets[slot] = offset;
+    lengths[slot] = length;
+    head = offset + length;
+    maxIndex = index;
+    return true;
+  }
+
+  /**
+   * Insert a new buffer value. The optional operation is supported only under the condition that
+   * {@code index} is the next expected value.
+   *
+   * @param index index at which the specified element is to be inserted
+   * @param src buffer to be copied into the cache
+   */
+  @Override
+  public void add(int index, ByteBuffer src) {
+    Objects.requireNonNull(src);
+    if (index != maxIndex + 1) {
+      throw new IndexOutOfBoundsException("Index is not next value");
+    }
+    add(src);
+  }
+
+  /**
+   * Remove all messages without notifying the eviction listener
+   */
+  @Override
+  public void clear() {
+    maxIndex = -1;
+    minIndex = 0;
+    head = 0;
+  }
+
+  /**
+   * Returns a message
+   *
+   * @param index index of a message
+   * @return a view of the message in the slab
+   * @throws IndexOutOfBoundsException if the message was evicted or not yet added
+   */
+  @Override
+  public ByteBuffer get(int index) {
+    if (index < minIndex || index > maxIndex) {
+      throw new IndexOutOfBoundsException("Invalid index " + index);
+    }
+    final int slot = index % offsets.length;
+    final ByteBuffer message = slab.duplicate();
+    message.limit(offsets[slot] + lengths[slot]).position(offsets[slot]);
+    return message.slice().order(order);
+  }
+
+  /**
+   * @return index of the oldest message that has not been evicted
+   */
+  public int getMinimumIndex() {
+    return minIndex;
+  }
+
+  /**
+   * Replace a message with one that is no longer
+   *
+   * @param index index of a message
+   * @param src buffer to be copied into the cache
+   * @return a view of the replacing message
+   * @throws IndexOutOfBoundsException if the message was evicted or not yet added
+   * @throws IllegalArgumentException if src is longer than the message it replaces
+   */
+  @Override
+  public ByteBuffer set(int index, ByteBuffer src) {
+    Objects.requireNonNull(src);
+    if (index < minIndex || index > maxIndex) {
+      throw new IndexOutOfBoundsException("Invalid index " + index);
+    }
+    final int slot = index % offsets.length;
+    if (src.remaining() > lengths[slot]) {
+      throw new IllegalArgumentException("Replacement longer than message");
+    }
+    final ByteBuffer dest = slab.duplicate();
+    dest.position(offsets[slot]);
+    lengths[slot] = src.remaining();
+    dest.put(src.duplicate());
+    return get(index);
+  }
+
+  @Override
+  public int size() {
+    return maxIndex + 1;
+  }
+
+  private void evict() {
+    if (evictionListener != null) {
+      evictionListener.accept(get(minIndex), minIndex);
+    }
+    minIndex++;
+  }
+
+}
@@ -0,0 +1,422 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes messages to a log by group commit
+ *
+ * <p>
+ * Messages written by any number of threads are copied into a staging buffer and committed
+ * together by a background thread in a single write. A group is committed when the commit interval
+ * elapses, when the staging buffer holds its maximum group size or cannot hold the next message,
+ * or when {@link #flush()} is invoked at the end of a batch, whichever comes first. The future
+ * returned by {@link #writeAsync(ByteBuffer, short)} is completed on the commit thread after the
+ * group containing the message is written; {@link #write(ByteBuffer, short)} creates no future.
+ * <p>
+ * Two direct staging buffers are allocated when the log is built, and they alternate: messages are
+ * copied into one while the other is committed. Memory is therefore bounded. When both are in
+ * use, a writer blocks until a commit completes, so a slow disk applies backpressure to writers
+ * rather than letting a queue grow.
+ * <p>
+ * Messages are delimited by FIX Simple Open Framing Header and appended to an existing file, as by
+ * {@link MessageLogWriter}. Under any {@link DurabilityPolicy} other than {@code None}, each group
+ * is forced to storage before its futures are completed.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class GroupCommitLogWriter implements MessageJournal {
+
+  public static class Builder {
+    private int bufferCapacity = DEFAULT_BUFFER_CAPACITY;
+    private long commitInterval = DEFAULT_COMMIT_INTERVAL;
+    private DurabilityPolicy durabilityPolicy = DurabilityPolicy.None;
+    private int maxGroupSize = DEFAULT_MAX_GROUP_SIZE;
+    private final Path path;
+    private ThreadFactory threadFactory = Executors.defaultThreadFactory();
+    private boolean truncateExisting = false;
+
+    protected Builder(Path path) {
+      this.path = Objects.requireNonNull(path);
+    }
+
+    /**
+     * @param bufferCapacity capacity in bytes of each staging buffer, which bounds the size of a
+     *        message including its delimiter
+     * @return this Builder
+     */
+    public Builder bufferCapacity(int bufferCapacity) {
+      if (bufferCapacity <= SofhEncoder.ENCODED_LENGTH) {
+        throw new IllegalArgumentException("Invalid buffer capacity");
+      }
+      this.bufferCapacity = bufferCapacity;
+      return this;
+    }
+
+    public GroupCommitLogWriter build() {
+      return new GroupCommitLogWriter(this);
+    }
+
+    /**
+     * @param commitInterval maximum interval in micros that a message waits to be committed
+     * @return this Builder
+     */
+    public Builder commitInterval(long commitInterval) {
+      if (commitInterval <= 0) {
+        throw new IllegalArgumentException("Invalid commit interval");
+      }
+      this.commitInterval = commitInterval;
+      return this;
+    }
+
+    public Builder durabilityPolicy(DurabilityPolicy durabilityPolicy) {
+      this.durabilityPolicy = Objects.requireNonNull(durabilityPolicy);
+      return this;
+    }
+
+    /**
+     * @param maxGroupSize maximum number of messages committed by one write
+     * @return this Builder
+     */
+    public Builder maxGroupSize(int maxGroupSize) {
+      if (maxGroupSize < 1) {
+        throw new IllegalArgumentException("Invalid group size");
+      }
+      this.maxGroupSize = maxGroupSize;
+      return this;
+    }
+
+    /**
+     * @param threadFactory creates the commit thread
+     * @return this Builder
+     */
+    public Builder threadFactory(ThreadFactory threadFactory) {
+      this.threadFactory = Objects.requireNonNull(threadFactory);
+      return this;
+    }
+
+    /**
+     * @param truncateExisting if {@code true} an existing file is truncated, else an existing file
+     *        is appended.
+     * @return this Builder
+     */
+    public Builder truncateExisting(boolean truncateExisting) {
+      this.truncateExisting = truncateExisting;
+      return this;
+    }
+  }
+
+  /**
+   * Messages staged for one commit
+   */
+  private static final class Group {
+    final ByteBuffer buffer;
+    int count = 0;
+    // futures of messages written by writeAsync(); null for other messages
+    final CompletableFuture<Long>[] futures;
+    final int[] lengths;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Group(int capacity, int maxGroupSize) {
+      this.buffer = ByteBuffer.allocateDirect(capacity);
+      this.futures = new CompletableFuture[maxGroupSize];
+      this.lengths = new int[maxGroupSize];
+    }
+
+    void clear() {
+      buffer.clear();
+      Arrays.fill(futures, 0, count, null);
+      count = 0;
+    }
+  }
+
+  public static final int DEFAULT_BUFFER_CAPACITY = 1024 * 1024;
+  public static final long DEFAULT_COMMIT_INTERVAL = 1000L;
+  public static final int DEFAULT_MAX_GROUP_SIZE = 1024;
+
+  /**
+   * Create a Builder
+   *
+   * @param path file path of the log
+   * @return a new Builder
+   */
+  public static Builder builder(Path path) {
+    return new Builder(path);
+  }
+
+  private final int bufferCapacity;
+  private FileChannel channel;
+  private final long commitIntervalNanos;
+  private final AtomicLong commitCount = new AtomicLong();
+  private Thread committer = null;
+  private final DurabilityPolicy durabilityPolicy;
+  // group being filled by writers; guarded by lock
+  private Group filling;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final int maxGroupSize;
+  private final Condition notFull = lock.newCondition();
+  private final Path path;
+  private volatile boolean running = false;
+  // group not being filled; accessed only by the commit thread
+  private Group spare;
+  private final ThreadFactory threadFactory;
+  private final boolean truncateExisting;
+
+  protected GroupCommitLogWriter(Builder builder) {
+    this.path = builder.path;
+    this.truncateExisting = builder.truncateExisting;
+    this.commitIntervalNanos = TimeUnit.MICROSECONDS.toNanos(builder.commitInterval);
+    this.maxGroupSize = builder.maxGroupSize;
+    this.durabilityPolicy = builder.durabilityPolicy;
+    this.threadFactory = builder.threadFactory;
+    this.bufferCapacity = builder.bufferCapacity;
+    this.filling = new Group(builder.bufferCapacity, maxGroupSize);
+    this.spare = new Group(builder.bufferCapacity, maxGroupSize);
+  }
+
+  /**
+   * Commit queued messages and close the log
+   */
+  @Override
+  public void close() throws IOException {
+    if (committer != null) {
+      lock.lock();
+      try {
+        running = false;
+        // release writers waiting for space
+        notFull.signalAll();
+      } finally {
+        lock.unlock();
+      }
+      LockSupport.unpark(committer);
+      try {
+        committer.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      committer = null;
+    }
+    if (channel != null && channel.isOpen()) {
+      channel.force(true);
+      channel.close();
+    }
+  }
+
+  /**
+   * Commit queued messages without waiting for the commit interval to elapse
+   * <p>
+   * Does not block; the commit is performed by the commit thread.
+   */
+  @Override
+  public void flush() {
+    final Thread thread = committer;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  /**
+   * @return the number of gathering writes performed
+   */
+  public long getCommitCount() {
+    return commitCount.get();
+  }
+
+  /**
+   * Open the log and start the commit thread
+   *
+   * @throws IOException if the log cannot be opened
+   */
+  @Override
+  public void open() throws IOException {
+    if (channel == null) {
+      // if path has a directory, create full directory tree
+      final Path parent = path.toAbsolutePath().getParent();
+      if (parent != null) {
+        parent.toFile().mkdirs();
+      }
+      if (truncateExisting) {
+        channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+      } else {
+        channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+      }
+      running = true;
+      committer = threadFactory.newThread(this::commitLoop);
+      committer.start();
+    }
+  }
+
+  /**
+   * Write a message to the log
+   * <p>
+   * The remaining bytes of buffer are copied, so the buffer may be reused when this method
+   * returns. Its position is not changed. Blocks while both staging buffers are in use.
+   *
+   * @param buffer holds a message
+   * @param encodingCode SOFH encoding type
+   * @return the number of bytes of the message, not including a message delimiter
+   * @throws IllegalArgumentException if the message does not fit in a staging buffer
+   * @throws IllegalStateException if the log is not open
+   * @throws InterruptedIOException if interrupted while waiting for a staging buffer
+   */
+  @Override
+  public int write(ByteBuffer buffer, short encodingCode) throws IOException {
+    return stage(buffer, encodingCode, null);
+  }
+
+  /**
+   * Write a message to the log
+   * <p>
+   * The remaining bytes of buffer are copied, so the buffer may be reused when this method
+   * returns. Its position is not changed. Blocks while both staging buffers are in use.
+   *
+   * @param buffer holds a message
+   * @param encodingCode SOFH encoding type
+   * @return a future that is completed with the number of bytes of the message, not including a
+   *         message delimiter, when its group is committed. If interrupted while waiting for a
+   *         staging buffer, the future is completed exceptionally with
+   *         {@code InterruptedIOException}.
+   * @throws IllegalArgumentException if the message does not fit in a staging buffer
+   * @throws IllegalStateException if the log is not open
+   */
+  public CompletableFuture<Long> writeAsync(ByteBuffer buffer, short encodingCode) {
+    final CompletableFuture<Long> future = new CompletableFuture<>();
+    try {
+      stage(buffer, encodingCode, future);
+    } catch (InterruptedIOException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Commits the staged group, if any
+   *
+   * @return {@code true} if any messages were committed
+   */
+  private boolean commit() {
+    final Group group;
+    lock.lock();
+    try {
+      if (filling.count == 0) {
+        return false;
+      }
+      group = filling;
+      filling = spare;
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    spare = group;
+    final ByteBuffer buffer = group.buffer;
+    buffer.flip();
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      if (durabilityPolicy != DurabilityPolicy.None) {
+        channel.force(false);
+      }
+      commitCount.incrementAndGet();
+      for (int i = 0; i < group.count; i++) {
+        if (group.futures[i] != null) {
+          group.futures[i].complete((long) group.lengths[i]);
+        }
+      }
+    } catch (IOException e) {
+      for (int i = 0; i < group.count; i++) {
+        if (group.futures[i] != null) {
+          group.futures[i].completeExceptionally(e);
+        }
+      }
+    } finally {
+      group.clear();
+    }
+    return true;
+  }
+
+  private void commitLoop() {
+    while (running) {
+      // a writer that fills the staging buffer unparks this thread
+      LockSupport.parkNanos(this, commitIntervalNanos);
+      commit();
+    }
+    // drain messages staged before close
+    while (commit()) {
+    }
+  }
+
+  private int stage(ByteBuffer buffer, short encodingCode, CompletableFuture<Long> future)
+      throws InterruptedIOException {
+    final int length = buffer.remaining();
+    final int recordLength = SofhEncoder.ENCODED_LENGTH + length;
+    if (recordLength > bufferCapacity) {
+      throw new IllegalArgumentException("Message too large for staging buffer");
+    }
+    lock.lock();
+    try {
+      while (running && (filling.count == maxGroupSize
+          || filling.buffer.remaining() < recordLength)) {
+        flush();
+        try {
+          notFull.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted waiting for staging buffer");
+        }
+      }
+      if (!running) {
+        throw new IllegalStateException("Log not open");
+      }
+      final Group group = filling;
+      final ByteBuffer staging = group.buffer;
+      final int offset = staging.position();
+      SofhEncoder.encode(staging, offset, length, encodingCode);
+      MessageJournalWriter.copy(buffer, buffer.position(), staging,
+          offset + SofhEncoder.ENCODED_LENGTH, length);
+      staging.position(offset + recordLength);
+      group.futures[group.count] = future;
+      group.lengths[group.count] = length;
+      group.count++;
+      if (group.count == maxGroupSize) {
+        flush();
+      }
+    } finally {
+      lock.unlock();
+    }
+    return length;
+  }
+
+}
@@ -0,0 +1,516 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Reads a message log in place by memory-mapping it
+ *
+ * <p>
+ * Messages are returned as slices of the mapped file, so they are not copied. A slice is valid
+ * until this reader is closed.
+ * <p>
+ * Records are indexed by record number, starting at zero, so that any message may be accessed
+ * directly. If a timestamp extractor is supplied, records are also indexed by timestamp. Timestamps
+ * are assumed to be non-decreasing in log order, as when they are assigned as messages are
+ * journaled.
+ * <p>
+ * The index is saved to a sidecar file, by default the log path with suffix {@code .idx}, and
+ * loaded when the log is opened again. If the log has grown since the index was saved, only the new
+ * records are scanned.
+ * <p>
+ * To stream a log without allocating per message, use {@link #replay(RecordConsumer)}.
+ * <p>
+ * A log may be larger than can be mapped by a single buffer. It is mapped in regions, each of which
+ * begins at a record boundary. The largest record must fit in one region.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class MappedMessageLogReader implements Closeable {
+
+  public static class Builder {
+    private Path indexPath = null;
+    private ByteOrder order = ByteOrder.nativeOrder();
+    private final Path path;
+    private int regionSize = DEFAULT_REGION_SIZE;
+    private ToLongFunction<ByteBuffer> timestampExtractor = null;
+
+    protected Builder(Path path) {
+      this.path = Objects.requireNonNull(path);
+    }
+
+    public MappedMessageLogReader build() {
+      return new MappedMessageLogReader(this);
+    }
+
+    /**
+     * @param indexPath path of the sidecar index file
+     * @return this Builder
+     */
+    public Builder indexPath(Path indexPath) {
+      this.indexPath = Objects.requireNonNull(indexPath);
+      return this;
+    }
+
+    /**
+     * @param order byte order of returned message buffers
+     * @return this Builder
+     */
+    public Builder order(ByteOrder order) {
+      this.order = Objects.requireNonNull(order);
+      return this;
+    }
+
+    /**
+     * @param regionSize maximum size in bytes of a mapped region of the log
+     * @return this Builder
+     */
+    public Builder regionSize(int regionSize) {
+      if (regionSize <= SofhEncoder.ENCODED_LENGTH) {
+        throw new IllegalArgumentException("Invalid region size");
+      }
+      this.regionSize = regionSize;
+      return this;
+    }
+
+    /**
+     * @param timestampExtractor returns the timestamp of a message, passed as a buffer positioned
+     *        at its start. It must not change the position of the buffer.
+     * @return this Builder
+     */
+    public Builder timestampExtractor(ToLongFunction<ByteBuffer> timestampExtractor) {
+      this.timestampExtractor = Objects.requireNonNull(timestampExtractor);
+      return this;
+    }
+  }
+
+  /**
+   * Consumes records of a log in place
+   */
+  @FunctionalInterface
+  public interface RecordConsumer {
+
+    /**
+     * Consume a record
+     *
+     * @param message buffer with position at the start of the message and limit at its end. The
+     *        buffer is reused for subsequent records, so it is only valid for the duration of this
+     *        invocation.
+     * @param encodingCode SOFH encoding type of the message
+     */
+    void accept(ByteBuffer message, short encodingCode);
+  }
+
+  public static final int DEFAULT_REGION_SIZE = 1 << 30;
+  public static final String INDEX_SUFFIX = ".idx";
+
+  private static final int INDEX_HEADER_LENGTH = 28;
+  private static final int INDEX_MAGIC = 0x43494458;
+  private static final int INDEX_VERSION = 1;
+  private static final int INITIAL_INDEX_CAPACITY = 1024;
+
+  /**
+   * Create a Builder
+   *
+   * @param path file path of a log
+   * @return a new Builder
+   */
+  public static Builder builder(Path path) {
+    return new Builder(path);
+  }
+
+  private FileChannel channel;
+  // offset of the end of the last indexed record
+  private long coveredLength;
+  private long fileSize;
+  private final Path indexPath;
+  private Map.Entry<Long, MappedByteBuffer> lastRegion;
+  private long nextRecord = 0;
+  private long[] offsets = new long[INITIAL_INDEX_CAPACITY];
+  private final ByteOrder order;
+  private final Path path;
+  private int recordCount = 0;
+  private final TreeMap<Long, MappedByteBuffer> regions = new TreeMap<>();
+  private final int regionSize;
+  private final ToLongFunction<ByteBuffer> timestampExtractor;
+  private long[] timestamps;
+
+  protected MappedMessageLogReader(Builder builder) {
+    this.path = builder.path;
+    this.indexPath = builder.indexPath != null ? builder.indexPath
+        : path.resolveSibling(path.getFileName() + INDEX_SUFFIX);
+    this.order = builder.order;
+    this.regionSize = builder.regionSize;
+    this.timestampExtractor = builder.timestampExtractor;
+    this.timestamps = timestampExtractor != null ? new long[INITIAL_INDEX_CAPACITY] : null;
+  }
+
+  /**
+   * Close the log. Message buffers previously returned are no longer valid.
+   */
+  @Override
+  public void close() throws IOException {
+    regions.clear();
+    lastRegion = null;
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+  }
+
+  /**
+   * Returns the SOFH encoding type of a record
+   *
+   * @param recordNumber zero-based record number
+   * @return encoding code
+   * @throws IndexOutOfBoundsException if the record does not exist
+   */
+  public short getEncoding(long recordNumber) {
+    final long offset = getOffset(recordNumber);
+    final ByteBuffer region = region(offset, SofhEncoder.ENCODED_LENGTH);
+    return region.getShort((int) (offset - lastRegion.getKey()) + 4);
+  }
+
+  /**
+   * Returns a message in place
+   *
+   * @param recordNumber zero-based record number
+   * @return a buffer positioned at the start of the message with limit at its end
+   * @throws IndexOutOfBoundsException if the record does not exist
+   */
+  public ByteBuffer getMessage(long recordNumber) {
+    final long offset = getOffset(recordNumber);
+    ByteBuffer region = region(offset, SofhEncoder.ENCODED_LENGTH);
+    final int length = region.getInt((int) (offset - lastRegion.getKey()));
+    // the region holding the header may end within the message
+    region = region(offset, SofhEncoder.ENCODED_LENGTH + length);
+    final int headerIndex = (int) (offset - lastRegion.getKey());
+    return slice(region, headerIndex + SofhEncoder.ENCODED_LENGTH, length);
+  }
+
+  /**
+   * @return number of records in the log
+   */
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Returns the timestamp of a record
+   *
+   * @param recordNumber zero-based record number
+   * @return timestamp extracted from the message
+   * @throws IllegalStateException if no timestamp extractor was supplied
+   * @throws IndexOutOfBoundsException if the record does not exist
+   */
+  public long getTimestamp(long recordNumber) {
+    if (timestamps == null) {
+      throw new IllegalStateException("Log not indexed by timestamp");
+    }
+    checkRecordNumber(recordNumber);
+    return timestamps[(int) recordNumber];
+  }
+
+  /**
+   * Returns the next message in sequence and advances
+   *
+   * @return a message buffer, or {@code null} if there are no more records
+   */
+  public ByteBuffer next() {
+    if (nextRecord < recordCount) {
+      return getMessage(nextRecord++);
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Open the log and load or build its index
+   * <p>
+   * If the index was built or extended, it is saved to the sidecar file.
+   *
+   * @throws IOException if the log cannot be opened or the index cannot be saved
+   */
+  public void open() throws IOException {
+    if (channel == null) {
+      channel = FileChannel.open(path, StandardOpenOption.READ);
+      fileSize = channel.size();
+      recordCount = 0;
+      coveredLength = 0;
+      final boolean isLoaded = loadIndex();
+      final long loadedLength = coveredLength;
+      scan(coveredLength);
+      if (!isLoaded || coveredLength != loadedLength) {
+        saveIndex();
+      }
+      nextRecord = 0;
+    }
+  }
+
+  /**
+   * Delivers each record from the current position to the end of the log, then advances to the end
+   * <p>
+   * Records are delivered in a reused buffer, so no objects are allocated per record.
+   *
+   * @param consumer receives records
+   * @return the number of records delivered
+   */
+  public long replay(RecordConsumer consumer) {
+    Map.Entry<Long, MappedByteBuffer> viewRegion = null;
+    ByteBuffer view = null;
+    long count = 0;
+    while (nextRecord < recordCount) {
+      final long offset = offsets[(int) nextRecord];
+      ByteBuffer region = region(offset, SofhEncoder.ENCODED_LENGTH);
+      final int length = region.getInt((int) (offset - lastRegion.getKey()));
+      region = region(offset, SofhEncoder.ENCODED_LENGTH + length);
+      if (lastRegion != viewRegion) {
+        viewRegion = lastRegion;
+        view = region.duplicate().order(order);
+      }
+      final int headerIndex = (int) (offset - viewRegion.getKey());
+      final short encodingCode = region.getShort(headerIndex + 4);
+      view.limit(headerIndex + SofhEncoder.ENCODED_LENGTH + length);
+      view.position(headerIndex + SofhEncoder.ENCODED_LENGTH);
+      nextRecord++;
+      consumer.accept(view, encodingCode);
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Positions this reader so that {@link #next()} returns a specific record
+   *
+   * @param recordNumber zero-based record number
+   * @throws IndexOutOfBoundsException if recordNumber is negative or greater than the number of
+   *         records
+   */
+  public void seek(long recordNumber) {
+    if (recordNumber < 0 || recordNumber > recordCount) {
+      throw new IndexOutOfBoundsException("Invalid record number " + recordNumber);
+    }
+    nextRecord = recordNumber;
+  }
+
+  /**
+   * Positions this reader so that {@link #next()} returns the first record with a timestamp that is
+   * not before a specified time
+   *
+   * @param timestamp time to seek
+   * @return the record number of the first such record, or the number of records if there is none
+   * @throws IllegalStateException if no timestamp extractor was supplied
+   */
+  public long seekTimestamp(long timestamp) {
+    if (timestamps == null) {
+      throw new IllegalStateException("Log not indexed by timestamp");
+    }
+    int low = 0;
+    int high = recordCount;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (timestamps[mid] < timestamp) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    nextRecord = low;
+    return low;
+  }
+
+  private void addRecord(long offset, long timestamp) {
+    if (recordCount == offsets.length) {
+      offsets = Arrays.copyOf(offsets, recordCount * 2);
+      if (timestamps != null) {
+        timestamps = Arrays.copyOf(timestamps, recordCount * 2);
+      }
+    }
+    offsets[recordCount] = offset;
+    if (timestamps != null) {
+      timestamps[recordCount] = timestamp;
+    }
+    recordCount++;
+  }
+
+  private void checkRecordNumber(long recordNumber) {
+    if (recordNumber < 0 || recordNumber >= recordCount) {
+      throw new IndexOutOfBoundsException("Invalid record number " + recordNumber);
+    }
+  }
+
+  private long getOffset(long recordNumber) {
+    checkRecordNumber(recordNumber);
+    return offsets[(int) recordNumber];
+  }
+
+  /**
+   * Loads the sidecar index if it is consistent with the log
+   *
+   * @return {@code true} if the index was loaded
+   */
+  private boolean loadIndex() throws IOException {
+    if (!Files.exists(indexPath)) {
+      return false;
+    }
+    try (FileChannel indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+      final ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_LENGTH);
+      while (header.hasRemaining() && indexChannel.read(header) > 0) {
+        // fill header
+      }
+      header.flip();
+      if (header.remaining() < INDEX_HEADER_LENGTH || header.getInt() != INDEX_MAGIC
+          || header.getInt() != INDEX_VERSION) {
+        return false;
+      }
+      final boolean hasTimestamps = header.getInt() != 0;
+      final long length = header.getLong();
+      final long count = header.getLong();
+      if (hasTimestamps != (timestamps != null) || length > fileSize || count > Integer.MAX_VALUE
+          || indexChannel.size() != INDEX_HEADER_LENGTH + count * entryLength()) {
+        return false;
+      }
+      final MappedByteBuffer entries = indexChannel.map(FileChannel.MapMode.READ_ONLY,
+          INDEX_HEADER_LENGTH, count * entryLength());
+      recordCount = 0;
+      offsets = new long[Math.max(INITIAL_INDEX_CAPACITY, (int) count)];
+      if (timestamps != null) {
+        timestamps = new long[offsets.length];
+      }
+      for (int i = 0; i < count; i++) {
+        final long offset = entries.getLong();
+        final long timestamp = hasTimestamps ? entries.getLong() : 0L;
+        addRecord(offset, timestamp);
+      }
+      coveredLength = length;
+      return true;
+    }
+  }
+
+  private int entryLength() {
+    return timestamps != null ? 2 * Long.BYTES : Long.BYTES;
+  }
+
+  /**
+   * Returns a mapped region that contains a range of the log, mapping one if needed
+   * <p>
+   * Side effect: the region becomes the last region accessed.
+   */
+  private ByteBuffer region(long offset, int length) {
+    Map.Entry<Long, MappedByteBuffer> entry = lastRegion;
+    if (entry == null || !contains(entry, offset, length)) {
+      entry = regions.floorEntry(offset);
+      if (entry == null || !contains(entry, offset, length)) {
+        final long size = Math.min(regionSize, fileSize - offset);
+        try {
+          final MappedByteBuffer buffer =
+              channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+          regions.put(offset, buffer);
+          entry = regions.floorEntry(offset);
+        } catch (IOException e) {
+          throw new IllegalStateException("Failed to map log region", e);
+        }
+      }
+      lastRegion = entry;
+    }
+    return entry.getValue();
+  }
+
+  private static boolean contains(Map.Entry<Long, MappedByteBuffer> entry, long offset,
+      int length) {
+    final long start = entry.getKey();
+    return offset >= start && offset + length <= start + entry.getValue().capacity();
+  }
+
+  private void saveIndex() throws IOException {
+    final Path tempPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+    try (FileChannel indexChannel = FileChannel.open(tempPath, StandardOpenOption.WRITE,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+      buffer.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putInt(timestamps != null ? 1 : 0)
+          .putLong(coveredLength).putLong(recordCount);
+      for (int i = 0; i < recordCount; i++) {
+        if (buffer.remaining() < entryLength()) {
+          buffer.flip();
+          while (buffer.hasRemaining()) {
+            indexChannel.write(buffer);
+          }
+          buffer.clear();
+        }
+        buffer.putLong(offsets[i]);
+        if (timestamps != null) {
+          buffer.putLong(timestamps[i]);
+        }
+      }
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        indexChannel.write(buffer);
+      }
+    }
+    Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Index records from an offset to the end of the log
+   * <p>
+   * A header with zero length, such as the unused tail of a journal segment, or an incomplete
+   * record ends the log.
+   */
+  private void scan(long from) {
+    long offset = from;
+    while (offset + SofhEncoder.ENCODED_LENGTH <= fileSize) {
+      ByteBuffer region = region(offset, SofhEncoder.ENCODED_LENGTH);
+      final int length = region.getInt((int) (offset - lastRegion.getKey()));
+      final int recordLength = SofhEncoder.ENCODED_LENGTH + length;
+      if (length <= 0 || offset + recordLength > fileSize || recordLength > regionSize) {
+        break;
+      }
+      region = region(offset, recordLength);
+      long timestamp = 0L;
+      if (timestampExtractor != null) {
+        final int headerIndex = (int) (offset - lastRegion.getKey());
+        timestamp = timestampExtractor
+            .applyAsLong(slice(region, headerIndex + SofhEncoder.ENCODED_LENGTH, length));
+      }
+      addRecord(offset, timestamp);
+      offset += recordLength;
+    }
+    coveredLength = offset;
+  }
+
+  private ByteBuffer slice(ByteBuffer region, int index, int length) {
+    final ByteBuffer message = region.duplicate();
+    message.limit(index + length).position(index);
+    return message.slice().order(order);
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * An append-only log of messages delimited by FIX Simple Open Framing Header
+ *
+ * <p>
+ * A message passed to {@link #write(ByteBuffer, short)} is copied before that method returns, so
+ * its buffer may be reused immediately. Whether and when a written message reaches storage depends
+ * on the implementation and its {@link DurabilityPolicy}.
+ *
+ * @author Don Mendelson
+ *
+ */
+public interface MessageJournal extends Closeable {
+
+  /**
+   * When written messages are forced to storage
+   */
+  enum DurabilityPolicy {
+    /**
+     * Left to the operating system, except when the journal is closed
+     */
+    None,
+    /**
+     * At a fixed interval by a background thread
+     */
+    Periodic,
+    /**
+     * When {@link MessageJournal#flush()} is invoked at the end of a batch
+     */
+    Batch
+  }
+
+  /**
+   * Marks the end of a batch of writes
+   *
+   * @throws IOException if an IO error occurs
+   */
+  void flush() throws IOException;
+
+  /**
+   * Open the journal
+   *
+   * @throws IOException if the journal cannot be opened
+   */
+  void open() throws IOException;
+
+  /**
+   * Write a message to the journal
+   * <p>
+   * The remaining bytes of buffer are copied; its position is not changed.
+   *
+   * @param buffer holds a message
+   * @param encodingCode SOFH encoding type
+   * @return the number of bytes of the message, not including a message delimiter
+   * @throws IOException if an IO error occurs
+   */
+  int write(ByteBuffer buffer, short encodingCode) throws IOException;
+
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.io;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes messages to a memory-mapped journal
+ *
+ * <p>
+ * The journal is a series of pre-sized file segments. When a segment is full, the journal rolls
+ * over to a new segment. Segment files are named by inserting a segment number before the extension
+ * of the journal path, e.g. {@code inbound.0.log}, {@code inbound.1.log}. When opened, the journal
+ * appends to its last existing segment.
+ * <p>
+ * Messages are delimited by FIX Simple Open Framing Header, so a segment may be read by
+ * {@link MessageLogReader}. The unused tail of a segment is zero-filled, which a reader sees as a
+ * message of zero length. Therefore, empty messages may not be written.
+ * <p>
+ * Writes may be invoked concurrently. Each writer claims space for a record, header and message,
+ * without locking and copies it in one contiguous write. The header length is written last so
+ * that a record is complete once its length is visible. Only a roll to a new segment takes a lock.
+ * <p>
+ * Writes are synchronous but not durable by themselves; durability is governed by a
+ * {@link DurabilityPolicy}.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class MessageJournalWriter implements MessageJournal {
+
+  public static class Builder {
+    private DurabilityPolicy durabilityPolicy = DurabilityPolicy.None;
+    private long forceInterval = DEFAULT_FORCE_INTERVAL;
+    private final Path path;
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+
+    protected Builder(Path path) {
+      this.path = Objects.requireNonNull(path);
+    }
+
+    public MessageJournalWriter build() {
+      return new MessageJournalWriter(this);
+    }
+
+    public Builder durabilityPolicy(DurabilityPolicy durabilityPolicy) {
+      this.durabilityPolicy = Objects.requireNonNull(durabilityPolicy);
+      return this;
+    }
+
+    /**
+     * @param forceInterval interval in millis to force the journal to storage under
+     *        {@link DurabilityPolicy#Periodic}
+     * @return this Builder
+     */
+    public Builder forceInterval(long forceInterval) {
+      if (forceInterval <= 0) {
+        throw new IllegalArgumentException("Invalid force interval");
+      }
+      this.forceInterval = forceInterval;
+      return this;
+    }
+
+    /**
+     * @param segmentSize size of each segment file in bytes. Must hold the largest record.
+     * @return this Builder
+     */
+    public Builder segmentSize(int segmentSize) {
+      if (segmentSize <= SofhEncoder.ENCODED_LENGTH) {
+        throw new IllegalArgumentException("Invalid segment size");
+      }
+      this.segmentSize = segmentSize;
+      return this;
+    }
+  }
+
+  private static final class Segment {
+    final MappedByteBuffer buffer;
+    final int capacity;
+    final int index;
+    final AtomicLong tail;
+
+    Segment(int index, MappedByteBuffer buffer, int tail) {
+      this.index = index;
+      this.buffer = buffer;
+      this.capacity = buffer.capacity();
+      this.tail = new AtomicLong(tail);
+    }
+  }
+
+  public static final long DEFAULT_FORCE_INTERVAL = 1000L;
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * Create a Builder
+   *
+   * @param path path of the journal. Segment numbers are inserted into the file name.
+   * @return a new Builder
+   */
+  public static Builder builder(Path path) {
+    return new Builder(path);
+  }
+
+  /**
+   * Returns the path of a segment file
+   *
+   * @param path path of a journal
+   * @param index segment number
+   * @return path of the segment
+   */
+  public static Path segmentPath(Path path, int index) {
+    final String name = path.getFileName().toString();
+    final int dot = name.lastIndexOf('.');
+    final String segmentName = dot > 0
+        ? name.substring(0, dot) + "." + index + name.substring(dot)
+        : name + "." + index;
+    return path.resolveSibling(segmentName);
+  }
+
+  /**
+   * Copies bytes between buffers by absolute index, changing neither position
+   */
+  static void copy(ByteBuffer src, int srcOffset, ByteBuffer dst, int dstOffset, int length) {
+    final boolean isSwapped = src.order() != dst.order();
+    int i = 0;
+    for (; i <= length - Long.BYTES; i += Long.BYTES) {
+      final long value = src.getLong(srcOffset + i);
+      dst.putLong(dstOffset + i, isSwapped ? Long.reverseBytes(value) : value);
+    }
+    for (; i < length; i++) {
+      dst.put(dstOffset + i, src.get(srcOffset + i));
+    }
+  }
+
+  private volatile Segment current = null;
+  private final DurabilityPolicy durabilityPolicy;
+  private final long forceInterval;
+  private final Path path;
+  private final int segmentSize;
+  private Timer timer = null;
+  // a rolled segment that may hold writes not yet forced
+  private volatile Segment unforced = null;
+
+  protected MessageJournalWriter(Builder builder) {
+    this.path = builder.path;
+    this.segmentSize = builder.segmentSize;
+    this.durabilityPolicy = builder.durabilityPolicy;
+    this.forceInterval = builder.forceInterval;
+  }
+
+  /**
+   * Force written messages to storage and close the journal
+   */
+  @Override
+  public void close() throws IOException {
+    if (timer != null) {
+      timer.cancel();
+      timer = null;
+    }
+    if (current != null) {
+      force();
+      current = null;
+    }
+  }
+
+  /**
+   * Marks the end of a batch of writes
+   * <p>
+   * Forces written messages to storage under {@link DurabilityPolicy#Batch}; otherwise, does
+   * nothing.
+   */
+  @Override
+  public void flush() {
+    if (durabilityPolicy == DurabilityPolicy.Batch) {
+      force();
+    }
+  }
+
+  /**
+   * Force written messages to storage
+   */
+  public void force() {
+    final Segment rolled = unforced;
+    if (rolled != null) {
+      rolled.buffer.force();
+      unforced = null;
+    }
+    final Segment segment = current;
+    if (segment != null) {
+      segment.buffer.force();
+    }
+  }
+
+  public DurabilityPolicy getDurabilityPolicy() {
+    return durabilityPolicy;
+  }
+
+  /**
+   * @return the number of the segment currently written
+   */
+  public int getSegmentIndex() {
+    final Segment segment = current;
+    return segment != null ? segment.index : -1;
+  }
+
+  /**
+   * Open the journal
+   * <p>
+   * Appends to the last existing segment, if any.
+   *
+   * @throws IOException if the journal cannot be opened
+   */
+  @Override
+  public void open() throws IOException {
+    if (current == null) {
+      // if path has a directory, create full directory tree
+      final Path parent = path.toAbsolutePath().getParent();
+      if (parent != null) {
+        parent.toFile().mkdirs();
+      }
+      int index = 0;
+      while (Files.exists(segmentPath(path, index + 1))) {
+        index++;
+      }
+      current = openSegment(index);
+      if (durabilityPolicy == DurabilityPolicy.Periodic) {
+        timer = new Timer("Journal-force", true);
+        timer.scheduleAtFixedRate(new TimerTask() {
+
+          @Override
+          public void run() {
+            force();
+          }
+
+        }, forceInterval, forceInterval);
+      }
+    }
+  }
+
+  /**
+   * Write a message to the journal
+   * <p>
+   * The remaining bytes of buffer are copied; its position is not changed.
+   *
+   * @param buffer holds a message
+   * @param encodingCode SOFH encoding type
+   * @return the number of bytes of the message, not including a message delimiter
+   * @throws IllegalArgumentException if the message is empty or a record does not fit in a segment
+   * @throws IllegalStateException if the journal is not open
+   * @throws IOException if a new segment cannot be created
+   */
+  @Override
+  public int write(ByteBuffer buffer, short encodingCode) throws IOException {
+    final int length = buffer.remaining();
+    final int recordLength = SofhEncoder.ENCODED_LENGTH + length;
+    if (length == 0 || recordLength > segmentSize) {
+      throw new IllegalArgumentException("Invalid message length " + length);
+    }
+    for (;;) {
+      final Segment segment = current;
+      if (segment == null) {
+        throw new IllegalStateException("Journal not open");
+      }
+      final long offset = segment.tail.getAndAdd(recordLength);
+      if (offset + recordLength <= segment.capacity) {
+        final int headerOffset = (int) offset;
+        final MappedByteBuffer dst = segment.buffer;
+        copy(buffer, buffer.position(), dst, headerOffset + SofhEncoder.ENCODED_LENGTH, length);
+        dst.putShort(headerOffset + 4, encodingCode);
+        // publish the record by its length
+        VarHandle.releaseFence();
+        dst.putInt(headerOffset, length);
+        return length;
+      } else {
+        roll(segment);
+      }
+    }
+  }
+
+  private Segment openSegment(int index) throws IOException {
+    final Path segmentPath = segmentPath(path, index);
+    try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+      final int size = (int) Math.max(segmentSize, Math.min(channel.size(), Integer.MAX_VALUE));
+      final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      buffer.order(ByteOrder.BIG_ENDIAN);
+      return new Segment(index, buffer, scanTail(buffer));
+    }
+  }
+
+  /**
+   * Rolls over to a new segment unless another writer already did so
+   */
+  private synchronized void roll(Segment full) throws IOException {
+    if (current == full) {
+      current = openSegment(full.index + 1);
+      if (durabilityPolicy != DurabilityPolicy.None) {
+        unforced = full;
+      }
+    }
+  }
+
+  /**
+   * @return the offset following the last complete record of an existing segment
+   */
+  private static int scanTail(ByteBuffer buffer) {
+    int offset = 0;
+    while (offset + SofhEncoder.ENCODED_LENGTH <= buffer.capacity()) {
+      final int length = buffer.getInt(offset);
+      if (length <= 0 || offset + SofhEncoder.ENCODED_LENGTH + length > buffer.capacity()) {
+        break;
+      }
+      offset += SofhEncoder.ENCODED_LENGTH + length;
+    }
+    return offset;
+  }
+
+}
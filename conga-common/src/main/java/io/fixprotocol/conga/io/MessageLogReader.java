@@ -107,7 +107,8 @@ public class MessageLogReader implements Closeable {
       }
       return bytesRead;
     } else {
-      return Math.max(0, headerBytesRead);
+      // an incomplete header is not a message
+      return Math.min(0, headerBytesRead);
     }
   }
 
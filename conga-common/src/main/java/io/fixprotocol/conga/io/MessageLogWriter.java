@@ -31,20 +31,24 @@ import java.util.concurrent.atomic.AtomicLong;
  * Writes messages to a log asynchronously.
  * <p>
  * Messages are delimited by FIX Simple Open Framing Header. Messages are appended to an existing
- * file.
+ * file. Each message is copied with its header and written in one operation, so the buffer passed
+ * to {@link #writeAsync(ByteBuffer, short)} may be reused as soon as that method returns. Writes
+ * may be invoked concurrently.
+ * <p>
+ * For lower latency, see {@link MessageJournalWriter}.
  * 
  * @author Don Mendelson
  *
  */
 public class MessageLogWriter implements Closeable {
 
-  private class WriteFuture extends CompletableFuture<Long> {
+  private static class WriteFuture extends CompletableFuture<Long> {
 
-    final CompletionHandler<Integer, ByteBuffer> bodyCompletion = new CompletionHandler<>() {
+    final CompletionHandler<Integer, ByteBuffer> completion = new CompletionHandler<>() {
 
       @Override
       public void completed(Integer result, ByteBuffer attachment) {
-        WriteFuture.this.complete((long)result);
+        WriteFuture.this.complete((long) (result - SofhEncoder.ENCODED_LENGTH));
       }
 
       @Override
@@ -53,25 +57,11 @@ public class MessageLogWriter implements Closeable {
       }
 
     };
-
-    final CompletionHandler<Integer, ByteBuffer> headerCompletion = new CompletionHandler<>() {
-
-      @Override
-      public void completed(Integer result, ByteBuffer attachment) {
-        // System.out.println("Header written " + result);
-      }
-
-      @Override
-      public void failed(Throwable exc, ByteBuffer attachment) {
-        WriteFuture.this.completeExceptionally(exc);
-      }
-    };
   }
-  
+
   private AsynchronousFileChannel channel;
   private Path path = null;
   private final AtomicLong position = new AtomicLong();
-  private final SofhEncoder sofhEncoder = new SofhEncoder();
   private boolean truncateExisting = false;
 
   /**
@@ -140,13 +130,14 @@ public class MessageLogWriter implements Closeable {
    */
   public CompletableFuture<Long> writeAsync(ByteBuffer buffer, short encodingCode) {
     final int bytesToWrite = buffer.remaining();
-    sofhEncoder.encode(bytesToWrite, encodingCode);
-    long currentPosition = position.getAndAdd(bytesToWrite + sofhEncoder.encodedLength());
-    final ByteBuffer sofhBuffer = sofhEncoder.getBuffer().duplicate();
-    WriteFuture future = new WriteFuture();
-    channel.write(sofhBuffer, currentPosition, sofhBuffer, future.headerCompletion);
-    channel.write(buffer, currentPosition + sofhEncoder.encodedLength(), buffer,
-        future.bodyCompletion);
+    final ByteBuffer record = ByteBuffer.allocate(SofhEncoder.ENCODED_LENGTH + bytesToWrite);
+    SofhEncoder.encode(record, 0, bytesToWrite, encodingCode);
+    record.position(SofhEncoder.ENCODED_LENGTH);
+    record.put(buffer.duplicate());
+    record.flip();
+    final long currentPosition = position.getAndAdd(record.remaining());
+    final WriteFuture future = new WriteFuture();
+    channel.write(record, currentPosition, record, future.completion);
     return future;
   }
 
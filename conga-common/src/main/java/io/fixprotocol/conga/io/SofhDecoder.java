@@ -16,6 +16,7 @@
 package io.fixprotocol.conga.io;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 /**
  * Decodes Simple Open Framing Header
@@ -27,6 +28,21 @@ import java.nio.ByteBuffer;
  */
 public class SofhDecoder {
 
+  /**
+   * Decodes the message length of a header at an absolute offset
+   * <p>
+   * The header is big-endian regardless of the byte order of the buffer. The position of the
+   * buffer is not changed.
+   * 
+   * @param src buffer holding a header
+   * @param offset index of the header in src
+   * @return length of the message that follows the header
+   */
+  public static int messageLength(ByteBuffer src, int offset) {
+    final int length = src.getInt(offset);
+    return src.order() == ByteOrder.BIG_ENDIAN ? length : Integer.reverseBytes(length);
+  }
+
   private final ByteBuffer buffer = ByteBuffer.allocateDirect(16);
 
   public SofhDecoder() {
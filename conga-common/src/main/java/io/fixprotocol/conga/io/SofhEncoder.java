@@ -28,6 +28,52 @@ import java.nio.ByteOrder;
  */
 public class SofhEncoder {
 
+  /**
+   * Length of an encoded header in bytes
+   */
+  public static final int ENCODED_LENGTH = 6;
+
+  /**
+   * Appends a framed message to a buffer at its position
+   * <p>
+   * Several messages may be appended to the same buffer to be sent as one frame. The position of dst
+   * is advanced past the message; the position of message is not changed.
+   * 
+   * @param dst buffer to populate
+   * @param message holds a message to append
+   * @param encodingCode SOFH encoding type
+   * @return {@code true} if appended, or {@code false} if dst has insufficient room, in which case
+   *         it is not changed
+   */
+  public static boolean append(ByteBuffer dst, ByteBuffer message, short encodingCode) {
+    final int length = message.remaining();
+    final int offset = dst.position();
+    if (dst.remaining() < ENCODED_LENGTH + length) {
+      return false;
+    }
+    encode(dst, offset, length, encodingCode);
+    dst.position(offset + ENCODED_LENGTH);
+    dst.put(message.duplicate());
+    return true;
+  }
+
+  /**
+   * Encodes a header into a buffer at an absolute offset
+   * <p>
+   * The header is big-endian regardless of the byte order of the buffer. The position of the
+   * buffer is not changed, so this method may be invoked concurrently for different offsets.
+   * 
+   * @param dst buffer to populate
+   * @param offset index of the header in dst
+   * @param messageLength length of the message that follows the header
+   * @param encodingCode SOFH encoding type
+   */
+  public static void encode(ByteBuffer dst, int offset, int messageLength, short encodingCode) {
+    final boolean isBigEndian = dst.order() == ByteOrder.BIG_ENDIAN;
+    dst.putShort(offset + 4, isBigEndian ? encodingCode : Short.reverseBytes(encodingCode));
+    dst.putInt(offset, isBigEndian ? messageLength : Integer.reverseBytes(messageLength));
+  }
+
   private final ByteBuffer buffer = ByteBuffer.allocateDirect(16);
 
   /**
@@ -46,7 +92,7 @@ public class SofhEncoder {
   }
   
   public int encodedLength() {
-    return 6;
+    return ENCODED_LENGTH;
   }
 
   public ByteBuffer getBuffer() {
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.messages.appl;
+
+/**
+ * Conversions for identifiers packed into a {@code long}
+ *
+ * <p>
+ * An identifier of up to {@link #LENGTH} ASCII characters, such as the SBE {@code id} type, is
+ * packed with its first character in the most significant byte and padded with null bytes. Packed
+ * identifiers are equal if and only if the identifiers are equal, so they may be used as keys and
+ * compared without creating a {@code String}. The empty identifier packs to zero.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class FixedId {
+
+  /**
+   * Maximum number of characters of a packed identifier
+   */
+  public static final int LENGTH = Long.BYTES;
+
+  /**
+   * Appends the characters of a packed identifier
+   *
+   * @param packed a packed identifier
+   * @param dst destination of characters
+   * @return dst
+   */
+  public static StringBuilder append(long packed, StringBuilder dst) {
+    for (int shift = Long.SIZE - 8; shift >= 0; shift -= 8) {
+      final char c = (char) ((packed >>> shift) & 0xff);
+      if (c == 0) {
+        break;
+      }
+      dst.append(c);
+    }
+    return dst;
+  }
+
+  /**
+   * Tells whether an identifier can be packed
+   *
+   * @param id an identifier
+   * @return {@code true} if id has no more than {@link #LENGTH} characters, all of them non-null
+   *         ASCII
+   */
+  public static boolean isPackable(CharSequence id) {
+    final int length = id.length();
+    if (length > LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      final char c = id.charAt(i);
+      if (c == 0 || c > 0x7f) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Tells whether a value is a packed identifier
+   *
+   * <p>
+   * Bytes read from a buffer, even once terminated, may hold characters that
+   * {@link #pack(CharSequence)} would never produce. Such a value must not be used as a key.
+   *
+   * @param packed a value to test, such as one returned by {@link #terminate(long)}
+   * @return {@code true} if every character is ASCII and no character follows a null byte
+   */
+  public static boolean isPacked(long packed) {
+    return (packed & 0x8080808080808080L) == 0 && terminate(packed) == packed;
+  }
+
+  /**
+   * Packs an identifier
+   *
+   * @param id an identifier
+   * @return a packed identifier
+   * @throws IllegalArgumentException if id cannot be packed
+   * @see #isPackable(CharSequence)
+   */
+  public static long pack(CharSequence id) {
+    if (!isPackable(id)) {
+      throw new IllegalArgumentException("Identifier cannot be packed: " + id);
+    }
+    long packed = 0;
+    for (int i = 0; i < LENGTH; i++) {
+      packed <<= 8;
+      if (i < id.length()) {
+        packed |= id.charAt(i);
+      }
+    }
+    return packed;
+  }
+
+  /**
+   * Packs an identifier without throwing if it cannot be packed
+   *
+   * <p>
+   * Lets a caller fall back to another representation without the cost of an exception.
+   *
+   * @param id an identifier
+   * @return a packed identifier, or zero if id is empty or cannot be packed
+   * @see #isPackable(CharSequence)
+   */
+  public static long packOrZero(CharSequence id) {
+    return isPackable(id) ? pack(id) : 0L;
+  }
+
+  /**
+   * Packs fixed-width characters read from a buffer
+   *
+   * <p>
+   * A fixed-width field is terminated early by a null byte. Any bytes following the terminator are
+   * ignored.
+   *
+   * @param bytes {@link #LENGTH} bytes of a field read as a big-endian {@code long}
+   * @return a packed identifier
+   */
+  public static long terminate(long bytes) {
+    for (int shift = Long.SIZE - 8; shift >= 0; shift -= 8) {
+      if (((bytes >>> shift) & 0xff) == 0) {
+        return shift == Long.SIZE - 8 ? 0 : bytes & (-1L << (shift + 8));
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Copies the characters of a packed identifier
+   *
+   * @param packed a packed identifier
+   * @param dst destination of characters
+   * @param offset index of the first character in dst
+   * @return number of characters copied
+   * @throws IndexOutOfBoundsException if dst is too short to hold the identifier
+   */
+  public static int unpack(long packed, char[] dst, int offset) {
+    int length = 0;
+    for (int shift = Long.SIZE - 8; shift >= 0; shift -= 8) {
+      final char c = (char) ((packed >>> shift) & 0xff);
+      if (c == 0) {
+        break;
+      }
+      dst[offset + length] = c;
+      length++;
+    }
+    return length;
+  }
+
+  /**
+   * Converts a packed identifier to a {@code String}
+   *
+   * @param packed a packed identifier
+   * @return an identifier
+   */
+  public static String toString(long packed) {
+    final char[] chars = new char[LENGTH];
+    final int length = unpack(packed, chars, 0);
+    return new String(chars, 0, length);
+  }
+
+  private FixedId() {
+
+  }
+}
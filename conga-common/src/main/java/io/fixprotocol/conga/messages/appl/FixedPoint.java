@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.messages.appl;
+
+import java.math.BigDecimal;
+
+/**
+ * Conversions for fixed-point decimal values
+ *
+ * <p>
+ * A fixed-point value is a {@code long} with an implied number of decimal places, its scale. For
+ * example, 12.34 is represented as 1234 at scale 2. Scale is the negation of the exponent of a
+ * decimal floating point type such as the SBE {@code money} composite.
+ * <p>
+ * Conversions never round. If a value cannot be represented exactly at the requested scale, an
+ * {@code ArithmeticException} is thrown.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class FixedPoint {
+
+  private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L,
+      1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L, 10_000_000_000L, 100_000_000_000L,
+      1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L,
+      10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L};
+
+  /**
+   * Converts a decimal to a fixed-point value
+   *
+   * @param value a decimal value
+   * @param scale number of decimal places of the result
+   * @return value multiplied by 10<sup>scale</sup>
+   * @throws ArithmeticException if value has more decimal places than scale or overflows a long
+   */
+  public static long fromBigDecimal(BigDecimal value, int scale) {
+    return value.setScale(scale).unscaledValue().longValueExact();
+  }
+
+  /**
+   * Converts a fixed-point value from one scale to another
+   *
+   * @param value a fixed-point value
+   * @param fromScale scale of value
+   * @param toScale scale of the result
+   * @return the same value at a new scale
+   * @throws ArithmeticException if value cannot be represented exactly at the new scale
+   */
+  public static long rescale(long value, int fromScale, int toScale) {
+    if (fromScale == toScale) {
+      return value;
+    } else if (toScale > fromScale) {
+      return Math.multiplyExact(value, powerOfTen(toScale - fromScale));
+    } else {
+      final long divisor = powerOfTen(fromScale - toScale);
+      if (value % divisor != 0) {
+        throw new ArithmeticException("Rounding necessary");
+      }
+      return value / divisor;
+    }
+  }
+
+  /**
+   * Converts a fixed-point value to a decimal
+   *
+   * @param value a fixed-point value
+   * @param scale scale of value
+   * @return a decimal value
+   */
+  public static BigDecimal toBigDecimal(long value, int scale) {
+    return BigDecimal.valueOf(value, scale);
+  }
+
+  private static long powerOfTen(int exponent) {
+    if (exponent >= POWERS_OF_TEN.length) {
+      throw new ArithmeticException("Overflow");
+    }
+    return POWERS_OF_TEN[exponent];
+  }
+
+  private FixedPoint() {
+
+  }
+}
@@ -10,6 +10,21 @@ public interface MutableExecutionReport extends MutableMessage {
 
     void setFillPx(BigDecimal fillPx);
 
+    /**
+     * Sets fill price from a fixed-point value
+     * 
+     * <p>
+     * The default implementation converts to {@code BigDecimal}. Implementations that encode a
+     * price natively in fixed-point form should override it to avoid allocation.
+     * 
+     * @param fillPx price multiplied by 10<sup>scale</sup>
+     * @param scale number of decimal places of fillPx
+     * @see FixedPoint
+     */
+    default void setFillPx(long fillPx, int scale) {
+      setFillPx(FixedPoint.toBigDecimal(fillPx, scale));
+    }
+
     void setFillQty(int fillQty);
   }
 
@@ -28,16 +43,55 @@ public interface MutableExecutionReport extends MutableMessage {
 
   void setClOrdId(String clOrdId);
 
+  /**
+   * Sets ClOrdID from a character buffer that may be reused after this call
+   * 
+   * <p>
+   * The default implementation converts to {@code String}. Implementations that encode characters
+   * directly should override it to avoid allocation.
+   * 
+   * @param clOrdId client order identifier
+   */
+  default void setClOrdId(CharSequence clOrdId) {
+    setClOrdId(clOrdId.toString());
+  }
+
   void setCumQty(int cumQty);
 
   void setExecId(String execId);
 
+  /**
+   * Sets ExecID from a character buffer that may be reused after this call
+   * 
+   * <p>
+   * The default implementation converts to {@code String}. Implementations that encode characters
+   * directly should override it to avoid allocation.
+   * 
+   * @param execId execution identifier
+   */
+  default void setExecId(CharSequence execId) {
+    setExecId(execId.toString());
+  }
+
   void setExecType(ExecType execType);
 
   void setLeavesQty(int leavesQty);
 
   void setOrderId(String orderId);
 
+  /**
+   * Sets OrderID from a character buffer that may be reused after this call
+   * 
+   * <p>
+   * The default implementation converts to {@code String}. Implementations that encode characters
+   * directly should override it to avoid allocation.
+   * 
+   * @param orderId order identifier
+   */
+  default void setOrderId(CharSequence orderId) {
+    setOrderId(orderId.toString());
+  }
+
   void setOrdStatus(OrdStatus ordStatus);
 
   void setSide(Side side);
@@ -46,4 +100,17 @@ public interface MutableExecutionReport extends MutableMessage {
   
   void setTransactTime(Instant time);
 
+  /**
+   * Sets TransactTime
+   * 
+   * <p>
+   * The default implementation converts to {@code Instant}. Implementations that encode a
+   * timestamp as nanoseconds should override it to avoid allocation.
+   * 
+   * @param nanos nanoseconds since the epoch
+   */
+  default void setTransactTime(long nanos) {
+    setTransactTime(Instant.ofEpochSecond(0L, nanos));
+  }
+
 }
@@ -33,4 +33,17 @@ public interface MutableOrderCancelReject extends MutableMessage {
   
   void setTransactTime(Instant time);
 
+  /**
+   * Sets TransactTime
+   * 
+   * <p>
+   * The default implementation converts to {@code Instant}. Implementations that encode a
+   * timestamp as nanoseconds should override it to avoid allocation.
+   * 
+   * @param nanos nanoseconds since the epoch
+   */
+  default void setTransactTime(long nanos) {
+    setTransactTime(Instant.ofEpochSecond(0L, nanos));
+  }
+
 }
@@ -33,5 +33,71 @@ public interface NewOrderSingle {
   int getOrderQty();
   OrdType getOrdType();
   BigDecimal getPrice();
-  
+
+  /**
+   * Limit price as a fixed-point value
+   * 
+   * <p>
+   * The default implementation converts from {@link #getPrice()}. Implementations that carry a
+   * price natively in fixed-point form should override it to avoid allocation.
+   * 
+   * @param scale number of decimal places of the result
+   * @return price multiplied by 10<sup>scale</sup>
+   * @throws ArithmeticException if the price has more decimal places than scale
+   * @see FixedPoint
+   */
+  default long getScaledPrice(int scale) {
+    return FixedPoint.fromBigDecimal(getPrice(), scale);
+  }
+
+  /**
+   * ClOrdId packed into a long
+   * 
+   * <p>
+   * The default implementation packs {@link #getClOrdId()}. Implementations that carry the ID as
+   * fixed-width characters should override it to avoid allocation.
+   * 
+   * @return packed ClOrdId
+   * @throws IllegalArgumentException if the ID cannot be packed
+   * @see FixedId
+   */
+  default long getClOrdIdAsLong() {
+    return FixedId.pack(getClOrdId());
+  }
+
+  /**
+   * ClOrdId packed into a long, or zero if it cannot be packed
+   * 
+   * @return packed ClOrdId, or zero if the ID is empty or cannot be packed
+   * @see #getClOrdIdAsLong()
+   */
+  default long getClOrdIdAsLongOrZero() {
+    return FixedId.packOrZero(getClOrdId());
+  }
+
+  /**
+   * Symbol packed into a long
+   * 
+   * <p>
+   * The default implementation packs {@link #getSymbol()}. Implementations that carry the symbol
+   * as fixed-width characters should override it to avoid allocation.
+   * 
+   * @return packed symbol
+   * @throws IllegalArgumentException if the symbol cannot be packed
+   * @see FixedId
+   */
+  default long getSymbolAsLong() {
+    return FixedId.pack(getSymbol());
+  }
+
+  /**
+   * Symbol packed into a long, or zero if it cannot be packed
+   * 
+   * @return packed symbol, or zero if the symbol is empty or cannot be packed
+   * @see #getSymbolAsLong()
+   */
+  default long getSymbolAsLongOrZero() {
+    return FixedId.packOrZero(getSymbol());
+  }
+
 }
@@ -27,4 +27,54 @@ public interface OrderCancelRequest {
   String getSymbol();
   Side getSide();
   Instant getTransactTime();
+
+  /**
+   * ClOrdId packed into a long
+   * 
+   * <p>
+   * The default implementation packs {@link #getClOrdId()}. Implementations that carry the ID as
+   * fixed-width characters should override it to avoid allocation.
+   * 
+   * @return packed ClOrdId
+   * @throws IllegalArgumentException if the ID cannot be packed
+   * @see FixedId
+   */
+  default long getClOrdIdAsLong() {
+    return FixedId.pack(getClOrdId());
+  }
+
+  /**
+   * ClOrdId packed into a long, or zero if it cannot be packed
+   * 
+   * @return packed ClOrdId, or zero if the ID is empty or cannot be packed
+   * @see #getClOrdIdAsLong()
+   */
+  default long getClOrdIdAsLongOrZero() {
+    return FixedId.packOrZero(getClOrdId());
+  }
+
+  /**
+   * Symbol packed into a long
+   * 
+   * <p>
+   * The default implementation packs {@link #getSymbol()}. Implementations that carry the symbol
+   * as fixed-width characters should override it to avoid allocation.
+   * 
+   * @return packed symbol
+   * @throws IllegalArgumentException if the symbol cannot be packed
+   * @see FixedId
+   */
+  default long getSymbolAsLong() {
+    return FixedId.pack(getSymbol());
+  }
+
+  /**
+   * Symbol packed into a long, or zero if it cannot be packed
+   * 
+   * @return packed symbol, or zero if the symbol is empty or cannot be packed
+   * @see #getSymbolAsLong()
+   */
+  default long getSymbolAsLongOrZero() {
+    return FixedId.packOrZero(getSymbol());
+  }
 }
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.session;
+
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * A hashed timer wheel for scheduling events of many sessions
+ *
+ * <p>
+ * Scheduled tasks are hashed by deadline into a ring of buckets, and a single tick thread visits
+ * one bucket per tick. Scheduling and cancelling take constant time: requests are queued without
+ * locks and applied by the tick thread at its next tick. Tasks that expire in a tick are collected
+ * and handed off together, so the tick thread only does bookkeeping.
+ * <p>
+ * Expired tasks run on a supplied {@link Executor}, or on the tick thread if none is supplied. A
+ * periodic task whose previous run has not completed is skipped rather than queued behind itself,
+ * so a slow task, such as a heartbeat sent to a slow peer, delays neither other tasks nor the
+ * wheel. Precision is limited to the tick duration.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class HashedWheelTimer implements SessionTimer, AutoCloseable {
+
+  public static class Builder {
+    private Consumer<Throwable> errorListener = (t) -> t.printStackTrace(System.err);
+    private Executor executor = null;
+    private String name = "Session-timer";
+    private long tickDuration = DEFAULT_TICK_DURATION;
+    private int wheelSize = DEFAULT_WHEEL_SIZE;
+
+    protected Builder() {
+
+    }
+
+    public HashedWheelTimer build() {
+      return new HashedWheelTimer(this);
+    }
+
+    /**
+     * @param errorListener invoked if a task throws
+     * @return this Builder
+     */
+    public Builder errorListener(Consumer<Throwable> errorListener) {
+      this.errorListener = Objects.requireNonNull(errorListener);
+      return this;
+    }
+
+    /**
+     * @param executor runs expired tasks off the tick thread
+     * @return this Builder
+     */
+    public Builder executor(Executor executor) {
+      this.executor = Objects.requireNonNull(executor);
+      return this;
+    }
+
+    /**
+     * @param name name of the tick thread
+     * @return this Builder
+     */
+    public Builder name(String name) {
+      this.name = Objects.requireNonNull(name);
+      return this;
+    }
+
+    /**
+     * @param tickDuration duration of a tick in millis
+     * @return this Builder
+     */
+    public Builder tickDuration(long tickDuration) {
+      if (tickDuration <= 0) {
+        throw new IllegalArgumentException("Invalid tick duration");
+      }
+      this.tickDuration = tickDuration;
+      return this;
+    }
+
+    /**
+     * @param wheelSize number of buckets; rounded up to a power of 2
+     * @return this Builder
+     */
+    public Builder wheelSize(int wheelSize) {
+      if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+        throw new IllegalArgumentException("Invalid wheel size");
+      }
+      this.wheelSize = wheelSize;
+      return this;
+    }
+  }
+
+  private final class WheelTimeout implements Timeout, Runnable {
+    // accessed only by the tick thread
+    private WheelTimeout next, prev;
+    private int bucket = -1;
+    private long deadline;
+    private long remainingRounds;
+
+    private final long period;
+    private final AtomicBoolean isRunning = new AtomicBoolean();
+    private final AtomicInteger state = new AtomicInteger(ST_INIT);
+    private final Runnable task;
+
+    WheelTimeout(Runnable task, long deadline, long period) {
+      this.task = task;
+      this.deadline = deadline;
+      this.period = period;
+    }
+
+    @Override
+    public void cancel() {
+      if (state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+        scheduledCount.decrementAndGet();
+        cancelled.offer(this);
+      }
+    }
+
+    @Override
+    public void run() {
+      if (state.get() != ST_CANCELLED) {
+        try {
+          task.run();
+        } catch (Throwable t) {
+          errorListener.accept(t);
+        } finally {
+          isRunning.set(false);
+        }
+      } else {
+        isRunning.set(false);
+      }
+    }
+
+    boolean isCancelled() {
+      return state.get() == ST_CANCELLED;
+    }
+  }
+
+  public static final long DEFAULT_TICK_DURATION = 10L;
+  public static final int DEFAULT_WHEEL_SIZE = 512;
+
+  private static final int ST_CANCELLED = 1;
+  private static final int ST_INIT = 0;
+
+  /**
+   * Create a Builder
+   *
+   * @return a new Builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final WheelTimeout[] buckets;
+  private final Queue<WheelTimeout> cancelled = new ConcurrentLinkedQueue<>();
+  private final Consumer<Throwable> errorListener;
+  private final Executor executor;
+  // reused by the tick thread to collect the tasks that expire in a tick
+  private final ArrayList<WheelTimeout> expired = new ArrayList<>();
+  private final int mask;
+  private final Queue<WheelTimeout> pending = new ConcurrentLinkedQueue<>();
+  private volatile boolean running = true;
+  private final AtomicInteger scheduledCount = new AtomicInteger();
+  private final long startNanos;
+  private long tick = 0;
+  private final long tickNanos;
+  private final Thread tickThread;
+
+  protected HashedWheelTimer(Builder builder) {
+    int size = 1;
+    while (size < builder.wheelSize) {
+      size <<= 1;
+    }
+    this.buckets = new WheelTimeout[size];
+    this.mask = size - 1;
+    this.tickNanos = TimeUnit.MILLISECONDS.toNanos(builder.tickDuration);
+    this.executor = builder.executor;
+    this.errorListener = builder.errorListener;
+    this.startNanos = System.nanoTime();
+    this.tickThread = new Thread(this::tickLoop, builder.name);
+    tickThread.setDaemon(true);
+    tickThread.start();
+  }
+
+  /**
+   * Stop the tick thread; scheduled tasks do not run again
+   */
+  @Override
+  public void close() {
+    running = false;
+    LockSupport.unpark(tickThread);
+  }
+
+  /**
+   * @return the number of tasks scheduled and not cancelled, including those not yet placed on the
+   *         wheel
+   */
+  public int size() {
+    return scheduledCount.get();
+  }
+
+  @Override
+  public Timeout scheduleAtFixedRate(Runnable task, long delay, long period) {
+    Objects.requireNonNull(task);
+    if (delay < 0 || period <= 0) {
+      throw new IllegalArgumentException("Invalid delay or period");
+    }
+    if (!running) {
+      throw new IllegalStateException("Timer closed");
+    }
+    final WheelTimeout timeout = new WheelTimeout(task,
+        System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(delay),
+        TimeUnit.MILLISECONDS.toNanos(period));
+    scheduledCount.incrementAndGet();
+    pending.offer(timeout);
+    return timeout;
+  }
+
+  private void dispatchExpired() {
+    final int count = expired.size();
+    for (int i = 0; i < count; i++) {
+      final WheelTimeout timeout = expired.get(i);
+      // skip a run while the previous one is still in progress
+      if (timeout.isRunning.compareAndSet(false, true)) {
+        if (executor != null) {
+          try {
+            executor.execute(timeout);
+          } catch (RuntimeException e) {
+            timeout.isRunning.set(false);
+            errorListener.accept(e);
+          }
+        } else {
+          timeout.run();
+        }
+      }
+    }
+    expired.clear();
+  }
+
+  private void expireBucket(int index) {
+    WheelTimeout timeout = buckets[index];
+    while (timeout != null) {
+      final WheelTimeout next = timeout.next;
+      if (timeout.remainingRounds <= 0) {
+        unlink(timeout);
+        if (!timeout.isCancelled()) {
+          expired.add(timeout);
+        }
+      } else {
+        timeout.remainingRounds--;
+      }
+      timeout = next;
+    }
+    // periodic tasks are placed again after the bucket is visited so they are not expired twice
+    final int count = expired.size();
+    for (int i = 0; i < count; i++) {
+      final WheelTimeout expiredTimeout = expired.get(i);
+      expiredTimeout.deadline += expiredTimeout.period;
+      place(expiredTimeout);
+    }
+  }
+
+  private void place(WheelTimeout timeout) {
+    final long deadlineTick = timeout.deadline / tickNanos;
+    timeout.remainingRounds = Math.max(0, (deadlineTick - tick) / buckets.length);
+    // a deadline already past expires in the current tick
+    final int index = (int) (Math.max(deadlineTick, tick) & mask);
+    timeout.bucket = index;
+    timeout.prev = null;
+    timeout.next = buckets[index];
+    if (timeout.next != null) {
+      timeout.next.prev = timeout;
+    }
+    buckets[index] = timeout;
+  }
+
+  private void processCancelled() {
+    WheelTimeout timeout;
+    while ((timeout = cancelled.poll()) != null) {
+      unlink(timeout);
+    }
+  }
+
+  private void processPending() {
+    WheelTimeout timeout;
+    while ((timeout = pending.poll()) != null) {
+      if (!timeout.isCancelled()) {
+        place(timeout);
+      }
+    }
+  }
+
+  private void tickLoop() {
+    while (running) {
+      final long deadline = startNanos + (tick + 1) * tickNanos;
+      long sleepNanos;
+      while (running && (sleepNanos = deadline - System.nanoTime()) > 0) {
+        LockSupport.parkNanos(this, sleepNanos);
+      }
+      if (!running) {
+        break;
+      }
+      processCancelled();
+      processPending();
+      expireBucket((int) (tick & mask));
+      dispatchExpired();
+      tick++;
+    }
+  }
+
+  private void unlink(WheelTimeout timeout) {
+    final int index = timeout.bucket;
+    if (index < 0) {
+      return;
+    }
+    if (timeout.prev != null) {
+      timeout.prev.next = timeout.next;
+    } else {
+      buckets[index] = timeout.next;
+    }
+    if (timeout.next != null) {
+      timeout.next.prev = timeout.prev;
+    }
+    timeout.next = null;
+    timeout.prev = null;
+    timeout.bucket = -1;
+  }
+}
@@ -15,13 +15,13 @@
 
 package io.fixprotocol.conga.session;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Timer;
-import java.util.TimerTask;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
@@ -57,7 +57,7 @@ public abstract class Session {
     private byte[] sessionId = new byte[16];
     private SessionMessageConsumer sessionMessageConsumer = null;
     private SessionMessenger sessionMessenger;
-    private Timer timer;
+    private SessionTimer timer;
 
     protected Builder() {
 
@@ -179,6 +179,16 @@ public abstract class Session {
      * @return this Builder
      */
     public B timer(Timer timer) {
+      return timer(SessionTimer.of(timer));
+    }
+
+    /**
+     * A shared scheduler for session events, such as {@link HashedWheelTimer}
+     * 
+     * @param timer a shared event timer
+     * @return this Builder
+     */
+    public B timer(SessionTimer timer) {
       Objects.requireNonNull(timer);
       this.timer = timer;
       return (B) this;
@@ -186,7 +196,7 @@ public abstract class Session {
 
   }
 
-  private class HeartbeatDueTask extends TimerTask {
+  private class HeartbeatDueTask implements Runnable {
 
     @Override
     public void run() {
@@ -197,13 +207,18 @@ public abstract class Session {
     }
   }
 
-  private class HeartbeatSendTask extends TimerTask {
+  private class HeartbeatSendTask implements Runnable {
 
     @Override
     public void run() {
       if (isHeartbeatDueToSend()) {
         MutableMessage mutableMessage = null;
-        try {        
+        try {
+          // A SessionMessenger may reuse one message per type, so a heartbeat is encoded and sent
+          // in the same critical section as application messages sent on other threads
+          while (!sendCriticalSection.compareAndSet(false, true)) {
+            Thread.yield();
+          }
           switch (getSessionState()) {
             case ESTABLISHED:
               mutableMessage = sessionMessenger.encodeSequence(nextSeqNoSent.get());
@@ -221,6 +236,7 @@ public abstract class Session {
           if (mutableMessage != null) {
             mutableMessage.release();
           }
+          sendCriticalSection.compareAndSet(true, false);
         }
       }
     }
@@ -257,9 +273,9 @@ public abstract class Session {
   private final SubmissionPublisher<SessionEvent> eventPublisher;
   private final Executor executor;
   private long heartbeatDueInterval;
-  private HeartbeatDueTask heartbeatDueTask;
+  private SessionTimer.Timeout heartbeatDueTimeout;
   private final long heartbeatInterval;
-  private HeartbeatSendTask heartbeatSendTask;
+  private SessionTimer.Timeout heartbeatSendTimeout;
   private FlowType inboundFlowType;
   // if false, then is server session
   private boolean isConnected = false;
@@ -285,7 +301,7 @@ public abstract class Session {
   private final SessionMessenger sessionMessenger;
   private final AtomicReference<SessionState> sessionState =
       new AtomicReference<>(SessionState.NOT_NEGOTIATED);
-  private final Timer timer;
+  private final SessionTimer timer;
 
   protected Session(@SuppressWarnings("rawtypes") Builder<? extends Session, ? extends Session.Builder> builder) {
     this.timer = builder.timer;
@@ -400,11 +416,18 @@ public abstract class Session {
   public boolean requestFinalization() throws IOException, InterruptedException {
     final boolean requested = setSessionState(SessionState.FINALIZE_REQUESTED);
     if (requested) {
-      MutableMessage mutableMessage = sessionMessenger.encodeFinishedSending(sessionId, nextSeqNoSent.get() - 1);
+      while (!sendCriticalSection.compareAndSet(false, true)) {
+        Thread.yield();
+      }
       try {
-        sendMessage(mutableMessage.toBuffer());
+        MutableMessage mutableMessage = sessionMessenger.encodeFinishedSending(sessionId, nextSeqNoSent.get() - 1);
+        try {
+          sendMessage(mutableMessage.toBuffer());
+        } finally {
+          mutableMessage.release();
+        }
       } finally {
-        mutableMessage.release();
+        sendCriticalSection.compareAndSet(true, false);
       }
       return true;
     } else {
@@ -520,11 +543,11 @@ public abstract class Session {
           MutableMessage mutableMessage = sessionMessenger.encodeFinishedReceiving(sessionId);
           sendMessageAsync(mutableMessage.toBuffer()).thenRun(mutableMessage::release);
           setSessionState(SessionState.FINALIZED);
-          terminate();
+          finish();
           break;
         case FINISHED_RECEIVING:
           setSessionState(SessionState.FINALIZED);
-          terminate();
+          finish();
           break;
         default:
           throw new MessageException("Unknown message type received");
@@ -544,6 +567,24 @@ public abstract class Session {
    * @throws IllegalStateException if this Session is not established
    */
   public long sendApplicationMessage(ByteBuffer buffer) throws IOException, InterruptedException {
+    return sendApplicationMessage(buffer, false);
+  }
+
+  /**
+   * Send an application message, optionally as part of a batch
+   * <p>
+   * A batched message may be held by the transport until {@link #flush()} is invoked. The caller is
+   * responsible for flushing at the end of a batch.
+   * 
+   * @param buffer buffer containing a message
+   * @param isBatched if {@code true}, the message need not be sent until flushed
+   * @return the sequence number of the sent message or {@code 0} if an error occurs
+   * @throws IOException if an IO error occurs
+   * @throws InterruptedException if the operation is interrupted before completion
+   * @throws IllegalStateException if this Session is not established
+   */
+  public long sendApplicationMessage(ByteBuffer buffer, boolean isBatched)
+      throws IOException, InterruptedException {
     Objects.requireNonNull(buffer);
     if (isEstablished()) {
       try {
@@ -560,14 +601,14 @@ public abstract class Session {
         if (isSendingRetransmission) {
           MutableMessage mutableMessage = sessionMessenger.encodeSequence(seqNo);
           try {
-            sendMessage(mutableMessage.toBuffer());
+            sendMessage(mutableMessage.toBuffer(), isBatched);
           } finally {
             mutableMessage.release();
           }
           isSendingRetransmission = false;
         }
         isHeartbeatDueToSend.set(false);
-        sendMessage(buffer);
+        sendMessage(buffer, isBatched);
 
         return seqNo;
       } catch (IOException e) {
@@ -582,6 +623,18 @@ public abstract class Session {
 
   }
 
+  /**
+   * Send any batched messages held by the transport
+   * <p>
+   * This implementation does nothing since messages are not held. A subclass with a transport that
+   * holds batched messages should override it.
+   * 
+   * @throws IOException if an IO error occurs
+   */
+  public void flush() throws IOException {
+
+  }
+
   /**
    * Send a FIXP Sequence message
    * <p>
@@ -592,6 +645,9 @@ public abstract class Session {
   public void sendHeartbeat() {
     MutableMessage mutableMessage = null;
     try {
+      while (!sendCriticalSection.compareAndSet(false, true)) {
+        Thread.yield();
+      }
       mutableMessage = sessionMessenger.encodeSequence(nextSeqNoSent.get());
       sendMessage(mutableMessage.toBuffer());
     } catch (IOException | InterruptedException e) {
@@ -600,6 +656,7 @@ public abstract class Session {
       if (mutableMessage != null) {
         mutableMessage.release();
       }
+      sendCriticalSection.compareAndSet(true, false);
     }
   }
   
@@ -607,6 +664,15 @@ public abstract class Session {
     eventPublisher.subscribe(subscriber);
   }
   
+  private void finish() {
+    terminate();
+    try {
+      closeSendCache();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
   private void terminate() {
     cancelHeartbeats();
     doDisconnect();
@@ -629,11 +695,11 @@ public abstract class Session {
   }
 
   private void cancelHeartbeats() {
-    if (heartbeatDueTask != null) {
-      heartbeatDueTask.cancel();
+    if (heartbeatDueTimeout != null) {
+      heartbeatDueTimeout.cancel();
     }
-    if (heartbeatSendTask != null) {
-      heartbeatSendTask.cancel();
+    if (heartbeatSendTimeout != null) {
+      heartbeatSendTimeout.cancel();
     }
   }
 
@@ -785,6 +851,19 @@ public abstract class Session {
     // else duplicate message ignored
   }
 
+  /**
+   * Releases resources held by the send cache, such as memory mappings and spill files
+   * <p>
+   * Called when this session is finalized; messages can no longer be retransmitted afterward.
+   * 
+   * @throws IOException if the cache fails to close
+   */
+  protected void closeSendCache() throws IOException {
+    if (sendCache instanceof Closeable) {
+      ((Closeable) sendCache).close();
+    }
+  }
+
   protected abstract void doDisconnect();
 
   protected abstract boolean isClientSession();
@@ -808,12 +887,12 @@ public abstract class Session {
 
     executor.execute(() -> {
       try {
-      List<ByteBuffer> buffers = sendCache.subList((int) retransmitRange.getFromSeqNo(),
-          (int) (retransmitRange.getFromSeqNo() + retransmitRange.getCount()));
-
         while (!sendCriticalSection.compareAndSet(false, true)) {
           Thread.yield();
         }
+        // messages are not added to the send cache while it is read
+        List<ByteBuffer> buffers = sendCache.subList((int) retransmitRange.getFromSeqNo(),
+            (int) (retransmitRange.getFromSeqNo() + retransmitRange.getCount()));
         isSendingRetransmission = true;
         MutableMessage mutableMessage = sessionMessenger.encodeRetransmission(sessionId, retransmitRange);
         try {
@@ -844,11 +923,10 @@ public abstract class Session {
 
   protected void scheduleHeartbeats() {
     // Give 10% margin for receiving
-    heartbeatDueTask = new HeartbeatDueTask();
-    timer.scheduleAtFixedRate(heartbeatDueTask, (heartbeatDueInterval * 11) / 10,
-        heartbeatDueInterval);
-    heartbeatSendTask = new HeartbeatSendTask();
-    timer.scheduleAtFixedRate(heartbeatSendTask, heartbeatInterval, heartbeatInterval);
+    heartbeatDueTimeout = timer.scheduleAtFixedRate(new HeartbeatDueTask(),
+        (heartbeatDueInterval * 11) / 10, heartbeatDueInterval);
+    heartbeatSendTimeout =
+        timer.scheduleAtFixedRate(new HeartbeatSendTask(), heartbeatInterval, heartbeatInterval);
   }
 
   /**
@@ -859,6 +937,21 @@ public abstract class Session {
    */
   protected abstract void sendMessage(ByteBuffer buffer) throws IOException, InterruptedException;
 
+  /**
+   * Send a message synchronously, optionally as part of a batch
+   * <p>
+   * This implementation ignores batching and sends immediately.
+   * 
+   * @param buffer holds a message to send
+   * @param isBatched if {@code true}, the message may be held until {@link #flush()}
+   * @throws IOException if an IO error occurs
+   * @throws InterruptedException if the operation is interrupted
+   */
+  protected void sendMessage(ByteBuffer buffer, boolean isBatched)
+      throws IOException, InterruptedException {
+    sendMessage(buffer);
+  }
+
   /**
    * Send a message asynchronously
    * @param buffer holds a message to send
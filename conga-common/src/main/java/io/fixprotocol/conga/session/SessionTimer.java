@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.session;
+
+import java.util.Objects;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Schedules periodic session events, such as heartbeats
+ * <p>
+ * A single instance may be shared by many sessions.
+ *
+ * @author Don Mendelson
+ *
+ */
+@FunctionalInterface
+public interface SessionTimer {
+
+  /**
+   * Handle to a scheduled task
+   */
+  @FunctionalInterface
+  interface Timeout {
+
+    /**
+     * Cancel the task; it is not run again after this returns, although a run already in progress
+     * may complete
+     */
+    void cancel();
+  }
+
+  /**
+   * Adapt a {@link java.util.Timer} to schedule session events
+   *
+   * @param timer a shared event timer
+   * @return a SessionTimer that delegates to timer
+   */
+  static SessionTimer of(Timer timer) {
+    Objects.requireNonNull(timer);
+    return (task, delay, period) -> {
+      final TimerTask timerTask = new TimerTask() {
+
+        @Override
+        public void run() {
+          task.run();
+        }
+      };
+      timer.scheduleAtFixedRate(timerTask, delay, period);
+      return timerTask::cancel;
+    };
+  }
+
+  /**
+   * Schedule a task for repeated execution at a fixed rate
+   *
+   * @param task task to run
+   * @param delay delay in millis before the first run
+   * @param period interval in millis between runs
+   * @return a handle to cancel the task
+   */
+  Timeout scheduleAtFixedRate(Runnable task, long delay, long period);
+}
@@ -19,10 +19,16 @@ import static org.junit.Assert.*;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import io.fixprotocol.conga.buffer.BufferPool.ExhaustedPolicy;
+
 /**
  * @author Don Mendelson
  *
@@ -65,4 +71,117 @@ public class BufferPoolTest {
     }
   }
 
+  @Test
+  public void counters() {
+    final int poolSize = pool.getPoolSize();
+    ArrayList<BufferSupplier.BufferSupply> list = new ArrayList<>();
+    for (int i = 0; i < poolSize + 3; i++) {
+      list.add(pool.get());
+    }
+    assertEquals(poolSize, pool.getHitCount());
+    assertEquals(3, pool.getMissCount());
+    assertEquals(3, pool.getOverflowCount());
+    assertEquals(0, pool.size());
+    for (BufferSupplier.BufferSupply supply : list) {
+      supply.release();
+    }
+    // buffers allocated on overflow are not pooled
+    assertEquals(poolSize, pool.size());
+  }
+
+  @Test(timeout = 5000)
+  public void overflowLimit() throws InterruptedException {
+    pool = BufferPool.builder().poolSize(1).maxOverflow(1).build();
+    pool.get();
+    BufferSupplier.BufferSupply overflow = pool.get();
+    assertEquals(1, pool.getOverflowCount());
+    Thread releaser = new Thread(() -> {
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      overflow.release();
+    });
+    releaser.start();
+    // waits until the overflow buffer is released
+    assertNotNull(pool.get().acquire());
+    assertEquals(2, pool.getMissCount());
+    assertEquals(2, pool.getOverflowCount());
+    releaser.join();
+  }
+
+  @Test
+  public void releaseTwice() {
+    BufferSupplier.BufferSupply supply = pool.get();
+    supply.release();
+    supply.release();
+    assertEquals(pool.getPoolSize(), pool.size());
+  }
+
+  @Test
+  public void reject() {
+    pool = BufferPool.builder().poolSize(2).exhaustedPolicy(ExhaustedPolicy.Reject).build();
+    BufferSupplier.BufferSupply supply1 = pool.get();
+    pool.get();
+    BufferSupplier.BufferSupply supply3 = pool.get();
+    assertNull(supply3.acquire());
+    assertEquals(1, pool.getRejectCount());
+    supply1.release();
+    assertNotNull(pool.get().acquire());
+  }
+
+  @Test(timeout = 5000)
+  public void block() throws InterruptedException {
+    pool = BufferPool.builder().poolSize(1).exhaustedPolicy(ExhaustedPolicy.Block).build();
+    BufferSupplier.BufferSupply supply1 = pool.get();
+    Thread releaser = new Thread(() -> {
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      supply1.release();
+    });
+    releaser.start();
+    BufferSupplier.BufferSupply supply2 = pool.get();
+    assertSame(supply1.acquire(), supply2.acquire());
+    assertEquals(1, pool.getMissCount());
+    assertEquals(0, pool.getOverflowCount());
+    releaser.join();
+  }
+
+  @Test(timeout = 10000)
+  public void concurrent() throws InterruptedException {
+    final int threads = 4;
+    final int iterations = 100000;
+    pool = BufferPool.builder().poolSize(8).exhaustedPolicy(ExhaustedPolicy.Block).build();
+    final Map<ByteBuffer, Boolean> held = new IdentityHashMap<>();
+    final AtomicInteger duplicates = new AtomicInteger();
+    final CountDownLatch done = new CountDownLatch(threads);
+    for (int t = 0; t < threads; t++) {
+      new Thread(() -> {
+        for (int i = 0; i < iterations; i++) {
+          BufferSupplier.BufferSupply supply = pool.get();
+          ByteBuffer buffer = supply.acquire();
+          synchronized (held) {
+            if (held.put(buffer, Boolean.TRUE) != null) {
+              duplicates.incrementAndGet();
+            }
+          }
+          buffer.putInt(i);
+          synchronized (held) {
+            held.remove(buffer);
+          }
+          supply.release();
+        }
+        done.countDown();
+      }).start();
+    }
+    done.await();
+    assertEquals(0, duplicates.get());
+    assertEquals(8, pool.size());
+    assertEquals(threads * iterations, pool.getHitCount() + pool.getMissCount());
+  }
+
 }
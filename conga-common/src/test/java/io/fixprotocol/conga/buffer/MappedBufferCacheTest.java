@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Don Mendelson
+ *
+ */
+public class MappedBufferCacheTest {
+
+  private MappedBufferCache cache;
+  private final Path directory = FileSystems.getDefault().getPath("target/test", "sendcache");
+
+  @Before
+  public void setUp() throws Exception {
+    // small regions so that spilled messages span several
+    cache = MappedBufferCache.builder(directory).windowSize(128).windowCapacity(16)
+        .regionSize(256).build();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    cache.close();
+  }
+
+  @Test
+  public void spill() {
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(cache.add(createBuffer(Integer.toString(i))));
+    }
+    assertEquals(1000, cache.size());
+    assertEquals(1000 - 16, cache.getSpilledCount());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(Integer.toString(i), displayBuffer(cache.get(i)));
+    }
+  }
+
+  @Test
+  public void subList() {
+    for (int i = 0; i < 100; i++) {
+      cache.add(i, createBuffer(Integer.toString(i)));
+    }
+    final List<ByteBuffer> list = cache.subList(3, 100);
+    assertEquals(97, list.size());
+    int i = 3;
+    for (ByteBuffer buffer : list) {
+      assertEquals(Integer.toString(i), displayBuffer(buffer));
+      i++;
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void aboveMax() {
+    for (int i = 0; i < 20; i++) {
+      cache.add(createBuffer(Integer.toString(i)));
+    }
+    cache.get(20);
+  }
+
+  @Test
+  public void close() throws Exception {
+    for (int i = 0; i < 20; i++) {
+      cache.add(createBuffer(Integer.toString(i)));
+    }
+    assertEquals(4, cache.getSpilledCount());
+    cache.close();
+    try (Stream<Path> files = Files.list(directory)) {
+      assertFalse(files.findAny().isPresent());
+    }
+  }
+
+  private ByteBuffer createBuffer(String text) {
+    ByteBuffer src = ByteBuffer.allocate(64);
+    src.order(ByteOrder.nativeOrder());
+    src.put(text.getBytes());
+    src.flip();
+    return src;
+  }
+
+  private String displayBuffer(ByteBuffer buffer) {
+    ByteBuffer dup = buffer.duplicate();
+    byte[] dst = new byte[dup.remaining()];
+    dup.get(dst);
+    return new String(dst);
+  }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.buffer;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.fixprotocol.conga.buffer.BufferSupplier.BufferSupply;
+import io.fixprotocol.conga.buffer.RingBufferSupplier.BackpressurePolicy;
+import io.fixprotocol.conga.buffer.RingBufferSupplier.WaitStrategy;
+
+/**
+ * @author Don Mendelson
+ *
+ */
+public class RingBufferSupplierTest {
+
+  private RingBufferSupplier ringBuffer;
+  private final CountDownLatch resume = new CountDownLatch(1);
+
+  @After
+  public void tearDown() {
+    resume.countDown();
+    if (ringBuffer != null) {
+      ringBuffer.stop();
+    }
+  }
+
+  @Test
+  public void multipleProducers() throws InterruptedException {
+    final int producers = 4;
+    final int messagesPerProducer = 10000;
+    final CountDownLatch consumed = new CountDownLatch(producers * messagesPerProducer);
+    final ConcurrentHashMap<String, Integer> lastReceived = new ConcurrentHashMap<>();
+    final AtomicBoolean isOrdered = new AtomicBoolean(true);
+
+    ringBuffer = RingBufferSupplier.builder((source, buffer) -> {
+      final int value = buffer.getInt(0);
+      final Integer last = lastReceived.put(source, value);
+      if (last != null && last + 1 != value) {
+        isOrdered.set(false);
+      }
+      consumed.countDown();
+    }).capacity(64).queueDepth(64).waitStrategy(WaitStrategy.Yielding).build();
+    ringBuffer.start();
+
+    final Thread[] threads = new Thread[producers];
+    for (int i = 0; i < producers; i++) {
+      final String source = "P" + i;
+      threads[i] = new Thread(() -> {
+        for (int j = 0; j < messagesPerProducer; j++) {
+          final BufferSupply supply = ringBuffer.get();
+          final ByteBuffer buffer = supply.acquire();
+          buffer.putInt(j);
+          buffer.flip();
+          supply.setSource(source);
+          supply.release();
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(consumed.await(10, TimeUnit.SECONDS));
+    assertTrue(isOrdered.get());
+    assertEquals(producers, lastReceived.size());
+  }
+
+  @Test
+  public void rejectWhenFull() throws InterruptedException {
+    final int queueDepth = 4;
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final AtomicInteger consumed = new AtomicInteger();
+
+    ringBuffer = RingBufferSupplier.builder((source, buffer) -> {
+      blocked.countDown();
+      try {
+        resume.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      consumed.incrementAndGet();
+    }).capacity(64).queueDepth(queueDepth).waitStrategy(WaitStrategy.Blocking)
+        .backpressurePolicy(BackpressurePolicy.Reject).build();
+    ringBuffer.start();
+
+    final BufferSupply supply = ringBuffer.get();
+    supply.acquire();
+    supply.release();
+    assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+    // the first slot is not freed until the consumer returns
+    for (int i = 1; i < queueDepth; i++) {
+      assertNotNull(supply.acquire());
+      supply.release();
+    }
+    assertEquals(0, ringBuffer.getRemainingCapacity());
+    assertNull(supply.acquire());
+    assertEquals(1, ringBuffer.getBackpressureCount());
+    assertEquals(1, ringBuffer.getRejectCount());
+
+    resume.countDown();
+    final long deadline = System.currentTimeMillis() + 5000;
+    while (consumed.get() < queueDepth && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(queueDepth, consumed.get());
+    assertNotNull(supply.acquire());
+    supply.release();
+  }
+
+  @Test
+  public void endOfBatch() throws InterruptedException {
+    final int messages = 8;
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final CountDownLatch consumed = new CountDownLatch(messages + 1);
+    final AtomicInteger batches = new AtomicInteger();
+    final AtomicInteger lastValue = new AtomicInteger(-1);
+
+    ringBuffer = RingBufferSupplier.builder((source, buffer, endOfBatch) -> {
+      blocked.countDown();
+      try {
+        resume.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (endOfBatch) {
+        batches.incrementAndGet();
+        lastValue.set(buffer.getInt(0));
+      }
+      consumed.countDown();
+    }).capacity(64).queueDepth(16).waitStrategy(WaitStrategy.Blocking).build();
+    ringBuffer.start();
+
+    final BufferSupply supply = ringBuffer.get();
+    for (int i = 0; i <= messages; i++) {
+      final ByteBuffer buffer = supply.acquire();
+      buffer.putInt(i);
+      buffer.flip();
+      supply.release();
+      if (i == 0) {
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+      }
+    }
+
+    // the first message is a batch of one; the rest accumulated while the consumer was blocked
+    resume.countDown();
+    assertTrue(consumed.await(5, TimeUnit.SECONDS));
+    assertEquals(2, batches.get());
+    assertEquals(messages, lastValue.get());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void acquireTwice() {
+    ringBuffer = RingBufferSupplier.builder((source, buffer) -> {
+    }).capacity(64).queueDepth(4).build();
+    ringBuffer.start();
+    final BufferSupply supply = ringBuffer.get();
+    supply.acquire();
+    try {
+      supply.acquire();
+    } finally {
+      supply.release();
+    }
+  }
+}
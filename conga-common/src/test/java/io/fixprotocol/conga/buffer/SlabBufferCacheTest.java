@@ -0,0 +1,140 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Don Mendelson
+ *
+ */
+public class SlabBufferCacheTest {
+
+  @Test
+  public void variableLength() {
+    SlabBufferCache cache = new SlabBufferCache(16, 64, ByteOrder.nativeOrder());
+    cache.add(createBuffer("A"));
+    cache.add(createBuffer("BCDEFGHIJK"));
+    cache.add(createBuffer(""));
+    cache.add(createBuffer("LMN"));
+    assertEquals(4, cache.size());
+    assertEquals(0, cache.getMinimumIndex());
+    assertEquals("A", displayBuffer(cache.get(0)));
+    assertEquals("BCDEFGHIJK", displayBuffer(cache.get(1)));
+    assertEquals("", displayBuffer(cache.get(2)));
+    assertEquals("LMN", displayBuffer(cache.get(3)));
+  }
+
+  @Test
+  public void evictByCount() {
+    List<String> evicted = new ArrayList<>();
+    SlabBufferCache cache = new SlabBufferCache(4, 1024, ByteOrder.nativeOrder(),
+        (buffer, index) -> evicted.add(index + ":" + displayBuffer(buffer)));
+    for (int i = 0; i < 10; i++) {
+      cache.add(i, createBuffer(Integer.toString(i)));
+    }
+    assertEquals(10, cache.size());
+    assertEquals(6, cache.getMinimumIndex());
+    assertEquals(List.of("0:0", "1:1", "2:2", "3:3", "4:4", "5:5"), evicted);
+    for (int i = 6; i < 10; i++) {
+      assertEquals(Integer.toString(i), displayBuffer(cache.get(i)));
+    }
+  }
+
+  @Test
+  public void evictBySize() {
+    List<Integer> evicted = new ArrayList<>();
+    SlabBufferCache cache = new SlabBufferCache(100, 32, ByteOrder.nativeOrder(),
+        (buffer, index) -> evicted.add(index));
+    // 10 bytes each; the fourth wraps to the start of the slab
+    for (int i = 0; i < 4; i++) {
+      cache.add(createBuffer("ABCDEFGHI" + i));
+    }
+    assertEquals(1, cache.getMinimumIndex());
+    assertEquals(List.of(0), evicted);
+    assertEquals("ABCDEFGHI3", displayBuffer(cache.get(3)));
+    assertEquals("ABCDEFGHI1", displayBuffer(cache.get(1)));
+
+    // a larger message overlaps two older ones
+    cache.add(createBuffer("0123456789ABCDEF"));
+    assertEquals(3, cache.getMinimumIndex());
+    assertEquals(List.of(0, 1, 2), evicted);
+    assertEquals("ABCDEFGHI3", displayBuffer(cache.get(3)));
+    assertEquals("0123456789ABCDEF", displayBuffer(cache.get(4)));
+  }
+
+  @Test
+  public void wrap() {
+    SlabBufferCache cache = new SlabBufferCache(8, 50, ByteOrder.nativeOrder());
+    for (int i = 0; i < 1000; i++) {
+      cache.add(createBuffer("msg" + i));
+      assertTrue(cache.size() - cache.getMinimumIndex() <= 8);
+      for (int j = cache.getMinimumIndex(); j <= i; j++) {
+        assertEquals("msg" + j, displayBuffer(cache.get(j)));
+      }
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void evicted() {
+    SlabBufferCache cache = new SlabBufferCache(4, 1024, ByteOrder.nativeOrder());
+    for (int i = 0; i < 5; i++) {
+      cache.add(createBuffer(Integer.toString(i)));
+    }
+    cache.get(0);
+  }
+
+  @Test(expected = BufferOverflowException.class)
+  public void tooLarge() {
+    SlabBufferCache cache = new SlabBufferCache(4, 8, ByteOrder.nativeOrder());
+    cache.add(createBuffer("ABCDEFGHI"));
+  }
+
+  @Test
+  public void set() {
+    SlabBufferCache cache = new SlabBufferCache(4, 64, ByteOrder.nativeOrder());
+    cache.add(createBuffer("ABC"));
+    cache.add(createBuffer("DEF"));
+    cache.set(0, createBuffer("XY"));
+    assertEquals("XY", displayBuffer(cache.get(0)));
+    assertEquals("DEF", displayBuffer(cache.get(1)));
+  }
+
+  private ByteBuffer createBuffer(String text) {
+    ByteBuffer src = ByteBuffer.allocate(64);
+    src.order(ByteOrder.nativeOrder());
+    src.put(text.getBytes());
+    src.flip();
+    return src;
+  }
+
+  private String displayBuffer(ByteBuffer buffer) {
+    ByteBuffer dup = buffer.duplicate();
+    byte[] dst = new byte[dup.remaining()];
+    dup.get(dst);
+    return new String(dst);
+  }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.fixprotocol.conga.io.MessageJournal.DurabilityPolicy;
+
+/**
+ * @author Don Mendelson
+ *
+ */
+public class GroupCommitLogWriterTest {
+
+  private final Path path = FileSystems.getDefault().getPath("target/test", "group.log");
+  private MessageLogReader reader;
+  private final short testEncoding = (short) 0xffff;
+  private GroupCommitLogWriter writer;
+
+  @Before
+  public void setUp() throws Exception {
+    writer = GroupCommitLogWriter.builder(path).truncateExisting(true).commitInterval(100_000L)
+        .maxGroupSize(64).durabilityPolicy(DurabilityPolicy.Batch).build();
+    reader = new MessageLogReader(path);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (writer != null) {
+      writer.close();
+    }
+    if (reader != null) {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void backpressure() throws Exception {
+    writer.close();
+    // room for a few messages, so writers must wait for commits
+    writer = GroupCommitLogWriter.builder(path).truncateExisting(true).commitInterval(100_000L)
+        .bufferCapacity(64).durabilityPolicy(DurabilityPolicy.Batch).build();
+    writer.open();
+    final int messages = 1000;
+    final ByteBuffer in = ByteBuffer.allocate(64);
+    for (int i = 0; i < messages; i++) {
+      in.clear();
+      in.put(Integer.toString(i).getBytes());
+      in.flip();
+      assertEquals(in.remaining(), writer.write(in, testEncoding));
+    }
+    writer.close();
+    assertTrue(writer.getCommitCount() < messages);
+
+    reader.open();
+    final ByteBuffer out = ByteBuffer.allocate(64);
+    int count = 0;
+    int bytesRead;
+    while ((bytesRead = reader.read(out)) > 0) {
+      final byte[] dst = new byte[bytesRead];
+      out.flip();
+      out.get(dst);
+      assertEquals(Integer.toString(count), new String(dst));
+      count++;
+    }
+    assertEquals(messages, count);
+  }
+
+  @Test
+  public void groupCommit() throws Exception {
+    final int writers = 4;
+    final int messagesPerWriter = 500;
+    writer.open();
+    @SuppressWarnings("unchecked")
+    final CompletableFuture<Long>[] futures = new CompletableFuture[writers * messagesPerWriter];
+    final Thread[] threads = new Thread[writers];
+    for (int i = 0; i < writers; i++) {
+      final int id = i;
+      threads[i] = new Thread(() -> {
+        final ByteBuffer in = ByteBuffer.allocate(64).order(ByteOrder.nativeOrder());
+        for (int j = 0; j < messagesPerWriter; j++) {
+          in.clear();
+          in.put(String.format("%d-%d", id, j).getBytes());
+          in.flip();
+          futures[id * messagesPerWriter + j] = writer.writeAsync(in, testEncoding);
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    writer.flush();
+    CompletableFuture.allOf(futures).get(5, TimeUnit.SECONDS);
+    assertEquals(3L, futures[0].get().longValue());
+    assertTrue(writer.getCommitCount() < futures.length);
+    writer.close();
+
+    reader.open();
+    final Set<String> messages = new HashSet<>();
+    final ByteBuffer out = ByteBuffer.allocate(64);
+    int bytesRead;
+    while ((bytesRead = reader.read(out)) > 0) {
+      final byte[] dst = new byte[bytesRead];
+      out.flip();
+      out.get(dst);
+      messages.add(new String(dst));
+    }
+    assertEquals(futures.length, messages.size());
+  }
+
+  @Test
+  public void messageTooLarge() throws Exception {
+    writer.close();
+    writer = GroupCommitLogWriter.builder(path).truncateExisting(true).bufferCapacity(64).build();
+    writer.open();
+    try {
+      writer.write(ByteBuffer.allocate(64), testEncoding);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // message plus delimiter exceeds the staging buffer
+    }
+    writer.close();
+
+    reader.open();
+    assertEquals(-1, reader.read(ByteBuffer.allocate(128)));
+  }
+
+}
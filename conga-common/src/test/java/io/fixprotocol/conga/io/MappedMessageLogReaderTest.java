@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Don Mendelson
+ *
+ */
+public class MappedMessageLogReaderTest {
+
+  private final Path path = FileSystems.getDefault().getPath("target/test", "mapped.log");
+  private final Path indexPath =
+      path.resolveSibling(path.getFileName() + MappedMessageLogReader.INDEX_SUFFIX);
+  private MappedMessageLogReader reader;
+  private final short testEncoding = (short) 0xffff;
+
+  @Before
+  public void setUp() throws Exception {
+    Files.deleteIfExists(path);
+    Files.deleteIfExists(indexPath);
+    write(0, 100);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (reader != null) {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void randomAccess() throws Exception {
+    // small regions to map the log piecewise
+    reader = MappedMessageLogReader.builder(path).regionSize(100).build();
+    reader.open();
+    assertEquals(100, reader.getRecordCount());
+    assertEquals(37L * 10, reader.getMessage(37).getLong(0));
+    assertEquals(testEncoding, reader.getEncoding(37));
+
+    reader.seek(98);
+    assertEquals(98L * 10, reader.next().getLong(0));
+    final ByteBuffer last = reader.next();
+    assertEquals(99L * 10, last.getLong(0));
+    assertEquals(Long.BYTES + 8, last.remaining());
+    assertNull(reader.next());
+  }
+
+  @Test
+  public void replay() throws Exception {
+    reader = MappedMessageLogReader.builder(path).regionSize(100).build();
+    reader.open();
+    reader.seek(10);
+    final long[] expected = new long[] {10L * 10};
+    assertEquals(90, reader.replay((message, encodingCode) -> {
+      assertEquals(testEncoding, encodingCode);
+      assertEquals(Long.BYTES + 8, message.remaining());
+      assertEquals(expected[0], message.getLong(message.position()));
+      expected[0] += 10;
+    }));
+    assertNull(reader.next());
+  }
+
+  @Test
+  public void seekTimestamp() throws Exception {
+    reader = MappedMessageLogReader.builder(path).timestampExtractor(b -> b.getLong(0)).build();
+    reader.open();
+    assertEquals(43, reader.seekTimestamp(425));
+    assertEquals(430L, reader.next().getLong(0));
+    assertEquals(0, reader.seekTimestamp(-1));
+    assertEquals(100, reader.seekTimestamp(10_000));
+    assertNull(reader.next());
+  }
+
+  @Test
+  public void sidecarIndex() throws Exception {
+    reader = MappedMessageLogReader.builder(path).timestampExtractor(b -> b.getLong(0)).build();
+    reader.open();
+    reader.close();
+    assertTrue(Files.exists(indexPath));
+
+    write(100, 50);
+    reader.open();
+    assertEquals(150, reader.getRecordCount());
+    assertEquals(1490L, reader.getTimestamp(149));
+    assertEquals(1490L, reader.getMessage(149).getLong(0));
+  }
+
+  private void write(int from, int count) throws Exception {
+    final MessageLogWriter writer = new MessageLogWriter(path, false);
+    writer.open();
+    try {
+      for (int i = from; i < from + count; i++) {
+        final ByteBuffer in = ByteBuffer.allocate(64).order(ByteOrder.nativeOrder());
+        in.putLong(i * 10L);
+        in.put(String.format("%08d", i).getBytes());
+        in.flip();
+        writer.writeAsync(in, testEncoding).get();
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.fixprotocol.conga.io.MessageJournal.DurabilityPolicy;
+
+/**
+ * @author Don Mendelson
+ *
+ */
+public class MessageJournalTest {
+
+  private final Path path = FileSystems.getDefault().getPath("target/test", "journal.log");
+  private final short testEncoding = (short) 0xffff;
+  private MessageJournalWriter writer;
+
+  @Before
+  public void setUp() throws Exception {
+    deleteSegments();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (writer != null) {
+      writer.close();
+    }
+    deleteSegments();
+  }
+
+  @Test
+  public void rollSegments() throws IOException {
+    writer = MessageJournalWriter.builder(path).segmentSize(64)
+        .durabilityPolicy(DurabilityPolicy.Batch).build();
+    writer.open();
+    final List<byte[]> srcs = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      final byte[] src = ("message" + i).getBytes();
+      srcs.add(src);
+      final ByteBuffer in = allocateBuffer();
+      in.put(src);
+      in.flip();
+      assertEquals(src.length, writer.write(in, testEncoding));
+      assertEquals(0, in.position());
+    }
+    writer.flush();
+    assertTrue(writer.getSegmentIndex() > 0);
+    writer.close();
+
+    final List<byte[]> messages = readSegments();
+    assertEquals(srcs.size(), messages.size());
+    for (int i = 0; i < srcs.size(); i++) {
+      assertArrayEquals(srcs.get(i), messages.get(i));
+    }
+  }
+
+  @Test
+  public void reopen() throws IOException {
+    writer = MessageJournalWriter.builder(path).segmentSize(1024).build();
+    writer.open();
+    writer.write(ByteBuffer.wrap("abcdefghijklm".getBytes()), testEncoding);
+    writer.close();
+    writer.open();
+    writer.write(ByteBuffer.wrap("nopqrstuvwxyz".getBytes()), testEncoding);
+    writer.close();
+
+    final List<byte[]> messages = readSegments();
+    assertEquals(2, messages.size());
+    assertArrayEquals("nopqrstuvwxyz".getBytes(), messages.get(1));
+  }
+
+  @Test
+  public void concurrentWriters() throws Exception {
+    final int writers = 4;
+    final int messagesPerWriter = 1000;
+    writer = MessageJournalWriter.builder(path).segmentSize(4096).build();
+    writer.open();
+    final Thread[] threads = new Thread[writers];
+    for (int i = 0; i < writers; i++) {
+      final int id = i;
+      threads[i] = new Thread(() -> {
+        final ByteBuffer in = allocateBuffer();
+        for (int j = 0; j < messagesPerWriter; j++) {
+          in.clear();
+          in.put(String.format("%d-%d", id, j).getBytes());
+          in.flip();
+          try {
+            writer.write(in, testEncoding);
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    writer.close();
+
+    final Set<String> messages = new HashSet<>();
+    for (byte[] message : readSegments()) {
+      messages.add(new String(message));
+    }
+    assertEquals(writers * messagesPerWriter, messages.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void recordTooLarge() throws IOException {
+    writer = MessageJournalWriter.builder(path).segmentSize(64).build();
+    writer.open();
+    writer.write(ByteBuffer.allocate(64), testEncoding);
+  }
+
+  private ByteBuffer allocateBuffer() {
+    return ByteBuffer.allocate(1024).order(ByteOrder.nativeOrder());
+  }
+
+  private void deleteSegments() throws IOException {
+    for (int i = 0; Files.deleteIfExists(MessageJournalWriter.segmentPath(path, i)); i++) {
+      // next segment
+    }
+  }
+
+  private List<byte[]> readSegments() throws IOException {
+    final List<byte[]> messages = new ArrayList<>();
+    for (int i = 0; Files.exists(MessageJournalWriter.segmentPath(path, i)); i++) {
+      try (MessageLogReader reader =
+          new MessageLogReader(MessageJournalWriter.segmentPath(path, i))) {
+        reader.open();
+        final ByteBuffer out = allocateBuffer();
+        int bytesRead;
+        while ((bytesRead = reader.read(out)) > 0) {
+          assertEquals(testEncoding, reader.getLastEncoding());
+          final byte[] dst = new byte[bytesRead];
+          out.flip();
+          out.get(dst);
+          messages.add(dst);
+        }
+      }
+    }
+    return messages;
+  }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+/**
+ * @author Don Mendelson
+ *
+ */
+public class SofhEncoderTest {
+
+  private static final short ENCODING = (short) 0x5BE0;
+
+  @Test
+  public void appendSeveral() {
+    final ByteBuffer frame = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+    final ByteBuffer first = message("abc");
+    final ByteBuffer second = message("defgh");
+    assertTrue(SofhEncoder.append(frame, first, ENCODING));
+    assertTrue(SofhEncoder.append(frame, second, ENCODING));
+    // source positions are unchanged
+    assertEquals(0, first.position());
+    assertEquals(0, second.position());
+    assertEquals(2 * SofhEncoder.ENCODED_LENGTH + 8, frame.position());
+
+    frame.flip();
+    assertEquals(3, SofhDecoder.messageLength(frame, 0));
+    final int secondOffset = SofhEncoder.ENCODED_LENGTH + 3;
+    assertEquals(5, SofhDecoder.messageLength(frame, secondOffset));
+    assertEquals('d', frame.get(secondOffset + SofhEncoder.ENCODED_LENGTH));
+    // header is big-endian regardless of buffer order
+    assertEquals(3, frame.duplicate().order(ByteOrder.BIG_ENDIAN).getInt(0));
+  }
+
+  @Test
+  public void appendNoRoom() {
+    final ByteBuffer frame = ByteBuffer.allocate(SofhEncoder.ENCODED_LENGTH + 2);
+    assertFalse(SofhEncoder.append(frame, message("abc"), ENCODING));
+    assertEquals(0, frame.position());
+    assertTrue(SofhEncoder.append(frame, message("ab"), ENCODING));
+    assertFalse(frame.hasRemaining());
+  }
+
+  private static ByteBuffer message(String text) {
+    final ByteBuffer buffer = ByteBuffer.allocate(16);
+    buffer.put(text.getBytes());
+    buffer.flip();
+    return buffer;
+  }
+}
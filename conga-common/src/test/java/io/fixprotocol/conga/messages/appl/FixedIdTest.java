@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.messages.appl;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * @author Don Mendelson
+ *
+ */
+public class FixedIdTest {
+
+  @Test
+  public void pack() {
+    assertEquals(0L, FixedId.pack(""));
+    assertEquals(0x4100000000000000L, FixedId.pack("A"));
+    assertEquals(0x4142434445464748L, FixedId.pack("ABCDEFGH"));
+    assertNotEquals(FixedId.pack("AB"), FixedId.pack("BA"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void packTooLong() {
+    FixedId.pack("ABCDEFGHI");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void packNotAscii() {
+    FixedId.pack("\u00e9");
+  }
+
+  @Test
+  public void packOrZero() {
+    assertEquals(FixedId.pack("C1"), FixedId.packOrZero("C1"));
+    assertEquals(0L, FixedId.packOrZero("ABCDEFGHI"));
+    assertEquals(0L, FixedId.packOrZero("\u00e9"));
+  }
+
+  @Test
+  public void isPackable() {
+    assertTrue(FixedId.isPackable("C1"));
+    assertFalse(FixedId.isPackable("ABCDEFGHI"));
+    assertFalse(FixedId.isPackable("A\u0000"));
+  }
+
+  @Test
+  public void isPacked() {
+    assertTrue(FixedId.isPacked(0L));
+    assertTrue(FixedId.isPacked(FixedId.pack("ABCDEFGH")));
+    assertFalse(FixedId.isPacked(0x41e9000000000000L));
+    assertFalse(FixedId.isPacked(0x4100420000000000L));
+  }
+
+  @Test
+  public void roundTrip() {
+    for (String id : new String[] {"", "X", "C123", "ABCDEFGH"}) {
+      assertEquals(id, FixedId.toString(FixedId.pack(id)));
+    }
+  }
+
+  @Test
+  public void append() {
+    final StringBuilder buffer = new StringBuilder("ID=");
+    assertEquals("ID=C123", FixedId.append(FixedId.pack("C123"), buffer).toString());
+    buffer.setLength(0);
+    assertEquals("ABCDEFGH", FixedId.append(FixedId.pack("ABCDEFGH"), buffer).toString());
+  }
+
+  @Test
+  public void terminate() {
+    final ByteBuffer buffer = ByteBuffer.allocate(FixedId.LENGTH);
+    buffer.put("AB\u0000CDEFG".getBytes(StandardCharsets.US_ASCII));
+    assertEquals(FixedId.pack("AB"), FixedId.terminate(buffer.getLong(0)));
+    buffer.clear();
+    buffer.put("ABCDEFGH".getBytes(StandardCharsets.US_ASCII));
+    assertEquals(FixedId.pack("ABCDEFGH"), FixedId.terminate(buffer.getLong(0)));
+    assertEquals(0L, FixedId.terminate(0x0041000000000000L));
+  }
+
+  @Test
+  public void unpack() {
+    final char[] dst = new char[10];
+    assertEquals(3, FixedId.unpack(FixedId.pack("SYM"), dst, 2));
+    assertEquals("SYM", new String(dst, 2, 3));
+  }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.messages.appl;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+/**
+ * @author Don Mendelson
+ *
+ */
+public class FixedPointTest {
+
+  @Test
+  public void fromBigDecimal() {
+    assertEquals(1234L, FixedPoint.fromBigDecimal(new BigDecimal("12.34"), 2));
+    assertEquals(1200L, FixedPoint.fromBigDecimal(new BigDecimal("12"), 2));
+    assertEquals(-5L, FixedPoint.fromBigDecimal(new BigDecimal("-0.05"), 2));
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void fromBigDecimalRounding() {
+    FixedPoint.fromBigDecimal(new BigDecimal("12.345"), 2);
+  }
+
+  @Test
+  public void rescale() {
+    assertEquals(1234L, FixedPoint.rescale(1234L, 2, 2));
+    assertEquals(123400L, FixedPoint.rescale(1234L, 2, 4));
+    assertEquals(1234L, FixedPoint.rescale(123400L, 4, 2));
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void rescaleRounding() {
+    FixedPoint.rescale(123401L, 4, 2);
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void rescaleOverflow() {
+    FixedPoint.rescale(Long.MAX_VALUE / 10, 0, 2);
+  }
+
+  @Test
+  public void toBigDecimal() {
+    assertEquals(new BigDecimal("12.34"), FixedPoint.toBigDecimal(1234L, 2));
+    assertEquals(new BigDecimal("12.00"), FixedPoint.toBigDecimal(1200L, 2));
+  }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Don Mendelson
+ *
+ */
+public class HashedWheelTimerTest {
+
+  private ExecutorService executor;
+  private HashedWheelTimer timer;
+
+  @Before
+  public void setUp() throws Exception {
+    executor = Executors.newFixedThreadPool(2);
+    // small wheel so that periods span several rounds
+    timer = HashedWheelTimer.builder().tickDuration(5).wheelSize(8).executor(executor).build();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    timer.close();
+    executor.shutdownNow();
+  }
+
+  @Test(timeout = 5000)
+  public void periodic() throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(5);
+    final long start = System.nanoTime();
+    final SessionTimer.Timeout timeout = timer.scheduleAtFixedRate(latch::countDown, 50, 50);
+    assertTrue(latch.await(2, TimeUnit.SECONDS));
+    final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertTrue(elapsedMillis >= 250 - 5);
+    assertEquals(1, timer.size());
+    timeout.cancel();
+    assertEquals(0, timer.size());
+  }
+
+  @Test(timeout = 5000)
+  public void cancel() throws InterruptedException {
+    final AtomicInteger count = new AtomicInteger();
+    final SessionTimer.Timeout timeout = timer.scheduleAtFixedRate(count::incrementAndGet, 20, 20);
+    Thread.sleep(110);
+    timeout.cancel();
+    final int countAtCancel = count.get();
+    assertTrue(countAtCancel > 0);
+    Thread.sleep(100);
+    // at most one run may have been in flight when cancelled
+    assertTrue(count.get() <= countAtCancel + 1);
+  }
+
+  @Test(timeout = 5000)
+  public void slowTaskDoesNotDelayOthers() throws InterruptedException {
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final AtomicInteger slowRuns = new AtomicInteger();
+    timer.scheduleAtFixedRate(() -> {
+      slowRuns.incrementAndGet();
+      try {
+        blocked.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, 10, 10);
+    final CountDownLatch latch = new CountDownLatch(10);
+    timer.scheduleAtFixedRate(latch::countDown, 10, 10);
+    assertTrue(latch.await(2, TimeUnit.SECONDS));
+    // runs of the blocked task are skipped, not queued
+    assertEquals(1, slowRuns.get());
+    blocked.countDown();
+  }
+
+  @Test(timeout = 10000)
+  public void manyTasks() throws InterruptedException {
+    final int tasks = 10000;
+    final CountDownLatch latch = new CountDownLatch(tasks);
+    final SessionTimer.Timeout[] timeouts = new SessionTimer.Timeout[tasks];
+    for (int i = 0; i < tasks; i++) {
+      final AtomicInteger runs = new AtomicInteger();
+      timeouts[i] = timer.scheduleAtFixedRate(() -> {
+        if (runs.incrementAndGet() == 2) {
+          latch.countDown();
+        }
+      }, i % 100, 100);
+    }
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    for (SessionTimer.Timeout timeout : timeouts) {
+      timeout.cancel();
+    }
+    assertEquals(0, timer.size());
+  }
+}
@@ -0,0 +1,592 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.json.messages;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import io.fixprotocol.conga.messages.appl.MessageException;
+
+/**
+ * Streaming reader of a JSON object encoded as UTF-8 in a buffer
+ *
+ * <p>
+ * Members of a flat object are read in a single pass directly from the buffer, without copying it
+ * to an array or {@code String}. A string value is decoded into a reusable character buffer and
+ * returned as a {@code CharSequence} that is only valid until the next value is read. Numbers,
+ * enumerations and timestamps are converted from the bytes of the buffer without creating
+ * temporary objects. Nested objects and arrays may be skipped.
+ * <p>
+ * The position of the wrapped buffer is not changed. Not thread-safe; a reader may be reused for
+ * successive messages on one thread.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class JsonBufferReader {
+
+  private static final long SECONDS_PER_DAY = TimeUnit.DAYS.toSeconds(1);
+
+  private ByteBuffer buffer;
+  private boolean isFirstMember = true;
+  private int limit;
+  private final StringBuilder name = new StringBuilder(32);
+  private int position;
+  private int scale;
+  private final StringBuilder value = new StringBuilder(64);
+
+  /**
+   * Consumes the opening brace of an object
+   *
+   * @throws MessageException if the next token is not the start of an object
+   */
+  public void beginObject() throws MessageException {
+    expect('{');
+    isFirstMember = true;
+  }
+
+  /**
+   * Finds a string member of an object without decoding the other values
+   *
+   * <p>
+   * The position of this reader is restored, so the object may then be read from its start.
+   *
+   * @param memberName name of a member
+   * @return value of the member, or {@code null} if the object does not contain it
+   * @throws MessageException if the object is malformed or the value is not a string
+   */
+  public CharSequence findString(String memberName) throws MessageException {
+    final int start = position;
+    try {
+      beginObject();
+      while (nextName()) {
+        if (isName(memberName)) {
+          return nextString();
+        }
+        skipValue();
+      }
+      return null;
+    } finally {
+      position = start;
+      isFirstMember = true;
+    }
+  }
+
+  /**
+   * Returns the number of decimal places of the last value read by {@link #nextDecimal()}
+   *
+   * @return scale of the last decimal value; may be negative
+   */
+  public int getScale() {
+    return scale;
+  }
+
+  /**
+   * Tells whether the name of the current member equals a name
+   *
+   * @param memberName a member name
+   * @return {@code true} if the current member has the name
+   */
+  public boolean isName(String memberName) {
+    return memberName.contentEquals(name);
+  }
+
+  /**
+   * Reads an array of integers as bytes
+   *
+   * @param dst array to populate
+   * @return number of bytes read
+   * @throws MessageException if the next value is not an array of integers in the range of a
+   *         {@code byte} or it has more elements than the length of dst
+   */
+  public int nextBytes(byte[] dst) throws MessageException {
+    expect('[');
+    skipWhitespace();
+    if (peek() == ']') {
+      position++;
+      return 0;
+    }
+    int count = 0;
+    for (;;) {
+      final long number = nextLong();
+      if (number < Byte.MIN_VALUE || number > Byte.MAX_VALUE) {
+        throw malformed("Byte out of range");
+      }
+      if (count == dst.length) {
+        throw malformed("Too many bytes");
+      }
+      dst[count++] = (byte) number;
+      skipWhitespace();
+      if (peek() != ',') {
+        break;
+      }
+      position++;
+    }
+    expect(']');
+    return count;
+  }
+
+  /**
+   * Reads a decimal number as a fixed-point value
+   *
+   * @return unscaled value; its scale is returned by {@link #getScale()}
+   * @throws MessageException if the next value is not a number or has more than 18 significant
+   *         digits
+   */
+  public long nextDecimal() throws MessageException {
+    skipWhitespace();
+    final boolean isNegative = peek() == '-';
+    if (isNegative) {
+      position++;
+    }
+    long mantissa = readDigits(0);
+    int fractionDigits = 0;
+    if (position < limit && byteAt(position) == '.') {
+      position++;
+      final int start = position;
+      mantissa = readDigits(mantissa);
+      fractionDigits = position - start;
+    }
+    if (position < limit && (byteAt(position) | 0x20) == 'e') {
+      position++;
+      final boolean isNegativeExponent = peek() == '-';
+      if (isNegativeExponent || peek() == '+') {
+        position++;
+      }
+      final long exponent = readDigits(0);
+      if (exponent > 1000) {
+        throw malformed("Exponent out of range");
+      }
+      fractionDigits += isNegativeExponent ? (int) exponent : -(int) exponent;
+    }
+    scale = fractionDigits;
+    return isNegative ? -mantissa : mantissa;
+  }
+
+  /**
+   * Reads a string value that is the name of an enumerated constant
+   *
+   * @param <E> enumeration type
+   * @param values constants of the enumeration, for example from {@code values()}
+   * @return the constant with a matching name
+   * @throws MessageException if the next value is not a string or names no constant
+   */
+  public <E extends Enum<E>> E nextEnum(E[] values) throws MessageException {
+    final CharSequence chars = nextString();
+    for (int i = 0; i < values.length; i++) {
+      if (values[i].name().contentEquals(chars)) {
+        return values[i];
+      }
+    }
+    throw malformed("Unknown value " + chars);
+  }
+
+  /**
+   * Reads an integer value
+   *
+   * @return value of a number
+   * @throws MessageException if the next value is not an integer or it overflows an {@code int}
+   */
+  public int nextInt() throws MessageException {
+    final long number = nextLong();
+    if (number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+      throw malformed("Integer out of range");
+    }
+    return (int) number;
+  }
+
+  /**
+   * Reads an integer value
+   *
+   * @return value of a number
+   * @throws MessageException if the next value is not an integer or it overflows a {@code long}
+   */
+  public long nextLong() throws MessageException {
+    skipWhitespace();
+    final boolean isNegative = peek() == '-';
+    if (isNegative) {
+      position++;
+    }
+    final long number = readDigits(0);
+    if (position < limit) {
+      final byte b = byteAt(position);
+      if (b == '.' || (b | 0x20) == 'e') {
+        throw malformed("Integer expected");
+      }
+    }
+    return isNegative ? -number : number;
+  }
+
+  /**
+   * Advances to the next member of the current object and reads its name
+   *
+   * @return {@code true} if a member was read, or {@code false} if the end of the object was
+   *         reached
+   * @throws MessageException if the object is malformed
+   */
+  public boolean nextName() throws MessageException {
+    skipWhitespace();
+    if (peek() == '}') {
+      position++;
+      return false;
+    }
+    if (!isFirstMember) {
+      expect(',');
+      skipWhitespace();
+    }
+    isFirstMember = false;
+    readString(name);
+    expect(':');
+    return true;
+  }
+
+  /**
+   * Consumes a null value if it is next
+   *
+   * @return {@code true} if the value was null
+   * @throws MessageException if the buffer ends before a value
+   */
+  public boolean nextNull() throws MessageException {
+    skipWhitespace();
+    if (peek() == 'n') {
+      expectLiteral("null");
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Reads a string value
+   *
+   * @return characters of the value, valid until the next value is read
+   * @throws MessageException if the next value is not a string
+   */
+  public CharSequence nextString() throws MessageException {
+    skipWhitespace();
+    readString(value);
+    return value;
+  }
+
+  /**
+   * Reads a timestamp formatted as an ISO-8601 instant, such as {@code 2018-07-04T12:34:56.789Z}
+   *
+   * @return nanoseconds since the epoch
+   * @throws MessageException if the next value is not a string in the format of an instant
+   */
+  public long nextTimestamp() throws MessageException {
+    final CharSequence chars = nextString();
+    final int length = chars.length();
+    if (length < 20 || chars.charAt(4) != '-' || chars.charAt(7) != '-'
+        || (chars.charAt(10) | 0x20) != 't' || chars.charAt(13) != ':' || chars.charAt(16) != ':'
+        || (chars.charAt(length - 1) | 0x20) != 'z') {
+      throw malformed("Invalid timestamp " + chars);
+    }
+    final int year = parseDigits(chars, 0, 4);
+    final int month = parseDigits(chars, 5, 2);
+    final int day = parseDigits(chars, 8, 2);
+    final int hour = parseDigits(chars, 11, 2);
+    final int minute = parseDigits(chars, 14, 2);
+    final int second = parseDigits(chars, 17, 2);
+    if (month < 1 || month > 12 || day < 1 || day > 31 || hour > 23 || minute > 59
+        || second > 59) {
+      throw malformed("Invalid timestamp " + chars);
+    }
+    long nanos = 0;
+    if (length > 20) {
+      final int fractionDigits = length - 21;
+      if (chars.charAt(19) != '.' || fractionDigits < 1 || fractionDigits > 9) {
+        throw malformed("Invalid timestamp " + chars);
+      }
+      nanos = parseDigits(chars, 20, fractionDigits);
+      for (int i = fractionDigits; i < 9; i++) {
+        nanos *= 10;
+      }
+    }
+    final long seconds = epochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600L
+        + minute * 60L + second;
+    return TimeUnit.SECONDS.toNanos(seconds) + nanos;
+  }
+
+  /**
+   * Skips the next value, including any nested objects or arrays
+   *
+   * @throws MessageException if the value is malformed
+   */
+  public void skipValue() throws MessageException {
+    skipWhitespace();
+    final byte b = peek();
+    switch (b) {
+      case '"':
+        skipString();
+        break;
+      case '{':
+      case '[':
+        skipNested();
+        break;
+      case 't':
+        expectLiteral("true");
+        break;
+      case 'f':
+        expectLiteral("false");
+        break;
+      case 'n':
+        expectLiteral("null");
+        break;
+      default:
+        skipNumber();
+    }
+  }
+
+  /**
+   * Wraps a buffer holding a JSON object from its position to its limit
+   *
+   * @param buffer buffer to read
+   * @return this reader
+   */
+  public JsonBufferReader wrap(ByteBuffer buffer) {
+    this.buffer = buffer;
+    this.position = buffer.position();
+    this.limit = buffer.limit();
+    this.isFirstMember = true;
+    return this;
+  }
+
+  private byte byteAt(int index) {
+    return buffer.get(index);
+  }
+
+  private void expect(char c) throws MessageException {
+    skipWhitespace();
+    if (peek() != c) {
+      throw malformed("'" + c + "' expected");
+    }
+    position++;
+  }
+
+  private void expectLiteral(String literal) throws MessageException {
+    for (int i = 0; i < literal.length(); i++) {
+      if (position >= limit || byteAt(position) != literal.charAt(i)) {
+        throw malformed(literal + " expected");
+      }
+      position++;
+    }
+  }
+
+  private MessageException malformed(String reason) {
+    return new MessageException("Malformed JSON at offset " + (position - buffer.position())
+        + ": " + reason);
+  }
+
+  private byte peek() throws MessageException {
+    if (position >= limit) {
+      throw malformed("Unexpected end of message");
+    }
+    return byteAt(position);
+  }
+
+  private long readDigits(long initial) throws MessageException {
+    final int start = position;
+    long number = initial;
+    while (position < limit) {
+      final int digit = byteAt(position) - '0';
+      if (digit < 0 || digit > 9) {
+        break;
+      }
+      if (number > (Long.MAX_VALUE - digit) / 10) {
+        throw malformed("Number out of range");
+      }
+      number = number * 10 + digit;
+      position++;
+    }
+    if (position == start) {
+      throw malformed("Digit expected");
+    }
+    return number;
+  }
+
+  private int readHex() throws MessageException {
+    int code = 0;
+    for (int i = 0; i < 4; i++) {
+      final int digit = Character.digit(peek(), 16);
+      if (digit < 0) {
+        throw malformed("Invalid escape");
+      }
+      code = (code << 4) | digit;
+      position++;
+    }
+    return code;
+  }
+
+  private void readString(StringBuilder dst) throws MessageException {
+    expect('"');
+    dst.setLength(0);
+    for (;;) {
+      final byte b = peek();
+      position++;
+      if (b == '"') {
+        return;
+      } else if (b == '\\') {
+        final byte escaped = peek();
+        position++;
+        switch (escaped) {
+          case '"':
+          case '\\':
+          case '/':
+            dst.append((char) escaped);
+            break;
+          case 'b':
+            dst.append('\b');
+            break;
+          case 'f':
+            dst.append('\f');
+            break;
+          case 'n':
+            dst.append('\n');
+            break;
+          case 'r':
+            dst.append('\r');
+            break;
+          case 't':
+            dst.append('\t');
+            break;
+          case 'u':
+            dst.append((char) readHex());
+            break;
+          default:
+            throw malformed("Invalid escape");
+        }
+      } else if (b >= 0x20) {
+        dst.append((char) b);
+      } else if (b < 0) {
+        dst.appendCodePoint(readUtf8(b));
+      } else {
+        throw malformed("Control character in string");
+      }
+    }
+  }
+
+  /**
+   * Decodes a multi-byte UTF-8 sequence, given its lead byte
+   */
+  private int readUtf8(byte lead) throws MessageException {
+    final int count;
+    int codePoint;
+    if ((lead & 0xe0) == 0xc0) {
+      count = 1;
+      codePoint = lead & 0x1f;
+    } else if ((lead & 0xf0) == 0xe0) {
+      count = 2;
+      codePoint = lead & 0x0f;
+    } else if ((lead & 0xf8) == 0xf0) {
+      count = 3;
+      codePoint = lead & 0x07;
+    } else {
+      throw malformed("Invalid UTF-8");
+    }
+    for (int i = 0; i < count; i++) {
+      final byte b = peek();
+      if ((b & 0xc0) != 0x80) {
+        throw malformed("Invalid UTF-8");
+      }
+      codePoint = (codePoint << 6) | (b & 0x3f);
+      position++;
+    }
+    if (!Character.isValidCodePoint(codePoint)) {
+      throw malformed("Invalid UTF-8");
+    }
+    return codePoint;
+  }
+
+  private void skipNested() throws MessageException {
+    int depth = 0;
+    do {
+      final byte b = peek();
+      if (b == '"') {
+        skipString();
+        continue;
+      } else if (b == '{' || b == '[') {
+        depth++;
+      } else if (b == '}' || b == ']') {
+        depth--;
+      }
+      position++;
+    } while (depth > 0);
+  }
+
+  private void skipNumber() throws MessageException {
+    final int start = position;
+    while (position < limit) {
+      final byte b = byteAt(position);
+      if ((b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || (b | 0x20) == 'e') {
+        position++;
+      } else {
+        break;
+      }
+    }
+    if (position == start) {
+      throw malformed("Value expected");
+    }
+  }
+
+  private void skipString() throws MessageException {
+    expect('"');
+    for (;;) {
+      final byte b = peek();
+      position++;
+      if (b == '"') {
+        return;
+      } else if (b == '\\') {
+        peek();
+        position++;
+      }
+    }
+  }
+
+  private void skipWhitespace() {
+    while (position < limit) {
+      final byte b = byteAt(position);
+      if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+        position++;
+      } else {
+        break;
+      }
+    }
+  }
+
+  private int parseDigits(CharSequence chars, int offset, int length) throws MessageException {
+    int number = 0;
+    for (int i = offset; i < offset + length; i++) {
+      final int digit = chars.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        throw malformed("Invalid timestamp " + chars);
+      }
+      number = number * 10 + digit;
+    }
+    return number;
+  }
+
+  /**
+   * Days since the epoch of a date in the proleptic Gregorian calendar
+   */
+  private static long epochDay(int year, int month, int day) {
+    final long y = month <= 2 ? year - 1 : year;
+    final long era = Math.floorDiv(y, 400);
+    final long yearOfEra = y - era * 400;
+    final long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    final long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097 + dayOfEra - 719468;
+  }
+}
@@ -0,0 +1,423 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.json.messages;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a JSON object as UTF-8 directly into a buffer
+ *
+ * <p>
+ * Output is compact and compatible with the format produced by Gson with default settings: a
+ * member with a {@code null} value is omitted, enumerations are written as their names, strings
+ * are escaped as HTML-safe, and instants are written in ISO-8601 format with fractional seconds
+ * in groups of three digits, as by {@link DateTimeFormatter#ISO_INSTANT}. Numbers and timestamps
+ * are formatted without creating temporary objects.
+ * <p>
+ * Not thread-safe; a writer may be reused for successive messages on one thread.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class JsonBufferWriter {
+
+  private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+  private static final long SECONDS_PER_DAY = TimeUnit.DAYS.toSeconds(1);
+
+  private ByteBuffer buffer;
+  private final byte[] digits = new byte[20];
+  private boolean needsComma = false;
+
+  /**
+   * Starts an element of an array that is an object
+   *
+   * @return this writer
+   */
+  public JsonBufferWriter beginElement() {
+    separate();
+    buffer.put((byte) '{');
+    needsComma = false;
+    return this;
+  }
+
+  /**
+   * Starts a member that is an array
+   *
+   * @param name member name
+   * @return this writer
+   */
+  public JsonBufferWriter beginArray(String name) {
+    name(name);
+    buffer.put((byte) '[');
+    needsComma = false;
+    return this;
+  }
+
+  /**
+   * Starts the top-level object
+   *
+   * @return this writer
+   */
+  public JsonBufferWriter beginObject() {
+    buffer.put((byte) '{');
+    needsComma = false;
+    return this;
+  }
+
+  /**
+   * Writes a byte array member as an array of signed integers
+   *
+   * @param name member name
+   * @param value bytes to write, or {@code null} to omit the member
+   * @return this writer
+   */
+  public JsonBufferWriter bytes(String name, byte[] value) {
+    if (value != null) {
+      name(name);
+      buffer.put((byte) '[');
+      for (int i = 0; i < value.length; i++) {
+        if (i > 0) {
+          buffer.put((byte) ',');
+        }
+        final int count = toDigits(value[i]);
+        if (value[i] < 0) {
+          buffer.put((byte) '-');
+        }
+        buffer.put(digits, digits.length - count, count);
+      }
+      buffer.put((byte) ']');
+    }
+    return this;
+  }
+
+  /**
+   * Writes a decimal member
+   *
+   * @param name member name
+   * @param value a decimal value, or {@code null} to omit the member
+   * @return this writer
+   */
+  public JsonBufferWriter decimal(String name, BigDecimal value) {
+    if (value != null) {
+      name(name);
+      final String string = value.toString();
+      for (int i = 0; i < string.length(); i++) {
+        buffer.put((byte) string.charAt(i));
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Writes a decimal member from a fixed-point value
+   *
+   * @param name member name
+   * @param value unscaled value
+   * @param scale number of decimal places of value; not negative
+   * @return this writer
+   */
+  public JsonBufferWriter decimal(String name, long value, int scale) {
+    if (scale < 0) {
+      throw new IllegalArgumentException("Scale must not be negative");
+    }
+    name(name);
+    int count = toDigits(value);
+    if (value < 0) {
+      buffer.put((byte) '-');
+    }
+    if (scale == 0) {
+      buffer.put(digits, digits.length - count, count);
+      return this;
+    }
+    if (count <= scale) {
+      buffer.put((byte) '0');
+    } else {
+      buffer.put(digits, digits.length - count, count - scale);
+      count = scale;
+    }
+    buffer.put((byte) '.');
+    for (int i = count; i < scale; i++) {
+      buffer.put((byte) '0');
+    }
+    buffer.put(digits, digits.length - count, count);
+    return this;
+  }
+
+  /**
+   * Ends an array
+   *
+   * @return this writer
+   */
+  public JsonBufferWriter endArray() {
+    buffer.put((byte) ']');
+    needsComma = true;
+    return this;
+  }
+
+  /**
+   * Ends an object
+   *
+   * @return this writer
+   */
+  public JsonBufferWriter endObject() {
+    buffer.put((byte) '}');
+    needsComma = true;
+    return this;
+  }
+
+  /**
+   * Writes a member that is the name of an enumerated constant
+   *
+   * @param name member name
+   * @param value a constant, or {@code null} to omit the member
+   * @return this writer
+   */
+  public JsonBufferWriter enumeration(String name, Enum<?> value) {
+    return value != null ? string(name, value.name()) : this;
+  }
+
+  /**
+   * Writes an integer member
+   *
+   * @param name member name
+   * @param value an integer value
+   * @return this writer
+   */
+  public JsonBufferWriter number(String name, long value) {
+    name(name);
+    final int count = toDigits(value);
+    if (value < 0) {
+      buffer.put((byte) '-');
+    }
+    buffer.put(digits, digits.length - count, count);
+    return this;
+  }
+
+  /**
+   * Writes a string member
+   *
+   * @param name member name
+   * @param value characters of a string, or {@code null} to omit the member
+   * @return this writer
+   */
+  public JsonBufferWriter string(String name, CharSequence value) {
+    if (value != null) {
+      name(name);
+      writeString(value);
+    }
+    return this;
+  }
+
+  /**
+   * Writes a timestamp member
+   *
+   * @param name member name
+   * @param value an instant, or {@code null} to omit the member
+   * @return this writer
+   */
+  public JsonBufferWriter timestamp(String name, Instant value) {
+    if (value != null) {
+      name(name);
+      writeInstant(value.getEpochSecond(), value.getNano());
+    }
+    return this;
+  }
+
+  /**
+   * Writes a timestamp member
+   *
+   * @param name member name
+   * @param nanos nanoseconds since the epoch
+   * @return this writer
+   */
+  public JsonBufferWriter timestamp(String name, long nanos) {
+    name(name);
+    writeInstant(Math.floorDiv(nanos, NANOS_PER_SECOND),
+        (int) Math.floorMod(nanos, NANOS_PER_SECOND));
+    return this;
+  }
+
+  /**
+   * Writes to a buffer from its position
+   *
+   * @param buffer buffer to populate
+   * @return this writer
+   */
+  public JsonBufferWriter wrap(ByteBuffer buffer) {
+    this.buffer = buffer;
+    this.needsComma = false;
+    return this;
+  }
+
+  private void name(String name) {
+    separate();
+    writeString(name);
+    buffer.put((byte) ':');
+    needsComma = true;
+  }
+
+  private void putDigits(long value, int count) {
+    for (int i = count - 1; i >= 0; i--) {
+      digits[i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    buffer.put(digits, 0, count);
+  }
+
+  private void separate() {
+    if (needsComma) {
+      buffer.put((byte) ',');
+    }
+  }
+
+  /**
+   * Formats the magnitude of a value right-aligned in the digits array
+   *
+   * @return number of digits
+   */
+  private int toDigits(long value) {
+    int index = digits.length;
+    long remaining = value;
+    do {
+      digits[--index] = (byte) ('0' + Math.abs(remaining % 10));
+      remaining /= 10;
+    } while (remaining != 0);
+    return digits.length - index;
+  }
+
+  private void writeInstant(long epochSecond, int nano) {
+    final long epochDay = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+    final int secondOfDay = (int) Math.floorMod(epochSecond, SECONDS_PER_DAY);
+    // civil date from days since the epoch in the proleptic Gregorian calendar
+    final long z = epochDay + 719468;
+    final long era = Math.floorDiv(z, 146097);
+    final long dayOfEra = z - era * 146097;
+    final long yearOfEra =
+        (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    final long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    final long mp = (5 * dayOfYear + 2) / 153;
+    final int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+    final int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+    final long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+    if (year < 0 || year > 9999) {
+      // signed and expanded years are rare enough to format conventionally
+      writeString(DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochSecond(epochSecond, nano)));
+      return;
+    }
+    buffer.put((byte) '"');
+    putDigits(year, 4);
+    buffer.put((byte) '-');
+    putDigits(month, 2);
+    buffer.put((byte) '-');
+    putDigits(day, 2);
+    buffer.put((byte) 'T');
+    putDigits(secondOfDay / 3600, 2);
+    buffer.put((byte) ':');
+    putDigits(secondOfDay / 60 % 60, 2);
+    buffer.put((byte) ':');
+    putDigits(secondOfDay % 60, 2);
+    if (nano > 0) {
+      buffer.put((byte) '.');
+      if (nano % 1_000_000 == 0) {
+        putDigits(nano / 1_000_000, 3);
+      } else if (nano % 1_000 == 0) {
+        putDigits(nano / 1_000, 6);
+      } else {
+        putDigits(nano, 9);
+      }
+    }
+    buffer.put((byte) 'Z');
+    buffer.put((byte) '"');
+  }
+
+  private void writeString(CharSequence value) {
+    buffer.put((byte) '"');
+    final int length = value.length();
+    for (int i = 0; i < length; i++) {
+      final char c = value.charAt(i);
+      if (c < 0x80) {
+        switch (c) {
+          case '"':
+          case '\\':
+            buffer.put((byte) '\\').put((byte) c);
+            break;
+          case '\t':
+            buffer.put((byte) '\\').put((byte) 't');
+            break;
+          case '\b':
+            buffer.put((byte) '\\').put((byte) 'b');
+            break;
+          case '\n':
+            buffer.put((byte) '\\').put((byte) 'n');
+            break;
+          case '\r':
+            buffer.put((byte) '\\').put((byte) 'r');
+            break;
+          case '\f':
+            buffer.put((byte) '\\').put((byte) 'f');
+            break;
+          case '<':
+          case '>':
+          case '&':
+          case '=':
+          case '\'':
+            writeEscaped(c);
+            break;
+          default:
+            if (c < 0x20) {
+              writeEscaped(c);
+            } else {
+              buffer.put((byte) c);
+            }
+        }
+      } else if (c == 0x2028 || c == 0x2029) {
+        // line and paragraph separators
+        writeEscaped(c);
+      } else if (c < 0x800) {
+        buffer.put((byte) (0xc0 | (c >> 6)));
+        buffer.put((byte) (0x80 | (c & 0x3f)));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        buffer.put((byte) (0xf0 | (codePoint >> 18)));
+        buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+        buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+        buffer.put((byte) (0x80 | (codePoint & 0x3f)));
+      } else if (Character.isSurrogate(c)) {
+        // unpaired surrogate
+        buffer.put((byte) '?');
+      } else {
+        buffer.put((byte) (0xe0 | (c >> 12)));
+        buffer.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+        buffer.put((byte) (0x80 | (c & 0x3f)));
+      }
+    }
+    buffer.put((byte) '"');
+  }
+
+  private void writeEscaped(char c) {
+    buffer.put((byte) '\\').put((byte) 'u');
+    buffer.put(HEX[(c >> 12) & 0xf]).put(HEX[(c >> 8) & 0xf]).put(HEX[(c >> 4) & 0xf])
+        .put(HEX[c & 0xf]);
+  }
+}
@@ -18,6 +18,8 @@ package io.fixprotocol.conga.json.messages;
 
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import com.google.gson.Gson;
 
 import io.fixprotocol.conga.buffer.BufferSupplier;
@@ -26,23 +28,50 @@ import io.fixprotocol.conga.json.messages.gson.JsonTranslatorFactory;
 import io.fixprotocol.conga.messages.appl.MutableMessage;
 
 /**
+ * Base class of messages encoded as JSON
+ *
+ * <p>
+ * By default, a message is serialized by Gson. A subclass may override
+ * {@link #encode(ByteBuffer)} to write directly to its buffer, for example with a
+ * {@link JsonBufferWriter} obtained from {@link #getWriter(ByteBuffer)}.
+ *
  * @author Don Mendelson
  *
  */
 public class JsonMutableMessage implements MutableMessage {
 
   private final static Gson gson = JsonTranslatorFactory.createTranslator();
-  private final transient ByteBuffer buffer;
-  private final transient BufferSupply bufferSupply;
+  private final static ThreadLocal<JsonBufferWriter> writerThreadLocal =
+      ThreadLocal.withInitial(JsonBufferWriter::new);
+
+  /**
+   * Returns a writer for the current thread
+   *
+   * @param buffer buffer to populate
+   * @return a writer positioned at the start of buffer
+   */
+  protected static JsonBufferWriter getWriter(ByteBuffer buffer) {
+    return writerThreadLocal.get().wrap(buffer);
+  }
+
+  private transient ByteBuffer buffer;
+  private transient BufferSupply bufferSupply;
   private transient String source;
 
+  /**
+   * Constructor for a reusable message; {@link #wrap(BufferSupplier)} must be invoked before it is
+   * populated
+   */
+  protected JsonMutableMessage() {
+
+  }
+
   /**
    * Constructor acquires a buffer
    * @param bufferSupplier supplies a buffer to encode message
    */
   protected JsonMutableMessage(BufferSupplier bufferSupplier) {
-    this.bufferSupply = bufferSupplier.get();
-    this.buffer = bufferSupply.acquire();
+    wrap(bufferSupplier);
   }
 
   public String getSource() {
@@ -61,10 +90,30 @@ public class JsonMutableMessage implements MutableMessage {
 
   @Override
   public ByteBuffer toBuffer() {
-    String string = gson.toJson(this);
-    buffer.put(string.getBytes());
+    encode(buffer);
     buffer.flip();
     return buffer;
   }
 
+  /**
+   * Encodes this message
+   *
+   * @param buffer buffer to populate from its position
+   */
+  protected void encode(ByteBuffer buffer) {
+    String string = gson.toJson(this);
+    buffer.put(string.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Acquires a buffer to encode a message
+   * @param bufferSupplier supplies a buffer to encode message
+   * @return this message
+   */
+  protected JsonMutableMessage wrap(BufferSupplier bufferSupplier) {
+    this.bufferSupply = bufferSupplier.get();
+    this.buffer = bufferSupply.acquire();
+    return this;
+  }
+
 }
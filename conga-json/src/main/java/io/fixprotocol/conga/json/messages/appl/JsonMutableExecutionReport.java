@@ -15,13 +15,13 @@
 
 package io.fixprotocol.conga.json.messages.appl;
 
+import java.nio.ByteBuffer;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collection;
-
-import com.google.gson.annotations.SerializedName;
+import java.util.concurrent.TimeUnit;
 
 import io.fixprotocol.conga.buffer.BufferSupplier;
+import io.fixprotocol.conga.json.messages.JsonBufferWriter;
 import io.fixprotocol.conga.json.messages.JsonMutableMessage;
 import io.fixprotocol.conga.messages.appl.ExecType;
 import io.fixprotocol.conga.messages.appl.MutableExecutionReport;
@@ -29,27 +29,45 @@ import io.fixprotocol.conga.messages.appl.OrdStatus;
 import io.fixprotocol.conga.messages.appl.Side;
 
 /**
+ * Reusable ExecutionReport encoded directly to JSON
+ *
+ * <p>
+ * Identifiers are copied as characters, and fills are retained between messages, so populating
+ * a reused report does not allocate.
+ *
  * @author Don Mendelson
  *
  */
 public class JsonMutableExecutionReport extends JsonMutableMessage implements MutableExecutionReport {
-  
-  @SerializedName("@type")
-  private final String type = "ExecutionReport";
-  
-  private transient String source;
-  private String clOrdId;
+
+  private static final String TYPE = "ExecutionReport";
+
+  private final StringBuilder clOrdId = new StringBuilder(16);
   private int cumQty;
-  private String execId;
+  private final StringBuilder execId = new StringBuilder(16);
   private ExecType execType;
+  private int fillCount;
+  private final ArrayList<JsonMutableFill> fills = new ArrayList<>();
+  private boolean hasClOrdId;
+  private boolean hasExecId;
+  private boolean hasOrderId;
+  private boolean hasTransactTime;
   private int leavesQty;
-  private String orderId;
+  private final StringBuilder orderId = new StringBuilder(16);
   private OrdStatus ordStatus;
   private Side side;
   private String symbol;
-  private Instant transactTime;
-  private final ArrayList<JsonMutableFill> fills = new ArrayList<>();
-  
+  // nanoseconds since the epoch
+  private long transactTime;
+
+  /**
+   * Constructor for a reusable report; {@link #wrap(BufferSupplier)} must be invoked before it is
+   * populated
+   */
+  public JsonMutableExecutionReport() {
+
+  }
+
   /**
    * Constructor
    * @param bufferSupplier supplies a buffer on demand
@@ -65,14 +83,30 @@ public class JsonMutableExecutionReport extends JsonMutableMessage implements Mu
 
   @Override
   public MutableFill nextFill() {
-    JsonMutableFill fill = new JsonMutableFill();
-    fills.add(fill);
+    final JsonMutableFill fill;
+    if (fillCount < fills.size()) {
+      fill = fills.get(fillCount);
+      fill.reset();
+    } else {
+      fill = new JsonMutableFill();
+      fills.add(fill);
+    }
+    fillCount++;
     return fill;
   }
 
+  @Override
+  public void setClOrdId(CharSequence clOrdId) {
+    this.clOrdId.setLength(0);
+    hasClOrdId = clOrdId != null;
+    if (hasClOrdId) {
+      this.clOrdId.append(clOrdId);
+    }
+  }
+
   @Override
   public void setClOrdId(String clOrdId) {
-    this.clOrdId = clOrdId;
+    setClOrdId((CharSequence) clOrdId);
   }
 
   @Override
@@ -80,9 +114,18 @@ public class JsonMutableExecutionReport extends JsonMutableMessage implements Mu
     this.cumQty = cumQty;
   }
 
+  @Override
+  public void setExecId(CharSequence execId) {
+    this.execId.setLength(0);
+    hasExecId = execId != null;
+    if (hasExecId) {
+      this.execId.append(execId);
+    }
+  }
+
   @Override
   public void setExecId(String execId) {
-    this.execId = execId;
+    setExecId((CharSequence) execId);
   }
 
   @Override
@@ -95,9 +138,18 @@ public class JsonMutableExecutionReport extends JsonMutableMessage implements Mu
     this.leavesQty = leavesQty;
   }
 
+  @Override
+  public void setOrderId(CharSequence orderId) {
+    this.orderId.setLength(0);
+    hasOrderId = orderId != null;
+    if (hasOrderId) {
+      this.orderId.append(orderId);
+    }
+  }
+
   @Override
   public void setOrderId(String orderId) {
-    this.orderId = orderId;
+    setOrderId((CharSequence) orderId);
   }
 
   @Override
@@ -117,7 +169,63 @@ public class JsonMutableExecutionReport extends JsonMutableMessage implements Mu
 
   @Override
   public void setTransactTime(Instant transactTime) {
-    this.transactTime = transactTime;
+    hasTransactTime = transactTime != null;
+    if (hasTransactTime) {
+      this.transactTime =
+          TimeUnit.SECONDS.toNanos(transactTime.getEpochSecond()) + transactTime.getNano();
+    }
+  }
+
+  @Override
+  public void setTransactTime(long nanos) {
+    this.transactTime = nanos;
+    hasTransactTime = true;
+  }
+
+  /**
+   * Acquires a buffer and clears the attributes of a previous message
+   *
+   * @param bufferSupplier supplies a buffer on demand
+   * @return this report
+   */
+  @Override
+  public JsonMutableExecutionReport wrap(BufferSupplier bufferSupplier) {
+    super.wrap(bufferSupplier);
+    clOrdId.setLength(0);
+    cumQty = 0;
+    execId.setLength(0);
+    execType = null;
+    fillCount = 0;
+    hasClOrdId = false;
+    hasExecId = false;
+    hasOrderId = false;
+    hasTransactTime = false;
+    leavesQty = 0;
+    orderId.setLength(0);
+    ordStatus = null;
+    side = null;
+    symbol = null;
+    return this;
+  }
+
+  @Override
+  protected void encode(ByteBuffer buffer) {
+    final JsonBufferWriter writer = getWriter(buffer);
+    writer.beginObject().string("@type", TYPE).string("clOrdId", hasClOrdId ? clOrdId : null)
+        .number("cumQty", cumQty).string("execId", hasExecId ? execId : null)
+        .enumeration("execType", execType).number("leavesQty", leavesQty)
+        .string("orderId", hasOrderId ? orderId : null).enumeration("ordStatus", ordStatus)
+        .enumeration("side", side).string("symbol", symbol);
+    if (hasTransactTime) {
+      writer.timestamp("transactTime", transactTime);
+    }
+    writer.beginArray("fills");
+    for (int i = 0; i < fillCount; i++) {
+      writer.beginElement();
+      fills.get(i).encode(writer);
+      writer.endObject();
+    }
+    writer.endArray().endObject();
   }
 
 }
@@ -17,11 +17,16 @@ package io.fixprotocol.conga.json.messages.appl;
 
 import java.math.BigDecimal;
 
-import com.google.gson.annotations.SerializedName;
-
+import io.fixprotocol.conga.json.messages.JsonBufferWriter;
+import io.fixprotocol.conga.messages.appl.FixedPoint;
 import io.fixprotocol.conga.messages.appl.MutableExecutionReport.MutableFill;
 
 /**
+ * Reusable fill of an ExecutionReport
+ *
+ * <p>
+ * A price set in fixed-point form is written without conversion to {@code BigDecimal}.
+ *
  * @author Don Mendelson
  *
  */
@@ -29,10 +34,26 @@ public class JsonMutableFill implements MutableFill {
 
   private BigDecimal fillPx;
   private int fillQty;
+  private boolean hasScaledFillPx;
+  private long scaledFillPx;
+  private int scale;
 
   @Override
   public void setFillPx(BigDecimal fillPx) {
     this.fillPx = fillPx;
+    hasScaledFillPx = false;
+  }
+
+  @Override
+  public void setFillPx(long fillPx, int scale) {
+    if (scale < 0) {
+      setFillPx(FixedPoint.toBigDecimal(fillPx, scale));
+    } else {
+      this.fillPx = null;
+      this.scaledFillPx = fillPx;
+      this.scale = scale;
+      hasScaledFillPx = true;
+    }
   }
 
   @Override
@@ -40,4 +61,19 @@ public class JsonMutableFill implements MutableFill {
     this.fillQty = fillQty;
   }
 
+  void encode(JsonBufferWriter writer) {
+    if (hasScaledFillPx) {
+      writer.decimal("fillPx", scaledFillPx, scale);
+    } else {
+      writer.decimal("fillPx", fillPx);
+    }
+    writer.number("fillQty", fillQty);
+  }
+
+  void reset() {
+    fillPx = null;
+    fillQty = 0;
+    hasScaledFillPx = false;
+  }
+
 }
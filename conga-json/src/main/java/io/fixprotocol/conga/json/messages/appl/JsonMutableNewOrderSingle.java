@@ -19,10 +19,8 @@ import java.math.BigDecimal;
 import java.nio.ByteBuffer;
 import java.time.Instant;
 
-import com.google.gson.Gson;
-import com.google.gson.annotations.SerializedName;
-
 import io.fixprotocol.conga.buffer.BufferSupplier;
+import io.fixprotocol.conga.json.messages.JsonBufferWriter;
 import io.fixprotocol.conga.json.messages.JsonMutableMessage;
 import io.fixprotocol.conga.messages.appl.MutableNewOrderSingle;
 import io.fixprotocol.conga.messages.appl.OrdType;
@@ -34,6 +32,9 @@ import io.fixprotocol.conga.messages.appl.Side;
  */
 public class JsonMutableNewOrderSingle extends JsonMutableMessage implements MutableNewOrderSingle {
 
+  // written first so that the type of a message is known before its other members are read
+  private static final String TYPE = "NewOrderSingle";
+
   private String clOrdId;
   private int orderQty;
   private OrdType ordType;
@@ -41,9 +42,6 @@ public class JsonMutableNewOrderSingle extends JsonMutableMessage implements Mut
   private Side side;
   private String symbol;
   private Instant transactTime;
-  
-  @SerializedName("@type")
-  private final String type = "NewOrderSingle";
 
   /**
    * Constructor
@@ -88,4 +86,13 @@ public class JsonMutableNewOrderSingle extends JsonMutableMessage implements Mut
     this.transactTime = transactTime;
   }
 
+  @Override
+  protected void encode(ByteBuffer buffer) {
+    final JsonBufferWriter writer = getWriter(buffer);
+    writer.beginObject().string("@type", TYPE).string("clOrdId", clOrdId)
+        .number("orderQty", orderQty).enumeration("ordType", ordType).decimal("price", price)
+        .enumeration("side", side).string("symbol", symbol).timestamp("transactTime", transactTime)
+        .endObject();
+  }
+
 }
@@ -17,31 +17,40 @@ package io.fixprotocol.conga.json.messages.appl;
 
 import java.nio.ByteBuffer;
 import java.time.Instant;
-
-import com.google.gson.Gson;
-import com.google.gson.annotations.SerializedName;
+import java.util.concurrent.TimeUnit;
 
 import io.fixprotocol.conga.buffer.BufferSupplier;
-import io.fixprotocol.conga.buffer.BufferSupplier.BufferSupply;
+import io.fixprotocol.conga.json.messages.JsonBufferWriter;
 import io.fixprotocol.conga.json.messages.JsonMutableMessage;
 import io.fixprotocol.conga.messages.appl.CxlRejReason;
 import io.fixprotocol.conga.messages.appl.MutableOrderCancelReject;
 import io.fixprotocol.conga.messages.appl.OrdStatus;
 
 /**
+ * Reusable OrderCancelReject encoded directly to JSON
+ *
  * @author Don Mendelson
  *
  */
 public class JsonMutableOrderCancelReject extends JsonMutableMessage implements MutableOrderCancelReject {
 
+  private static final String TYPE = "OrderCancelReject";
+
   private String clOrdId;
   private CxlRejReason cxlRejReason;
+  private boolean hasTransactTime;
   private String orderId;
   private OrdStatus ordStatus;
-  private Instant transactTime;
-  
-  @SerializedName("@type")
-  private final String type = "OrderCancelReject";
+  // nanoseconds since the epoch
+  private long transactTime;
+
+  /**
+   * Constructor for a reusable message; {@link #wrap(BufferSupplier)} must be invoked before it is
+   * populated
+   */
+  public JsonMutableOrderCancelReject() {
+
+  }
 
   /**
    * Constructor
@@ -75,7 +84,46 @@ public class JsonMutableOrderCancelReject extends JsonMutableMessage implements
 
   @Override
   public void setTransactTime(Instant transactTime) {
-    this.transactTime = transactTime;
+    hasTransactTime = transactTime != null;
+    if (hasTransactTime) {
+      this.transactTime =
+          TimeUnit.SECONDS.toNanos(transactTime.getEpochSecond()) + transactTime.getNano();
+    }
+  }
+
+  @Override
+  public void setTransactTime(long nanos) {
+    this.transactTime = nanos;
+    hasTransactTime = true;
+  }
+
+  /**
+   * Acquires a buffer and clears the attributes of a previous message
+   *
+   * @param bufferSupplier supplies a buffer on demand
+   * @return this message
+   */
+  @Override
+  public JsonMutableOrderCancelReject wrap(BufferSupplier bufferSupplier) {
+    super.wrap(bufferSupplier);
+    clOrdId = null;
+    cxlRejReason = null;
+    hasTransactTime = false;
+    orderId = null;
+    ordStatus = null;
+    return this;
+  }
+
+  @Override
+  protected void encode(ByteBuffer buffer) {
+    final JsonBufferWriter writer = getWriter(buffer);
+    writer.beginObject().string("@type", TYPE).string("clOrdId", clOrdId)
+        .enumeration("cxlRejReason", cxlRejReason).string("orderId", orderId)
+        .enumeration("ordStatus", ordStatus);
+    if (hasTransactTime) {
+      writer.timestamp("transactTime", transactTime);
+    }
+    writer.endObject();
   }
 
 }
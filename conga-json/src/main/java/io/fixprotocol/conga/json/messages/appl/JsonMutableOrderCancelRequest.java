@@ -18,11 +18,8 @@ package io.fixprotocol.conga.json.messages.appl;
 import java.nio.ByteBuffer;
 import java.time.Instant;
 
-import com.google.gson.Gson;
-import com.google.gson.annotations.SerializedName;
-
 import io.fixprotocol.conga.buffer.BufferSupplier;
-import io.fixprotocol.conga.buffer.BufferSupplier.BufferSupply;
+import io.fixprotocol.conga.json.messages.JsonBufferWriter;
 import io.fixprotocol.conga.json.messages.JsonMutableMessage;
 import io.fixprotocol.conga.messages.appl.MutableOrderCancelRequest;
 import io.fixprotocol.conga.messages.appl.Side;
@@ -33,15 +30,15 @@ import io.fixprotocol.conga.messages.appl.Side;
  */
 public class JsonMutableOrderCancelRequest extends JsonMutableMessage implements MutableOrderCancelRequest {
 
+  // written first so that the type of a message is known before its other members are read
+  private static final String TYPE = "OrderCancelRequest";
+
   private String clOrdId;
   private Side side;
   private transient String source;
   private String symbol;
   private Instant transactTime;
 
-  @SerializedName("@type")
-  private final String type = "OrderCancelRequest";
-
   public JsonMutableOrderCancelRequest(BufferSupplier bufferSupplier) {
     super(bufferSupplier);
   }
@@ -66,4 +63,12 @@ public class JsonMutableOrderCancelRequest extends JsonMutableMessage implements
     this.transactTime = transactTime;
   }
 
+  @Override
+  protected void encode(ByteBuffer buffer) {
+    final JsonBufferWriter writer = getWriter(buffer);
+    writer.beginObject().string("@type", TYPE).string("clOrdId", clOrdId)
+        .enumeration("side", side).string("symbol", symbol).timestamp("transactTime", transactTime)
+        .endObject();
+  }
+
 }
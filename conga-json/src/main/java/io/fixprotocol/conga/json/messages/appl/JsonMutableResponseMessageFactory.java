@@ -21,6 +21,11 @@ import io.fixprotocol.conga.messages.appl.MutableOrderCancelReject;
 import io.fixprotocol.conga.messages.appl.MutableResponseMessageFactory;
 
 /**
+ * JSON message factory for exchange responses
+ * 
+ * <p>
+ * Thread-safe, but only one message of each type may be encoded at a time per thread.
+ * 
  * @author Don Mendelson
  *
  */
@@ -28,6 +33,12 @@ public class JsonMutableResponseMessageFactory implements MutableResponseMessage
 
   private final BufferSupplier bufferSupplier;
 
+  private final ThreadLocal<JsonMutableOrderCancelReject> cancelRejectThreadLocal =
+      ThreadLocal.withInitial(JsonMutableOrderCancelReject::new);
+
+  private final ThreadLocal<JsonMutableExecutionReport> executionReportThreadLocal =
+      ThreadLocal.withInitial(JsonMutableExecutionReport::new);
+
   /**
    * Constructor
    * @param bufferSupplier supplies a buffer on demand
@@ -37,11 +48,11 @@ public class JsonMutableResponseMessageFactory implements MutableResponseMessage
   }
 
   public MutableOrderCancelReject getOrderCancelReject() {
-    return new JsonMutableOrderCancelReject(bufferSupplier);
+    return cancelRejectThreadLocal.get().wrap(bufferSupplier);
   }
 
   public MutableExecutionReport getExecutionReport() {
-    return new JsonMutableExecutionReport(bufferSupplier);
+    return executionReportThreadLocal.get().wrap(bufferSupplier);
   }
 
-}
+}
\ No newline at end of file
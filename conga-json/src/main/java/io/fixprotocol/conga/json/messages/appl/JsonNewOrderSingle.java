@@ -18,35 +18,63 @@ package io.fixprotocol.conga.json.messages.appl;
 import java.math.BigDecimal;
 import java.time.Instant;
 
-import com.google.gson.annotations.SerializedName;
-
+import io.fixprotocol.conga.json.messages.JsonBufferReader;
+import io.fixprotocol.conga.messages.appl.FixedId;
+import io.fixprotocol.conga.messages.appl.FixedPoint;
 import io.fixprotocol.conga.messages.appl.Message;
+import io.fixprotocol.conga.messages.appl.MessageException;
 import io.fixprotocol.conga.messages.appl.NewOrderSingle;
 import io.fixprotocol.conga.messages.appl.OrdType;
 import io.fixprotocol.conga.messages.appl.Side;
 
 /**
+ * Reusable flyweight of a NewOrderSingle decoded from JSON
+ *
+ * <p>
+ * Identifiers are held as characters and price as a fixed-point value, so decoding does not
+ * allocate. A {@code String} or {@code BigDecimal} is only created if it is requested.
+ *
  * @author Don Mendelson
  *
  */
 public class JsonNewOrderSingle implements NewOrderSingle, Message {
-  
-  private String clOrdId;
+
+  private static final OrdType[] ORD_TYPES = OrdType.values();
+  private static final Side[] SIDES = Side.values();
+
+  private final StringBuilder clOrdId = new StringBuilder(16);
+  // created on demand
+  private String clOrdIdString;
+  private boolean hasPrice;
+  private boolean hasTransactTime;
   private int orderQty;
   private OrdType ordType;
-  private BigDecimal price;
+  private long price;
+  private int priceScale;
   private Side side;
-  private transient String source;
-  private String symbol;
-  private Instant transactTime;
-  
-  
-  @SerializedName("@type")
-  private String type = "OrderCancelRequest";
+  private String source;
+  private final StringBuilder symbol = new StringBuilder(16);
+  // created on demand
+  private String symbolString;
+  // nanoseconds since the epoch
+  private long transactTime;
 
   @Override
   public String getClOrdId() {
-    return clOrdId;
+    if (clOrdIdString == null) {
+      clOrdIdString = clOrdId.toString();
+    }
+    return clOrdIdString;
+  }
+
+  @Override
+  public long getClOrdIdAsLong() {
+    return FixedId.pack(clOrdId);
+  }
+
+  @Override
+  public long getClOrdIdAsLongOrZero() {
+    return FixedId.packOrZero(clOrdId);
   }
 
   @Override
@@ -61,7 +89,15 @@ public class JsonNewOrderSingle implements NewOrderSingle, Message {
 
   @Override
   public BigDecimal getPrice() {
-    return price;
+    return hasPrice ? FixedPoint.toBigDecimal(price, priceScale) : null;
+  }
+
+  @Override
+  public long getScaledPrice(int scale) {
+    if (!hasPrice) {
+      throw new NullPointerException("Price not set");
+    }
+    return FixedPoint.rescale(price, priceScale, scale);
   }
 
   @Override
@@ -75,16 +111,74 @@ public class JsonNewOrderSingle implements NewOrderSingle, Message {
 
   @Override
   public String getSymbol() {
-    return symbol;
+    if (symbolString == null) {
+      symbolString = symbol.toString();
+    }
+    return symbolString;
+  }
+
+  @Override
+  public long getSymbolAsLong() {
+    return FixedId.pack(symbol);
+  }
+
+  @Override
+  public long getSymbolAsLongOrZero() {
+    return FixedId.packOrZero(symbol);
   }
 
   @Override
   public Instant getTransactTime() {
-    return transactTime;
+    return hasTransactTime ? Instant.ofEpochSecond(0L, transactTime) : null;
   }
 
   public void setSource(String source) {
     this.source = source;
   }
 
+  /**
+   * Populates this order from a JSON object; members that are not known are ignored
+   *
+   * @param reader reader positioned at the start of an object
+   * @throws MessageException if the object is malformed
+   */
+  void decode(JsonBufferReader reader) throws MessageException {
+    clOrdId.setLength(0);
+    clOrdIdString = null;
+    hasPrice = false;
+    hasTransactTime = false;
+    orderQty = 0;
+    ordType = null;
+    side = null;
+    symbol.setLength(0);
+    symbolString = null;
+
+    reader.beginObject();
+    while (reader.nextName()) {
+      if (reader.nextNull()) {
+        continue;
+      }
+      if (reader.isName("clOrdId")) {
+        clOrdId.append(reader.nextString());
+      } else if (reader.isName("orderQty")) {
+        orderQty = reader.nextInt();
+      } else if (reader.isName("ordType")) {
+        ordType = reader.nextEnum(ORD_TYPES);
+      } else if (reader.isName("price")) {
+        price = reader.nextDecimal();
+        priceScale = reader.getScale();
+        hasPrice = true;
+      } else if (reader.isName("side")) {
+        side = reader.nextEnum(SIDES);
+      } else if (reader.isName("symbol")) {
+        symbol.append(reader.nextString());
+      } else if (reader.isName("transactTime")) {
+        transactTime = reader.nextTimestamp();
+        hasTransactTime = true;
+      } else {
+        reader.skipValue();
+      }
+    }
+  }
+
 }
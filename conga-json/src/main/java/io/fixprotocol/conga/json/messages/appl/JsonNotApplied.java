@@ -17,7 +17,9 @@ package io.fixprotocol.conga.json.messages.appl;
 
 import com.google.gson.annotations.SerializedName;
 
+import io.fixprotocol.conga.json.messages.JsonBufferReader;
 import io.fixprotocol.conga.messages.appl.Message;
+import io.fixprotocol.conga.messages.appl.MessageException;
 import io.fixprotocol.conga.messages.appl.NotApplied;
 
 /**
@@ -57,4 +59,28 @@ public class JsonNotApplied implements NotApplied, Message {
     this.source = source;
   }
 
+  /**
+   * Populates this message from a JSON object; members that are not known are ignored
+   *
+   * @param reader reader positioned at the start of an object
+   * @throws MessageException if the object is malformed
+   */
+  void decode(JsonBufferReader reader) throws MessageException {
+    count = 0;
+    fromSeqNo = 0;
+    reader.beginObject();
+    while (reader.nextName()) {
+      if (reader.nextNull()) {
+        continue;
+      }
+      if (reader.isName("count")) {
+        count = reader.nextLong();
+      } else if (reader.isName("fromSeqNo")) {
+        fromSeqNo = reader.nextLong();
+      } else {
+        reader.skipValue();
+      }
+    }
+  }
+
 }
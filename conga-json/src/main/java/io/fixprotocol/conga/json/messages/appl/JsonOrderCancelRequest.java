@@ -17,30 +17,55 @@ package io.fixprotocol.conga.json.messages.appl;
 
 import java.time.Instant;
 
-import com.google.gson.annotations.SerializedName;
-
+import io.fixprotocol.conga.json.messages.JsonBufferReader;
+import io.fixprotocol.conga.messages.appl.FixedId;
 import io.fixprotocol.conga.messages.appl.Message;
+import io.fixprotocol.conga.messages.appl.MessageException;
 import io.fixprotocol.conga.messages.appl.OrderCancelRequest;
 import io.fixprotocol.conga.messages.appl.Side;
 
 /**
+ * Reusable flyweight of an OrderCancelRequest decoded from JSON
+ *
+ * <p>
+ * Identifiers are held as characters, so decoding does not allocate. A {@code String} is only
+ * created if it is requested.
+ *
  * @author Don Mendelson
  *
  */
 public class JsonOrderCancelRequest implements OrderCancelRequest, Message {
-  
-  private String clOrdId;
+
+  private static final Side[] SIDES = Side.values();
+
+  private final StringBuilder clOrdId = new StringBuilder(16);
+  // created on demand
+  private String clOrdIdString;
+  private boolean hasTransactTime;
   private Side side;
-  private transient String source;
-  private String symbol;
-  private Instant transactTime;
-  
-  @SerializedName("@type")
-  private String type = "OrderCancelRequest";
+  private String source;
+  private final StringBuilder symbol = new StringBuilder(16);
+  // created on demand
+  private String symbolString;
+  // nanoseconds since the epoch
+  private long transactTime;
 
   @Override
   public String getClOrdId() {
-    return clOrdId;
+    if (clOrdIdString == null) {
+      clOrdIdString = clOrdId.toString();
+    }
+    return clOrdIdString;
+  }
+
+  @Override
+  public long getClOrdIdAsLong() {
+    return FixedId.pack(clOrdId);
+  }
+
+  @Override
+  public long getClOrdIdAsLongOrZero() {
+    return FixedId.packOrZero(clOrdId);
   }
 
   @Override
@@ -51,19 +76,66 @@ public class JsonOrderCancelRequest implements OrderCancelRequest, Message {
   public String getSource() {
     return source;
   }
-  
+
   @Override
   public String getSymbol() {
-    return symbol;
+    if (symbolString == null) {
+      symbolString = symbol.toString();
+    }
+    return symbolString;
+  }
+
+  @Override
+  public long getSymbolAsLong() {
+    return FixedId.pack(symbol);
+  }
+
+  @Override
+  public long getSymbolAsLongOrZero() {
+    return FixedId.packOrZero(symbol);
   }
 
   @Override
   public Instant getTransactTime() {
-    return transactTime;
+    return hasTransactTime ? Instant.ofEpochSecond(0L, transactTime) : null;
   }
 
   public void setSource(String source) {
     this.source = source;
   }
 
+  /**
+   * Populates this request from a JSON object; members that are not known are ignored
+   *
+   * @param reader reader positioned at the start of an object
+   * @throws MessageException if the object is malformed
+   */
+  void decode(JsonBufferReader reader) throws MessageException {
+    clOrdId.setLength(0);
+    clOrdIdString = null;
+    hasTransactTime = false;
+    side = null;
+    symbol.setLength(0);
+    symbolString = null;
+
+    reader.beginObject();
+    while (reader.nextName()) {
+      if (reader.nextNull()) {
+        continue;
+      }
+      if (reader.isName("clOrdId")) {
+        clOrdId.append(reader.nextString());
+      } else if (reader.isName("side")) {
+        side = reader.nextEnum(SIDES);
+      } else if (reader.isName("symbol")) {
+        symbol.append(reader.nextString());
+      } else if (reader.isName("transactTime")) {
+        transactTime = reader.nextTimestamp();
+        hasTransactTime = true;
+      } else {
+        reader.skipValue();
+      }
+    }
+  }
+
 }
@@ -15,9 +15,10 @@
 
 package io.fixprotocol.conga.json.messages.session;
 
-import com.google.gson.annotations.SerializedName;
+import java.nio.ByteBuffer;
 
 import io.fixprotocol.conga.buffer.BufferSupplier;
+import io.fixprotocol.conga.json.messages.JsonBufferWriter;
 import io.fixprotocol.conga.json.messages.JsonMutableMessage;
 
 /**
@@ -33,8 +34,15 @@ public class JsonMutableEstablish extends JsonMutableMessage {
   private byte[] sessionId;
   private long timestamp;
 
-  @SerializedName("@type")
-  private String type = "Establish";
+  private static final String TYPE = "Establish";
+
+  /**
+   * Constructor for a reusable message; {@link #wrap(BufferSupplier)} must be invoked before it is
+   * populated
+   */
+  public JsonMutableEstablish() {
+
+  }
 
   /**
    * Constructor
@@ -74,4 +82,19 @@ public class JsonMutableEstablish extends JsonMutableMessage {
     this.credentials = credentials;
     return this;
   }
+
+  @Override
+  public JsonMutableEstablish wrap(BufferSupplier bufferSupplier) {
+    super.wrap(bufferSupplier);
+    return this;
+  }
+
+  @Override
+  protected void encode(ByteBuffer buffer) {
+    final JsonBufferWriter writer = getWriter(buffer);
+    writer.beginObject().string("@type", TYPE).bytes("credentials", credentials)
+        .number("heartbeatInterval", heartbeatInterval).number("nextSeqNo", nextSeqNo)
+        .bytes("sessionId", sessionId).number("timestamp", timestamp).endObject();
+  }
+
 }
@@ -15,9 +15,10 @@
 
 package io.fixprotocol.conga.json.messages.session;
 
-import com.google.gson.annotations.SerializedName;
+import java.nio.ByteBuffer;
 
 import io.fixprotocol.conga.buffer.BufferSupplier;
+import io.fixprotocol.conga.json.messages.JsonBufferWriter;
 import io.fixprotocol.conga.json.messages.JsonMutableMessage;
 
 /**
@@ -32,8 +33,15 @@ public class JsonMutableEstablishmentAck extends JsonMutableMessage {
   private byte[] sessionId;
   private long timestamp;
 
-  @SerializedName("@type")
-  private String type = "EstablishmentAck";
+  private static final String TYPE = "EstablishmentAck";
+
+  /**
+   * Constructor for a reusable message; {@link #wrap(BufferSupplier)} must be invoked before it is
+   * populated
+   */
+  public JsonMutableEstablishmentAck() {
+
+  }
 
   /**
    * Constructor
@@ -67,4 +75,19 @@ public class JsonMutableEstablishmentAck extends JsonMutableMessage {
     this.nextSeqNo = nextSeqNo;
     return this;
   }
+
+  @Override
+  public JsonMutableEstablishmentAck wrap(BufferSupplier bufferSupplier) {
+    super.wrap(bufferSupplier);
+    return this;
+  }
+
+  @Override
+  protected void encode(ByteBuffer buffer) {
+    final JsonBufferWriter writer = getWriter(buffer);
+    writer.beginObject().string("@type", TYPE).number("heartbeatInterval", heartbeatInterval)
+        .number("nextSeqNo", nextSeqNo).bytes("sessionId", sessionId).number("timestamp", timestamp)
+        .endObject();
+  }
+
 }
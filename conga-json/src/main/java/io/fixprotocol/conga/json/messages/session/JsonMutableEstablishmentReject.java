@@ -15,9 +15,10 @@
 
 package io.fixprotocol.conga.json.messages.session;
 
-import com.google.gson.annotations.SerializedName;
+import java.nio.ByteBuffer;
 
 import io.fixprotocol.conga.buffer.BufferSupplier;
+import io.fixprotocol.conga.json.messages.JsonBufferWriter;
 import io.fixprotocol.conga.json.messages.JsonMutableMessage;
 import io.fixprotocol.conga.session.EstablishmentReject;
 
@@ -32,9 +33,16 @@ public class JsonMutableEstablishmentReject extends JsonMutableMessage {
   private byte[] sessionId;
   private long timestamp;
   
-  @SerializedName("@type")
-  private String type = "EstablishmentReject";
+  private static final String TYPE = "EstablishmentReject";
   
+  /**
+   * Constructor for a reusable message; {@link #wrap(BufferSupplier)} must be invoked before it is
+   * populated
+   */
+  public JsonMutableEstablishmentReject() {
+
+  }
+
   /**
    * Constructor
    * @param bufferSupplier supplies a buffer on demand
@@ -67,4 +75,19 @@ public class JsonMutableEstablishmentReject extends JsonMutableMessage {
     this.reason = reason;
     return this;
   }
+
+  @Override
+  public JsonMutableEstablishmentReject wrap(BufferSupplier bufferSupplier) {
+    super.wrap(bufferSupplier);
+    return this;
+  }
+
+  @Override
+  protected void encode(ByteBuffer buffer) {
+    final JsonBufferWriter writer = getWriter(buffer);
+    writer.beginObject().string("@type", TYPE).bytes("reason", reason)
+        .enumeration("rejectCode", rejectCode).bytes("sessionId", sessionId)
+        .number("timestamp", timestamp).endObject();
+  }
+
 }
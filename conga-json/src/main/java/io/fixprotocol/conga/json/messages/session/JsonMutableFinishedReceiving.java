@@ -15,9 +15,10 @@
 
 package io.fixprotocol.conga.json.messages.session;
 
-import com.google.gson.annotations.SerializedName;
+import java.nio.ByteBuffer;
 
 import io.fixprotocol.conga.buffer.BufferSupplier;
+import io.fixprotocol.conga.json.messages.JsonBufferWriter;
 import io.fixprotocol.conga.json.messages.JsonMutableMessage;
 
 /**
@@ -28,9 +29,16 @@ public class JsonMutableFinishedReceiving extends JsonMutableMessage {
 
   private byte[] sessionId;
   
-  @SerializedName("@type")
-  private String type = "FinishedReceiving";
+  private static final String TYPE = "FinishedReceiving";
   
+  /**
+   * Constructor for a reusable message; {@link #wrap(BufferSupplier)} must be invoked before it is
+   * populated
+   */
+  public JsonMutableFinishedReceiving() {
+
+  }
+
   /**
    * Constructor
    * @param bufferSupplier supplies a buffer on demand
@@ -43,4 +51,17 @@ public class JsonMutableFinishedReceiving extends JsonMutableMessage {
     this.sessionId = sessionId;
     return this;
   }
+
+  @Override
+  public JsonMutableFinishedReceiving wrap(BufferSupplier bufferSupplier) {
+    super.wrap(bufferSupplier);
+    return this;
+  }
+
+  @Override
+  protected void encode(ByteBuffer buffer) {
+    final JsonBufferWriter writer = getWriter(buffer);
+    writer.beginObject().string("@type", TYPE).bytes("sessionId", sessionId).endObject();
+  }
+
 }
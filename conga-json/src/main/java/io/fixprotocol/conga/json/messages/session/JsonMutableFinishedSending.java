@@ -15,9 +15,10 @@
 
 package io.fixprotocol.conga.json.messages.session;
 
-import com.google.gson.annotations.SerializedName;
+import java.nio.ByteBuffer;
 
 import io.fixprotocol.conga.buffer.BufferSupplier;
+import io.fixprotocol.conga.json.messages.JsonBufferWriter;
 import io.fixprotocol.conga.json.messages.JsonMutableMessage;
 
 /**
@@ -29,8 +30,15 @@ public class JsonMutableFinishedSending extends JsonMutableMessage {
   private byte[] sessionId;
   private long lastSeqNo;
   
-  @SerializedName("@type")
-  private String type = "FinishedSending";
+  private static final String TYPE = "FinishedSending";
+
+  /**
+   * Constructor for a reusable message; {@link #wrap(BufferSupplier)} must be invoked before it is
+   * populated
+   */
+  public JsonMutableFinishedSending() {
+
+  }
 
   /**
    * Constructor
@@ -50,4 +58,17 @@ public class JsonMutableFinishedSending extends JsonMutableMessage {
     this.lastSeqNo = lastSeqNo;
   }
 
+  @Override
+  public JsonMutableFinishedSending wrap(BufferSupplier bufferSupplier) {
+    super.wrap(bufferSupplier);
+    return this;
+  }
+
+  @Override
+  protected void encode(ByteBuffer buffer) {
+    final JsonBufferWriter writer = getWriter(buffer);
+    writer.beginObject().string("@type", TYPE).bytes("sessionId", sessionId)
+        .number("lastSeqNo", lastSeqNo).endObject();
+  }
+
 }
@@ -15,9 +15,10 @@
 
 package io.fixprotocol.conga.json.messages.session;
 
-import com.google.gson.annotations.SerializedName;
+import java.nio.ByteBuffer;
 
 import io.fixprotocol.conga.buffer.BufferSupplier;
+import io.fixprotocol.conga.json.messages.JsonBufferWriter;
 import io.fixprotocol.conga.json.messages.JsonMutableMessage;
 import io.fixprotocol.conga.session.FlowType;
 
@@ -32,10 +33,17 @@ public class JsonMutableNegotiate extends JsonMutableMessage {
   private byte[] sessionId;
   private long timestamp;
 
-  @SerializedName("@type")
-  private String type = "Negotiate";
+  private static final String TYPE = "Negotiate";
 
 
+  /**
+   * Constructor for a reusable message; {@link #wrap(BufferSupplier)} must be invoked before it is
+   * populated
+   */
+  public JsonMutableNegotiate() {
+
+  }
+
   /**
    * Constructor
    * @param bufferSupplier supplies a buffer on demand
@@ -68,4 +76,19 @@ public class JsonMutableNegotiate extends JsonMutableMessage {
     this.credentials = credentials;
     return this;
   }
+
+  @Override
+  public JsonMutableNegotiate wrap(BufferSupplier bufferSupplier) {
+    super.wrap(bufferSupplier);
+    return this;
+  }
+
+  @Override
+  protected void encode(ByteBuffer buffer) {
+    final JsonBufferWriter writer = getWriter(buffer);
+    writer.beginObject().string("@type", TYPE).enumeration("clientFlow", clientFlow)
+        .bytes("credentials", credentials).bytes("sessionId", sessionId)
+        .number("timestamp", timestamp).endObject();
+  }
+
 }
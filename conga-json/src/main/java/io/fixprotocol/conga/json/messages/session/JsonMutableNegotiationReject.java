@@ -15,9 +15,10 @@
 
 package io.fixprotocol.conga.json.messages.session;
 
-import com.google.gson.annotations.SerializedName;
+import java.nio.ByteBuffer;
 
 import io.fixprotocol.conga.buffer.BufferSupplier;
+import io.fixprotocol.conga.json.messages.JsonBufferWriter;
 import io.fixprotocol.conga.json.messages.JsonMutableMessage;
 import io.fixprotocol.conga.session.NegotiationReject;
 
@@ -32,9 +33,16 @@ public class JsonMutableNegotiationReject extends JsonMutableMessage {
   private long requestTimestamp;
   private byte[] sessionId;
 
-  @SerializedName("@type")
-  private String type = "NegotiationReject";
+  private static final String TYPE = "NegotiationReject";
   
+  /**
+   * Constructor for a reusable message; {@link #wrap(BufferSupplier)} must be invoked before it is
+   * populated
+   */
+  public JsonMutableNegotiationReject() {
+
+  }
+
   /**
    * Constructor
    * @param bufferSupplier supplies a buffer on demand
@@ -65,4 +73,19 @@ public class JsonMutableNegotiationReject extends JsonMutableMessage {
     this.reason = reason;
     return this;
   }
+
+  @Override
+  public JsonMutableNegotiationReject wrap(BufferSupplier bufferSupplier) {
+    super.wrap(bufferSupplier);
+    return this;
+  }
+
+  @Override
+  protected void encode(ByteBuffer buffer) {
+    final JsonBufferWriter writer = getWriter(buffer);
+    writer.beginObject().string("@type", TYPE).bytes("reason", reason)
+        .enumeration("rejectCode", rejectCode).number("requestTimestamp", requestTimestamp)
+        .bytes("sessionId", sessionId).endObject();
+  }
+
 }
@@ -15,9 +15,10 @@
 
 package io.fixprotocol.conga.json.messages.session;
 
-import com.google.gson.annotations.SerializedName;
+import java.nio.ByteBuffer;
 
 import io.fixprotocol.conga.buffer.BufferSupplier;
+import io.fixprotocol.conga.json.messages.JsonBufferWriter;
 import io.fixprotocol.conga.json.messages.JsonMutableMessage;
 import io.fixprotocol.conga.session.FlowType;
 
@@ -32,8 +33,15 @@ public class JsonMutableNegotiationResponse extends JsonMutableMessage {
   private FlowType serverFlow;
   private byte[] sessionId;
 
-  @SerializedName("@type")
-  private String type = "NegotiationResponse";
+  private static final String TYPE = "NegotiationResponse";
+
+  /**
+   * Constructor for a reusable message; {@link #wrap(BufferSupplier)} must be invoked before it is
+   * populated
+   */
+  public JsonMutableNegotiationResponse() {
+
+  }
 
   /**
    * Constructor
@@ -67,4 +75,19 @@ public class JsonMutableNegotiationResponse extends JsonMutableMessage {
     this.credentials = credentials;
     return this;
   }
+
+  @Override
+  public JsonMutableNegotiationResponse wrap(BufferSupplier bufferSupplier) {
+    super.wrap(bufferSupplier);
+    return this;
+  }
+
+  @Override
+  protected void encode(ByteBuffer buffer) {
+    final JsonBufferWriter writer = getWriter(buffer);
+    writer.beginObject().string("@type", TYPE).bytes("credentials", credentials)
+        .number("requestTimestamp", requestTimestamp).enumeration("serverFlow", serverFlow)
+        .bytes("sessionId", sessionId).endObject();
+  }
+
 }
@@ -15,9 +15,10 @@
 
 package io.fixprotocol.conga.json.messages.session;
 
-import com.google.gson.annotations.SerializedName;
+import java.nio.ByteBuffer;
 
 import io.fixprotocol.conga.buffer.BufferSupplier;
+import io.fixprotocol.conga.json.messages.JsonBufferWriter;
 import io.fixprotocol.conga.json.messages.JsonMutableMessage;
 
 /**
@@ -29,8 +30,15 @@ public class JsonMutableNotApplied extends JsonMutableMessage {
   private long fromSeqNo;
   private long count;
   
-  @SerializedName("@type")
-  private String type = "NotApplied";
+  private static final String TYPE = "NotApplied";
+
+  /**
+   * Constructor for a reusable message; {@link #wrap(BufferSupplier)} must be invoked before it is
+   * populated
+   */
+  public JsonMutableNotApplied() {
+
+  }
 
   /**
    * Constructor
@@ -50,4 +58,17 @@ public class JsonMutableNotApplied extends JsonMutableMessage {
     this.count = count;
   }
 
+  @Override
+  public JsonMutableNotApplied wrap(BufferSupplier bufferSupplier) {
+    super.wrap(bufferSupplier);
+    return this;
+  }
+
+  @Override
+  protected void encode(ByteBuffer buffer) {
+    final JsonBufferWriter writer = getWriter(buffer);
+    writer.beginObject().string("@type", TYPE).number("fromSeqNo", fromSeqNo).number("count", count)
+        .endObject();
+  }
+
 }
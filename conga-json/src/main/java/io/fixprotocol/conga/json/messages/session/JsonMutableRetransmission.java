@@ -15,9 +15,10 @@
 
 package io.fixprotocol.conga.json.messages.session;
 
-import com.google.gson.annotations.SerializedName;
+import java.nio.ByteBuffer;
 
 import io.fixprotocol.conga.buffer.BufferSupplier;
+import io.fixprotocol.conga.json.messages.JsonBufferWriter;
 import io.fixprotocol.conga.json.messages.JsonMutableMessage;
 import io.fixprotocol.conga.session.SequenceRange;
 
@@ -32,8 +33,15 @@ public class JsonMutableRetransmission extends JsonMutableMessage {
   private long requestTimestamp;
   private byte[] sessionId;
 
-  @SerializedName("@type")
-  private String type = "Retransmission";
+  private static final String TYPE = "Retransmission";
+
+  /**
+   * Constructor for a reusable message; {@link #wrap(BufferSupplier)} must be invoked before it is
+   * populated
+   */
+  public JsonMutableRetransmission() {
+
+  }
 
   /**
    * Constructor
@@ -71,4 +79,17 @@ public class JsonMutableRetransmission extends JsonMutableMessage {
     this.count = range.getCount();
   }
 
+  @Override
+  public JsonMutableRetransmission wrap(BufferSupplier bufferSupplier) {
+    super.wrap(bufferSupplier);
+    return this;
+  }
+
+  @Override
+  protected void encode(ByteBuffer buffer) {
+    final JsonBufferWriter writer = getWriter(buffer);
+    writer.beginObject().string("@type", TYPE).number("count", count).number("fromSeqNo", fromSeqNo)
+        .number("requestTimestamp", requestTimestamp).bytes("sessionId", sessionId).endObject();
+  }
+
 }
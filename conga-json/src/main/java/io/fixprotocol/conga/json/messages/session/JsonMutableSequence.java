@@ -15,9 +15,10 @@
 
 package io.fixprotocol.conga.json.messages.session;
 
-import com.google.gson.annotations.SerializedName;
+import java.nio.ByteBuffer;
 
 import io.fixprotocol.conga.buffer.BufferSupplier;
+import io.fixprotocol.conga.json.messages.JsonBufferWriter;
 import io.fixprotocol.conga.json.messages.JsonMutableMessage;
 
 /**
@@ -28,8 +29,15 @@ public class JsonMutableSequence extends JsonMutableMessage {
 
   private long nextSeqNo;
   
-  @SerializedName("@type")
-  private String type = "Sequence";
+  private static final String TYPE = "Sequence";
+
+  /**
+   * Constructor for a reusable message; {@link #wrap(BufferSupplier)} must be invoked before it is
+   * populated
+   */
+  public JsonMutableSequence() {
+
+  }
 
   /**
    * Constructor
@@ -51,4 +59,16 @@ public class JsonMutableSequence extends JsonMutableMessage {
     this.nextSeqNo = nextSeqNo;
   }
 
+  @Override
+  public JsonMutableSequence wrap(BufferSupplier bufferSupplier) {
+    super.wrap(bufferSupplier);
+    return this;
+  }
+
+  @Override
+  protected void encode(ByteBuffer buffer) {
+    final JsonBufferWriter writer = getWriter(buffer);
+    writer.beginObject().string("@type", TYPE).number("nextSeqNo", nextSeqNo).endObject();
+  }
+
 }
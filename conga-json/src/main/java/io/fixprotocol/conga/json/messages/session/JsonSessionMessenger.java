@@ -16,15 +16,11 @@
 package io.fixprotocol.conga.json.messages.session;
 
 import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
-
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import java.util.Arrays;
 
 import io.fixprotocol.conga.buffer.BufferSupplier;
 import io.fixprotocol.conga.buffer.ThreadLocalBufferSupplier;
-import io.fixprotocol.conga.json.messages.gson.JsonTranslatorFactory;
+import io.fixprotocol.conga.json.messages.JsonBufferReader;
 import io.fixprotocol.conga.messages.appl.MessageException;
 import io.fixprotocol.conga.messages.session.SessionMessenger;
 import io.fixprotocol.conga.session.EstablishmentReject;
@@ -36,15 +32,55 @@ import io.fixprotocol.conga.session.SessionMessageType;
 import io.fixprotocol.conga.session.SessionSequenceAttributes;
 
 /**
+ * JSON encoding/decoding of FIXP session messages
+ * <p>
+ * This implementation reuses one encoder per message type and decodes in a single pass without
+ * creating intermediate objects, so only one message of each type may be encoded at a time.
+ * Decode methods throw {@code IllegalArgumentException} if a message is malformed.
+ *
  * @author Don Mendelson
  *
  */
-@SuppressWarnings("unused")
 public class JsonSessionMessenger implements SessionMessenger {
-  private final static Gson gson = JsonTranslatorFactory.createTranslator();
+
+  // maximum length of credentials or reject reason
+  private static final int MAX_BYTES_LENGTH = 1024;
+  private static final EstablishmentReject[] ESTABLISHMENT_REJECTS = EstablishmentReject.values();
+  private static final FlowType[] FLOW_TYPES = FlowType.values();
+  private static final NegotiationReject[] NEGOTIATION_REJECTS = NegotiationReject.values();
+  private static final String[] TYPE_NAMES = {"Establish", "EstablishmentAck",
+      "EstablishmentReject", "FinishedReceiving", "FinishedSending", "Negotiate",
+      "NegotiationReject", "NegotiationResponse", "NotApplied", "Retransmission",
+      "RetransmitRequest", "Sequence"};
+  private static final SessionMessageType[] TYPES = {SessionMessageType.ESTABLISH,
+      SessionMessageType.ESTABLISHMENT_ACK, SessionMessageType.ESTABLISHMENT_REJECT,
+      SessionMessageType.FINISHED_RECEIVING, SessionMessageType.FINISHED_SENDING,
+      SessionMessageType.NEGOTIATE, SessionMessageType.NEGOTIATION_REJECT,
+      SessionMessageType.NEGOTIATION_RESPONSE, SessionMessageType.NOT_APPLIED,
+      SessionMessageType.RETRANSMISSION, SessionMessageType.RETRANSMIT_REQUEST,
+      SessionMessageType.SEQUENCE};
+
   private final BufferSupplier bufferSupplier;
-  private final JsonParser parser = new JsonParser();
-  
+  private final byte[] bytes = new byte[MAX_BYTES_LENGTH];
+  private final JsonMutableEstablish establish = new JsonMutableEstablish();
+  private final JsonMutableEstablishmentAck establishmentAck = new JsonMutableEstablishmentAck();
+  private final JsonMutableEstablishmentReject establishmentReject =
+      new JsonMutableEstablishmentReject();
+  private final JsonMutableFinishedReceiving finishedReceiving =
+      new JsonMutableFinishedReceiving();
+  private final JsonMutableFinishedSending finishedSending = new JsonMutableFinishedSending();
+  private final JsonMutableNegotiate negotiate = new JsonMutableNegotiate();
+  private final JsonMutableNegotiationReject negotiationReject =
+      new JsonMutableNegotiationReject();
+  private final JsonMutableNegotiationResponse negotiationResponse =
+      new JsonMutableNegotiationResponse();
+  private final JsonMutableNotApplied notApplied = new JsonMutableNotApplied();
+  private final JsonBufferReader reader = new JsonBufferReader();
+  private final JsonMutableRetransmission retransmission = new JsonMutableRetransmission();
+  private final JsonMutableRetransmitRequest retransmitRequest =
+      new JsonMutableRetransmitRequest();
+  private final JsonMutableSequence sequence = new JsonMutableSequence();
+
   public JsonSessionMessenger() {
      this(new ThreadLocalBufferSupplier());
   }
@@ -55,205 +91,352 @@ public class JsonSessionMessenger implements SessionMessenger {
 
   public void decodeEstablishmentAckSessionAttributes(ByteBuffer buffer,
       SessionAttributes sessionAttributes) {
-    String string = bufferToString(buffer);
-    JsonMutableEstablishmentAck ack = gson.fromJson(string, JsonMutableEstablishmentAck.class);
-    sessionAttributes.sessionId(ack.getSessionId()).keepAliveInterval(ack.getHeartbeatInterval())
-    .nextSeqNo(ack.getNextSeqNo()).timestamp(ack.getTimestamp());
+    try {
+      reader.wrap(buffer).beginObject();
+      while (reader.nextName()) {
+        if (reader.nextNull()) {
+          continue;
+        }
+        if (reader.isName("heartbeatInterval")) {
+          sessionAttributes.keepAliveInterval(reader.nextLong());
+        } else if (reader.isName("nextSeqNo")) {
+          sessionAttributes.nextSeqNo(reader.nextLong());
+        } else if (reader.isName("sessionId")) {
+          readSessionId(sessionAttributes.getSessionId());
+        } else if (reader.isName("timestamp")) {
+          sessionAttributes.timestamp(reader.nextLong());
+        } else {
+          reader.skipValue();
+        }
+      }
+    } catch (MessageException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
   }
 
   @Override
   public EstablishmentReject decodeEstablishmentReject(ByteBuffer buffer) {
-    String string = bufferToString(buffer);
-    JsonMutableEstablishmentReject reject = gson.fromJson(string, JsonMutableEstablishmentReject.class);
-    return reject.getRejectCode();
+    try {
+      EstablishmentReject rejectCode = null;
+      reader.wrap(buffer).beginObject();
+      while (reader.nextName()) {
+        if (reader.nextNull()) {
+          continue;
+        }
+        if (reader.isName("rejectCode")) {
+          rejectCode = reader.nextEnum(ESTABLISHMENT_REJECTS);
+        } else {
+          reader.skipValue();
+        }
+      }
+      return rejectCode;
+    } catch (MessageException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
   }
 
   public void decodeEstablishSessionAttributes(ByteBuffer buffer,
       SessionAttributes sessionAttributes) {
-    String string = bufferToString(buffer);
-    JsonMutableEstablish establish = gson.fromJson(string, JsonMutableEstablish.class);
-    sessionAttributes.sessionId(establish.getSessionId()).keepAliveInterval(establish.getHeartbeatInterval())
-    .nextSeqNo(establish.getNextSeqNo()).timestamp(establish.getTimestamp()).credentials(establish.getCredentials());
+    try {
+      byte[] credentials = null;
+      reader.wrap(buffer).beginObject();
+      while (reader.nextName()) {
+        if (reader.nextNull()) {
+          continue;
+        }
+        if (reader.isName("credentials")) {
+          credentials = readBytes();
+        } else if (reader.isName("heartbeatInterval")) {
+          sessionAttributes.keepAliveInterval(reader.nextLong());
+        } else if (reader.isName("nextSeqNo")) {
+          sessionAttributes.nextSeqNo(reader.nextLong());
+        } else if (reader.isName("sessionId")) {
+          readSessionId(sessionAttributes.getSessionId());
+        } else if (reader.isName("timestamp")) {
+          sessionAttributes.timestamp(reader.nextLong());
+        } else {
+          reader.skipValue();
+        }
+      }
+      sessionAttributes.credentials(credentials);
+    } catch (MessageException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
   }
 
   public void decodeFinishedReceiving(ByteBuffer buffer,
       SessionSequenceAttributes sessionSequenceAttributes) {
-    // TODO Auto-generated method stub
-
+    try {
+      reader.wrap(buffer).beginObject();
+      while (reader.nextName()) {
+        if (reader.nextNull()) {
+          continue;
+        }
+        if (reader.isName("sessionId")) {
+          readSessionId(sessionSequenceAttributes.getSessionId());
+        } else {
+          reader.skipValue();
+        }
+      }
+    } catch (MessageException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
   }
 
   public void decodeFinishedSending(ByteBuffer buffer,
       SessionSequenceAttributes sessionSequenceAttributes) {
-    // TODO Auto-generated method stub
-
+    try {
+      reader.wrap(buffer).beginObject();
+      while (reader.nextName()) {
+        if (reader.nextNull()) {
+          continue;
+        }
+        if (reader.isName("lastSeqNo")) {
+          sessionSequenceAttributes.seqNo(reader.nextLong());
+        } else if (reader.isName("sessionId")) {
+          readSessionId(sessionSequenceAttributes.getSessionId());
+        } else {
+          reader.skipValue();
+        }
+      }
+    } catch (MessageException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
   }
 
   public void decodeNegotiateSessionAttributes(ByteBuffer buffer,
       SessionAttributes sessionAttributes) {
-    String string = bufferToString(buffer);
-    JsonMutableNegotiate negotiate = gson.fromJson(string, JsonMutableNegotiate.class);
-    sessionAttributes.sessionId(negotiate.getSessionId()).timestamp(negotiate.getTimestamp())
-        .flowType(negotiate.getClientFlow()).credentials(negotiate.getCredentials());
+    try {
+      byte[] credentials = null;
+      FlowType clientFlow = null;
+      reader.wrap(buffer).beginObject();
+      while (reader.nextName()) {
+        if (reader.nextNull()) {
+          continue;
+        }
+        if (reader.isName("clientFlow")) {
+          clientFlow = reader.nextEnum(FLOW_TYPES);
+        } else if (reader.isName("credentials")) {
+          credentials = readBytes();
+        } else if (reader.isName("sessionId")) {
+          readSessionId(sessionAttributes.getSessionId());
+        } else if (reader.isName("timestamp")) {
+          sessionAttributes.timestamp(reader.nextLong());
+        } else {
+          reader.skipValue();
+        }
+      }
+      sessionAttributes.flowType(clientFlow).credentials(credentials);
+    } catch (MessageException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
   }
 
   @Override
   public NegotiationReject decodeNegotiationReject(ByteBuffer buffer) {
-    String string = bufferToString(buffer);
-    JsonMutableNegotiationReject reject = gson.fromJson(string, JsonMutableNegotiationReject.class);
-    return reject.getRejectCode();
+    try {
+      NegotiationReject rejectCode = null;
+      reader.wrap(buffer).beginObject();
+      while (reader.nextName()) {
+        if (reader.nextNull()) {
+          continue;
+        }
+        if (reader.isName("rejectCode")) {
+          rejectCode = reader.nextEnum(NEGOTIATION_REJECTS);
+        } else {
+          reader.skipValue();
+        }
+      }
+      return rejectCode;
+    } catch (MessageException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
   }
 
   public void decodeNegotiationResponseSessionAttributes(ByteBuffer buffer,
       SessionAttributes sessionAttributes) {
-    String string = bufferToString(buffer);
-    JsonMutableNegotiationResponse response = gson.fromJson(string, JsonMutableNegotiationResponse.class);
-    sessionAttributes.sessionId(response.getSessionId()).timestamp(response.getRequestTimestamp())
-        .flowType(response.getServerFlow()).credentials(response.getCredentials());
+    try {
+      byte[] credentials = null;
+      FlowType serverFlow = null;
+      reader.wrap(buffer).beginObject();
+      while (reader.nextName()) {
+        if (reader.nextNull()) {
+          continue;
+        }
+        if (reader.isName("credentials")) {
+          credentials = readBytes();
+        } else if (reader.isName("requestTimestamp")) {
+          sessionAttributes.timestamp(reader.nextLong());
+        } else if (reader.isName("serverFlow")) {
+          serverFlow = reader.nextEnum(FLOW_TYPES);
+        } else if (reader.isName("sessionId")) {
+          readSessionId(sessionAttributes.getSessionId());
+        } else {
+          reader.skipValue();
+        }
+      }
+      sessionAttributes.flowType(serverFlow).credentials(credentials);
+    } catch (MessageException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
   }
 
   public void decodeRetransmissionSequenceRange(ByteBuffer buffer, SequenceRange range) {
-    String string = bufferToString(buffer);
-    JsonMutableRetransmission retransmission = gson.fromJson(string, JsonMutableRetransmission.class);
-    range.count(retransmission.getCount()).fromSeqNo(retransmission.getFromSeqNo()).timestamp(retransmission.getRequestTimestamp());
+    try {
+      reader.wrap(buffer).beginObject();
+      while (reader.nextName()) {
+        if (reader.nextNull()) {
+          continue;
+        }
+        if (reader.isName("count")) {
+          range.count(reader.nextLong());
+        } else if (reader.isName("fromSeqNo")) {
+          range.fromSeqNo(reader.nextLong());
+        } else if (reader.isName("requestTimestamp")) {
+          range.timestamp(reader.nextLong());
+        } else {
+          reader.skipValue();
+        }
+      }
+    } catch (MessageException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
   }
 
   public void decodeRetransmitRequestSequenceRange(ByteBuffer buffer, SequenceRange range) {
-    String string = bufferToString(buffer);
-    JsonMutableRetransmitRequest request = gson.fromJson(string, JsonMutableRetransmitRequest.class);
-    range.count(request.getCount()).fromSeqNo(request.getFromSeqNo()).timestamp(request.getTimestamp());
+    try {
+      reader.wrap(buffer).beginObject();
+      while (reader.nextName()) {
+        if (reader.nextNull()) {
+          continue;
+        }
+        if (reader.isName("count")) {
+          range.count(reader.nextLong());
+        } else if (reader.isName("fromSeqNo")) {
+          range.fromSeqNo(reader.nextLong());
+        } else if (reader.isName("timestamp")) {
+          range.timestamp(reader.nextLong());
+        } else {
+          reader.skipValue();
+        }
+      }
+    } catch (MessageException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
   }
 
   public long decodeSequence(ByteBuffer buffer) {
-    String string = bufferToString(buffer);
-    JsonMutableSequence sequence = gson.fromJson(string, JsonMutableSequence.class);
-    return sequence.getNextSeqNo();
+    try {
+      long nextSeqNo = 0;
+      reader.wrap(buffer).beginObject();
+      while (reader.nextName()) {
+        if (reader.nextNull()) {
+          continue;
+        }
+        if (reader.isName("nextSeqNo")) {
+          nextSeqNo = reader.nextLong();
+        } else {
+          reader.skipValue();
+        }
+      }
+      return nextSeqNo;
+    } catch (MessageException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
   }
 
   public JsonMutableEstablish encodeEstablish(byte[] sessionId, long timestamp, long heartbeatInterval,
       long nextSeqNo, byte[] credentials) {
-    JsonMutableEstablish establish = new JsonMutableEstablish(bufferSupplier);
-    establish.set(sessionId, timestamp, heartbeatInterval, nextSeqNo, credentials);
-    return establish;
+    return establish.wrap(bufferSupplier).set(sessionId, timestamp, heartbeatInterval, nextSeqNo,
+        credentials);
   }
 
   public JsonMutableEstablishmentAck encodeEstablishmentAck(byte[] sessionId, long timestamp, long heartbeatInterval,
       long nextSeqNo) {
-    JsonMutableEstablishmentAck establishAck = new JsonMutableEstablishmentAck(bufferSupplier);
-    establishAck.set(sessionId, timestamp, heartbeatInterval, nextSeqNo);
-    return establishAck;
+    return establishmentAck.wrap(bufferSupplier).set(sessionId, timestamp, heartbeatInterval,
+        nextSeqNo);
   }
 
   public JsonMutableEstablishmentReject encodeEstablishmentReject(byte[] sessionId, long timestamp,
       EstablishmentReject rejectCode, byte[] reason) {
-    JsonMutableEstablishmentReject establishReject = new JsonMutableEstablishmentReject(bufferSupplier);
-    establishReject.set(sessionId, timestamp, rejectCode, reason);
-    return establishReject;
+    return establishmentReject.wrap(bufferSupplier).set(sessionId, timestamp, rejectCode, reason);
   }
 
   public JsonMutableFinishedReceiving encodeFinishedReceiving(byte[] sessionId) {
-    JsonMutableFinishedReceiving finishedReceiving = new JsonMutableFinishedReceiving(bufferSupplier);
-    finishedReceiving.set(sessionId);
-    return finishedReceiving;
+    return finishedReceiving.wrap(bufferSupplier).set(sessionId);
   }
 
   public JsonMutableFinishedSending encodeFinishedSending(byte[] sessionId, long lastSeqNo) {
-    JsonMutableFinishedSending finishedSending = new JsonMutableFinishedSending(bufferSupplier);
-    finishedSending.set(sessionId, lastSeqNo);
+    finishedSending.wrap(bufferSupplier).set(sessionId, lastSeqNo);
     return finishedSending;
   }
 
   public JsonMutableNegotiate encodeNegotiate(byte[] sessionId, long timestamp, FlowType clientFlow,
       byte[] credentials) {
-    JsonMutableNegotiate negotiate = new JsonMutableNegotiate(bufferSupplier);
-    negotiate.set(sessionId, timestamp, clientFlow, credentials);
-    return negotiate;
+    return negotiate.wrap(bufferSupplier).set(sessionId, timestamp, clientFlow, credentials);
   }
 
   public JsonMutableNegotiationReject encodeNegotiationReject(byte[] sessionId, long requestTimestamp,
       NegotiationReject rejectCode, byte[] reason) {
-    JsonMutableNegotiationReject negotiationResponse = new JsonMutableNegotiationReject(bufferSupplier);
-    negotiationResponse.set(sessionId, requestTimestamp, rejectCode, reason);
-    return negotiationResponse;
+    return negotiationReject.wrap(bufferSupplier).set(sessionId, requestTimestamp, rejectCode,
+        reason);
   }
 
   public JsonMutableNegotiationResponse encodeNegotiationResponse(byte[] sessionId, long requestTimestamp,
       FlowType serverFlow, byte[] credentials) {
-    JsonMutableNegotiationResponse negotiationResponse = new JsonMutableNegotiationResponse(bufferSupplier);
-    negotiationResponse.set(sessionId, requestTimestamp, serverFlow, credentials);
-    return negotiationResponse;
+    return negotiationResponse.wrap(bufferSupplier).set(sessionId, requestTimestamp, serverFlow,
+        credentials);
   }
 
   public JsonMutableNotApplied encodeNotApplied(long fromSeqNo, long count) {
-    JsonMutableNotApplied notApplied = new JsonMutableNotApplied(bufferSupplier);
-    notApplied.set(fromSeqNo, count);
+    notApplied.wrap(bufferSupplier).set(fromSeqNo, count);
     return notApplied;
   }
 
   public JsonMutableRetransmission encodeRetransmission(byte[] sessionId, SequenceRange range) {
-    JsonMutableRetransmission retransmission = new JsonMutableRetransmission(bufferSupplier);
-    retransmission.set(sessionId, range);
+    retransmission.wrap(bufferSupplier).set(sessionId, range);
     return retransmission;
   }
 
   public JsonMutableRetransmitRequest encodeRetransmitRequest(byte[] sessionId, SequenceRange range) {
-    JsonMutableRetransmitRequest retransmitRequest = new JsonMutableRetransmitRequest(bufferSupplier);
-    retransmitRequest.set(sessionId, range);
+    retransmitRequest.wrap(bufferSupplier).set(sessionId, range);
     return retransmitRequest;
   }
 
   public JsonMutableSequence encodeSequence(long nextSeqNo) {
-    JsonMutableSequence sequence = new JsonMutableSequence(bufferSupplier);
-    sequence.set(nextSeqNo);
+    sequence.wrap(bufferSupplier).set(nextSeqNo);
     return sequence;
   }
 
+  /**
+   * Identifies the type of message in the buffer by finding its {@code @type} member
+   * <p>
+   * The position of the buffer is not changed.
+   */
   public SessionMessageType getMessageType(ByteBuffer buffer) throws Exception {
-    String string = bufferToString(buffer);
-    try {
-      final JsonObject object = parser.parse(string).getAsJsonObject();
-      final String type = object.get("@type").getAsString();
-      switch (type) {
-        case "Establish":
-          return SessionMessageType.ESTABLISH;
-        case "EstablishmentAck":
-          return SessionMessageType.ESTABLISHMENT_ACK;
-        case "EstablishmentReject":
-          return SessionMessageType.ESTABLISHMENT_REJECT;
-        case "FinishedReceiving":
-          return SessionMessageType.FINISHED_RECEIVING;
-        case "FinishedSending":
-          return SessionMessageType.FINISHED_SENDING;
-        case "Negotiate":
-          return SessionMessageType.NEGOTIATE;
-        case "NegotiationReject":
-          return SessionMessageType.NEGOTIATION_REJECT;
-        case "NegotiationResponse":
-          return SessionMessageType.NEGOTIATION_RESPONSE;
-        case "NotApplied":
-          return SessionMessageType.NOT_APPLIED;
-        case "Retransmission":
-          return SessionMessageType.RETRANSMISSION;
-        case "RetransmitRequest":
-          return SessionMessageType.RETRANSMIT_REQUEST;
-        case "Sequence":
-          return SessionMessageType.SEQUENCE;
-        default:
-          return SessionMessageType.APPLICATION;
+    final CharSequence type = reader.wrap(buffer).findString("@type");
+    if (type == null) {
+      throw new MessageException("Missing message type");
+    }
+    for (int i = 0; i < TYPE_NAMES.length; i++) {
+      if (TYPE_NAMES[i].contentEquals(type)) {
+        return TYPES[i];
       }
-    } catch (Exception e) {
-      // Malformed or not a JSON object
-      throw new MessageException("Failed to parse JSON message " + string, e);
     }
+    return SessionMessageType.APPLICATION;
   }
 
   public void init(boolean isClientSession) {
 
   }
 
-  private String bufferToString(ByteBuffer buffer) {
-    ByteBuffer buf = buffer.duplicate();
-    byte[] dst = new byte[buf.remaining()];
-    buf.get(dst , 0, dst.length);
-      return new String(dst);
+  private byte[] readBytes() throws MessageException {
+    final int length = reader.nextBytes(bytes);
+    return Arrays.copyOf(bytes, length);
+  }
+
+  private void readSessionId(byte[] sessionId) throws MessageException {
+    final int length = reader.nextBytes(bytes);
+    System.arraycopy(bytes, 0, sessionId, 0, Math.min(length, sessionId.length));
   }
 }
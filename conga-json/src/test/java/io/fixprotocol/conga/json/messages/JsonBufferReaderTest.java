@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.json.messages;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.fixprotocol.conga.messages.appl.MessageException;
+import io.fixprotocol.conga.messages.appl.Side;
+
+/**
+ * @author Don Mendelson
+ *
+ */
+public class JsonBufferReaderTest {
+
+  private JsonBufferReader reader;
+
+  @Before
+  public void setUp() {
+    reader = new JsonBufferReader();
+  }
+
+  @Test
+  public void findString() throws MessageException {
+    wrap("{\"a\":{\"b\":[1,\"}\"]},\"c\":-1.5e3,\"@type\":\"T1\",\"d\":true}");
+    assertEquals("T1", reader.findString("@type").toString());
+    assertNull(reader.findString("e"));
+    // position is restored
+    reader.beginObject();
+    assertTrue(reader.nextName());
+    assertTrue(reader.isName("a"));
+  }
+
+  @Test
+  public void members() throws MessageException {
+    wrap(" { \"s\" : \"x\\\"y\\u0041\\né\" , \"n\": -42, \"d\": 12.340,"
+        + " \"side\": \"Sell\", \"z\": null }");
+    reader.beginObject();
+    assertTrue(reader.nextName());
+    assertTrue(reader.isName("s"));
+    assertEquals("x\"yA\né", reader.nextString().toString());
+    assertTrue(reader.nextName());
+    assertEquals(-42, reader.nextInt());
+    assertTrue(reader.nextName());
+    assertEquals(12340L, reader.nextDecimal());
+    assertEquals(3, reader.getScale());
+    assertTrue(reader.nextName());
+    assertEquals(Side.Sell, reader.nextEnum(Side.values()));
+    assertTrue(reader.nextName());
+    assertTrue(reader.nextNull());
+    assertFalse(reader.nextName());
+  }
+
+  @Test
+  public void timestamp() throws MessageException {
+    final Instant[] instants = {Instant.parse("2018-07-04T12:34:56.789Z"),
+        Instant.parse("1969-12-31T23:59:59.000000001Z"), Instant.parse("2000-02-29T00:00:00Z")};
+    for (Instant instant : instants) {
+      wrap("{\"t\":\"" + instant + "\"}");
+      reader.beginObject();
+      reader.nextName();
+      assertEquals(TimeUnit.SECONDS.toNanos(instant.getEpochSecond()) + instant.getNano(),
+          reader.nextTimestamp());
+    }
+  }
+
+  @Test(expected = MessageException.class)
+  public void truncated() throws MessageException {
+    wrap("{\"a\":\"b");
+    reader.beginObject();
+    reader.nextName();
+    reader.nextString();
+  }
+
+  @Test(expected = MessageException.class)
+  public void unknownEnum() throws MessageException {
+    wrap("{\"side\":\"Sideways\"}");
+    reader.beginObject();
+    reader.nextName();
+    reader.nextEnum(Side.values());
+  }
+
+  private void wrap(String json) {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+    buffer.put(json.getBytes(StandardCharsets.UTF_8)).flip();
+    reader.wrap(buffer);
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.json.messages;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+import io.fixprotocol.conga.json.messages.gson.JsonTranslatorFactory;
+import io.fixprotocol.conga.messages.appl.Side;
+
+/**
+ * @author Don Mendelson
+ *
+ */
+public class JsonBufferWriterTest {
+
+  private ByteBuffer buffer;
+  private Gson gson;
+  private JsonBufferWriter writer;
+
+  @Before
+  public void setUp() {
+    buffer = ByteBuffer.allocateDirect(1024);
+    gson = JsonTranslatorFactory.createTranslator();
+    writer = new JsonBufferWriter().wrap(buffer);
+  }
+
+  @Test
+  public void decimal() {
+    writer.beginObject().decimal("a", 1234L, 2).decimal("b", -5L, 3).decimal("c", 120L, 0)
+        .decimal("d", 1200L, 2).decimal("e", null).decimal("f", new BigDecimal("-0.50"))
+        .endObject();
+    assertEquals("{\"a\":12.34,\"b\":-0.005,\"c\":120,\"d\":12.00,\"f\":-0.50}", toJson());
+  }
+
+  @Test
+  public void nested() {
+    writer.beginObject().string("@type", "T").number("n", Long.MIN_VALUE).beginArray("list")
+        .beginElement().number("x", 1).endObject().beginElement().number("x", 2).endObject()
+        .endArray().enumeration("side", Side.Sell).enumeration("none", null).endObject();
+    assertEquals("{\"@type\":\"T\",\"n\":-9223372036854775808,\"list\":[{\"x\":1},{\"x\":2}],"
+        + "\"side\":\"Sell\"}", toJson());
+  }
+
+  @Test
+  public void strings() {
+    final String value = "a\"b\\c\n<d>&'=\u0001\u00e9\u20ac\ud83d\ude00\u2028";
+    writer.beginObject().string("s", value).string("t", null).endObject();
+    assertEquals("{\"s\":" + gson.toJson(value) + "}", toJson());
+  }
+
+  @Test
+  public void timestamps() {
+    final Instant[] instants = {Instant.parse("2018-07-04T12:34:56.789Z"),
+        Instant.parse("2018-07-04T12:34:56.789012Z"),
+        Instant.parse("1969-12-31T23:59:59.000000001Z"), Instant.parse("2000-02-29T00:00:00Z"),
+        Instant.parse("1600-03-01T00:00:00Z"), Instant.parse("+10000-01-01T00:00:00Z")};
+    for (Instant instant : instants) {
+      buffer.clear();
+      writer.wrap(buffer).beginObject().timestamp("t", instant).endObject();
+      final String expected =
+          "{\"t\":\"" + DateTimeFormatter.ISO_INSTANT.format(instant) + "\"}";
+      assertEquals(expected, toJson());
+      if (instant.getEpochSecond() > Long.MIN_VALUE / TimeUnit.SECONDS.toNanos(1)
+          && instant.getEpochSecond() < Long.MAX_VALUE / TimeUnit.SECONDS.toNanos(1)) {
+        buffer.clear();
+        writer.wrap(buffer).beginObject()
+            .timestamp("t",
+                TimeUnit.SECONDS.toNanos(instant.getEpochSecond()) + instant.getNano())
+            .endObject();
+        assertEquals(expected, toJson());
+      }
+    }
+  }
+
+  private String toJson() {
+    buffer.flip();
+    final byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
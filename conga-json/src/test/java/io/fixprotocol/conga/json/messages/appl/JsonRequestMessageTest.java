@@ -16,6 +16,8 @@
 package io.fixprotocol.conga.json.messages.appl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
@@ -23,6 +25,7 @@ import java.math.BigDecimal;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
@@ -36,6 +39,8 @@ import org.junit.Test;
 import io.fixprotocol.conga.buffer.BufferSupplier;
 import io.fixprotocol.conga.buffer.SingleBufferSupplier;
 import io.fixprotocol.conga.io.MessageLogWriter;
+import io.fixprotocol.conga.messages.appl.FixedId;
+import io.fixprotocol.conga.messages.appl.MessageException;
 import io.fixprotocol.conga.messages.appl.MutableNewOrderSingle;
 import io.fixprotocol.conga.messages.appl.MutableOrderCancelRequest;
 import io.fixprotocol.conga.messages.appl.OrdType;
@@ -142,4 +147,28 @@ public class JsonRequestMessageTest {
     assertEquals(transactTime, cancel.getTransactTime());
   }
 
+  @Test
+  public void typeNotFirst() throws Exception {
+    String json = "{\"clOrdId\":\"C2\",\"extra\":{\"a\":[1,2]},\"orderQty\":5,"
+        + "\"ordType\":\"Market\",\"side\":\"Buy\",\"symbol\":\"XYZ\","
+        + "\"transactTime\":\"2018-07-04T12:34:56.789Z\",\"@type\":\"NewOrderSingle\"}";
+    ByteBuffer buffer = ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8));
+
+    assertTrue(factory.wrap(buffer) instanceof JsonNewOrderSingle);
+    JsonNewOrderSingle order = factory.getNewOrderSingle();
+    assertEquals("C2", order.getClOrdId());
+    assertEquals(5, order.getOrderQty());
+    assertEquals(OrdType.Market, order.getOrdType());
+    assertNull(order.getPrice());
+    assertEquals(Side.Buy, order.getSide());
+    assertEquals(FixedId.pack("XYZ"), order.getSymbolAsLong());
+    assertEquals(Instant.parse("2018-07-04T12:34:56.789Z"), order.getTransactTime());
+  }
+
+  @Test(expected = MessageException.class)
+  public void unknownType() throws Exception {
+    String json = "{\"@type\":\"Quote\"}";
+    factory.wrap(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+  }
+
 }
@@ -16,12 +16,15 @@
 package io.fixprotocol.conga.json.messages.appl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.time.Instant;
 import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -141,4 +144,39 @@ public class JsonResponseMessageTest {
     assertEquals(7, fillQty);
   }
 
+  @Test
+  public void executionReportReused() throws MessageException {
+    MutableExecutionReport mutableReport = mutableFactory.getExecutionReport();
+    mutableReport.setClOrdId("C0001");
+    mutableReport.setExecId(new StringBuilder("E0001"));
+    mutableReport.setFillCount(2);
+    mutableReport.nextFill().setFillQty(3);
+    mutableReport.nextFill().setFillQty(4);
+    mutableReport.toBuffer();
+    mutableReport.release();
+
+    mutableReport = mutableFactory.getExecutionReport();
+    String clOrdId = "C0002";
+    mutableReport.setClOrdId(clOrdId);
+    Instant time = Instant.parse("2018-07-04T12:34:56.789Z");
+    mutableReport.setTransactTime(
+        TimeUnit.SECONDS.toNanos(time.getEpochSecond()) + time.getNano());
+    mutableReport.setFillCount(1);
+    MutableFill fill = mutableReport.nextFill();
+    fill.setFillPx(1230L, 2);
+    fill.setFillQty(5);
+    ByteBuffer buffer = mutableReport.toBuffer();
+
+    factory.wrap(buffer);
+    JsonExecutionReport report = factory.getExecutionReport();
+    assertEquals(clOrdId, report.getClOrdId());
+    assertNull(report.getExecId());
+    assertEquals(time, report.getTransactTime());
+    Iterator<? extends Fill> fills = report.getFills();
+    Fill decodedFill = fills.next();
+    assertEquals(new BigDecimal("12.30"), decodedFill.getFillPx());
+    assertEquals(5, decodedFill.getFillQty());
+    assertFalse(fills.hasNext());
+  }
+
 }
@@ -15,18 +15,23 @@
 
 package io.fixprotocol.conga.json.messages.session;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 import java.util.UUID;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import io.fixprotocol.conga.messages.appl.MessageException;
 import io.fixprotocol.conga.session.FlowType;
+import io.fixprotocol.conga.session.SequenceRange;
 import io.fixprotocol.conga.session.SessionAttributes;
 import io.fixprotocol.conga.session.SessionMessageType;
+import io.fixprotocol.conga.session.SessionSequenceAttributes;
 
 /**
  * @author Don Mendelson
@@ -91,6 +96,53 @@ public class JsonSessionMessengerTest {
     mutableSequence.release();
   }
   
+  @Test
+  public void retransmission() throws Exception {
+    byte[] sessionId = UUIDAsBytes(UUID.randomUUID());
+    SequenceRange range = new SequenceRange().fromSeqNo(7).count(3).timestamp(System.nanoTime());
+    JsonMutableRetransmission mutableRetransmission =
+        messenger.encodeRetransmission(sessionId, range);
+    ByteBuffer buffer = mutableRetransmission.toBuffer();
+    SessionMessageType type = messenger.getMessageType(buffer.duplicate().order(buffer.order()));
+    assertEquals(SessionMessageType.RETRANSMISSION, type);
+    SequenceRange decodedRange = new SequenceRange();
+    messenger.decodeRetransmissionSequenceRange(buffer, decodedRange);
+    assertEquals(range.getFromSeqNo(), decodedRange.getFromSeqNo());
+    assertEquals(range.getCount(), decodedRange.getCount());
+    assertEquals(range.getTimestamp(), decodedRange.getTimestamp());
+    mutableRetransmission.release();
+  }
+
+  @Test
+  public void finishedSending() throws Exception {
+    byte[] sessionId = UUIDAsBytes(UUID.randomUUID());
+    long lastSeqNo = 42;
+    JsonMutableFinishedSending mutableFinishedSending =
+        messenger.encodeFinishedSending(sessionId, lastSeqNo);
+    ByteBuffer buffer = mutableFinishedSending.toBuffer();
+    SessionMessageType type = messenger.getMessageType(buffer.duplicate().order(buffer.order()));
+    assertEquals(SessionMessageType.FINISHED_SENDING, type);
+    SessionSequenceAttributes attributes = new SessionSequenceAttributes();
+    messenger.decodeFinishedSending(buffer, attributes);
+    assertArrayEquals(sessionId, attributes.getSessionId());
+    assertEquals(lastSeqNo, attributes.getSeqNo());
+    mutableFinishedSending.release();
+  }
+
+  @Test
+  public void application() throws Exception {
+    ByteBuffer buffer = ByteBuffer.wrap(
+        "{\"clOrdId\":\"C1\",\"@type\":\"NewOrderSingle\"}".getBytes(StandardCharsets.UTF_8));
+    assertEquals(SessionMessageType.APPLICATION, messenger.getMessageType(buffer));
+    assertEquals(0, buffer.position());
+  }
+
+  @Test(expected = MessageException.class)
+  public void malformed() throws Exception {
+    ByteBuffer buffer = ByteBuffer.wrap("{\"@type\":".getBytes(StandardCharsets.UTF_8));
+    messenger.getMessageType(buffer);
+  }
+
   private static byte[] UUIDAsBytes(UUID uuid) {
     Objects.requireNonNull(uuid);
     final byte[] sessionId = new byte[16];
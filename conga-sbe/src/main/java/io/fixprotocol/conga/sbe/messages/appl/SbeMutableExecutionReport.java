@@ -25,6 +25,7 @@ import org.agrona.concurrent.UnsafeBuffer;
 import io.fixprotocol.conga.buffer.BufferSupplier;
 import io.fixprotocol.conga.buffer.BufferSupplier.BufferSupply;
 import io.fixprotocol.conga.messages.appl.ExecType;
+import io.fixprotocol.conga.messages.appl.FixedPoint;
 import io.fixprotocol.conga.messages.appl.MutableExecutionReport;
 import io.fixprotocol.conga.messages.appl.OrdStatus;
 import io.fixprotocol.conga.messages.appl.Side;
@@ -39,7 +40,13 @@ public class SbeMutableExecutionReport implements MutableExecutionReport, SbeMut
   private class SbeMutableFill implements MutableExecutionReport.MutableFill {
 
     public void setFillPx(BigDecimal fillPx) {
-      fillsGrpEncoder.fillPx().mantissa(fillPx.unscaledValue().intValue());
+      final MoneyEncoder money = fillsGrpEncoder.fillPx();
+      money.mantissa(Math.toIntExact(FixedPoint.fromBigDecimal(fillPx, -money.exponent())));
+    }
+
+    public void setFillPx(long fillPx, int scale) {
+      final MoneyEncoder money = fillsGrpEncoder.fillPx();
+      money.mantissa(Math.toIntExact(FixedPoint.rescale(fillPx, scale, -money.exponent())));
     }
 
     public void setFillQty(int fillQty) {
@@ -49,6 +56,8 @@ public class SbeMutableExecutionReport implements MutableExecutionReport, SbeMut
 
   private BufferSupply bufferSupply = null;
   private final ExecutionReportEncoder encoder = new ExecutionReportEncoder();
+  // stateless view of the current fills group entry, reused for each fill
+  private final SbeMutableFill fill = new SbeMutableFill();
   private FillsGrpEncoder fillsGrpEncoder;
   private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
   private final UnsafeBuffer mutableBuffer = new UnsafeBuffer();
@@ -61,7 +70,7 @@ public class SbeMutableExecutionReport implements MutableExecutionReport, SbeMut
   @Override
   public MutableFill nextFill() {
     fillsGrpEncoder = fillsGrpEncoder.next();
-    return new SbeMutableFill();
+    return fill;
   }
 
   @Override
@@ -74,6 +83,11 @@ public class SbeMutableExecutionReport implements MutableExecutionReport, SbeMut
     encoder.clOrdId(clOrdId);
   }
 
+  @Override
+  public void setClOrdId(CharSequence clOrdId) {
+    encoder.clOrdId(clOrdId);
+  }
+
   @Override
   public void setCumQty(int cumQty) {
     encoder.cumQty().mantissa(cumQty);
@@ -84,6 +98,11 @@ public class SbeMutableExecutionReport implements MutableExecutionReport, SbeMut
     encoder.execId(execId);
   }
 
+  @Override
+  public void setExecId(CharSequence execId) {
+    encoder.execId(execId);
+  }
+
   @Override
   public void setExecType(ExecType execType) {
     ExecTypeEnum value = ExecTypeEnum.valueOf(execType.name());
@@ -104,6 +123,11 @@ public class SbeMutableExecutionReport implements MutableExecutionReport, SbeMut
     encoder.orderId(orderId);
   }
 
+  @Override
+  public void setOrderId(CharSequence orderId) {
+    encoder.orderId(orderId);
+  }
+
   @Override
   public void setOrdStatus(OrdStatus ordStatus) {
     OrdStatusEnum value = OrdStatusEnum.valueOf(ordStatus.name());
@@ -132,6 +156,11 @@ public class SbeMutableExecutionReport implements MutableExecutionReport, SbeMut
     encoder.transactTime().time(value);
   }
 
+  @Override
+  public void setTransactTime(long nanos) {
+    encoder.transactTime().time(nanos);
+  }
+
   @Override
   public SbeMutableExecutionReport wrap(BufferSupplier bufferSupplier) {
     this.bufferSupply = bufferSupplier.get();
@@ -87,6 +87,11 @@ public class SbeMutableOrderCancelReject
     encoder.transactTime().time(value);
   }
 
+  @Override
+  public void setTransactTime(long nanos) {
+    encoder.transactTime().time(nanos);
+  }
+
   @Override
   public ByteBuffer toBuffer() {
     ByteBuffer buffer = mutableBuffer.byteBuffer();
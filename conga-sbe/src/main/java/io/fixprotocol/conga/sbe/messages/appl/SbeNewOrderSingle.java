@@ -17,12 +17,15 @@ package io.fixprotocol.conga.sbe.messages.appl;
 
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.time.Instant;
 import java.util.concurrent.TimeUnit;
 
 import org.agrona.DirectBuffer;
 import org.agrona.concurrent.UnsafeBuffer;
 
+import io.fixprotocol.conga.messages.appl.FixedId;
+import io.fixprotocol.conga.messages.appl.FixedPoint;
 import io.fixprotocol.conga.messages.appl.NewOrderSingle;
 import io.fixprotocol.conga.messages.appl.OrdType;
 import io.fixprotocol.conga.messages.appl.Side;
@@ -42,6 +45,23 @@ public class SbeNewOrderSingle implements NewOrderSingle, SbeMessageWrapper {
     return decoder.clOrdId();
   }
 
+  @Override
+  public long getClOrdIdAsLong() {
+    final int offset = decoder.offset() + NewOrderSingleDecoder.clOrdIdEncodingOffset();
+    final long packed = FixedId.terminate(directBuffer.getLong(offset, ByteOrder.BIG_ENDIAN));
+    if (!FixedId.isPacked(packed)) {
+      throw new IllegalArgumentException("ClOrdId cannot be packed");
+    }
+    return packed;
+  }
+
+  @Override
+  public long getClOrdIdAsLongOrZero() {
+    final int offset = decoder.offset() + NewOrderSingleDecoder.clOrdIdEncodingOffset();
+    final long packed = FixedId.terminate(directBuffer.getLong(offset, ByteOrder.BIG_ENDIAN));
+    return FixedId.isPacked(packed) ? packed : 0L;
+  }
+
   @Override
   public int getOrderQty() {
     return decoder.orderQty().mantissa();
@@ -58,6 +78,11 @@ public class SbeNewOrderSingle implements NewOrderSingle, SbeMessageWrapper {
     return BigDecimal.valueOf(decoder.price().mantissa(), -decoder.price().exponent());
   }
 
+  @Override
+  public long getScaledPrice(int scale) {
+    return FixedPoint.rescale(decoder.price().mantissa(), -decoder.price().exponent(), scale);
+  }
+
   @Override
   public Side getSide() {
     SideEnum side = decoder.side();
@@ -74,6 +99,23 @@ public class SbeNewOrderSingle implements NewOrderSingle, SbeMessageWrapper {
     return decoder.symbol();
   }
 
+  @Override
+  public long getSymbolAsLong() {
+    final int offset = decoder.offset() + NewOrderSingleDecoder.symbolEncodingOffset();
+    final long packed = FixedId.terminate(directBuffer.getLong(offset, ByteOrder.BIG_ENDIAN));
+    if (!FixedId.isPacked(packed)) {
+      throw new IllegalArgumentException("Symbol cannot be packed");
+    }
+    return packed;
+  }
+
+  @Override
+  public long getSymbolAsLongOrZero() {
+    final int offset = decoder.offset() + NewOrderSingleDecoder.symbolEncodingOffset();
+    final long packed = FixedId.terminate(directBuffer.getLong(offset, ByteOrder.BIG_ENDIAN));
+    return FixedId.isPacked(packed) ? packed : 0L;
+  }
+
   @Override
   public Instant getTransactTime() {
     long seconds = TimeUnit.NANOSECONDS.toSeconds(decoder.transactTime().time());
@@ -16,12 +16,14 @@
 package io.fixprotocol.conga.sbe.messages.appl;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.time.Instant;
 import java.util.concurrent.TimeUnit;
 
 import org.agrona.DirectBuffer;
 import org.agrona.concurrent.UnsafeBuffer;
 
+import io.fixprotocol.conga.messages.appl.FixedId;
 import io.fixprotocol.conga.messages.appl.OrderCancelRequest;
 import io.fixprotocol.conga.messages.appl.Side;
 
@@ -41,6 +43,23 @@ public class SbeOrderCancelRequest implements OrderCancelRequest, SbeMessageWrap
     return decoder.clOrdId();
   }
 
+  @Override
+  public long getClOrdIdAsLong() {
+    final int offset = decoder.offset() + OrderCancelRequestDecoder.clOrdIdEncodingOffset();
+    final long packed = FixedId.terminate(directBuffer.getLong(offset, ByteOrder.BIG_ENDIAN));
+    if (!FixedId.isPacked(packed)) {
+      throw new IllegalArgumentException("ClOrdId cannot be packed");
+    }
+    return packed;
+  }
+
+  @Override
+  public long getClOrdIdAsLongOrZero() {
+    final int offset = decoder.offset() + OrderCancelRequestDecoder.clOrdIdEncodingOffset();
+    final long packed = FixedId.terminate(directBuffer.getLong(offset, ByteOrder.BIG_ENDIAN));
+    return FixedId.isPacked(packed) ? packed : 0L;
+  }
+
   @Override
   public Side getSide() {
     SideEnum side = decoder.side();
@@ -57,6 +76,23 @@ public class SbeOrderCancelRequest implements OrderCancelRequest, SbeMessageWrap
     return decoder.symbol();
   }
 
+  @Override
+  public long getSymbolAsLong() {
+    final int offset = decoder.offset() + OrderCancelRequestDecoder.symbolEncodingOffset();
+    final long packed = FixedId.terminate(directBuffer.getLong(offset, ByteOrder.BIG_ENDIAN));
+    if (!FixedId.isPacked(packed)) {
+      throw new IllegalArgumentException("Symbol cannot be packed");
+    }
+    return packed;
+  }
+
+  @Override
+  public long getSymbolAsLongOrZero() {
+    final int offset = decoder.offset() + OrderCancelRequestDecoder.symbolEncodingOffset();
+    final long packed = FixedId.terminate(directBuffer.getLong(offset, ByteOrder.BIG_ENDIAN));
+    return FixedId.isPacked(packed) ? packed : 0L;
+  }
+
   @Override
   public Instant getTransactTime() {
     long seconds = TimeUnit.NANOSECONDS.toSeconds(decoder.transactTime().time());
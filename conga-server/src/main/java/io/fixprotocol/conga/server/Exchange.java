@@ -17,17 +17,24 @@ package io.fixprotocol.conga.server;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.ServiceLoader;
+import java.util.Queue;
 import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.function.BiConsumer;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import org.apache.commons.cli.CommandLine;
@@ -37,10 +44,19 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
+import io.fixprotocol.conga.buffer.BufferBatchConsumer;
 import io.fixprotocol.conga.buffer.BufferPool;
-import io.fixprotocol.conga.buffer.BufferSupplier;
+import io.fixprotocol.conga.buffer.BufferPool.ExhaustedPolicy;
+import io.fixprotocol.conga.buffer.BufferSupplier.BufferSupply;
+import io.fixprotocol.conga.buffer.MappedBufferCache;
+import io.fixprotocol.conga.buffer.SlabBufferCache;
 import io.fixprotocol.conga.buffer.RingBufferSupplier;
-import io.fixprotocol.conga.io.MessageLogWriter;
+import io.fixprotocol.conga.buffer.RingBufferSupplier.WaitStrategy;
+import io.fixprotocol.conga.io.GroupCommitLogWriter;
+import io.fixprotocol.conga.io.MessageJournal;
+import io.fixprotocol.conga.io.MessageJournal.DurabilityPolicy;
+import io.fixprotocol.conga.io.MessageJournalWriter;
+import io.fixprotocol.conga.messages.appl.FixedId;
 import io.fixprotocol.conga.messages.appl.Message;
 import io.fixprotocol.conga.messages.appl.MessageException;
 import io.fixprotocol.conga.messages.appl.MutableMessage;
@@ -51,10 +67,14 @@ import io.fixprotocol.conga.messages.appl.RequestMessageFactory;
 import io.fixprotocol.conga.messages.spi.MessageProvider;
 import io.fixprotocol.conga.server.io.ExchangeSocketServer;
 import io.fixprotocol.conga.server.io.ExchangeSocketServer.Builder;
+import io.fixprotocol.conga.server.io.TcpExchangeServer;
 import io.fixprotocol.conga.server.match.MatchEngine;
+import io.fixprotocol.conga.server.session.OutboundQueue;
+import io.fixprotocol.conga.server.session.OutboundQueue.SlowConsumerPolicy;
 import io.fixprotocol.conga.server.session.ServerSession;
 import io.fixprotocol.conga.server.session.ServerSessionFactory;
 import io.fixprotocol.conga.server.session.ServerSessions;
+import io.fixprotocol.conga.session.HashedWheelTimer;
 import io.fixprotocol.conga.session.SessionMessageConsumer;
 
 /**
@@ -68,18 +88,33 @@ public class Exchange implements Runnable, AutoCloseable {
     public static final String DEFAULT_ENCODING = "SBE";
     public static final long DEFAULT_HEARTBEAT_INTERVAL = 2000L;
     public static final String DEFAULT_HOST = "localhost";
+    public static final int DEFAULT_PARTITIONS = 1;
     public static final int DEFAULT_PORT = 8025;
     public static final String DEFAULT_ROOT_CONTEXT_PATH = "/";
     private static final String DEFAULT_OUTPUT_PATH = "log";
 
     public String outputPath = DEFAULT_OUTPUT_PATH;
     private String contextPath = DEFAULT_ROOT_CONTEXT_PATH;
+    private DurabilityPolicy durabilityPolicy = DurabilityPolicy.None;
     private String encoding;
+    private boolean isGroupCommit = false;
+    private boolean isRecoveryEnabled = true;
     private long heartbeatInterval = DEFAULT_HEARTBEAT_INTERVAL;
     private String host = DEFAULT_HOST;
     private String keyStorePassword = "storepassword";
     private String keyStorePath = "selfsigned.pkcs";
+    private int maxQueuedBytes = OutboundQueue.DEFAULT_MAX_QUEUED_BYTES;
+    private int partitions = DEFAULT_PARTITIONS;
     private int port = DEFAULT_PORT;
+    private int sendCacheCapacity = SlabBufferCache.DEFAULT_CACHE_CAPACITY;
+    private int sendCacheSize = SlabBufferCache.DEFAULT_SLAB_SIZE;
+    private boolean isSendCacheSpilled = true;
+    private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.Disconnect;
+    private long snapshotInterval = 0L;
+    // partition by packed symbol
+    private final Map<Long, Integer> symbolPartitions = new HashMap<>();
+    private int tcpPort = 0;
+    private WaitStrategy waitStrategy = WaitStrategy.BusySpin;
 
     protected Builder() {
 
@@ -94,11 +129,42 @@ public class Exchange implements Runnable, AutoCloseable {
       return this;
     }
 
+    /**
+     * Set when inbound and outbound message journals are forced to storage
+     * 
+     * <p>
+     * Under {@link DurabilityPolicy#Batch}, journals are forced at the end of each batch of inbound
+     * messages, before responses are flushed to sessions.
+     * 
+     * @param durabilityPolicy journal durability policy
+     * @return this Builder
+     */
+    public Builder durabilityPolicy(DurabilityPolicy durabilityPolicy) {
+      this.durabilityPolicy = Objects.requireNonNull(durabilityPolicy);
+      return this;
+    }
+
     public Builder encoding(String encoding) {
       this.encoding = Objects.requireNonNull(encoding);
       return this;
     }
 
+    /**
+     * Select how inbound and outbound messages are journaled
+     * 
+     * <p>
+     * By default, messages are copied to memory-mapped journal segments. With group commit,
+     * messages are instead queued and appended to log files by a background thread, many messages
+     * per write.
+     * 
+     * @param isGroupCommit {@code true} to journal by group commit
+     * @return this Builder
+     */
+    public Builder groupCommit(boolean isGroupCommit) {
+      this.isGroupCommit = isGroupCommit;
+      return this;
+    }
+
     /**
      * Set heartbeat interval for new sessions
      * 
@@ -126,13 +192,203 @@ public class Exchange implements Runnable, AutoCloseable {
       return this;
     }
 
+    /**
+     * Set the maximum number of outbound bytes queued by each session and not yet written
+     * 
+     * <p>
+     * Responses are queued without blocking the matching thread. When a session would exceed this
+     * bound, it is treated according to {@link #slowConsumerPolicy(SlowConsumerPolicy)}.
+     * 
+     * @param maxQueuedBytes maximum number of bytes
+     * @return this Builder
+     */
+    public Builder maxQueuedBytes(int maxQueuedBytes) {
+      if (maxQueuedBytes <= 0) {
+        throw new IllegalArgumentException("Invalid maximum queued bytes");
+      }
+      this.maxQueuedBytes = maxQueuedBytes;
+      return this;
+    }
+
+    /**
+     * Set the number of match engine partitions
+     * 
+     * <p>
+     * With a single partition, the default, orders are matched on the thread that processes
+     * inbound session messages. Otherwise, each partition has its own MatchEngine and thread, and
+     * symbols are assigned to partitions by {@link #symbolPartition(String, int)} or else by hash.
+     * 
+     * @param partitions number of partitions
+     * @return this Builder
+     */
+    public Builder partitions(int partitions) {
+      if (partitions < 1) {
+        throw new IllegalArgumentException("Invalid number of partitions");
+      }
+      this.partitions = partitions;
+      return this;
+    }
+
+    /**
+     * Set whether order books are recovered from the inbound journal when opened
+     * 
+     * <p>
+     * Recovery is enabled by default. Journaled messages are matched again without sending
+     * responses, which rebuilds resting orders and order and execution identifiers.
+     * 
+     * @param isRecoveryEnabled {@code true} to recover from the journal
+     * @return this Builder
+     */
+    public Builder recovery(boolean isRecoveryEnabled) {
+      this.isRecoveryEnabled = isRecoveryEnabled;
+      return this;
+    }
+
     public Builder port(int port) {
       this.port = port;
       return this;
     }
 
+    /**
+     * Set the listen port of a plain TCP transport for co-located clients
+     * 
+     * <p>
+     * The TCP transport is disabled by default. Messages are framed by Simple Open Framing Header
+     * without TLS, so it should only be enabled on a trusted network.
+     * 
+     * @param tcpPort listen port, or 0 to disable the TCP transport
+     * @return this Builder
+     */
+    public Builder tcpPort(int tcpPort) {
+      if (tcpPort < 0) {
+        throw new IllegalArgumentException("Invalid TCP port");
+      }
+      this.tcpPort = tcpPort;
+      return this;
+    }
+
+    /**
+     * Set the maximum number of sent messages held in memory by each session for retransmission
+     * 
+     * @param sendCacheCapacity number of messages
+     * @return this Builder
+     */
+    public Builder sendCacheCapacity(int sendCacheCapacity) {
+      if (sendCacheCapacity <= 0) {
+        throw new IllegalArgumentException("Invalid send cache capacity");
+      }
+      this.sendCacheCapacity = sendCacheCapacity;
+      return this;
+    }
+
+    /**
+     * Set the maximum total size of sent messages held in memory by each session for
+     * retransmission
+     * 
+     * <p>
+     * Messages are packed into a single off-heap region of this size, so it should be set for the
+     * actual size of messages rather than the largest buffer. It also limits the size of a message.
+     * 
+     * @param sendCacheSize size in bytes
+     * @return this Builder
+     */
+    public Builder sendCacheSize(int sendCacheSize) {
+      if (sendCacheSize <= 0) {
+        throw new IllegalArgumentException("Invalid send cache size");
+      }
+      this.sendCacheSize = sendCacheSize;
+      return this;
+    }
+
+    /**
+     * Set whether sent messages that no longer fit in memory are spilled to disk
+     * 
+     * <p>
+     * Spilling is enabled by default, so that any range of sent messages may be retransmitted.
+     * Otherwise, only messages still held in memory can be retransmitted.
+     * 
+     * @param isSendCacheSpilled {@code true} to spill older sent messages to disk
+     * @return this Builder
+     */
+    public Builder sendCacheSpill(boolean isSendCacheSpilled) {
+      this.isSendCacheSpilled = isSendCacheSpilled;
+      return this;
+    }
+
+    /**
+     * Set the treatment of a session that does not keep up with its outbound messages
+     * 
+     * <p>
+     * By default, a slow session is disconnected so that it never delays matching; it may recover
+     * missed messages by retransmission when it reconnects. Throttling instead waits for the
+     * session to catch up, which delays every session served by the same thread.
+     * 
+     * @param slowConsumerPolicy slow consumer policy
+     * @return this Builder
+     */
+    public Builder slowConsumerPolicy(SlowConsumerPolicy slowConsumerPolicy) {
+      this.slowConsumerPolicy = Objects.requireNonNull(slowConsumerPolicy);
+      return this;
+    }
+
+    /**
+     * Set the interval of periodic snapshots of order books
+     * 
+     * <p>
+     * A snapshot bounds recovery time, since only inbound journal records that follow the newest
+     * snapshot are replayed. By default, snapshots are only taken on demand by
+     * {@link Exchange#snapshot()}.
+     * 
+     * @param snapshotInterval interval in millis, or zero to disable periodic snapshots
+     * @return this Builder
+     */
+    public Builder snapshotInterval(long snapshotInterval) {
+      if (snapshotInterval < 0) {
+        throw new IllegalArgumentException("Invalid snapshot interval");
+      }
+      this.snapshotInterval = snapshotInterval;
+      return this;
+    }
+
+    /**
+     * Set the strategy of consumer threads while waiting for inbound messages
+     * 
+     * <p>
+     * Applies to the thread that processes inbound session messages and to match engine partition
+     * threads. Busy spin, the default, has the lowest latency but consumes a core per thread.
+     * 
+     * @param waitStrategy wait strategy
+     * @return this Builder
+     */
+    public Builder waitStrategy(WaitStrategy waitStrategy) {
+      this.waitStrategy = Objects.requireNonNull(waitStrategy);
+      return this;
+    }
+
+    /**
+     * Assign a symbol to a match engine partition
+     * 
+     * @param symbol security identifier
+     * @param partition zero-based partition index; must be less than the number of partitions
+     * @return this Builder
+     * @throws IllegalArgumentException if the symbol cannot be packed or the partition is negative
+     * @see FixedId#isPackable(CharSequence)
+     */
+    public Builder symbolPartition(String symbol, int partition) {
+      if (symbol.isEmpty() || !FixedId.isPackable(symbol)) {
+        throw new IllegalArgumentException("Invalid symbol " + symbol);
+      }
+      if (partition < 0) {
+        throw new IllegalArgumentException("Invalid partition");
+      }
+      this.symbolPartitions.put(FixedId.pack(symbol), partition);
+      return this;
+    }
+
   }
 
+  private static final int RESPONSE_POOL_SIZE = 64;
+
   public static Builder builder() {
     return new Builder();
   }
@@ -149,7 +405,13 @@ public class Exchange implements Runnable, AutoCloseable {
 
     try (Exchange exchange = builder.build()) {
       exchange.open();
+      System.out.format("Recovered %d journal records in %d ms%n",
+          exchange.getRecoveredRecordCount(),
+          TimeUnit.NANOSECONDS.toMillis(exchange.getRecoveryNanos()));
       exchange.run();
+      System.out.format("Response buffer pool hits %d misses %d overflow allocations %d%n",
+          exchange.getResponsePoolHitCount(), exchange.getResponsePoolMissCount(),
+          exchange.getResponsePoolOverflowCount());
     }
   }
 
@@ -166,6 +428,21 @@ public class Exchange implements Runnable, AutoCloseable {
         .desc("keepalive interval millis").type(Number.class).build());
     options.addOption("s", "keystorepath", true, "key store path");
     options.addOption("w", "keystorepassword", true, "key store password");
+    options.addOption(Option.builder("n").longOpt("partitions").hasArg(true)
+        .desc("number of match engine partitions").type(Number.class).build());
+    options.addOption(Option.builder("t").longOpt("waitstrategy").hasArg(true)
+        .desc("consumer wait strategy: BusySpin, Yielding, Sleeping or Blocking").build());
+    options.addOption(Option.builder("d").longOpt("durability").hasArg(true)
+        .desc("journal durability: None, Periodic or Batch").build());
+    options.addOption("g", "groupcommit", false, "journal messages by group commit");
+    options.addOption(Option.builder("z").longOpt("snapshotinterval").hasArg(true)
+        .desc("order book snapshot interval millis").type(Number.class).build());
+    options.addOption(Option.builder("q").longOpt("maxqueued").hasArg(true)
+        .desc("maximum outbound bytes queued per session").type(Number.class).build());
+    options.addOption(Option.builder("b").longOpt("slowconsumer").hasArg(true)
+        .desc("slow consumer policy: Disconnect or Throttle").build());
+    options.addOption(Option.builder("r").longOpt("tcpport").hasArg(true)
+        .desc("listen port of plain TCP transport").type(Number.class).build());
     options.addOption("?", "help", false, "disply usage");
 
     DefaultParser parser = new DefaultParser();
@@ -203,11 +480,42 @@ public class Exchange implements Runnable, AutoCloseable {
         Number port = (Number) cmd.getParsedOptionValue("p");
         builder.port(port.intValue());
       }
+      if (cmd.hasOption("r")) {
+        Number tcpPort = (Number) cmd.getParsedOptionValue("r");
+        builder.tcpPort(tcpPort.intValue());
+      }
+      if (cmd.hasOption("n")) {
+        Number partitions = (Number) cmd.getParsedOptionValue("n");
+        builder.partitions(partitions.intValue());
+      }
+      if (cmd.hasOption("t")) {
+        String waitStrategy = cmd.getOptionValue("t");
+        builder.waitStrategy(WaitStrategy.valueOf(waitStrategy));
+      }
+      if (cmd.hasOption("d")) {
+        String durabilityPolicy = cmd.getOptionValue("d");
+        builder.durabilityPolicy(DurabilityPolicy.valueOf(durabilityPolicy));
+      }
+      if (cmd.hasOption("g")) {
+        builder.groupCommit(true);
+      }
+      if (cmd.hasOption("q")) {
+        Number maxQueuedBytes = (Number) cmd.getParsedOptionValue("q");
+        builder.maxQueuedBytes(maxQueuedBytes.intValue());
+      }
+      if (cmd.hasOption("b")) {
+        String slowConsumerPolicy = cmd.getOptionValue("b");
+        builder.slowConsumerPolicy(SlowConsumerPolicy.valueOf(slowConsumerPolicy));
+      }
+      if (cmd.hasOption("z")) {
+        Number snapshotInterval = (Number) cmd.getParsedOptionValue("z");
+        builder.snapshotInterval(snapshotInterval.longValue());
+      }
       if (cmd.hasOption("k")) {
         Number keepalive = (Number) cmd.getParsedOptionValue("l");
         builder.heartbeatInterval(keepalive.longValue());
       }
-    } catch (ParseException e) {
+    } catch (ParseException | IllegalArgumentException e) {
       System.err.println(e.getMessage());
       usage(options);
       System.exit(1);
@@ -224,74 +532,215 @@ public class Exchange implements Runnable, AutoCloseable {
   private Consumer<Throwable> errorListener = (t) -> t.printStackTrace(System.err);
   private final ExecutorService executor = Executors.newSingleThreadExecutor();
   private final String host;
-  private final MessageLogWriter inboundLogWriter;
+  private final Path inboundJournalPath;
+  // number of records written to the inbound journal; accessed by the inbound consumer thread
+  private long inboundJournalPosition = 0L;
+  private final MessageJournal inboundLogWriter;
   private final RingBufferSupplier inboundRingBuffer;
 
-  // Consumes messages from ring buffer
-  private final BiConsumer<String, ByteBuffer> incomingMessageConsumer = new BiConsumer<>() {
+  // Consumes messages from ring buffer; responses are flushed once per batch
+  private final BufferBatchConsumer incomingMessageConsumer = new BufferBatchConsumer() {
 
     @Override
-    public void accept(String source, ByteBuffer buffer) {
-      final ServerSession session = sessions.getSession(source);
-      try {
-        session.messageReceived(buffer);
-      } catch (Throwable t) {
-        errorListener.accept(t);
+    public void accept(String source, ByteBuffer buffer, boolean endOfBatch) {
+      if (source == SnapshotStore.MARKER) {
+        takeSnapshot();
+      } else {
+        final ServerSession session = sessions.getSession(source);
+        try {
+          session.messageReceived(buffer);
+        } catch (Throwable t) {
+          errorListener.accept(t);
+        }
+      }
+      if (endOfBatch) {
+        flushJournal(getInboundLogWriter());
+        flushSessions();
       }
     }
   };
+  private final boolean isGroupCommit;
+  private final boolean isRecoveryEnabled;
   private final String keyStorePassword;
   private final String keyStorePath;
-  private final MatchEngine matchEngine;
-  private final BufferSupplier outboundBufferSupplier = new BufferPool();
-  private final MessageLogWriter outboundLogWriter;
+  private final MatchPartition[] partitions;
+  // Response messages are released as soon as they are sent or queued, so a matching thread that
+  // finds the pool empty waits briefly rather than allocating
+  private final BufferPool outboundBufferSupplier =
+      BufferPool.builder().poolSize(RESPONSE_POOL_SIZE).exhaustedPolicy(ExhaustedPolicy.Block)
+          .build();
+  private final MessageJournal outboundLogWriter;
   private final int port;
+  private final int tcpPort;
+  private TcpExchangeServer tcpServer = null;
 
+  private long recoveredRecordCount = 0L;
+  private long recoveryNanos = 0L;
   private final RequestMessageFactory requestMessageFactory;
+  // Sends responses queued by partitions; responses are flushed once per batch
+  private final BufferBatchConsumer queuedResponseConsumer = (source, buffer, endOfBatch) -> {
+    sendResponse(source, buffer);
+    if (endOfBatch) {
+      flushSessions();
+    }
+  };
+  // With multiple partitions, all responses are sent by its single consumer thread; else null
+  private final RingBufferSupplier responseRingBuffer;
   private ExchangeSocketServer server = null;
+  private final long snapshotInterval;
+  // futures of requested snapshots, in the order of their markers in the inbound ring buffer
+  private final Queue<CompletableFuture<Path>> snapshotRequests = new ConcurrentLinkedQueue<>();
+  private final SnapshotStore snapshotStore;
+  private TimerTask snapshotTask = null;
+  // Inbound messages are journaled on one thread, the inbound ring buffer consumer
+  private final JournalRecovery.SourceJournaler sourceJournaler =
+      new JournalRecovery.SourceJournaler();
   // Consumes incoming application messages from Session
   private final SessionMessageConsumer sessionMessageConsumer = (source, buffer, seqNo) -> {
     Message message;
     try {
-      getInboundLogWriter().writeAsync(buffer.duplicate(), getEncodingType());
+      if (sourceJournaler.journal(getInboundLogWriter(), source)) {
+        inboundJournalPosition++;
+      }
+      getInboundLogWriter().write(buffer, getEncodingType());
+      inboundJournalPosition++;
+      final int position = buffer.position();
       message = getRequestMessageFactory().wrap(buffer);
-      match(source, message);
-    } catch (MessageException e) {
+      final MatchPartition partition = getPartition(message);
+      if (partition.isAsync()) {
+        buffer.position(position);
+        partition.enqueue(source, buffer);
+      } else {
+        partition.match(source, message);
+      }
+    } catch (IOException | MessageException | RuntimeException e) {
       errorListener.accept(e);
     }
   };
+  // assigned partitions by packed symbol, sorted by symbol for binary search
+  private final int[] symbolPartitions;
+  private final long[] symbols;
   private final ServerSessions sessions;
+  // Heartbeats are sent off the tick thread so that one slow session does not delay the others
+  private final ExecutorService sessionTimerExecutor =
+      Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+        final Thread thread = new Thread(r, "Session-timer-task");
+        thread.setDaemon(true);
+        return thread;
+      });
+  private final HashedWheelTimer sessionTimer =
+      HashedWheelTimer.builder().executor(sessionTimerExecutor)
+          .errorListener(t -> errorListener.accept(t)).build();
   private final Timer timer = new Timer("Server-timer", true);
+  // Sessions sent batched responses by the current thread since its last end of batch; a session
+  // is listed once, while its flush is pending
+  private final ThreadLocal<List<ServerSession>> unflushedSessions =
+      ThreadLocal.withInitial(ArrayList::new);
 
   private Exchange(Builder builder) {
     this.host = builder.host;
     this.port = builder.port;
+    this.tcpPort = builder.tcpPort;
     this.contextPath = builder.contextPath;
     // Jetty uses big-endian buffers for receiving but converts them to byte[]
-    this.inboundRingBuffer = new RingBufferSupplier(incomingMessageConsumer, 1024,
-        ByteOrder.nativeOrder(), 64, Executors.defaultThreadFactory());
+    // Jetty delivers messages on multiple threads
+    this.inboundRingBuffer = RingBufferSupplier.builder(incomingMessageConsumer).capacity(1024)
+        .queueDepth(64).multiProducer(true).waitStrategy(builder.waitStrategy).build();
     MessageProvider messageProvider = provider(builder.encoding);
     encodingType = messageProvider.encodingType();
     this.requestMessageFactory = messageProvider.getRequestMessageFactory();
     MutableResponseMessageFactory responseMessageFactory =
         messageProvider.getMutableResponseMessageFactory(outboundBufferSupplier);
-    this.matchEngine = new MatchEngine(responseMessageFactory);
-    this.sessions = new ServerSessions(new ServerSessionFactory(messageProvider,
-        sessionMessageConsumer, timer, executor, builder.heartbeatInterval));
+    this.symbols = builder.symbolPartitions.keySet().stream().mapToLong(Long::longValue).sorted()
+        .toArray();
+    this.symbolPartitions = new int[symbols.length];
+    for (int i = 0; i < symbols.length; i++) {
+      final int partition = builder.symbolPartitions.get(symbols[i]);
+      if (partition >= builder.partitions) {
+        throw new IllegalArgumentException("Symbol assigned to unknown partition " + partition);
+      }
+      symbolPartitions[i] = partition;
+    }
+    final Consumer<Throwable> partitionErrorListener = t -> errorListener.accept(t);
+    this.partitions = new MatchPartition[builder.partitions];
+    if (builder.partitions == 1) {
+      this.responseRingBuffer = null;
+      // Sends each response as soon as it is populated, since response messages may be flyweights
+      partitions[0] = new MatchPartition(new MatchEngine(responseMessageFactory),
+          requestMessageFactory, this::sendResponse, partitionErrorListener);
+    } else {
+      // Responses of every partition are sent by one thread, so all responses to a session are
+      // sequenced, sent, journaled and flushed in one order
+      this.responseRingBuffer = RingBufferSupplier.builder(queuedResponseConsumer)
+          .capacity(BufferPool.DEFAULT_BUFFER_CAPACITY)
+          .queueDepth(MatchPartition.DEFAULT_QUEUE_DEPTH).multiProducer(true).waitStrategy(builder.waitStrategy)
+          .threadFactory(r -> new Thread(r, "Response-sender")).build();
+      for (int i = 0; i < partitions.length; i++) {
+        final String threadName = "Match-partition-" + i;
+        partitions[i] = new MatchPartition(new MatchEngine(responseMessageFactory),
+            requestMessageFactory, this::queueResponse, partitionErrorListener,
+            MatchPartition.DEFAULT_BUFFER_CAPACITY, MatchPartition.DEFAULT_QUEUE_DEPTH,
+            builder.waitStrategy, r -> new Thread(r, threadName));
+      }
+    }
     Path outputPath = FileSystems.getDefault().getPath(builder.outputPath);
-    this.inboundLogWriter = new MessageLogWriter(outputPath.resolve("inbound.log"), false);
-    this.outboundLogWriter = new MessageLogWriter(outputPath.resolve("outbound.log"), false);
+    final ServerSessionFactory sessionFactory;
+    if (builder.isSendCacheSpilled) {
+      // older sent messages spill to disk so that any range may be retransmitted
+      final Path sendCachePath = outputPath.resolve("sendcache");
+      final int sendCacheCapacity = builder.sendCacheCapacity;
+      final int sendCacheSize = builder.sendCacheSize;
+      sessionFactory = new ServerSessionFactory(messageProvider, sessionMessageConsumer,
+          sessionTimer, executor, builder.heartbeatInterval,
+          () -> MappedBufferCache.builder(sendCachePath).windowCapacity(sendCacheCapacity)
+              .windowSize(sendCacheSize).build());
+    } else {
+      sessionFactory = new ServerSessionFactory(messageProvider, sessionMessageConsumer,
+          sessionTimer, executor, builder.heartbeatInterval, builder.sendCacheCapacity,
+          builder.sendCacheSize);
+    }
+    sessionFactory.setOutboundQueueLimit(builder.maxQueuedBytes, builder.slowConsumerPolicy);
+    this.sessions = new ServerSessions(sessionFactory);
+    this.inboundJournalPath = outputPath.resolve("inbound.log");
+    this.isGroupCommit = builder.isGroupCommit;
+    this.isRecoveryEnabled = builder.isRecoveryEnabled;
+    this.inboundLogWriter = newJournal(builder, inboundJournalPath, "inbound");
+    this.outboundLogWriter = newJournal(builder, outputPath.resolve("outbound.log"), "outbound");
+    this.snapshotInterval = builder.snapshotInterval;
+    this.snapshotStore =
+        new SnapshotStore(outputPath, SnapshotStore.DEFAULT_RETAINED, t -> errorListener.accept(t));
     this.keyStorePath = builder.keyStorePath;
     this.keyStorePassword = builder.keyStorePassword;
   }
 
   @Override
   public void close() {
+    if (snapshotTask != null) {
+      snapshotTask.cancel();
+    }
+    sessionTimer.close();
+    sessionTimerExecutor.shutdown();
     executor.shutdown();
+    if (tcpServer != null) {
+      tcpServer.stop();
+    }
     if (server != null) {
       server.stop();
     }
     inboundRingBuffer.stop();
+    for (MatchPartition partition : partitions) {
+      partition.stop();
+    }
+    // sends responses queued by the partitions before stopping
+    if (responseRingBuffer != null) {
+      responseRingBuffer.stop();
+    }
+    snapshotStore.close();
+    try {
+      sessions.close();
+    } catch (IOException e) {
+      errorListener.accept(e);
+    }
     try {
       getInboundLogWriter().close();
       getOutboundLogWriter().close();
@@ -308,40 +757,125 @@ public class Exchange implements Runnable, AutoCloseable {
     return port;
   }
 
-  public void match(String source, Message message) throws MessageException {
-    List<MutableMessage> responses = Collections.emptyList();
-    if (message instanceof NewOrderSingle) {
-      responses = matchEngine.onOrder(source, (NewOrderSingle) message);
-    } else if (message instanceof OrderCancelRequest) {
-      responses = matchEngine.onCancelRequest(source, (OrderCancelRequest) message);
-    }
+  /**
+   * @return listen port of the plain TCP transport, or 0 if disabled
+   */
+  public int getTcpPort() {
+    return tcpPort;
+  }
 
-    for (MutableMessage response : responses) {
-      final ByteBuffer outboundBuffer = response.toBuffer();
-      final ServerSession session = sessions.getSession(response.getSource());
-      try {
-        session.sendApplicationMessage(outboundBuffer);
-        outboundBuffer.flip();
-        outboundLogWriter.writeAsync(outboundBuffer, getEncodingType()).handle((l, e) -> {
-          response.release();
-          return l;
-        });
-      } catch (IOException | InterruptedException e) {
-        session.disconnected();
-        response.release();
-      }
-    }
+  /**
+   * @return number of inbound journal records replayed when this Exchange was opened
+   */
+  public long getRecoveredRecordCount() {
+    return recoveredRecordCount;
+  }
+
+  /**
+   * @return nanoseconds to load a snapshot and replay the inbound journal when opened
+   */
+  public long getRecoveryNanos() {
+    return recoveryNanos;
+  }
+
+  /**
+   * @return number of times a pooled response buffer was available
+   */
+  public long getResponsePoolHitCount() {
+    return outboundBufferSupplier.getHitCount();
+  }
+
+  /**
+   * @return number of times a matching thread found no pooled response buffer available
+   */
+  public long getResponsePoolMissCount() {
+    return outboundBufferSupplier.getMissCount();
+  }
+
+  /**
+   * @return number of response buffers allocated outside the pool
+   */
+  public long getResponsePoolOverflowCount() {
+    return outboundBufferSupplier.getOverflowCount();
+  }
+
+  /**
+   * @return nanoseconds spent by matching threads to copy order books for the last snapshot
+   */
+  public long getSnapshotCaptureNanos() {
+    return snapshotStore.getLastCaptureNanos();
+  }
+
+  /**
+   * @return number of snapshots written
+   */
+  public long getSnapshotCount() {
+    return snapshotStore.getSnapshotCount();
+  }
+
+  /**
+   * @return size in bytes of the last snapshot
+   */
+  public long getSnapshotSize() {
+    return snapshotStore.getLastSize();
+  }
+
+  /**
+   * @return nanoseconds to write and force the last snapshot to storage
+   */
+  public long getSnapshotWriteNanos() {
+    return snapshotStore.getLastWriteNanos();
+  }
+
+  /**
+   * Matches an application message on the calling thread
+   * 
+   * <p>
+   * When there are multiple partitions, this must only be invoked on the thread of the partition
+   * that owns the symbol of the message, and responses are queued to be sent and flushed by the
+   * response thread. Otherwise, responses are flushed before returning.
+   * 
+   * @param source originator of the message
+   * @param message a decoded application message
+   * @throws MessageException if the message cannot be processed
+   */
+  public void match(String source, Message message) throws MessageException {
+    getPartition(message).match(source, message);
+    flushSessions();
   }
 
 
   public void open() throws Exception {
+    recover();
+    if (responseRingBuffer != null) {
+      responseRingBuffer.start();
+    }
+    for (MatchPartition partition : partitions) {
+      partition.start();
+    }
     inboundRingBuffer.start();
     getInboundLogWriter().open();
     getOutboundLogWriter().open();
+    if (tcpPort > 0) {
+      tcpServer = TcpExchangeServer.builder().ringBufferSupplier(inboundRingBuffer).host(host)
+          .port(tcpPort).sessions(sessions).encodingCode(getEncodingType())
+          .errorListener(t -> errorListener.accept(t)).build();
+      tcpServer.start();
+    }
     server = ExchangeSocketServer.builder().ringBufferSupplier(inboundRingBuffer).host(host)
         .port(port).keyStorePath(keyStorePath).keyStorePassword(keyStorePassword).sessions(sessions)
-        .build();
+        .encodingCode(getEncodingType()).build();
     server.run();
+    if (snapshotInterval > 0) {
+      snapshotTask = new TimerTask() {
+
+        @Override
+        public void run() {
+          snapshot();
+        }
+      };
+      timer.scheduleAtFixedRate(snapshotTask, snapshotInterval, snapshotInterval);
+    }
   }
 
   @Override
@@ -363,6 +897,194 @@ public class Exchange implements Runnable, AutoCloseable {
     this.errorListener = Objects.requireNonNull(errorListener);
   }
 
+  /**
+   * Requests a snapshot of order books
+   * 
+   * <p>
+   * The snapshot is taken in sequence with inbound messages: it reflects every message journaled
+   * before the request and none after. Each partition copies its order books in memory on its
+   * matching thread, and the snapshot is written to storage by a background thread, so matching
+   * is not delayed by I/O.
+   * 
+   * @return a future that is completed with the path of the snapshot file when it is written
+   */
+  public CompletableFuture<Path> snapshot() {
+    final CompletableFuture<Path> future = new CompletableFuture<>();
+    try {
+      final BufferSupply supply = inboundRingBuffer.get();
+      final ByteBuffer buffer = supply.acquire();
+      if (buffer == null) {
+        future.completeExceptionally(new IllegalStateException("Failed to queue snapshot"));
+        return future;
+      }
+      snapshotRequests.add(future);
+      buffer.limit(0);
+      supply.setSource(SnapshotStore.MARKER);
+      supply.release();
+    } catch (IllegalStateException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  private void flushJournal(MessageJournal journal) {
+    try {
+      journal.flush();
+    } catch (IOException e) {
+      errorListener.accept(e);
+    }
+  }
+
+  /**
+   * Sends responses held by sessions that were sent batched responses by the current thread
+   */
+  private void flushSessions() {
+    flushJournal(getOutboundLogWriter());
+    final List<ServerSession> unflushed = unflushedSessions.get();
+    for (int i = 0; i < unflushed.size(); i++) {
+      final ServerSession session = unflushed.get(i);
+      session.setFlushPending(false);
+      try {
+        session.flush();
+      } catch (IOException e) {
+        session.disconnected();
+      }
+    }
+    unflushed.clear();
+  }
+
+  private MatchPartition getPartition(Message message) {
+    if (partitions.length == 1) {
+      return partitions[0];
+    }
+    // route by packed symbol so that a String is not created for each message; a symbol that
+    // cannot be packed is zero and is rejected by any MatchEngine
+    long symbol = 0L;
+    if (message instanceof NewOrderSingle) {
+      symbol = ((NewOrderSingle) message).getSymbolAsLongOrZero();
+    } else if (message instanceof OrderCancelRequest) {
+      symbol = ((OrderCancelRequest) message).getSymbolAsLongOrZero();
+    }
+    return partitions[getPartitionIndex(symbol)];
+  }
+
+  /**
+   * Returns the index of the partition that owns a symbol
+   *
+   * @param symbol a packed symbol, or 0 if it could not be packed
+   */
+  private int getPartitionIndex(long symbol) {
+    if (symbol == 0L || partitions.length == 1) {
+      return 0;
+    }
+    final int index = Arrays.binarySearch(symbols, symbol);
+    if (index >= 0) {
+      return symbolPartitions[index];
+    }
+    // high bits of the product mix every character of the symbol
+    final int hash = (int) ((symbol * 0x9e3779b97f4a7c15L) >>> 32);
+    return Math.floorMod(hash, partitions.length);
+  }
+
+  /**
+   * Tells whether every order book of a snapshot is held by the partition that owns its symbol
+   * under the current routing
+   * <p>
+   * Routing may change between runs by symbol assignment even if the number of partitions does
+   * not. Each partition state is read into a scratch MatchEngine, so a snapshot that does not
+   * match leaves the partitions untouched.
+   */
+  private boolean isRoutingMatched(SnapshotStore.Snapshot snapshot) throws IOException {
+    for (int i = 0; i < partitions.length; i++) {
+      final MatchEngine engine = new MatchEngine(null);
+      engine.readSnapshot(snapshot.getState(i));
+      for (String symbol : engine.getSymbols()) {
+        if (getPartitionIndex(FixedId.pack(symbol)) != i) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static MessageJournal newJournal(Builder builder, Path path, String name) {
+    if (builder.isGroupCommit) {
+      final String threadName = "Journal-" + name;
+      return GroupCommitLogWriter.builder(path).durabilityPolicy(builder.durabilityPolicy)
+          .threadFactory(r -> {
+            final Thread thread = new Thread(r, threadName);
+            thread.setDaemon(true);
+            return thread;
+          }).build();
+    } else {
+      return MessageJournalWriter.builder(path).durabilityPolicy(builder.durabilityPolicy).build();
+    }
+  }
+
+  /**
+   * Rebuilds order books from the newest snapshot and the inbound journal that follows it, before
+   * partitions are started
+   * 
+   * <p>
+   * A snapshot is not used if it is ahead of the journal, as when journal records were lost, or
+   * if it was taken with a different number of partitions or books are held by partitions that no
+   * longer own their symbols. If recovery is disabled, the journal is only counted so that
+   * positions of later snapshots are consistent with it.
+   * 
+   * @throws IOException if the journal or a snapshot cannot be read
+   */
+  private void recover() throws IOException {
+    final long start = System.nanoTime();
+    final List<Path> paths = new ArrayList<>();
+    if (isGroupCommit) {
+      paths.add(inboundJournalPath);
+    } else {
+      for (int i = 0; Files.exists(MessageJournalWriter.segmentPath(inboundJournalPath, i)); i++) {
+        paths.add(MessageJournalWriter.segmentPath(inboundJournalPath, i));
+      }
+    }
+    final long journalLength = JournalRecovery.recordCount(paths);
+    inboundJournalPosition = journalLength;
+    if (!isRecoveryEnabled) {
+      return;
+    }
+
+    long position = 0L;
+    for (Path path : snapshotStore.list()) {
+      final SnapshotStore.Snapshot snapshot;
+      try {
+        snapshot = snapshotStore.read(path);
+      } catch (IOException e) {
+        errorListener.accept(e);
+        continue;
+      }
+      if (snapshot.getPosition() <= journalLength
+          && snapshot.getPartitionCount() == partitions.length) {
+        try {
+          if (!isRoutingMatched(snapshot)) {
+            errorListener.accept(new IOException(
+                "Snapshot " + path + " skipped; symbols are routed to different partitions"));
+            continue;
+          }
+        } catch (IOException e) {
+          errorListener.accept(e);
+          continue;
+        }
+        for (int i = 0; i < partitions.length; i++) {
+          partitions[i].restore(snapshot.getState(i));
+        }
+        position = snapshot.getPosition();
+        break;
+      }
+    }
+
+    final JournalRecovery recovery = new JournalRecovery(getRequestMessageFactory(),
+        getEncodingType(), (source, message) -> getPartition(message).replay(source, message),
+        t -> errorListener.accept(t));
+    recoveredRecordCount = recovery.replay(paths, position);
+    recoveryNanos = System.nanoTime() - start;
+  }
+
   private RequestMessageFactory getRequestMessageFactory() {
     return requestMessageFactory;
   }
@@ -383,15 +1105,91 @@ public class Exchange implements Runnable, AutoCloseable {
     throw new RuntimeException("No MessageProvider found");
   }
 
+  /**
+   * Copies a response to be sent by the response thread
+   * <p>
+   * Invoked on a partition thread. Blocks if the response circular buffer is full.
+   */
+  private void queueResponse(MutableMessage response) {
+    try {
+      final BufferSupply supply = responseRingBuffer.get();
+      if (supply.acquireAndCopy(response.toBuffer()) == null) {
+        errorListener.accept(
+            new IllegalStateException("Failed to queue response to " + response.getSource()));
+        return;
+      }
+      supply.setSource(response.getSource());
+      supply.release();
+    } catch (RuntimeException e) {
+      errorListener.accept(e);
+    } finally {
+      response.release();
+    }
+  }
+
+  private void sendResponse(MutableMessage response) {
+    try {
+      sendResponse(response.getSource(), response.toBuffer());
+    } finally {
+      response.release();
+    }
+  }
+
+  private void sendResponse(String source, ByteBuffer outboundBuffer) {
+    final ServerSession session = sessions.getSession(source);
+    try {
+      session.sendApplicationMessage(outboundBuffer, true);
+      if (!session.isFlushPending()) {
+        session.setFlushPending(true);
+        unflushedSessions.get().add(session);
+      }
+    } catch (IOException | InterruptedException e) {
+      session.disconnected();
+      return;
+    }
+    // journal copies the message, so the buffer may be reused immediately
+    try {
+      outboundBuffer.flip();
+      outboundLogWriter.write(outboundBuffer, getEncodingType());
+    } catch (IOException | RuntimeException e) {
+      errorListener.accept(e);
+    }
+  }
+
+  /**
+   * Starts a snapshot at the current inbound journal position
+   * 
+   * <p>
+   * Invoked on the inbound consumer thread when it consumes a snapshot marker.
+   */
+  private void takeSnapshot() {
+    final CompletableFuture<Path> future = snapshotRequests.remove();
+    // journal records before the snapshot position must be stored before the snapshot
+    flushJournal(getInboundLogWriter());
+    // replay from this position must begin with a source record
+    sourceJournaler.reset();
+    final SnapshotStore.Capture capture =
+        snapshotStore.newCapture(inboundJournalPosition, partitions.length, future);
+    for (int i = 0; i < partitions.length; i++) {
+      final int partition = i;
+      try {
+        partitions[i].snapshot(matchEngine -> capture.add(partition, matchEngine));
+      } catch (IllegalStateException e) {
+        errorListener.accept(e);
+        future.completeExceptionally(e);
+      }
+    }
+  }
+
   short getEncodingType() {
     return encodingType;
   }
 
-  MessageLogWriter getInboundLogWriter() {
+  MessageJournal getInboundLogWriter() {
     return inboundLogWriter;
   }
 
-  MessageLogWriter getOutboundLogWriter() {
+  MessageJournal getOutboundLogWriter() {
     return outboundLogWriter;
   }
 
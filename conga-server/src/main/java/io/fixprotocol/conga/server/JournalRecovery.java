@@ -0,0 +1,227 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import io.fixprotocol.conga.io.MappedMessageLogReader;
+import io.fixprotocol.conga.io.MessageJournal;
+import io.fixprotocol.conga.messages.appl.Message;
+import io.fixprotocol.conga.messages.appl.MessageException;
+import io.fixprotocol.conga.messages.appl.RequestMessageFactory;
+
+/**
+ * Recovers state by replaying an inbound journal
+ *
+ * <p>
+ * An inbound journal interleaves application messages with source records. A source record holds
+ * the principal of the session that sent the application messages that follow it, up to the next
+ * source record. It is only written when the source changes, so a journal must be written by a
+ * single thread. Source records are distinguished by {@link #SOURCE_ENCODING_TYPE}.
+ * <p>
+ * Replay is streamed in place from memory-mapped journal files. Neither records nor sources are
+ * copied per message; a source is decoded once when first seen.
+ *
+ * @author Don Mendelson
+ *
+ */
+class JournalRecovery {
+
+  /**
+   * Journals a source record if the source differs from the last one journaled
+   */
+  static final class SourceJournaler {
+    private String lastSource = null;
+    private final Map<String, ByteBuffer> records = new HashMap<>();
+
+    /**
+     * @return {@code true} if a source record was written
+     */
+    boolean journal(MessageJournal journal, String source) throws IOException {
+      if (!source.equals(lastSource)) {
+        final ByteBuffer record = records.computeIfAbsent(source, JournalRecovery::encodeSource);
+        journal.write(record, SOURCE_ENCODING_TYPE);
+        lastSource = source;
+        return true;
+      }
+      return false;
+    }
+
+    /**
+     * Journal a source record before the next application message, whatever its source
+     *
+     * <p>
+     * Invoked at a position where replay may start, such as a snapshot.
+     */
+    void reset() {
+      lastSource = null;
+    }
+  }
+
+  /**
+   * SOFH encoding type of a source record, not used by any application message encoding
+   */
+  static final short SOURCE_ENCODING_TYPE = (short) 0xFFFE;
+
+  private final Consumer<Throwable> errorListener;
+  private final short encodingType;
+  private final BiConsumer<String, Message> messageConsumer;
+  private final RequestMessageFactory requestMessageFactory;
+  private String source = null;
+  // keys are the encoded principals
+  private final Map<ByteBuffer, String> sources = new HashMap<>();
+
+  private final MappedMessageLogReader.RecordConsumer recordConsumer = (buffer, encoding) -> {
+    if (encoding == SOURCE_ENCODING_TYPE) {
+      source = sources.get(buffer);
+      if (source == null) {
+        final ByteBuffer key = ByteBuffer.allocate(buffer.remaining());
+        key.put(buffer.duplicate()).flip();
+        source = StandardCharsets.UTF_8.decode(key.duplicate()).toString();
+        sources.put(key, source);
+      }
+    } else if (encoding == getEncodingType() && source != null) {
+      try {
+        final Message message = getRequestMessageFactory().wrap(buffer);
+        getMessageConsumer().accept(source, message);
+      } catch (MessageException | RuntimeException e) {
+        getErrorListener().accept(e);
+      }
+    }
+    // else written in another encoding or without a source; cannot be replayed
+  };
+
+  /**
+   * Constructor
+   *
+   * @param requestMessageFactory decodes application messages
+   * @param encodingType SOFH encoding type of application messages to replay
+   * @param messageConsumer receives the source and decoded application message of each record
+   * @param errorListener receives exceptions
+   */
+  JournalRecovery(RequestMessageFactory requestMessageFactory, short encodingType,
+      BiConsumer<String, Message> messageConsumer, Consumer<Throwable> errorListener) {
+    this.requestMessageFactory = requestMessageFactory;
+    this.encodingType = encodingType;
+    this.messageConsumer = messageConsumer;
+    this.errorListener = errorListener;
+  }
+
+  /**
+   * Returns a source record for a principal
+   *
+   * @param source principal of a session
+   * @return a buffer to journal with {@link #SOURCE_ENCODING_TYPE}
+   */
+  static ByteBuffer encodeSource(String source) {
+    return ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Counts the records of journal files
+   *
+   * @param paths journal files
+   * @return total number of records, including source records
+   * @throws IOException if a journal file cannot be read
+   */
+  static long recordCount(List<Path> paths) throws IOException {
+    long count = 0;
+    for (Path path : paths) {
+      if (Files.exists(path) && Files.size(path) > 0) {
+        try (MappedMessageLogReader reader = MappedMessageLogReader.builder(path).build()) {
+          reader.open();
+          count += reader.getRecordCount();
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Replays journal files in order
+   *
+   * <p>
+   * Files that do not exist are skipped.
+   *
+   * @param paths journal files in the order written
+   * @return number of records replayed
+   * @throws IOException if a journal file cannot be read
+   */
+  long replay(List<Path> paths) throws IOException {
+    return replay(paths, 0L);
+  }
+
+  /**
+   * Replays journal files in order, starting at a record position
+   *
+   * <p>
+   * Files that do not exist are skipped. The record at the starting position should be a source
+   * record, as written after {@link SourceJournaler#reset()}; application messages before the
+   * first source record are not replayed.
+   *
+   * @param paths journal files in the order written
+   * @param position number of records to skip, counted across files
+   * @return number of records replayed
+   * @throws IOException if a journal file cannot be read
+   */
+  long replay(List<Path> paths, long position) throws IOException {
+    long skip = position;
+    long count = 0;
+    source = null;
+    for (Path path : paths) {
+      if (Files.exists(path) && Files.size(path) > 0) {
+        try (MappedMessageLogReader reader = MappedMessageLogReader.builder(path).build()) {
+          reader.open();
+          final long recordCount = reader.getRecordCount();
+          if (skip >= recordCount) {
+            skip -= recordCount;
+            continue;
+          }
+          reader.seek(skip);
+          skip = 0;
+          count += reader.replay(recordConsumer);
+        }
+      }
+    }
+    return count;
+  }
+
+  private short getEncodingType() {
+    return encodingType;
+  }
+
+  private Consumer<Throwable> getErrorListener() {
+    return errorListener;
+  }
+
+  private BiConsumer<String, Message> getMessageConsumer() {
+    return messageConsumer;
+  }
+
+  private RequestMessageFactory getRequestMessageFactory() {
+    return requestMessageFactory;
+  }
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.server;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import io.fixprotocol.conga.buffer.BufferSupplier.BufferSupply;
+import io.fixprotocol.conga.buffer.RingBufferSupplier;
+import io.fixprotocol.conga.buffer.RingBufferSupplier.WaitStrategy;
+import io.fixprotocol.conga.messages.appl.Message;
+import io.fixprotocol.conga.messages.appl.MutableMessage;
+import io.fixprotocol.conga.messages.appl.NewOrderSingle;
+import io.fixprotocol.conga.messages.appl.OrderCancelRequest;
+import io.fixprotocol.conga.messages.appl.RequestMessageFactory;
+import io.fixprotocol.conga.server.match.MatchEngine;
+
+/**
+ * A MatchEngine for a subset of symbols
+ *
+ * <p>
+ * A partition either matches on the thread that delivers a message, or it has its own circular
+ * buffer and consumer thread. In the latter case, encoded application messages are copied into the
+ * circular buffer by a single producer, the session thread, and decoded again on the partition
+ * thread. Since each partition has its own MatchEngine, partitions share no order book state.
+ * <p>
+ * Responses are delivered to the response consumer on the matching thread in the order they are
+ * produced by the MatchEngine. Messages from a session for symbols in the same partition are
+ * matched in the order received. A response consumer of a partition with its own thread should
+ * hand off responses to a single sending thread shared by all partitions, so that responses to a
+ * session are sent in one order.
+ * <p>
+ * A snapshot of the MatchEngine is taken in sequence with messages. A partition with its own
+ * thread takes it when it consumes a marker entry from its circular buffer, so the snapshot
+ * reflects exactly the messages queued before it was requested.
+ *
+ * @author Don Mendelson
+ *
+ */
+class MatchPartition {
+
+  public static final int DEFAULT_BUFFER_CAPACITY = RingBufferSupplier.DEFAULT_BUFFER_CAPACITY;
+  public static final int DEFAULT_QUEUE_DEPTH = 1024;
+
+  private static final Consumer<MutableMessage> DISCARD_RESPONSE = MutableMessage::release;
+
+  private final Consumer<Throwable> errorListener;
+  private final MatchEngine matchEngine;
+  private final RequestMessageFactory requestMessageFactory;
+  private final Consumer<MutableMessage> responseConsumer;
+  // null if matching on the delivering thread
+  private final RingBufferSupplier ringBuffer;
+  // receivers of snapshots requested by markers queued in the circular buffer
+  private final Queue<Consumer<MatchEngine>> snapshotConsumers = new ConcurrentLinkedQueue<>();
+
+  private final BiConsumer<String, ByteBuffer> queuedMessageConsumer = (source, buffer) -> {
+    try {
+      if (source == SnapshotStore.MARKER) {
+        getSnapshotConsumers().remove().accept(getMatchEngine());
+      } else {
+        final Message message = getRequestMessageFactory().wrap(buffer);
+        match(source, message);
+      }
+    } catch (Throwable t) {
+      getErrorListener().accept(t);
+    }
+  };
+
+  /**
+   * Constructor for a partition that matches on the thread that delivers a message
+   *
+   * @param matchEngine engine for symbols of this partition
+   * @param requestMessageFactory decodes application messages
+   * @param responseConsumer sends responses from the MatchEngine
+   * @param errorListener receives exceptions
+   */
+  MatchPartition(MatchEngine matchEngine, RequestMessageFactory requestMessageFactory,
+      Consumer<MutableMessage> responseConsumer, Consumer<Throwable> errorListener) {
+    this.matchEngine = matchEngine;
+    this.requestMessageFactory = requestMessageFactory;
+    this.responseConsumer = responseConsumer;
+    this.errorListener = errorListener;
+    this.ringBuffer = null;
+  }
+
+  /**
+   * Constructor for a partition with its own consumer thread
+   *
+   * @param matchEngine engine for symbols of this partition
+   * @param requestMessageFactory decodes application messages
+   * @param responseConsumer sends responses from the MatchEngine
+   * @param errorListener receives exceptions
+   * @param bufferCapacity capacity of each slot in the circular buffer; must hold the largest
+   *        application message
+   * @param queueDepth number of slots in the circular buffer. Must be a power of 2.
+   * @param waitStrategy strategy of the partition thread while waiting for messages
+   * @param threadFactory creates the partition thread
+   */
+  MatchPartition(MatchEngine matchEngine, RequestMessageFactory requestMessageFactory,
+      Consumer<MutableMessage> responseConsumer, Consumer<Throwable> errorListener,
+      int bufferCapacity, int queueDepth, WaitStrategy waitStrategy, ThreadFactory threadFactory) {
+    this.matchEngine = matchEngine;
+    this.requestMessageFactory = requestMessageFactory;
+    this.responseConsumer = responseConsumer;
+    this.errorListener = errorListener;
+    // the session thread is the only producer
+    this.ringBuffer = RingBufferSupplier.builder(queuedMessageConsumer).capacity(bufferCapacity)
+        .queueDepth(queueDepth).multiProducer(false).waitStrategy(waitStrategy)
+        .threadFactory(threadFactory).build();
+  }
+
+  /**
+   * Queues an encoded application message to be matched on the partition thread
+   *
+   * <p>
+   * Invoked by a single producer thread. The remaining bytes of buffer are copied, so the buffer
+   * may be reused when this method returns. Blocks if the circular buffer is full.
+   *
+   * @param source originator of the message
+   * @param buffer holds an encoded application message
+   * @throws IllegalStateException if this partition does not have its own thread or the message
+   *         could not be queued
+   * @throws BufferOverflowException if the message is larger than a slot of the circular buffer
+   */
+  void enqueue(String source, ByteBuffer buffer) {
+    if (ringBuffer == null) {
+      throw new IllegalStateException("Partition matches on the delivering thread");
+    }
+    final BufferSupply supply = ringBuffer.get();
+    if (supply.acquireAndCopy(buffer) == null) {
+      throw new IllegalStateException("Failed to queue message from " + source);
+    }
+    supply.setSource(source);
+    supply.release();
+  }
+
+  /**
+   * @return Returns {@code true} if this partition has its own consumer thread
+   */
+  boolean isAsync() {
+    return ringBuffer != null;
+  }
+
+  /**
+   * Matches an application message on the current thread
+   *
+   * @param source originator of the message
+   * @param message a decoded application message
+   */
+  void match(String source, Message message) {
+    if (message instanceof NewOrderSingle) {
+      matchEngine.onOrder(source, (NewOrderSingle) message, responseConsumer);
+    } else if (message instanceof OrderCancelRequest) {
+      matchEngine.onCancelRequest(source, (OrderCancelRequest) message, responseConsumer);
+    }
+  }
+
+  /**
+   * Matches a journaled application message on the current thread without sending responses
+   *
+   * <p>
+   * Used to recover order books before this partition is started.
+   *
+   * @param source originator of the message
+   * @param message a decoded application message
+   */
+  void replay(String source, Message message) {
+    if (message instanceof NewOrderSingle) {
+      matchEngine.onOrder(source, (NewOrderSingle) message, DISCARD_RESPONSE);
+    } else if (message instanceof OrderCancelRequest) {
+      matchEngine.onCancelRequest(source, (OrderCancelRequest) message, DISCARD_RESPONSE);
+    }
+  }
+
+  /**
+   * Replaces the state of the MatchEngine with a snapshot
+   *
+   * <p>
+   * Used to recover order books before this partition is started.
+   *
+   * @param in state written by {@link MatchEngine#writeSnapshot(java.io.DataOutput)}
+   * @throws IOException if the snapshot cannot be read
+   */
+  void restore(DataInput in) throws IOException {
+    matchEngine.readSnapshot(in);
+  }
+
+  /**
+   * Takes a snapshot after messages already queued are matched
+   *
+   * <p>
+   * Invoked by the producer thread. If this partition matches on the delivering thread, the
+   * snapshot is taken immediately.
+   *
+   * @param snapshotConsumer invoked on the matching thread to copy the state of the MatchEngine
+   */
+  void snapshot(Consumer<MatchEngine> snapshotConsumer) {
+    if (ringBuffer == null) {
+      snapshotConsumer.accept(matchEngine);
+    } else {
+      snapshotConsumers.add(snapshotConsumer);
+      final BufferSupply supply = ringBuffer.get();
+      final ByteBuffer buffer = supply.acquire();
+      if (buffer == null) {
+        snapshotConsumers.remove(snapshotConsumer);
+        throw new IllegalStateException("Failed to queue snapshot");
+      }
+      buffer.limit(0);
+      supply.setSource(SnapshotStore.MARKER);
+      supply.release();
+    }
+  }
+
+  void start() {
+    if (ringBuffer != null) {
+      ringBuffer.start();
+    }
+  }
+
+  void stop() {
+    if (ringBuffer != null) {
+      ringBuffer.stop();
+    }
+  }
+
+  private Consumer<Throwable> getErrorListener() {
+    return errorListener;
+  }
+
+  private MatchEngine getMatchEngine() {
+    return matchEngine;
+  }
+
+  private RequestMessageFactory getRequestMessageFactory() {
+    return requestMessageFactory;
+  }
+
+  private Queue<Consumer<MatchEngine>> getSnapshotConsumers() {
+    return snapshotConsumers;
+  }
+
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import io.fixprotocol.conga.server.match.MatchEngine;
+
+/**
+ * Stores snapshots of the MatchEngine of each partition
+ *
+ * <p>
+ * A snapshot records the state of every partition as of a position in the inbound journal,
+ * expressed as a number of journal records. Recovery loads the newest snapshot and only replays
+ * journal records that follow its position.
+ * <p>
+ * Taking a snapshot is split so that matching is not delayed by I/O. Each partition copies the
+ * state of its MatchEngine to memory on its own thread, when it reaches the journal position of
+ * the snapshot. When the last partition has done so, the snapshot is written to a file by a
+ * background thread. A file is written under a temporary name, forced to storage and then renamed,
+ * so a snapshot file is always complete. Older snapshot files are deleted once a newer one is
+ * written, except for a number that are retained.
+ * <p>
+ * File format, big-endian: magic number, version, journal position, number of partitions, the
+ * length and state of each partition, then a CRC-32 of all preceding bytes.
+ *
+ * @author Don Mendelson
+ *
+ */
+class SnapshotStore implements AutoCloseable {
+
+  /**
+   * State of all partitions being copied for a snapshot
+   */
+  final class Capture {
+    private final AtomicLong captureNanos = new AtomicLong();
+    private final CompletableFuture<Path> future;
+    private final long position;
+    private final AtomicInteger remaining;
+    private final byte[][] states;
+
+    private Capture(long position, int partitions, CompletableFuture<Path> future) {
+      this.position = position;
+      this.states = new byte[partitions][];
+      this.remaining = new AtomicInteger(partitions);
+      this.future = future;
+    }
+
+    /**
+     * Copies the state of a partition
+     *
+     * <p>
+     * Invoked on the matching thread of the partition. After the last partition is copied, the
+     * snapshot is written asynchronously.
+     *
+     * @param partition index of the partition
+     * @param matchEngine MatchEngine of the partition
+     */
+    void add(int partition, MatchEngine matchEngine) {
+      final long start = System.nanoTime();
+      try {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        matchEngine.writeSnapshot(new DataOutputStream(bytes));
+        states[partition] = bytes.toByteArray();
+      } catch (IOException e) {
+        errorListener.accept(e);
+        future.completeExceptionally(e);
+      }
+      captureNanos.addAndGet(System.nanoTime() - start);
+      if (remaining.decrementAndGet() == 0 && !future.isCompletedExceptionally()) {
+        lastCaptureNanos = captureNanos.get();
+        writer.execute(() -> write(this));
+      }
+    }
+  }
+
+  /**
+   * A snapshot read from a file
+   */
+  static final class Snapshot {
+    private final long position;
+    private final byte[][] states;
+
+    private Snapshot(long position, byte[][] states) {
+      this.position = position;
+      this.states = states;
+    }
+
+    int getPartitionCount() {
+      return states.length;
+    }
+
+    /**
+     * @return number of inbound journal records reflected by this snapshot
+     */
+    long getPosition() {
+      return position;
+    }
+
+    /**
+     * @param partition index of a partition
+     * @return state of the partition to pass to {@link MatchEngine#readSnapshot(DataInput)}
+     */
+    DataInput getState(int partition) {
+      return new DataInputStream(new ByteArrayInputStream(states[partition]));
+    }
+  }
+
+  /**
+   * Source of an inbound ring buffer entry that requests a snapshot rather than carrying a
+   * message; compared by identity
+   */
+  static final String MARKER = "snapshot";
+
+  public static final int DEFAULT_RETAINED = 2;
+
+  private static final int MAGIC = 0x43534e50;
+  private static final String PREFIX = "snapshot.";
+  private static final String SUFFIX = ".snap";
+  private static final int VERSION = 1;
+
+  private final Path directory;
+  private final Consumer<Throwable> errorListener;
+  private volatile long lastCaptureNanos = 0;
+  private volatile long lastSize = 0;
+  private volatile long lastWriteNanos = 0;
+  private final int retained;
+  private final AtomicLong snapshotCount = new AtomicLong();
+  private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+    final Thread thread = new Thread(r, "Snapshot-writer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Constructor
+   *
+   * @param directory directory of snapshot files
+   * @param retained number of snapshot files to keep
+   * @param errorListener receives exceptions when a snapshot cannot be written
+   */
+  SnapshotStore(Path directory, int retained, Consumer<Throwable> errorListener) {
+    if (retained < 1) {
+      throw new IllegalArgumentException("Invalid number of snapshots retained");
+    }
+    this.directory = directory;
+    this.retained = retained;
+    this.errorListener = errorListener;
+  }
+
+  /**
+   * Completes writing of snapshots already captured
+   */
+  @Override
+  public void close() {
+    writer.shutdown();
+    try {
+      writer.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @return nanoseconds spent by matching threads to copy state for the last snapshot written
+   */
+  long getLastCaptureNanos() {
+    return lastCaptureNanos;
+  }
+
+  /**
+   * @return size in bytes of the last snapshot file written
+   */
+  long getLastSize() {
+    return lastSize;
+  }
+
+  /**
+   * @return nanoseconds to write and force the last snapshot file
+   */
+  long getLastWriteNanos() {
+    return lastWriteNanos;
+  }
+
+  /**
+   * @return number of snapshot files written
+   */
+  long getSnapshotCount() {
+    return snapshotCount.get();
+  }
+
+  /**
+   * Lists snapshot files
+   *
+   * @return paths of snapshot files, newest first
+   * @throws IOException if the directory cannot be read
+   */
+  List<Path> list() throws IOException {
+    final List<Path> paths = new ArrayList<>();
+    if (Files.isDirectory(directory)) {
+      try (Stream<Path> files = Files.list(directory)) {
+        files.filter(p -> position(p) >= 0).forEach(paths::add);
+      }
+    }
+    paths.sort(Comparator.comparingLong(SnapshotStore::position).reversed());
+    return paths;
+  }
+
+  /**
+   * Starts a snapshot
+   *
+   * @param position number of inbound journal records reflected by the snapshot
+   * @param partitions number of partitions to capture
+   * @param future completed with the path of the snapshot file when it is written
+   * @return a Capture to receive the state of each partition
+   */
+  Capture newCapture(long position, int partitions, CompletableFuture<Path> future) {
+    return new Capture(position, partitions, future);
+  }
+
+  /**
+   * Reads a snapshot file
+   *
+   * @param path snapshot file
+   * @return a snapshot
+   * @throws IOException if the file cannot be read or is invalid
+   */
+  Snapshot read(Path path) throws IOException {
+    final byte[] bytes = Files.readAllBytes(path);
+    if (bytes.length < Integer.BYTES * 3 + Long.BYTES + Long.BYTES) {
+      throw new IOException("Invalid snapshot " + path);
+    }
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    final CRC32 crc = new CRC32();
+    crc.update(bytes, 0, bytes.length - Long.BYTES);
+    if (buffer.getLong(bytes.length - Long.BYTES) != crc.getValue()) {
+      throw new IOException("Invalid checksum of snapshot " + path);
+    }
+    if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+      throw new IOException("Invalid snapshot " + path);
+    }
+    final long position = buffer.getLong();
+    final byte[][] states = new byte[buffer.getInt()][];
+    for (int i = 0; i < states.length; i++) {
+      states[i] = new byte[buffer.getInt()];
+      buffer.get(states[i]);
+    }
+    return new Snapshot(position, states);
+  }
+
+  private void deleteOlder() throws IOException {
+    final List<Path> paths = list();
+    for (int i = retained; i < paths.size(); i++) {
+      Files.deleteIfExists(paths.get(i));
+    }
+  }
+
+  private Path path(long position) {
+    return directory.resolve(PREFIX + position + SUFFIX);
+  }
+
+  private void write(Capture capture) {
+    final long start = System.nanoTime();
+    final Path path = path(capture.position);
+    final Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+    try {
+      int length = Integer.BYTES * 2 + Long.BYTES + Integer.BYTES + Long.BYTES;
+      for (byte[] state : capture.states) {
+        length += Integer.BYTES + state.length;
+      }
+      final ByteBuffer buffer = ByteBuffer.allocate(length);
+      buffer.putInt(MAGIC).putInt(VERSION).putLong(capture.position)
+          .putInt(capture.states.length);
+      for (byte[] state : capture.states) {
+        buffer.putInt(state.length).put(state);
+      }
+      final CRC32 crc = new CRC32();
+      crc.update(buffer.array(), 0, buffer.position());
+      buffer.putLong(crc.getValue()).flip();
+
+      Files.createDirectories(directory);
+      try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE,
+          StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        channel.force(true);
+      }
+      Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      lastWriteNanos = System.nanoTime() - start;
+      lastSize = length;
+      snapshotCount.incrementAndGet();
+      deleteOlder();
+      capture.future.complete(path);
+    } catch (IOException e) {
+      errorListener.accept(e);
+      capture.future.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * @return journal position from the name of a snapshot file, or -1 if not a snapshot file
+   */
+  private static long position(Path path) {
+    final String name = path.getFileName().toString();
+    if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+      try {
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+      } catch (NumberFormatException e) {
+        // not a snapshot file
+      }
+    }
+    return -1;
+  }
+
+}
@@ -28,17 +28,24 @@ import io.fixprotocol.conga.server.session.ServerSessions;
 public class ExchangeServlet extends WebSocketServlet {
 
   private static final long serialVersionUID = -357978763515258850L;
+  private final short encodingCode;
   private final RingBufferSupplier ringBuffer;
   private final ServerSessions sessions;
   
-  public ExchangeServlet(ServerSessions sessions, RingBufferSupplier ringBuffer) {
+  public ExchangeServlet(ServerSessions sessions, RingBufferSupplier ringBuffer,
+      short encodingCode) {
     this.sessions = sessions;
     this.ringBuffer = ringBuffer;
+    this.encodingCode = encodingCode;
   }
 
   @Override
   public void configure(WebSocketServletFactory factory) {
-    factory.setCreator(new ExchangeSocketCreator(sessions, ringBuffer));
+    // a message must fit in a ring buffer slot; Jetty rejects larger frames before they are read
+    final int capacity = ringBuffer.getCapacity();
+    factory.getPolicy().setMaxBinaryMessageSize(capacity);
+    factory.getPolicy().setMaxTextMessageSize(capacity);
+    factory.setCreator(new ExchangeSocketCreator(sessions, ringBuffer, encodingCode));
   }
 
 }
@@ -23,11 +23,15 @@ import org.eclipse.jetty.websocket.servlet.WebSocketCreator;
 
 import io.fixprotocol.conga.buffer.RingBufferSupplier;
 import io.fixprotocol.conga.server.io.callback.BinaryExchangeSocket;
+import io.fixprotocol.conga.server.io.callback.SofhExchangeSocket;
 import io.fixprotocol.conga.server.io.callback.TextExchangeSocket;
 import io.fixprotocol.conga.server.session.ServerSessions;
 
 /**
- * WebSocket creator only accepts requests for binary subprotocol
+ * WebSocket creator only accepts requests for binary, sofh or text subprotocol
+ * <p>
+ * The sofh subprotocol is binary with outbound messages framed by Simple Open Framing Header, so
+ * that several messages may be sent in one WebSocket frame.
  * 
  * Todo: register FIX as a subprotocol
  * 
@@ -36,6 +40,7 @@ import io.fixprotocol.conga.server.session.ServerSessions;
  */
 public class ExchangeSocketCreator implements WebSocketCreator {
 
+  private final short encodingCode;
   private final RingBufferSupplier ringBuffer;
   private final ServerSessions sessions;
 
@@ -43,10 +48,13 @@ public class ExchangeSocketCreator implements WebSocketCreator {
    * Constructor
    * @param sessions associates sessions to transports
    * @param ringBuffer provides buffers to persist received messages
+   * @param encodingCode SOFH encoding type of outbound messages
    */
-  public ExchangeSocketCreator(ServerSessions sessions, RingBufferSupplier ringBuffer) {
+  public ExchangeSocketCreator(ServerSessions sessions, RingBufferSupplier ringBuffer,
+      short encodingCode) {
     this.sessions = sessions;
     this.ringBuffer = ringBuffer;
+    this.encodingCode = encodingCode;
   }
 
   @Override
@@ -58,6 +66,9 @@ public class ExchangeSocketCreator implements WebSocketCreator {
       if ("binary".equals(subprotocol)) {
         response.setAcceptedSubProtocol(subprotocol);
         return new BinaryExchangeSocket(sessions, ringBuffer, source);
+      } else if ("sofh".equals(subprotocol)) {
+        response.setAcceptedSubProtocol(subprotocol);
+        return new SofhExchangeSocket(sessions, ringBuffer, source, encodingCode);
       } else if ("text".equals(subprotocol)) {
         response.setAcceptedSubProtocol(subprotocol);
         return new TextExchangeSocket(sessions, ringBuffer, source);
@@ -47,6 +47,7 @@ public class ExchangeSocketServer {
    */
   public static final class Builder {
     private ServerSessions sessions;
+    private short encodingCode = 0;
     private String host = "localhost";
     private String keyManagerPassword = null;
     private String keyStorePassword = null;
@@ -62,6 +63,15 @@ public class ExchangeSocketServer {
       return new ExchangeSocketServer(this);
     }
 
+    /**
+     * @param encodingCode SOFH encoding type of outbound messages, for subprotocols that frame them
+     * @return this Builder
+     */
+    public Builder encodingCode(short encodingCode) {
+      this.encodingCode = encodingCode;
+      return this;
+    }
+
     public Builder host(String host) {
       this.host = host;
       return this;
@@ -102,6 +112,7 @@ public class ExchangeSocketServer {
     return new Builder();
   }
 
+  private final short encodingCode;
   private final String host;
   private final String keyManagerPassword;
   private final String keyStorePassword;
@@ -119,6 +130,7 @@ public class ExchangeSocketServer {
     this.host = builder.host;
     this.port = builder.port;
     this.sessions = builder.sessions;
+    this.encodingCode = builder.encodingCode;
   }
 
   public void init() {
@@ -145,7 +157,8 @@ public class ExchangeSocketServer {
     server.addConnector(sslConnector);
 
     ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
-    ServletHolder servletHolder = new ServletHolder(new ExchangeServlet(sessions, ringBuffer));
+    ServletHolder servletHolder =
+        new ServletHolder(new ExchangeServlet(sessions, ringBuffer, encodingCode));
     context.addServlet(servletHolder, "/trade/*");
     // context.addServlet(DefaultServlet.class, "/");
     server.setHandler(context);
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.server.io;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+import io.fixprotocol.conga.buffer.RingBufferSupplier;
+import io.fixprotocol.conga.server.io.callback.TcpExchangeSocket;
+import io.fixprotocol.conga.server.session.ServerSessions;
+
+/**
+ * Plain TCP server for co-located clients
+ * <p>
+ * Messages are framed by Simple Open Framing Header without WebSocket framing, HTTP upgrade or
+ * TLS, so it should only be exposed on a trusted network. A connection is identified by the
+ * address of its peer. Accepted connections are spread over a small number of selector threads,
+ * which feed received messages to the same ring buffer as the WebSocket server.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class TcpExchangeServer {
+
+  /**
+   * Builds an instance of {@code TcpExchangeServer}
+   * <p>
+   * Example:
+   *
+   * <pre>
+   * TcpExchangeServer server = TcpExchangeServer.builder().port(8026).sessions(sessions)
+   *     .ringBufferSupplier(ringBuffer).build();
+   * </pre>
+   *
+   */
+  public static final class Builder {
+    private short encodingCode = 0;
+    private Consumer<Throwable> errorListener = (t) -> t.printStackTrace(System.err);
+    private String host = "localhost";
+    private int port = DEFAULT_PORT;
+    private RingBufferSupplier ringBuffer;
+    private int selectorThreads = DEFAULT_SELECTOR_THREADS;
+    private ServerSessions sessions;
+
+    private Builder() {
+
+    }
+
+    public TcpExchangeServer build() {
+      return new TcpExchangeServer(this);
+    }
+
+    /**
+     * @param encodingCode SOFH encoding type of outbound messages
+     * @return this Builder
+     */
+    public Builder encodingCode(short encodingCode) {
+      this.encodingCode = encodingCode;
+      return this;
+    }
+
+    public Builder errorListener(Consumer<Throwable> errorListener) {
+      this.errorListener = Objects.requireNonNull(errorListener);
+      return this;
+    }
+
+    public Builder host(String host) {
+      this.host = Objects.requireNonNull(host);
+      return this;
+    }
+
+    /**
+     * @param port listen port; 0 selects an ephemeral port
+     * @return this Builder
+     */
+    public Builder port(int port) {
+      if (port < 0) {
+        throw new IllegalArgumentException("Invalid port");
+      }
+      this.port = port;
+      return this;
+    }
+
+    public Builder ringBufferSupplier(RingBufferSupplier ringBuffer) {
+      this.ringBuffer = Objects.requireNonNull(ringBuffer);
+      return this;
+    }
+
+    /**
+     * @param selectorThreads number of threads that read and write connections
+     * @return this Builder
+     */
+    public Builder selectorThreads(int selectorThreads) {
+      if (selectorThreads <= 0) {
+        throw new IllegalArgumentException("Invalid number of selector threads");
+      }
+      this.selectorThreads = selectorThreads;
+      return this;
+    }
+
+    public Builder sessions(ServerSessions sessions) {
+      this.sessions = Objects.requireNonNull(sessions);
+      return this;
+    }
+  }
+
+  /**
+   * Services connections assigned to one selector thread
+   */
+  private final class SelectorLoop implements Runnable {
+    private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+    private final Selector selector;
+
+    SelectorLoop() throws IOException {
+      this.selector = Selector.open();
+    }
+
+    void assign(SocketChannel channel) {
+      registrations.offer(channel);
+      selector.wakeup();
+    }
+
+    void close() {
+      for (SelectionKey key : selector.keys()) {
+        final Object attachment = key.attachment();
+        if (attachment instanceof TcpExchangeSocket) {
+          ((TcpExchangeSocket) attachment).close();
+        }
+      }
+      try {
+        selector.close();
+      } catch (IOException e) {
+        errorListener.accept(e);
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (running) {
+          selector.select();
+          register();
+          final Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+          while (iter.hasNext()) {
+            final SelectionKey key = iter.next();
+            iter.remove();
+            final TcpExchangeSocket socket = (TcpExchangeSocket) key.attachment();
+            try {
+              if (key.isValid() && key.isReadable()) {
+                socket.onReadable();
+              }
+              if (key.isValid() && key.isWritable()) {
+                socket.onWritable();
+              }
+            } catch (CancelledKeyException e) {
+              socket.close();
+            }
+          }
+        }
+      } catch (IOException e) {
+        errorListener.accept(e);
+      } finally {
+        close();
+      }
+    }
+
+    private void register() {
+      SocketChannel channel;
+      while ((channel = registrations.poll()) != null) {
+        try {
+          channel.configureBlocking(false);
+          channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+          final String principal =
+              ((InetSocketAddress) channel.getRemoteAddress()).getHostString();
+          final TcpExchangeSocket socket =
+              new TcpExchangeSocket(sessions, ringBuffer, principal, channel, encodingCode);
+          final SelectionKey key = channel.register(selector, SelectionKey.OP_READ, socket);
+          socket.onOpen(key);
+        } catch (IOException e) {
+          errorListener.accept(e);
+          try {
+            channel.close();
+          } catch (IOException e1) {
+            // already closed
+          }
+        }
+      }
+    }
+  }
+
+  public static final int DEFAULT_PORT = 8026;
+  public static final int DEFAULT_SELECTOR_THREADS = 1;
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private Thread acceptorThread;
+  private final short encodingCode;
+  private final Consumer<Throwable> errorListener;
+  private final String host;
+  private final int port;
+  private final RingBufferSupplier ringBuffer;
+  private volatile boolean running = false;
+  private final SelectorLoop[] selectorLoops;
+  private ServerSocketChannel serverChannel;
+  private final ServerSessions sessions;
+
+  private TcpExchangeServer(Builder builder) {
+    this.host = builder.host;
+    this.port = builder.port;
+    this.ringBuffer = Objects.requireNonNull(builder.ringBuffer, "Ring buffer not set");
+    this.sessions = Objects.requireNonNull(builder.sessions, "Sessions not set");
+    this.encodingCode = builder.encodingCode;
+    this.errorListener = builder.errorListener;
+    this.selectorLoops = new SelectorLoop[builder.selectorThreads];
+  }
+
+  /**
+   * @return the port that the server listens on, or -1 if not started
+   */
+  public int getLocalPort() {
+    final ServerSocketChannel serverChannel = this.serverChannel;
+    if (serverChannel == null) {
+      return -1;
+    }
+    try {
+      return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Start listening for connections; does not block
+   *
+   * @throws IOException if the server socket cannot be bound
+   */
+  public void start() throws IOException {
+    running = true;
+    for (int i = 0; i < selectorLoops.length; i++) {
+      selectorLoops[i] = new SelectorLoop();
+      final Thread thread = new Thread(selectorLoops[i], "Tcp-selector-" + i);
+      thread.setDaemon(true);
+      thread.start();
+    }
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.bind(new InetSocketAddress(host, port));
+    acceptorThread = new Thread(this::accept, "Tcp-acceptor");
+    acceptorThread.setDaemon(true);
+    acceptorThread.start();
+  }
+
+  /**
+   * Stop accepting connections and close connected sockets
+   */
+  public void stop() {
+    running = false;
+    try {
+      if (serverChannel != null) {
+        serverChannel.close();
+      }
+    } catch (IOException e) {
+      errorListener.accept(e);
+    }
+    for (SelectorLoop loop : selectorLoops) {
+      if (loop != null) {
+        loop.selector.wakeup();
+      }
+    }
+  }
+
+  private void accept() {
+    int next = 0;
+    while (running) {
+      try {
+        final SocketChannel channel = serverChannel.accept();
+        selectorLoops[next].assign(channel);
+        next = (next + 1) % selectorLoops.length;
+      } catch (ClosedChannelException e) {
+        // stopped
+        break;
+      } catch (IOException e) {
+        errorListener.accept(e);
+      }
+    }
+  }
+}
@@ -19,6 +19,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 /**
  * @author Don Mendelson
@@ -33,6 +34,21 @@ public interface ExchangeSocket extends Closeable {
    */
   void send(ByteBuffer buffer) throws IOException;
 
+  /**
+   * Send a message as part of a batch
+   * <p>
+   * The message may be held until {@link #flush()} is invoked.
+   * @param buffer message buffer to send
+   * @throws IOException if an IO error occurs
+   */
+  void sendBatched(ByteBuffer buffer) throws IOException;
+
+  /**
+   * Send any batched messages that are held
+   * @throws IOException if an IO error occurs
+   */
+  void flush() throws IOException;
+
   /**
    * Send a message asynchronously
    * @param buffer message buffer to send
@@ -40,4 +56,16 @@ public interface ExchangeSocket extends Closeable {
    */
   Future<Void> sendAsync(ByteBuffer buffer);
 
+  /**
+   * Start writing a message without blocking
+   * <p>
+   * The buffer must not be modified until the callback is invoked. A batched message may be held
+   * with following messages until a message that is not batched is written.
+   * @param buffer message buffer to send
+   * @param isBatched if {@code true}, the message may be held for following messages
+   * @param callback invoked with {@code null} when the message is written, or with the cause of
+   *        failure; may be invoked on the calling thread
+   */
+  void write(ByteBuffer buffer, boolean isBatched, Consumer<Throwable> callback);
+
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.server.io.callback;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.websocket.api.extensions.Frame;
+
+import io.fixprotocol.conga.buffer.BufferSupplier.BufferSupply;
+import io.fixprotocol.conga.buffer.RingBufferSupplier;
+
+/**
+ * Copies the payload of received data frames into ring buffer slots
+ * <p>
+ * A message received in a single frame is copied from Jetty's network buffer directly into a slot,
+ * without an intermediate array or String. A message fragmented over several frames is assembled
+ * in a staging buffer and copied to a slot when complete; a slot is never held across callbacks,
+ * since they may occur on different threads and an unpublished slot would stall the consumer for
+ * every session.
+ * <p>
+ * A message larger than a slot is discarded rather than overflowing the slot.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class InboundFrameHandler {
+
+  private final int capacity;
+  // remaining fragments of an oversized message are dropped
+  private boolean isDiscarding = false;
+  private final String principal;
+  private final RingBufferSupplier ringBuffer;
+  // allocated when the first fragmented message is received
+  private ByteBuffer staging = null;
+
+  InboundFrameHandler(RingBufferSupplier ringBuffer, String principal) {
+    this.ringBuffer = ringBuffer;
+    this.principal = principal;
+    this.capacity = ringBuffer.getCapacity();
+  }
+
+  /**
+   * Handle a received frame; frames of one connection must not be handled concurrently
+   *
+   * @param frame a received frame. Its payload is only valid for the duration of this invocation.
+   * @return {@code false} if the message of the frame is larger than a slot and was discarded
+   */
+  boolean onFrame(Frame frame) {
+    // Type.isData() is false for CONTINUATION frames, so only control frames are skipped
+    if (frame.getType().isControl()) {
+      return true;
+    }
+    final ByteBuffer payload = frame.hasPayload() ? frame.getPayload() : null;
+    final int length = payload != null ? payload.remaining() : 0;
+    final boolean isFin = frame.isFin();
+
+    if (isDiscarding) {
+      isDiscarding = !isFin;
+      return true;
+    }
+    if (isFin && (staging == null || staging.position() == 0)) {
+      // unfragmented message
+      if (length > capacity) {
+        return false;
+      }
+      if (length > 0) {
+        enqueue(payload);
+      }
+      return true;
+    }
+    if (staging == null) {
+      staging = ByteBuffer.allocateDirect(capacity);
+    }
+    if (length > staging.remaining()) {
+      staging.clear();
+      isDiscarding = !isFin;
+      return false;
+    }
+    if (length > 0) {
+      staging.put(payload.duplicate());
+    }
+    if (isFin) {
+      staging.flip();
+      enqueue(staging);
+      staging.clear();
+    }
+    return true;
+  }
+
+  private void enqueue(ByteBuffer message) {
+    final BufferSupply supply = ringBuffer.get();
+    if (null != supply.acquireAndCopy(message.duplicate())) {
+      supply.setSource(principal);
+      supply.release();
+    } else {
+      // rejected under backpressure; counted by RingBufferSupplier
+    }
+  }
+}
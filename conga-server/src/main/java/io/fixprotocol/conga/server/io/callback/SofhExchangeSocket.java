@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.server.io.callback;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.eclipse.jetty.websocket.api.BatchMode;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+
+import io.fixprotocol.conga.buffer.RingBufferSupplier;
+import io.fixprotocol.conga.io.SofhEncoder;
+import io.fixprotocol.conga.server.session.ServerSessions;
+
+/**
+ * Binary WebSocket that packs outbound messages into frames with Simple Open Framing Header
+ * <p>
+ * Each outbound message is preceded by a SOFH header. Messages written as a batch are appended
+ * back-to-back to one binary frame that is sent when the last message of the batch is written, so
+ * a batch costs one frame rather than one per message. Inbound frames hold a single message
+ * without a header, as for the binary subprotocol.
+ *
+ * @author Don Mendelson
+ *
+ */
+@WebSocket
+public class SofhExchangeSocket extends BinaryExchangeSocket {
+
+  public static final int DEFAULT_FRAME_CAPACITY = 64 * 1024;
+
+  private final short encodingCode;
+  // only one write run is in progress at a time, so one frame is filled at a time
+  private ByteBuffer frame;
+  private final int frameCapacity;
+
+  /**
+   * Constructor
+   *
+   * @param sessions associates sessions to transports
+   * @param ringBuffer provides buffers to persist received messages
+   * @param principal identifies the peer
+   * @param encodingCode SOFH encoding type of outbound messages
+   */
+  public SofhExchangeSocket(ServerSessions sessions, RingBufferSupplier ringBuffer,
+      String principal, short encodingCode) {
+    super(sessions, ringBuffer, principal);
+    this.encodingCode = encodingCode;
+    this.frameCapacity = DEFAULT_FRAME_CAPACITY;
+    this.frame = ByteBuffer.allocateDirect(frameCapacity);
+  }
+
+  @Override
+  public void send(ByteBuffer buffer) throws IOException {
+    super.send(frame(buffer));
+  }
+
+  @Override
+  public Future<Void> sendAsync(ByteBuffer buffer) {
+    return super.sendAsync(frame(buffer));
+  }
+
+  @Override
+  public void sendBatched(ByteBuffer buffer) throws IOException {
+    super.sendBatched(frame(buffer));
+  }
+
+  /**
+   * Appends a message to the current frame; the frame is sent when a message is not batched
+   * <p>
+   * The callback of a batched message is invoked as soon as the message is copied into the frame.
+   */
+  @Override
+  public void write(ByteBuffer buffer, boolean isBatched, Consumer<Throwable> callback) {
+    if (!SofhEncoder.append(frame, buffer, encodingCode)) {
+      if (frame.position() > 0) {
+        // frame is full; hand it to the transport and start another
+        sendFrame(true, null);
+        frame = ByteBuffer.allocateDirect(frameCapacity);
+      }
+      if (!SofhEncoder.append(frame, buffer, encodingCode)) {
+        // a message too large for a frame is sent alone
+        super.write(frame(buffer), isBatched, callback);
+        return;
+      }
+    }
+    if (isBatched) {
+      callback.accept(null);
+    } else {
+      sendFrame(false, callback);
+    }
+  }
+
+  private ByteBuffer frame(ByteBuffer buffer) {
+    final ByteBuffer framed = ByteBuffer.allocate(SofhEncoder.ENCODED_LENGTH + buffer.remaining());
+    SofhEncoder.append(framed, buffer, encodingCode);
+    framed.flip();
+    return framed;
+  }
+
+  private void sendFrame(boolean isBatched, Consumer<Throwable> callback) {
+    final ByteBuffer sending = frame;
+    sending.flip();
+    final RemoteEndpoint remote = getRemote();
+    remote.setBatchMode(isBatched ? BatchMode.ON : BatchMode.OFF);
+    remote.sendBytes(sending, new WriteCallback() {
+
+      @Override
+      public void writeFailed(Throwable x) {
+        sending.clear();
+        if (callback != null) {
+          callback.accept(x);
+        }
+      }
+
+      @Override
+      public void writeSuccess() {
+        sending.clear();
+        if (callback != null) {
+          callback.accept(null);
+        }
+      }
+    });
+  }
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.server.io.callback;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import io.fixprotocol.conga.buffer.BufferSupplier.BufferSupply;
+import io.fixprotocol.conga.buffer.RingBufferSupplier;
+import io.fixprotocol.conga.io.SofhDecoder;
+import io.fixprotocol.conga.io.SofhEncoder;
+import io.fixprotocol.conga.server.session.ServerSessions;
+
+/**
+ * TCP socket to communicate with an exchange client
+ * <p>
+ * Each message in either direction is preceded by a Simple Open Framing Header. Received messages
+ * are enqueued in a ring buffer for asynchronous processing, as for WebSocket transports. Outbound
+ * messages are copied into a write buffer; the buffer is written without blocking when a message
+ * that is not batched is written, and any remainder is written when the socket is writable.
+ * <p>
+ * Callbacks are invoked by the selector thread that owns the socket. Writes may be invoked on any
+ * thread.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class TcpExchangeSocket implements ExchangeSocket {
+
+  public static final int DEFAULT_BUFFER_CAPACITY = 64 * 1024;
+
+  private static final Consumer<Throwable> NO_CALLBACK = t -> {
+  };
+
+  private final SocketChannel channel;
+  private final short encodingCode;
+  private final io.fixprotocol.conga.session.Session fixSession;
+  private final AtomicBoolean isClosed = new AtomicBoolean();
+  private volatile SelectionKey key;
+  private final int maxMessageLength;
+  // callbacks of messages not yet written, guarded by this
+  private final List<Consumer<Throwable>> pendingCallbacks = new ArrayList<>();
+  private final String principal;
+  // accessed only by the selector thread
+  private final ByteBuffer readBuffer;
+  private final RingBufferSupplier ringBuffer;
+  // holds framed messages not yet written, guarded by this
+  private ByteBuffer writeBuffer;
+
+  /**
+   * Constructor
+   *
+   * @param sessions associates sessions to transports
+   * @param ringBuffer provides buffers to persist received messages
+   * @param principal identifies the peer
+   * @param channel connected channel
+   * @param encodingCode SOFH encoding type of outbound messages
+   */
+  public TcpExchangeSocket(ServerSessions sessions, RingBufferSupplier ringBuffer, String principal,
+      SocketChannel channel, short encodingCode) {
+    this.ringBuffer = ringBuffer;
+    this.principal = principal;
+    this.channel = channel;
+    this.encodingCode = encodingCode;
+    this.fixSession = sessions.getSession(principal);
+    this.readBuffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_CAPACITY);
+    this.maxMessageLength = Math.min(ringBuffer.getCapacity(),
+        DEFAULT_BUFFER_CAPACITY - SofhEncoder.ENCODED_LENGTH);
+    this.writeBuffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_CAPACITY);
+  }
+
+  /**
+   * Close the connection; pending writes fail
+   */
+  public void close() {
+    if (isClosed.compareAndSet(false, true)) {
+      final SelectionKey key = this.key;
+      if (key != null) {
+        key.cancel();
+      }
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // already closed
+      }
+      final List<Consumer<Throwable>> failed;
+      synchronized (this) {
+        failed = new ArrayList<>(pendingCallbacks);
+        pendingCallbacks.clear();
+        writeBuffer.clear();
+      }
+      final IOException cause = new IOException("Socket closed");
+      failed.forEach(c -> c.accept(cause));
+      fixSession.disconnected();
+    }
+  }
+
+  /**
+   * Write batched messages without blocking
+   */
+  public void flush() throws IOException {
+    synchronized (this) {
+      if (isClosed.get()) {
+        throw new IOException("Socket closed");
+      }
+      if (!writeBuffered()) {
+        setWriteInterest(true);
+      }
+    }
+  }
+
+  public String getPrincipal() {
+    return principal;
+  }
+
+  /**
+   * The socket was registered with a selector
+   *
+   * @param key selection key of the channel
+   */
+  public void onOpen(SelectionKey key) {
+    this.key = key;
+    this.fixSession.connected(this, principal);
+  }
+
+  /**
+   * The channel is readable; each complete message is enqueued
+   */
+  public void onReadable() {
+    try {
+      final int bytesRead = channel.read(readBuffer);
+      if (bytesRead < 0) {
+        close();
+        return;
+      }
+      readBuffer.flip();
+      int offset = readBuffer.position();
+      while (readBuffer.limit() - offset >= SofhEncoder.ENCODED_LENGTH) {
+        final int length = SofhDecoder.messageLength(readBuffer, offset);
+        if (length < 0 || length > maxMessageLength) {
+          // framing lost or message larger than a ring buffer slot; cannot recover the stream
+          close();
+          return;
+        }
+        final int messageOffset = offset + SofhEncoder.ENCODED_LENGTH;
+        if (readBuffer.limit() - messageOffset < length) {
+          break;
+        }
+        enqueue(messageOffset, length);
+        offset = messageOffset + length;
+      }
+      readBuffer.position(offset);
+      readBuffer.compact();
+    } catch (IOException e) {
+      close();
+    }
+  }
+
+  /**
+   * The channel is writable; writes remaining bytes and completes pending writes when done
+   */
+  public void onWritable() {
+    List<Consumer<Throwable>> completed = null;
+    try {
+      synchronized (this) {
+        if (writeBuffered()) {
+          setWriteInterest(false);
+          completed = new ArrayList<>(pendingCallbacks);
+          pendingCallbacks.clear();
+        }
+      }
+    } catch (IOException e) {
+      close();
+    }
+    if (completed != null) {
+      completed.forEach(c -> c.accept(null));
+    }
+  }
+
+  /**
+   * Synchronous send; waits until the message is written to the socket
+   *
+   * @param buffer holds a message
+   * @throws IOException if unable to send
+   */
+  public void send(ByteBuffer buffer) throws IOException {
+    try {
+      sendAsync(buffer).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      throw (cause instanceof IOException) ? (IOException) cause : new IOException(cause);
+    }
+  }
+
+  /**
+   * Asynchronous send
+   *
+   * @param buffer holds a message
+   * @return a Future to tell when the operations is complete
+   */
+  public Future<Void> sendAsync(ByteBuffer buffer) {
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+    write(buffer, false, t -> {
+      if (t == null) {
+        future.complete(null);
+      } else {
+        future.completeExceptionally(t);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Send as part of a batch; held until flushed
+   *
+   * @param buffer holds a message
+   * @throws IOException if unable to send
+   */
+  public void sendBatched(ByteBuffer buffer) throws IOException {
+    if (isClosed.get()) {
+      throw new IOException("Socket closed");
+    }
+    write(buffer, true, NO_CALLBACK);
+  }
+
+  @Override
+  public String toString() {
+    return "TcpExchangeSocket [principal=" + principal + "]";
+  }
+
+  /**
+   * Non-blocking write
+   * <p>
+   * The message is copied, so the callback of a batched message is invoked as soon as it is
+   * copied. When a message is not batched, all held messages are written, and the callback is
+   * invoked when the socket has accepted all of them.
+   *
+   * @param buffer holds a message
+   * @param isBatched if {@code true}, the message may be held for following messages
+   * @param callback invoked when the message is written or fails
+   */
+  public void write(ByteBuffer buffer, boolean isBatched, Consumer<Throwable> callback) {
+    boolean isComplete = false;
+    Throwable failure = null;
+    synchronized (this) {
+      if (isClosed.get()) {
+        failure = new IOException("Socket closed");
+      } else {
+        try {
+          append(buffer);
+          if (isBatched) {
+            isComplete = true;
+          } else if (writeBuffered()) {
+            isComplete = true;
+          } else {
+            pendingCallbacks.add(callback);
+            setWriteInterest(true);
+          }
+        } catch (IOException e) {
+          failure = e;
+        }
+      }
+    }
+    if (failure != null) {
+      close();
+      callback.accept(failure);
+    } else if (isComplete) {
+      callback.accept(null);
+    }
+  }
+
+  private void append(ByteBuffer buffer) throws IOException {
+    if (SofhEncoder.append(writeBuffer, buffer, encodingCode)) {
+      return;
+    }
+    writeBuffered();
+    if (SofhEncoder.append(writeBuffer, buffer, encodingCode)) {
+      return;
+    }
+    // the peer is not keeping up or the message is large; the outbound queue bounds the growth
+    final int required = writeBuffer.position() + SofhEncoder.ENCODED_LENGTH + buffer.remaining();
+    final ByteBuffer larger =
+        ByteBuffer.allocateDirect(Math.max(writeBuffer.capacity() * 2, required));
+    writeBuffer.flip();
+    larger.put(writeBuffer);
+    writeBuffer = larger;
+    SofhEncoder.append(writeBuffer, buffer, encodingCode);
+  }
+
+  private void enqueue(int offset, int length) {
+    final ByteBuffer message = readBuffer.duplicate();
+    message.limit(offset + length).position(offset);
+    final BufferSupply supply = ringBuffer.get();
+    if (null != supply.acquireAndCopy(message)) {
+      supply.setSource(principal);
+      supply.release();
+    } else {
+      // rejected under backpressure; counted by RingBufferSupplier
+    }
+  }
+
+  private void setWriteInterest(boolean isInterested) {
+    final SelectionKey key = this.key;
+    if (key != null && key.isValid()) {
+      final int ops = isInterested ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+          : SelectionKey.OP_READ;
+      if (key.interestOps() != ops) {
+        key.interestOps(ops);
+        key.selector().wakeup();
+      }
+    }
+  }
+
+  /**
+   * Writes as much of the write buffer as the socket accepts without blocking; invoked holding the
+   * lock
+   *
+   * @return {@code true} if the buffer was entirely written
+   */
+  private boolean writeBuffered() throws IOException {
+    if (writeBuffer.position() == 0) {
+      return true;
+    }
+    writeBuffer.flip();
+    try {
+      while (writeBuffer.hasRemaining()) {
+        if (channel.write(writeBuffer) == 0) {
+          break;
+        }
+      }
+      return !writeBuffer.hasRemaining();
+    } finally {
+      writeBuffer.compact();
+    }
+  }
+}
@@ -17,16 +17,22 @@ package io.fixprotocol.conga.server.io.callback;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
+import org.eclipse.jetty.websocket.api.BatchMode;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketError;
-import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketFrame;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import org.eclipse.jetty.websocket.api.extensions.Frame;
 
-import io.fixprotocol.conga.buffer.BufferSupplier.BufferSupply;
 import io.fixprotocol.conga.buffer.RingBufferSupplier;
 import io.fixprotocol.conga.server.session.ServerSessions;
 
@@ -48,14 +54,14 @@ import io.fixprotocol.conga.server.session.ServerSessions;
 @WebSocket
 public class TextExchangeSocket implements ExchangeSocket {
 
+  private final InboundFrameHandler frameHandler;
   private final String principal;
-  private final RingBufferSupplier ringBuffer;
   private Session webSocketSession;
   private final io.fixprotocol.conga.session.Session fixSession;
 
   public TextExchangeSocket(ServerSessions sessions, RingBufferSupplier ringBuffer,
       String principal) {
-    this.ringBuffer = ringBuffer;
+    this.frameHandler = new InboundFrameHandler(ringBuffer, principal);
     this.principal = principal;
     this.fixSession = sessions.getSession(principal);
   }
@@ -71,32 +77,73 @@ public class TextExchangeSocket implements ExchangeSocket {
     error.printStackTrace();
   }
 
-  @OnWebSocketMessage
-  public void onMessage(Session session, String text) {
-    byte[] bytes = text.getBytes();
-    BufferSupply supply = ringBuffer.get();
-    if (null != supply.acquireAndCopy(bytes, 0, bytes.length)) {
-      supply.setSource(principal);
-      supply.release();
-    } else {
-      // todo log error
+  /**
+   * Copies the payload of a data frame into the ring buffer
+   * <p>
+   * Frames are received rather than aggregated messages so that the payload is copied once, from
+   * the network buffer to a ring buffer slot. Text is copied as UTF-8 without decoding a String.
+   */
+  @OnWebSocketFrame
+  public void onFrame(Session session, Frame frame) {
+    if (!frameHandler.onFrame(frame)) {
+      session.close(StatusCode.MESSAGE_TOO_LARGE, "Message too large");
     }
   }
 
   @OnWebSocketConnect
   public void onOpen(Session session) {
     this.webSocketSession = session;
+    // Outbound frames are aggregated until flushed
+    session.getRemote().setBatchMode(BatchMode.ON);
     this.fixSession.connected(this, principal);
   }
 
+  @Override
+  public void flush() throws IOException {
+    webSocketSession.getRemote().flush();
+  }
+
   @Override
   public void send(ByteBuffer buffer) throws IOException {
-    webSocketSession.getRemote().sendBytes(buffer);
+    final RemoteEndpoint remote = webSocketSession.getRemote();
+    remote.sendBytes(buffer);
+    remote.flush();
   }
 
   @Override
   public Future<Void> sendAsync(ByteBuffer buffer) {
-    return webSocketSession.getRemote().sendBytesByFuture(buffer);
+    final RemoteEndpoint remote = webSocketSession.getRemote();
+    final Future<Void> future = remote.sendBytesByFuture(buffer);
+    try {
+      remote.flush();
+      return future;
+    } catch (IOException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  @Override
+  public void sendBatched(ByteBuffer buffer) throws IOException {
+    webSocketSession.getRemote().sendBytes(buffer);
+  }
+
+  @Override
+  public void write(ByteBuffer buffer, boolean isBatched, Consumer<Throwable> callback) {
+    final RemoteEndpoint remote = webSocketSession.getRemote();
+    // only one write per session is started at a time, so the mode applies to this frame
+    remote.setBatchMode(isBatched ? BatchMode.ON : BatchMode.OFF);
+    remote.sendBytes(buffer, new WriteCallback() {
+
+      @Override
+      public void writeFailed(Throwable x) {
+        callback.accept(x);
+      }
+
+      @Override
+      public void writeSuccess() {
+        callback.accept(null);
+      }
+    });
   }
 
   @Override
@@ -15,19 +15,24 @@
 
 package io.fixprotocol.conga.server.match;
 
-import java.math.BigDecimal;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.time.Clock;
-import java.time.ZoneId;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 
 import io.fixprotocol.conga.messages.appl.CxlRejReason;
 import io.fixprotocol.conga.messages.appl.ExecType;
+import io.fixprotocol.conga.messages.appl.FixedId;
 import io.fixprotocol.conga.messages.appl.MutableExecutionReport;
 import io.fixprotocol.conga.messages.appl.MutableMessage;
 import io.fixprotocol.conga.messages.appl.MutableOrderCancelReject;
@@ -52,8 +57,15 @@ import io.fixprotocol.conga.messages.appl.MutableExecutionReport.MutableFill;
  * <li>No market phases or schedule; only continuous trading
  * <li>No self-match protection
  * <li>No permission system; test users are assumed to be authorized. User IDs may be transient.
- * <li>There is no pre-configured symbol list; order books are created on demand
+ * <li>There is no pre-configured symbol list; order books are created on demand with the default
+ * price scale unless defined by {@link #defineSymbol(String, int, long)}, or orders for undefined
+ * symbols are rejected if {@link #setUndefinedSymbolRejected(boolean)} is set
+ * <li>Symbols are limited to {@link FixedId#LENGTH} ASCII characters, as in the SBE schema
  * </ul>
+ * Order books are held in an array indexed by a symbol ID. A symbol is resolved to its ID from its
+ * packed form, as read from the fixed-width symbol field of a message, so routing a message to its
+ * book does not create a {@code String}.
+ * <p>
  * Not thread-safe; assumes that matching occurs on a single thread.
  * 
  * @author Don Mendelson
@@ -61,67 +73,197 @@ import io.fixprotocol.conga.messages.appl.MutableExecutionReport.MutableFill;
  */
 public class MatchEngine {
 
-  private final Clock clock;
+  /**
+   * Returns a time source of nanoseconds since the epoch that does not allocate
+   * 
+   * <p>
+   * The system clock is read once. Later readings advance by the monotonic system timer, so they
+   * do not follow adjustments to the system clock.
+   * 
+   * @return a nanosecond time source
+   */
+  public static LongSupplier systemNanoClock() {
+    final Instant start = Clock.systemUTC().instant();
+    final long startNanos = TimeUnit.SECONDS.toNanos(start.getEpochSecond()) + start.getNano();
+    final long startTimer = System.nanoTime();
+    return () -> startNanos + (System.nanoTime() - startTimer);
+  }
+
+  private static final char EXEC_ID_PREFIX = 'E';
+  private static final int INITIAL_FILL_CAPACITY = 64;
+  private static final int INITIAL_SYMBOL_CAPACITY = 64;
+
+  private final StringBuilder clOrdIdBuffer = new StringBuilder(16);
+  private final StringBuilder execIdBuffer = new StringBuilder(16);
   private int executionSequence = 0;
-  private final Map<String, OrderBook> orderBooks = new HashMap<>();
+  private long[] fillPxs = new long[INITIAL_FILL_CAPACITY];
+  private int[] fillQtys = new int[INITIAL_FILL_CAPACITY];
+  // orders that left the book, linked by next, to be reused
+  private WorkingOrder freeOrders = null;
+  private boolean isUndefinedSymbolRejected = false;
+  private final LongSupplier nanoClock;
+  // indexed by symbol ID
+  private OrderBook[] orderBooks = new OrderBook[INITIAL_SYMBOL_CAPACITY];
+  private final StringBuilder orderIdBuffer = new StringBuilder(16);
   private int orderSequence = 0;
+  private final List<MutableMessage> responses = new ArrayList<>();
+  private final Consumer<MutableMessage> responseCollector = responses::add;
   private final MutableResponseMessageFactory responsMessageFactory;
+  private final SymbolDirectory symbols = new SymbolDirectory();
 
   /**
    * Constructor
    * 
    * <p>
-   * Defaults to system clock with UTC zone
+   * Defaults to {@link #systemNanoClock()}
    * 
    * @param responsMessageFactory generates messages for responses
    */
   public MatchEngine(MutableResponseMessageFactory responsMessageFactory) {
-    this.responsMessageFactory = responsMessageFactory;
-    this.clock = Clock.system(ZoneId.of("Z"));
+    this(responsMessageFactory, systemNanoClock());
   }
 
   /**
    * Constructor
    * 
+   * <p>
+   * An {@code Instant} is allocated for each reading of the clock.
+   * 
    * @param messageFactory generates messages for responses
    * @param clock time provider for testing
    */
   public MatchEngine(MutableResponseMessageFactory messageFactory, Clock clock) {
+    this(messageFactory, () -> {
+      final Instant instant = clock.instant();
+      return TimeUnit.SECONDS.toNanos(instant.getEpochSecond()) + instant.getNano();
+    });
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param messageFactory generates messages for responses
+   * @param nanoClock time provider of nanoseconds since the epoch
+   */
+  public MatchEngine(MutableResponseMessageFactory messageFactory, LongSupplier nanoClock) {
     this.responsMessageFactory = messageFactory;
-    this.clock = clock;
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Creates an order book for a symbol with its own price scale and tick size
+   * 
+   * <p>
+   * Books for symbols that are not defined are created on demand with
+   * {@link OrderBook#DEFAULT_PRICE_SCALE} and {@link OrderBook#DEFAULT_TICK_SIZE}.
+   * 
+   * @param symbol security identifier
+   * @param priceScale number of decimal places of prices
+   * @param tickSize minimum price increment in units of the price scale
+   * @throws IllegalArgumentException if an order book already exists for the symbol, the symbol
+   *         is longer than {@link FixedId#LENGTH} ASCII characters, or the parameters are invalid
+   */
+  public void defineSymbol(String symbol, int priceScale, long tickSize) {
+    final OrderBook orderBook =
+        new OrderBook(priceScale, tickSize, OrderBook.DEFAULT_LEVEL_CAPACITY);
+    addOrderBook(symbol, orderBook);
+  }
+
+  /**
+   * Returns the symbols of all order books
+   * 
+   * @return symbols in the order their books were created or restored
+   */
+  public List<String> getSymbols() {
+    final List<String> list = new ArrayList<>(symbols.size());
+    for (int id = 0; id < symbols.size(); id++) {
+      list.add(symbols.getSymbol(id));
+    }
+    return list;
+  }
+
+  /**
+   * Tells whether orders for symbols that are not defined are rejected
+   * 
+   * @return {@code true} if orders for undefined symbols are rejected, or {@code false} if order
+   *         books are created on demand
+   */
+  public boolean isUndefinedSymbolRejected() {
+    return isUndefinedSymbolRejected;
   }
 
   /**
    * Update order book with order cancel request and return response messages
    * 
+   * <p>
+   * The returned list is reused; it is only valid until the next invocation of this MatchEngine.
+   * Since a message factory may reuse flyweights,
+   * {@link #onCancelRequest(String, OrderCancelRequest, Consumer)} is preferred.
+   * 
    * @param source originator of the cancel request
    * @param cancel cancel request
    * @return a list of responses that contains either execution report if the request was successful
    *         or a cancel reject if the order was not in the order book
    */
   public List<MutableMessage> onCancelRequest(String source, OrderCancelRequest cancel) {
-    List<MutableMessage> responses = new ArrayList<>();
-    var orderBook = orderBooks.get(cancel.getSymbol());
+    responses.clear();
+    onCancelRequest(source, cancel, responseCollector);
+    return responses;
+  }
+
+  /**
+   * Update order book with order cancel request and deliver response messages
+   * 
+   * @param source originator of the cancel request
+   * @param cancel cancel request
+   * @param responseConsumer receives either execution report if the request was successful or a
+   *        cancel reject if the order was not in the order book
+   */
+  public void onCancelRequest(String source, OrderCancelRequest cancel,
+      Consumer<MutableMessage> responseConsumer) {
+    final int symbolId = findSymbolId(cancel);
+    var orderBook = symbolId != SymbolDirectory.NOT_FOUND ? orderBooks[symbolId] : null;
     boolean found = false;
     if (null != orderBook) {
-      var order = orderBook.removeOrder(cancel.getSide(), cancel.getClOrdId(), source);
+      var order = removeOrder(orderBook, source, cancel);
       if (null != order) {
         order.close();
         MutableExecutionReport executionReport = populateExecutionReportCanceled(source, order);
-        responses.add(executionReport);
+        responseConsumer.accept(executionReport);
+        releaseOrder(order);
         found = true;
       }
     }
     if (!found) {
       final MutableOrderCancelReject cancelReject =
           populateCancelRejectUnknownOrder(source, cancel);
-      responses.add(cancelReject);
+      responseConsumer.accept(cancelReject);
     }
+  }
+
+  /**
+   * Match buy and sell orders, given a new order, and return response messages
+   * 
+   * <p>
+   * The returned list is reused; it is only valid until the next invocation of this MatchEngine.
+   * Since a message factory may reuse flyweights,
+   * {@link #onOrder(String, NewOrderSingle, Consumer)} is preferred.
+   * 
+   * @param source originator of the new order
+   * @param order an order to match
+   * @return a list of responses possibly containing one or more executions when orders were
+   *         matched. If no matches occurred, then one execution report is returned for the new
+   *         order.
+   * @see #onOrder(String, NewOrderSingle, Consumer)
+   */
+  public List<MutableMessage> onOrder(String source, NewOrderSingle order) {
+    responses.clear();
+    onOrder(source, order, responseCollector);
     return responses;
   }
 
   /**
-   * Match buy and sell orders, given a new order
+   * Match buy and sell orders, given a new order, and deliver response messages
    * 
    * <p>
    * First, this MatchEngine attempts to match the new order with orders resting in the book. Zero
@@ -130,77 +272,236 @@ public class MatchEngine {
    * <p>
    * If the order is not a market order, which is considered immediate-or-cancel, and leaves
    * quantity is greater than zero after all matches, the new order is entered into the book.
+   * <p>
+   * Each response is delivered as soon as it is populated, before the next response message is
+   * requested from the message factory. In steady state, this MatchEngine does not allocate for an
+   * order: the state of an order is reused once it leaves the book, ClOrdId is held in packed form
+   * unless it cannot be packed, the symbol is shared with the symbol directory, fills are
+   * accumulated in primitive arrays that are reused, and identifiers are formatted in reusable
+   * character buffers. That does not cover allocation by accessors of the order message or by the
+   * message factory.
    * 
    * @param source originator of the new order
    * @param order an order to match
-   * @return a list of responses possibly containing one or more executions when orders were
-   *         matched. If no matches occurred, then one execution report is returned for the new
-   *         order.
+   * @param responseConsumer receives one or more executions when orders were matched. If no
+   *        matches occurred, then one execution report is delivered for the new order. If the
+   *        symbol is invalid, or undefined and undefined symbols are rejected, or the limit price
+   *        has more decimal places than the book or is not a multiple of its tick size, a rejected
+   *        execution report is delivered.
    */
-  public List<MutableMessage> onOrder(String source, NewOrderSingle order) {
-    List<MutableMessage> responses = new ArrayList<>();
-    var orderBook = orderBooks.get(order.getSymbol());
-    if (null == orderBook) {
-      orderBook = new OrderBook();
-      orderBooks.put(order.getSymbol(), orderBook);
+  public void onOrder(String source, NewOrderSingle order,
+      Consumer<MutableMessage> responseConsumer) {
+    final int symbolId = findOrAddSymbolId(order);
+    if (symbolId == SymbolDirectory.NOT_FOUND) {
+      responseConsumer.accept(populateExecutionReportRejected(source, order));
+      return;
     }
-    WorkingOrder workingOrder = new WorkingOrder(order, source, getOrderId(), clock.instant());
-    SortedSet<WorkingOrder> possibleMatches = orderBook.findMatches(workingOrder);
-    List<Integer> fillQtys = new ArrayList<>();
-    List<BigDecimal> fillPxs = new ArrayList<>();
-    int fillIndex = 0;
-    Iterator<WorkingOrder> matchesIter = possibleMatches.iterator();
-    while (matchesIter.hasNext()) {
-      WorkingOrder possibleMatch = matchesIter.next();
+    final OrderBook orderBook = orderBooks[symbolId];
+    // validate before matching so that an order is not rejected after it was filled
+    if (!isPriceValid(orderBook, order)) {
+      responseConsumer.accept(populateExecutionReportRejected(source, order));
+      return;
+    }
+    final long price =
+        order.getOrdType() != OrdType.Market ? order.getScaledPrice(orderBook.getPriceScale()) : 0;
+    final WorkingOrder workingOrder = acquireOrder().set(order, source,
+        symbols.getSymbol(symbolId), ++orderSequence, nanoClock.getAsLong(),
+        orderBook.getPriceScale(), price);
+    int fillCount = 0;
+    WorkingOrder possibleMatch;
+    while ((workingOrder.getLeavesQty() > 0)
+        && (possibleMatch = orderBook.findBestMatch(workingOrder)) != null) {
       final int fillQty = Math.min(workingOrder.getLeavesQty(), possibleMatch.getLeavesQty());
-      fillQtys.add(fillIndex, fillQty);
-      possibleMatch.execute(fillQtys.get(fillIndex));
-      workingOrder.execute(fillQtys.get(fillIndex));
-      fillPxs.add(fillIndex, possibleMatch.getPrice());
+      possibleMatch.execute(fillQty);
+      workingOrder.execute(fillQty);
+      if (fillCount == fillQtys.length) {
+        growFills();
+      }
+      fillQtys[fillCount] = fillQty;
+      fillPxs[fillCount] = possibleMatch.getScaledPrice();
 
       OrdStatus ordStatus =
           (possibleMatch.getLeavesQty() == 0) ? OrdStatus.Filled : OrdStatus.PartiallyFilled;
       MutableExecutionReport executionReport =
-          populateExecutionReportTrade(possibleMatch, fillQtys.subList(fillIndex, fillIndex + 1),
-              fillPxs.subList(fillIndex, fillIndex + 1), ordStatus);
-      responses.add(executionReport);
+          populateExecutionReportTrade(possibleMatch, fillCount, 1, ordStatus);
+      responseConsumer.accept(executionReport);
       if (possibleMatch.getLeavesQty() == 0) {
-        matchesIter.remove();
-      }
-      fillIndex++;
-
-      if (workingOrder.getLeavesQty() == 0) {
-        break;
+        orderBook.removeOrder(possibleMatch);
+        releaseOrder(possibleMatch);
       }
+      fillCount++;
     }
 
-    if ((workingOrder.getLeavesQty() > 0) && (workingOrder.getOrdType() != OrdType.Market)) {
+    final boolean isBooked =
+        (workingOrder.getLeavesQty() > 0) && (workingOrder.getOrdType() != OrdType.Market);
+    if (isBooked) {
       orderBook.addOrder(workingOrder);
     }
     if ((workingOrder.getLeavesQty() > 0) && (workingOrder.getOrdType() == OrdType.Market)) {
       workingOrder.close();
       MutableExecutionReport executionReport =
-          populateExecutionReportTrade(workingOrder, fillQtys, fillPxs, OrdStatus.Canceled);
-      responses.add(executionReport);
+          populateExecutionReportTrade(workingOrder, 0, fillCount, OrdStatus.Canceled);
+      responseConsumer.accept(executionReport);
     } else if (workingOrder.getCumQty() == 0) {
       MutableExecutionReport executionReport = populateExecutionReportAccepted(workingOrder);
-      responses.add(executionReport);
+      responseConsumer.accept(executionReport);
     } else {
       OrdStatus ordStatus =
           (workingOrder.getLeavesQty() == 0) ? OrdStatus.Filled : OrdStatus.PartiallyFilled;
       MutableExecutionReport executionReport =
-          populateExecutionReportTrade(workingOrder, fillQtys, fillPxs, ordStatus);
-      responses.add(executionReport);
+          populateExecutionReportTrade(workingOrder, 0, fillCount, ordStatus);
+      responseConsumer.accept(executionReport);
+    }
+    if (!isBooked) {
+      releaseOrder(workingOrder);
     }
-    return responses;
   }
 
-  private String getExecId() {
-    return "E" + ++executionSequence;
+  /**
+   * Replaces the state of this MatchEngine with a snapshot
+   * 
+   * <p>
+   * Existing order books are discarded. Must not be invoked while matching.
+   * 
+   * @param in source of a snapshot written by {@link #writeSnapshot(DataOutput)}
+   * @throws IOException if the snapshot cannot be read
+   */
+  public void readSnapshot(DataInput in) throws IOException {
+    final int orderSequence = in.readInt();
+    final int executionSequence = in.readInt();
+    final int bookCount = in.readInt();
+    final String[] bookSymbols = new String[bookCount];
+    final OrderBook[] books = new OrderBook[bookCount];
+    for (int i = 0; i < bookCount; i++) {
+      bookSymbols[i] = in.readUTF();
+      if (bookSymbols[i].isEmpty() || !FixedId.isPackable(bookSymbols[i])) {
+        throw new IOException("Invalid symbol in snapshot " + bookSymbols[i]);
+      }
+      books[i] = OrderBook.readSnapshot(in, bookSymbols[i]);
+    }
+    this.orderSequence = orderSequence;
+    this.executionSequence = executionSequence;
+    symbols.clear();
+    Arrays.fill(orderBooks, null);
+    for (int i = 0; i < bookCount; i++) {
+      addOrderBook(bookSymbols[i], books[i]);
+    }
+  }
+
+  /**
+   * Sets whether orders for symbols that are not defined are rejected
+   * 
+   * <p>
+   * By default, an order book is created on demand for the symbol of an order if it was not
+   * defined. Must not be invoked while matching.
+   * 
+   * @param isUndefinedSymbolRejected if {@code true}, orders for symbols that were not defined by
+   *        {@link #defineSymbol(String, int, long)} or restored from a snapshot are rejected
+   */
+  public void setUndefinedSymbolRejected(boolean isUndefinedSymbolRejected) {
+    this.isUndefinedSymbolRejected = isUndefinedSymbolRejected;
+  }
+
+  /**
+   * Writes the state of this MatchEngine
+   * 
+   * <p>
+   * State consists of order and execution sequences and, for every order book, its price scale
+   * and tick size and each resting order with its cumulative and leaves quantities, in priority
+   * order. Must be invoked on the matching thread. To avoid delaying matching by I/O, write to a
+   * buffer in memory and persist it on another thread.
+   * 
+   * @param out destination of snapshot
+   * @throws IOException if the snapshot cannot be written
+   */
+  public void writeSnapshot(DataOutput out) throws IOException {
+    out.writeInt(orderSequence);
+    out.writeInt(executionSequence);
+    out.writeInt(symbols.size());
+    for (int id = 0; id < symbols.size(); id++) {
+      out.writeUTF(symbols.getSymbol(id));
+      orderBooks[id].writeSnapshot(out);
+    }
+  }
+
+  /**
+   * Returns an order state to populate, reused if one is free
+   */
+  private WorkingOrder acquireOrder() {
+    final WorkingOrder order = freeOrders;
+    if (order == null) {
+      return new WorkingOrder();
+    }
+    freeOrders = order.next;
+    order.next = null;
+    return order;
+  }
+
+  private int addOrderBook(String symbol, OrderBook orderBook) {
+    final int id = symbols.add(symbol);
+    if (id == orderBooks.length) {
+      orderBooks = Arrays.copyOf(orderBooks, orderBooks.length * 2);
+    }
+    orderBooks[id] = orderBook;
+    return id;
+  }
+
+  /**
+   * Returns the symbol ID of an order, creating an order book on demand unless undefined symbols
+   * are rejected
+   */
+  private int findOrAddSymbolId(NewOrderSingle order) {
+    // zero if the symbol cannot be packed, which is never found
+    final long symbol = order.getSymbolAsLongOrZero();
+    final int id = symbols.getId(symbol);
+    if (id != SymbolDirectory.NOT_FOUND || isUndefinedSymbolRejected || symbol == 0) {
+      return id;
+    }
+    // a String is only created for the first order of a symbol
+    final String name = order.getSymbol();
+    if (!FixedId.isPackable(name) || FixedId.pack(name) != symbol) {
+      return SymbolDirectory.NOT_FOUND;
+    }
+    return addOrderBook(name, new OrderBook());
+  }
+
+  private int findSymbolId(OrderCancelRequest cancel) {
+    return symbols.getId(cancel.getSymbolAsLongOrZero());
   }
 
-  private String getOrderId() {
-    return "O" + ++orderSequence;
+  private CharSequence getClOrdId(WorkingOrder order) {
+    clOrdIdBuffer.setLength(0);
+    return order.appendClOrdId(clOrdIdBuffer);
+  }
+
+  private CharSequence getExecId() {
+    execIdBuffer.setLength(0);
+    return execIdBuffer.append(EXEC_ID_PREFIX).append(++executionSequence);
+  }
+
+  private CharSequence getOrderId(WorkingOrder order) {
+    orderIdBuffer.setLength(0);
+    return order.appendOrderId(orderIdBuffer);
+  }
+
+  private void growFills() {
+    fillQtys = Arrays.copyOf(fillQtys, fillQtys.length * 2);
+    fillPxs = Arrays.copyOf(fillPxs, fillPxs.length * 2);
+  }
+
+  /**
+   * Tells whether the limit price of an order may be booked
+   */
+  private static boolean isPriceValid(OrderBook orderBook, NewOrderSingle order) {
+    if (order.getOrdType() == OrdType.Market) {
+      return true;
+    }
+    try {
+      return orderBook.isOnTick(order.getScaledPrice(orderBook.getPriceScale()));
+    } catch (ArithmeticException e) {
+      // more decimal places than the price scale of the book
+      return false;
+    }
   }
 
   private MutableOrderCancelReject populateCancelRejectUnknownOrder(String source,
@@ -211,23 +512,23 @@ public class MatchEngine {
     cancelReject.setOrderId("None");
     cancelReject.setOrdStatus(OrdStatus.Rejected);
     cancelReject.setSource(source);
-    cancelReject.setTransactTime(clock.instant());
+    cancelReject.setTransactTime(nanoClock.getAsLong());
     return cancelReject;
   }
 
   private MutableExecutionReport populateExecutionReportAccepted(WorkingOrder workingOrder) {
     MutableExecutionReport executionReport = responsMessageFactory.getExecutionReport();
-    executionReport.setClOrdId(workingOrder.getClOrdId());
+    executionReport.setClOrdId(getClOrdId(workingOrder));
     executionReport.setCumQty(workingOrder.getCumQty());
     executionReport.setExecId(getExecId());
     executionReport.setExecType(ExecType.New);
     executionReport.setLeavesQty(workingOrder.getLeavesQty());
-    executionReport.setOrderId(workingOrder.getOrderId());
+    executionReport.setOrderId(getOrderId(workingOrder));
     executionReport.setOrdStatus(OrdStatus.New);
     executionReport.setSide(workingOrder.getSide());
     executionReport.setSymbol(workingOrder.getSymbol());
     executionReport.setSource(workingOrder.getSource());
-    executionReport.setTransactTime(clock.instant());
+    executionReport.setTransactTime(nanoClock.getAsLong());
     executionReport.setFillCount(0);
     return executionReport;
   }
@@ -235,45 +536,91 @@ public class MatchEngine {
   private MutableExecutionReport populateExecutionReportCanceled(String source,
       WorkingOrder order) {
     MutableExecutionReport executionReport = responsMessageFactory.getExecutionReport();
-    executionReport.setClOrdId(order.getClOrdId());
+    executionReport.setClOrdId(getClOrdId(order));
     executionReport.setCumQty(order.getCumQty());
     executionReport.setExecId(getExecId());
     executionReport.setExecType(ExecType.Canceled);
     executionReport.setLeavesQty(order.getLeavesQty());
-    executionReport.setOrderId(order.getOrderId());
+    executionReport.setOrderId(getOrderId(order));
     executionReport.setOrdStatus(OrdStatus.Canceled);
     executionReport.setSide(order.getSide());
     executionReport.setSymbol(order.getSymbol());
     executionReport.setSource(source);
-    executionReport.setTransactTime(clock.instant());
+    executionReport.setTransactTime(nanoClock.getAsLong());
+    return executionReport;
+  }
+
+  private MutableExecutionReport populateExecutionReportRejected(String source,
+      NewOrderSingle order) {
+    MutableExecutionReport executionReport = responsMessageFactory.getExecutionReport();
+    executionReport.setClOrdId(order.getClOrdId());
+    executionReport.setCumQty(0);
+    executionReport.setExecId(getExecId());
+    executionReport.setExecType(ExecType.Rejected);
+    executionReport.setLeavesQty(0);
+    executionReport.setOrderId("None");
+    executionReport.setOrdStatus(OrdStatus.Rejected);
+    executionReport.setSide(order.getSide());
+    executionReport.setSymbol(order.getSymbol());
+    executionReport.setSource(source);
+    executionReport.setTransactTime(nanoClock.getAsLong());
+    executionReport.setFillCount(0);
     return executionReport;
   }
 
+  /**
+   * Populates a trade execution report with a range of accumulated fills
+   */
   private MutableExecutionReport populateExecutionReportTrade(WorkingOrder workingOrder,
-      List<Integer> fillQtys, List<BigDecimal> fillPxs, OrdStatus ordStatus) {
+      int fillOffset, int fillCount, OrdStatus ordStatus) {
     MutableExecutionReport executionReport = responsMessageFactory.getExecutionReport();
-    executionReport.setClOrdId(workingOrder.getClOrdId());
+    executionReport.setClOrdId(getClOrdId(workingOrder));
     executionReport.setCumQty(workingOrder.getCumQty());
     executionReport.setExecId(getExecId());
     executionReport.setExecType(ExecType.Trade);
     executionReport.setLeavesQty(workingOrder.getLeavesQty());
-    executionReport.setOrderId(workingOrder.getOrderId());
+    executionReport.setOrderId(getOrderId(workingOrder));
     executionReport.setOrdStatus(ordStatus);
     executionReport.setSide(workingOrder.getSide());
     executionReport.setSymbol(workingOrder.getSymbol());
     executionReport.setSource(workingOrder.getSource());
-    executionReport.setTransactTime(clock.instant());
-    executionReport.setFillCount(fillQtys.size());
-    for (int i = 0; i < fillQtys.size(); i++) {
+    executionReport.setTransactTime(nanoClock.getAsLong());
+    executionReport.setFillCount(fillCount);
+    for (int i = fillOffset; i < fillOffset + fillCount; i++) {
       MutableFill fill = executionReport.nextFill();
-      fill.setFillPx(fillPxs.get(i));
-      fill.setFillQty(fillQtys.get(i));
+      fill.setFillPx(fillPxs[i], workingOrder.getPriceScale());
+      fill.setFillQty(fillQtys[i]);
     }
     return executionReport;
   }
 
+  /**
+   * Makes the state of an order that left the book, and whose responses were delivered, available
+   * for reuse
+   */
+  private void releaseOrder(WorkingOrder order) {
+    order.next = freeOrders;
+    freeOrders = order;
+  }
+
+  /**
+   * Removes the order to cancel, found by its packed ClOrdId unless it cannot be packed
+   */
+  private static WorkingOrder removeOrder(OrderBook orderBook, String source,
+      OrderCancelRequest cancel) {
+    final long clOrdId = cancel.getClOrdIdAsLongOrZero();
+    if (clOrdId == 0) {
+      return orderBook.removeOrder(cancel.getSide(), cancel.getClOrdId(), source);
+    }
+    return orderBook.removeOrder(cancel.getSide(), clOrdId, source);
+  }
+
   Map<String, OrderBook> getOrderBooks() {
-    return Collections.unmodifiableMap(orderBooks);
+    final Map<String, OrderBook> books = new HashMap<>();
+    for (int id = 0; id < symbols.size(); id++) {
+      books.put(symbols.getSymbol(id), orderBooks[id]);
+    }
+    return Collections.unmodifiableMap(books);
   }
 
 }
@@ -15,69 +15,426 @@
 
 package io.fixprotocol.conga.server.match;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.NavigableSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
+import io.fixprotocol.conga.messages.appl.FixedId;
+import io.fixprotocol.conga.messages.appl.OrdType;
 import io.fixprotocol.conga.messages.appl.Side;
 
 /**
  * Limit order book
- * 
+ *
+ * <p>
+ * Each side of the book is an array of price levels indexed by price in ticks, and each price level
+ * holds a queue of orders in time priority. A cursor tracks the best price of each side. Adding an
+ * order, or removing one that is known, is a constant time operation. Matching walks price levels
+ * from the best price outward.
+ * <p>
+ * The range of prices covered by the array of a side grows on demand, up to a limit. When it is
+ * empty, its range is re-centered on the price of the next order. Prices that the array cannot
+ * cover are held in a sparse sorted map instead, so any price on the tick grid may be booked; only
+ * those outlying prices cost a tree lookup and allocation.
+ * <p>
+ * Prices are fixed-point values at the scale of the book so that they are compared without
+ * allocation. {@code BigDecimal} prices are only produced for display.
+ * <p>
+ * Resting orders are also indexed by source and ClOrdId so that an order to cancel is found in
+ * constant time rather than by scanning the book. ClOrdId is keyed in packed form unless it cannot
+ * be packed. It is expected to be unique per source on each side of the book; if it is not, every
+ * order is indexed and the earliest that remains is found first.
  * <p>
  * Not thread-safe; it is assumed that order matching is single-threaded.
- * 
+ *
  * @author Don Mendelson
  *
  */
 class OrderBook {
 
-  private final NavigableSet<WorkingOrder> bids;
-  private final NavigableSet<WorkingOrder> offers;
+  /**
+   * Array of price levels for one side of the book
+   *
+   * <p>
+   * Levels outside the range of the array, when it cannot grow to cover them, are held in a sparse
+   * sorted map. Every key of the map is outside the range of the array.
+   */
+  private class BookSide {
+
+    // tick value of levels[0]
+    private long baseTicks = 0;
+    // index of best non-empty level, or -1 if this side is empty
+    private int best = -1;
+    private final boolean isDescending;
+    private int levelCount = 0;
+    private PriceLevel[] levels;
+    // non-empty levels beyond the range of levels, by ticks
+    private final TreeMap<Long, PriceLevel> overflow = new TreeMap<>();
+    // resting orders by source and ClOrdId
+    private final OrderIndex orderIndex = new OrderIndex();
+
+    BookSide(boolean isDescending, int levelCapacity) {
+      this.isDescending = isDescending;
+      this.levels = new PriceLevel[levelCapacity];
+    }
+
+    void add(WorkingOrder order) {
+      final long ticks = toTicks(order);
+      PriceLevel level = overflow.isEmpty() ? null : overflow.get(ticks);
+      if (level == null) {
+        final int index = indexOf(ticks);
+        if (index != -1) {
+          level = levels[index];
+          if (level == null) {
+            level = new PriceLevel();
+            levels[index] = level;
+          }
+          if (level.isEmpty()) {
+            level.setTicks(ticks);
+            levelCount++;
+            if (best == -1 || isBetter(index, best)) {
+              best = index;
+            }
+          }
+        } else {
+          level = new PriceLevel();
+          level.setTicks(ticks);
+          overflow.put(ticks, level);
+        }
+      }
+      level.add(order);
+      orderIndex.add(order);
+    }
+
+    PriceLevel bestLevel() {
+      final PriceLevel level = best != -1 ? levels[best] : null;
+      if (overflow.isEmpty()) {
+        return level;
+      }
+      final PriceLevel far = overflow.get(isDescending ? overflow.lastKey() : overflow.firstKey());
+      if (level == null) {
+        return far;
+      }
+      final boolean isFarBetter = isDescending ? far.getTicks() > level.getTicks()
+          : far.getTicks() < level.getTicks();
+      return isFarBetter ? far : level;
+    }
+
+    void clear() {
+      for (int i = 0; i < levels.length; i++) {
+        if (levels[i] != null) {
+          levels[i].clear();
+        }
+      }
+      for (PriceLevel level : overflow.values()) {
+        level.clear();
+      }
+      overflow.clear();
+      best = -1;
+      levelCount = 0;
+      orderIndex.clear();
+    }
+
+    boolean contains(WorkingOrder order) {
+      final PriceLevel level = order.level;
+      if (level == null) {
+        return false;
+      }
+      final long index = level.getTicks() - baseTicks;
+      if (index >= 0 && index < levels.length) {
+        return levels[(int) index] == level;
+      }
+      return !overflow.isEmpty() && overflow.get(level.getTicks()) == level;
+    }
+
+    WorkingOrder find(long clOrdId, String userId) {
+      return orderIndex.find(userId, clOrdId);
+    }
+
+    WorkingOrder find(String clOrdId, String userId) {
+      // the index only holds IDs that cannot be packed as strings
+      return FixedId.isPackable(clOrdId) ? orderIndex.find(userId, FixedId.pack(clOrdId))
+          : orderIndex.find(userId, clOrdId);
+    }
+
+    boolean remove(WorkingOrder order) {
+      if (!contains(order)) {
+        return false;
+      }
+      final PriceLevel level = order.level;
+      level.remove(order);
+      orderIndex.remove(order);
+      if (level.isEmpty()) {
+        final long index = level.getTicks() - baseTicks;
+        if (index >= 0 && index < levels.length) {
+          levelCount--;
+          if (index == best) {
+            best = nextBest((int) index);
+          }
+        } else {
+          overflow.remove(level.getTicks());
+        }
+      }
+      return true;
+    }
+
+    SortedSet<WorkingOrder> toSortedSet(Comparator<WorkingOrder> comparator,
+        WorkingOrder limit) {
+      final TreeSet<WorkingOrder> orders = new TreeSet<>(comparator);
+      for (PriceLevel level : levelsInPriority()) {
+        if (limit != null && !isCrossed(level.first(), limit)) {
+          break;
+        }
+        for (WorkingOrder order = level.first(); order != null; order = order.next) {
+          orders.add(order);
+        }
+      }
+      return orders;
+    }
+
+    /**
+     * Writes resting orders from the best price outward, in time priority within a price
+     */
+    void writeSnapshot(DataOutput out) throws IOException {
+      final List<PriceLevel> priorityLevels = levelsInPriority();
+      int size = 0;
+      for (PriceLevel level : priorityLevels) {
+        size += level.size();
+      }
+      out.writeInt(size);
+      for (PriceLevel level : priorityLevels) {
+        for (WorkingOrder order = level.first(); order != null; order = order.next) {
+          order.writeSnapshot(out);
+        }
+      }
+    }
+
+    /**
+     * Moves levels from overflow that are within the range of levels
+     */
+    private void absorbOverflow() {
+      if (overflow.isEmpty()) {
+        return;
+      }
+      final Iterator<PriceLevel> iter = overflow
+          .subMap(baseTicks, true, baseTicks + levels.length - 1, true).values().iterator();
+      while (iter.hasNext()) {
+        final PriceLevel level = iter.next();
+        final int index = (int) (level.getTicks() - baseTicks);
+        levels[index] = level;
+        levelCount++;
+        if (best == -1 || isBetter(index, best)) {
+          best = index;
+        }
+        iter.remove();
+      }
+    }
+
+    /**
+     * Grows levels to cover a price
+     *
+     * @return {@code false} if the range would exceed MAX_LEVEL_CAPACITY
+     */
+    private boolean grow(long ticks) {
+      final long low = Math.min(baseTicks, ticks);
+      final long high = Math.max(baseTicks + levels.length - 1, ticks);
+      final long span = high - low + 1;
+      if (span <= 0 || span > MAX_LEVEL_CAPACITY) {
+        return false;
+      }
+      int capacity = levels.length;
+      while (capacity < span) {
+        capacity <<= 1;
+      }
+      // leave headroom in the direction of growth
+      final long newBaseTicks = (ticks < baseTicks) ? high - capacity + 1 : low;
+      final int shift = (int) (baseTicks - newBaseTicks);
+      final PriceLevel[] newLevels = new PriceLevel[capacity];
+      System.arraycopy(levels, 0, newLevels, shift, levels.length);
+      levels = newLevels;
+      baseTicks = newBaseTicks;
+      if (best != -1) {
+        best += shift;
+      }
+      absorbOverflow();
+      return true;
+    }
+
+    /**
+     * Returns the index of a price in levels, or -1 if it is beyond the range that levels may
+     * cover
+     */
+    private int indexOf(long ticks) {
+      if (levelCount == 0) {
+        baseTicks = ticks - levels.length / 2;
+        absorbOverflow();
+      }
+      final long offset = ticks - baseTicks;
+      if ((offset < 0 || offset >= levels.length) && !grow(ticks)) {
+        return -1;
+      }
+      return (int) (ticks - baseTicks);
+    }
+
+    private boolean isBetter(int index, int other) {
+      return isDescending ? index > other : index < other;
+    }
+
+    /**
+     * Returns non-empty levels from the best price outward
+     */
+    private List<PriceLevel> levelsInPriority() {
+      final List<PriceLevel> priorityLevels = new ArrayList<>();
+      final Iterator<PriceLevel> far =
+          (isDescending ? overflow.descendingMap() : overflow).values().iterator();
+      PriceLevel next = far.hasNext() ? far.next() : null;
+      // overflow levels better than the range of levels come first
+      while (next != null && (isDescending ? next.getTicks() >= baseTicks + levels.length
+          : next.getTicks() < baseTicks)) {
+        priorityLevels.add(next);
+        next = far.hasNext() ? far.next() : null;
+      }
+      for (int i = best; i >= 0 && i < levels.length; i = nextIndex(i)) {
+        if (levels[i] != null && !levels[i].isEmpty()) {
+          priorityLevels.add(levels[i]);
+        }
+      }
+      while (next != null) {
+        priorityLevels.add(next);
+        next = far.hasNext() ? far.next() : null;
+      }
+      return priorityLevels;
+    }
+
+    private int nextBest(int index) {
+      if (levelCount == 0) {
+        return -1;
+      }
+      for (int i = nextIndex(index); i >= 0 && i < levels.length; i = nextIndex(i)) {
+        if (levels[i] != null && !levels[i].isEmpty()) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private int nextIndex(int index) {
+      return isDescending ? index - 1 : index + 1;
+    }
+  }
+
+  /**
+   * Default number of decimal places of prices, consistent with the SBE price type
+   */
+  public static final int DEFAULT_PRICE_SCALE = 2;
+
+  /**
+   * Default minimum price increment, in units of the price scale; one cent at the default scale
+   */
+  public static final long DEFAULT_TICK_SIZE = 1;
+
+  /**
+   * Default number of price levels initially allocated for each side
+   */
+  public static final int DEFAULT_LEVEL_CAPACITY = 1024;
+
+  /**
+   * Maximum number of price levels in the array of each side; prices beyond its range are held
+   * sparsely
+   */
+  public static final int MAX_LEVEL_CAPACITY = 1 << 20;
+
+  // Descending order by price, ascending order by entry time
+  private static final Comparator<WorkingOrder> BID_COMPARATOR =
+      ((Comparator<WorkingOrder>) (o1, o2) -> Long.compare(o2.getScaledPrice(),
+          o1.getScaledPrice())).thenComparingLong(WorkingOrder::getEntryTimeNanos);
+
+  // Ascending order by price, ascending order by entry time
+  private static final Comparator<WorkingOrder> OFFER_COMPARATOR =
+      ((Comparator<WorkingOrder>) (o1, o2) -> Long.compare(o1.getScaledPrice(),
+          o2.getScaledPrice())).thenComparingLong(WorkingOrder::getEntryTimeNanos);
+
+  /**
+   * Reads an order book written by {@link #writeSnapshot(DataOutput)}
+   *
+   * <p>
+   * Orders are added in the order written, which restores their time priority.
+   *
+   * @param in source of snapshot
+   * @param symbol security identifier of the book
+   * @return an order book with restored resting orders
+   * @throws IOException if the snapshot cannot be read
+   */
+  static OrderBook readSnapshot(DataInput in, String symbol) throws IOException {
+    final int priceScale = in.readInt();
+    final long tickSize = in.readLong();
+    final OrderBook orderBook = new OrderBook(priceScale, tickSize, DEFAULT_LEVEL_CAPACITY);
+    for (Side side : new Side[] {Side.Buy, Side.Sell}) {
+      final int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        orderBook.addOrder(WorkingOrder.readSnapshot(in, symbol, side, priceScale));
+      }
+    }
+    return orderBook;
+  }
+
+  private final BookSide bids;
+  private final BookSide offers;
+  private final int priceScale;
+  private final long tickSize;
 
   /**
    * Constructor
-   * 
-   * By default, orders are sorted by price and entry time
+   *
+   * By default, prices have {@link #DEFAULT_PRICE_SCALE} decimal places and are in increments of
+   * {@link #DEFAULT_TICK_SIZE}
    */
   public OrderBook() {
-    this(
-        // Descending order by price, ascending order by entry time
-        ((Comparator<WorkingOrder>) (o1, o2) -> o2.getPrice().compareTo(o1.getPrice())).thenComparing(WorkingOrder::getEntryTime),
-        // Ascending order by price, ascending order by entry time
-        Comparator.comparing(WorkingOrder::getPrice).thenComparing(WorkingOrder::getEntryTime));
+    this(DEFAULT_PRICE_SCALE, DEFAULT_TICK_SIZE, DEFAULT_LEVEL_CAPACITY);
   }
 
-
   /**
-   * Constructor 
-   * @param bidComparator prioritizes bids
-   * @param offerComparator prioritizes offers
+   * Constructor
+   *
+   * @param priceScale number of decimal places of prices. Orders added to this OrderBook must
+   *        hold their price at the same scale.
+   * @param tickSize minimum price increment in units of the price scale. Limit prices must be a
+   *        multiple of tick size.
+   * @param levelCapacity number of price levels initially allocated for each side
    */
-  public OrderBook(Comparator<WorkingOrder> bidComparator,
-      Comparator<WorkingOrder> offerComparator) {
-    this.bids = new TreeSet<WorkingOrder>(bidComparator);
-    this.offers = new TreeSet<WorkingOrder>(offerComparator);
+  public OrderBook(int priceScale, long tickSize, int levelCapacity) {
+    if (priceScale < 0) {
+      throw new IllegalArgumentException("Price scale must not be negative");
+    }
+    if (tickSize <= 0) {
+      throw new IllegalArgumentException("Tick size must be positive");
+    }
+    if (levelCapacity <= 0 || levelCapacity > MAX_LEVEL_CAPACITY) {
+      throw new IllegalArgumentException("Invalid level capacity");
+    }
+    this.priceScale = priceScale;
+    this.tickSize = tickSize;
+    this.bids = new BookSide(true, levelCapacity);
+    this.offers = new BookSide(false, levelCapacity);
   }
 
   /**
    * Adds an order to this OrderBook
-   * 
+   *
    * @param order and order to book
+   * @throws IllegalArgumentException if the side is invalid, the price scale of the order differs
+   *         from this OrderBook, or the price is not a multiple of tick size
    */
   public void addOrder(WorkingOrder order) {
-    switch (order.getSide()) {
-      case Buy:
-        bids.add(order);
-        break;
-      case Sell:
-        offers.add(order);
-        break;
-      default:
-        throw new IllegalArgumentException("Invalid side");
-    }
+    getSide(order.getSide()).add(order);
   }
 
   /**
@@ -88,157 +445,219 @@ class OrderBook {
     offers.clear();
   }
 
+  /**
+   * Returns the order with highest priority on the opposite side of the book if it matches
+   *
+   * <p>
+   * Only price is significant for matching, not entry time. Market orders match any price.
+   *
+   * @param order an order to match
+   * @return the best potential match, or {@code null} if there is none
+   */
+  public WorkingOrder findBestMatch(WorkingOrder order) {
+    final PriceLevel level = getOppositeSide(order.getSide()).bestLevel();
+    if (level == null) {
+      return null;
+    }
+    final WorkingOrder first = level.first();
+    return isCrossed(first, order) ? first : null;
+  }
 
   /**
    * Returns potential matches on the opposite side of the book
-   * 
+   *
+   * <p>
+   * This is a snapshot for inspection; matching uses {@link #findBestMatch(WorkingOrder)}.
+   *
    * @param order an order to match
    * @return a Set of potential matches, based on price/time priority
    */
   public SortedSet<WorkingOrder> findMatches(WorkingOrder order) {
-    // Matching only compares price on the opposite side, not entry time
-    MatchingOrderDecorator compare = new MatchingOrderDecorator(order, order.getSource());
-    SortedSet<WorkingOrder> matches = null;
     switch (order.getSide()) {
       case Buy:
-        matches = offers.headSet(compare, true);
-        break;
+        return offers.toSortedSet(OFFER_COMPARATOR, order);
       case Sell:
-        matches = bids.headSet(compare, true);
-        break;
+        return bids.toSortedSet(BID_COMPARATOR, order);
       default:
         throw new IllegalArgumentException("Invalid side");
     }
-    return matches;
   }
 
   /**
    * Finds the state of an order in this OrderBook
-   * 
+   *
+   * @param side Buy or Sell
+   * @param clOrdId packed order identifier
+   * @param userId user identifier
+   * @return Returns the WorkingOrder with current state or {@code null} if not found
+   * @see FixedId
+   */
+  public WorkingOrder findOrder(Side side, long clOrdId, String userId) {
+    return getSide(side).find(clOrdId, userId);
+  }
+
+  /**
+   * Finds the state of an order in this OrderBook
+   *
    * @param side Buy or Sell
    * @param clOrdId order identifier
    * @param userId user identifier
    * @return Returns the WorkingOrder with current state or {@code null} if not found
    */
   public WorkingOrder findOrder(Side side, String clOrdId, String userId) {
-    SortedSet<WorkingOrder> orders = null;
-    switch (side) {
-      case Buy:
-        orders = bids;
-        break;
-      case Sell:
-        orders = offers;
-        break;
-      default:
-        throw new IllegalArgumentException("Invalid side");
-    }
-    for (WorkingOrder found : orders) {
-      if (found.getClOrdId().equals(clOrdId) && found.getSource().equals(userId)) {
-        return found;
-      }
-    }
-    return null;
+    return getSide(side).find(clOrdId, userId);
   }
 
   /**
    * Finds the state of an order in this OrderBook
-   * 
+   *
    * @param order order object with key fields to match
    * @return Returns the WorkingOrder with current state or {@code null} if not found
    */
   public WorkingOrder findOrder(WorkingOrder order) {
-    SortedSet<WorkingOrder> orders = null;
-    switch (order.getSide()) {
-      case Buy:
-        orders = bids.tailSet(order, true);
-        break;
-      case Sell:
-        orders = offers.tailSet(order, true);
-        break;
-      default:
-        throw new IllegalArgumentException("Invalid side");
-    }
-    for (WorkingOrder found : orders) {
-      if (found.equals(order)) {
-        return found;
-      }
+    return getSide(order.getSide()).contains(order) ? order : null;
+  }
+
+  /**
+   * Returns the number of decimal places of prices in this OrderBook
+   *
+   * @return price scale
+   */
+  public int getPriceScale() {
+    return priceScale;
+  }
+
+  /**
+   * Tells whether a limit price may be added to this OrderBook
+   *
+   * @param price a limit price at the scale of this OrderBook
+   * @return {@code true} if price is a multiple of tick size
+   * @see #getPriceScale()
+   */
+  public boolean isOnTick(long price) {
+    return price % tickSize == 0;
+  }
+
+  /**
+   * Removes an order from this OrderBook
+   *
+   * @param side buy or sell side
+   * @param clOrdId packed client order ID
+   * @param userId order originator
+   * @return Returns the removed order or {@code null} if it is not found
+   * @see FixedId
+   */
+  public WorkingOrder removeOrder(Side side, long clOrdId, String userId) {
+    final BookSide bookSide = getSide(side);
+    final WorkingOrder found = bookSide.find(clOrdId, userId);
+    if (found != null) {
+      bookSide.remove(found);
     }
-    return null;
+    return found;
   }
 
   /**
    * Removes an order from this OrderBook
-   * 
+   *
    * @param side buy or sell side
    * @param clOrdId client order ID
    * @param userId order originator
    * @return Returns the removed order or {@code null} if it is not found
    */
   public WorkingOrder removeOrder(Side side, String clOrdId, String userId) {
-    SortedSet<WorkingOrder> orders = null;
-    switch (side) {
-      case Buy:
-        orders = bids;
-        break;
-      case Sell:
-        orders = offers;
-        break;
-      default:
-        throw new IllegalArgumentException("Invalid side");
-    }
-    for (WorkingOrder found : orders) {
-      if (found.getClOrdId().equals(clOrdId) && found.getSource().equals(userId)) {
-        orders.remove(found);
-        return found;
-      }
+    final BookSide bookSide = getSide(side);
+    final WorkingOrder found = bookSide.find(clOrdId, userId);
+    if (found != null) {
+      bookSide.remove(found);
     }
-    return null;
+    return found;
   }
 
   /**
    * Removes an order from this OrderBook
-   * 
+   *
    * @param order an order with matching key fields
    * @return Returns the removed order or {@code null} if it is not found
    */
   public WorkingOrder removeOrder(WorkingOrder order) {
-    SortedSet<WorkingOrder> orders = null;
-    switch (order.getSide()) {
-      case Buy:
-        orders = bids.tailSet(order, true);
-        break;
-      case Sell:
-        orders = offers.tailSet(order, true);
-        break;
-      default:
-        throw new IllegalArgumentException("Invalid side");
-    }
-    for (WorkingOrder found : orders) {
-      if (found.equals(order)) {
-        orders.remove(found);
-        return found;
-      }
-    }
-    return null;
+    return getSide(order.getSide()).remove(order) ? order : null;
   }
 
   @Override
   public String toString() {
     StringBuilder builder = new StringBuilder();
     builder.append("OrderBook [");
-    if (null != bids)
-      builder.append("bids=").append(bids).append(", ");
-    if (null != offers)
-      builder.append("offers=").append(offers);
+    builder.append("bids=").append(getBids()).append(", ");
+    builder.append("offers=").append(getOffers());
     builder.append("]");
     return builder.toString();
   }
 
+  private BookSide getOppositeSide(Side side) {
+    switch (side) {
+      case Buy:
+        return offers;
+      case Sell:
+        return bids;
+      default:
+        throw new IllegalArgumentException("Invalid side");
+    }
+  }
+
+  private BookSide getSide(Side side) {
+    switch (side) {
+      case Buy:
+        return bids;
+      case Sell:
+        return offers;
+      default:
+        throw new IllegalArgumentException("Invalid side");
+    }
+  }
+
+  /**
+   * Tells whether a resting order is matched by an incoming order on the opposite side
+   */
+  private static boolean isCrossed(WorkingOrder resting, WorkingOrder incoming) {
+    if (incoming.getOrdType() == OrdType.Market) {
+      return true;
+    }
+    return (incoming.getSide() == Side.Buy)
+        ? resting.getScaledPrice() <= incoming.getScaledPrice()
+        : resting.getScaledPrice() >= incoming.getScaledPrice();
+  }
+
+  private long toTicks(WorkingOrder order) {
+    if (order.getPriceScale() != priceScale) {
+      throw new IllegalArgumentException(
+          "Price scale " + order.getPriceScale() + " differs from order book scale " + priceScale);
+    }
+    final long price = order.getScaledPrice();
+    if (!isOnTick(price)) {
+      throw new IllegalArgumentException(
+          "Price " + order.getPrice() + " is not a multiple of tick size " + tickSize);
+    }
+    return price / tickSize;
+  }
+
   SortedSet<WorkingOrder> getBids() {
-    return Collections.unmodifiableSortedSet(bids);
+    return Collections.unmodifiableSortedSet(bids.toSortedSet(BID_COMPARATOR, null));
   }
 
   SortedSet<WorkingOrder> getOffers() {
-    return Collections.unmodifiableSortedSet(offers);
+    return Collections.unmodifiableSortedSet(offers.toSortedSet(OFFER_COMPARATOR, null));
+  }
+
+  /**
+   * Writes the resting orders of this OrderBook
+   *
+   * @param out destination of snapshot
+   * @throws IOException if the snapshot cannot be written
+   */
+  void writeSnapshot(DataOutput out) throws IOException {
+    out.writeInt(priceScale);
+    out.writeLong(tickSize);
+    bids.writeSnapshot(out);
+    offers.writeSnapshot(out);
   }
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.server.match;
+
+import java.util.Arrays;
+
+/**
+ * Resting orders of one side of an OrderBook by source and ClOrdId
+ *
+ * <p>
+ * ClOrdId is keyed in its packed form, as read from the fixed-width field of a message, so an order
+ * is found without creating a {@code String}. Only a ClOrdId that cannot be packed is keyed as a
+ * {@code String}.
+ * <p>
+ * Orders are held directly in an open-addressing hash table with linear probing, so adding or
+ * removing an order does not allocate an entry. Removal shifts later orders of a cluster back
+ * rather than leaving a marker.
+ * <p>
+ * ClOrdId is expected to be unique per source, but if it is not, every order is held. Orders with
+ * the same key stay in entry order within their cluster, so a lookup finds the earliest one that
+ * remains, and removing it exposes the next.
+ * <p>
+ * Not thread-safe; it is assumed that order matching is single-threaded.
+ *
+ * @author Don Mendelson
+ *
+ */
+class OrderIndex {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private static int hash(String source, int clOrdIdHash) {
+    final int h = (source.hashCode() * 31 + clOrdIdHash) * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+
+  private static int hash(WorkingOrder order) {
+    return hash(order.getSource(),
+        order.isClOrdIdPacked() ? Long.hashCode(order.getClOrdIdAsLong())
+            : order.getClOrdId().hashCode());
+  }
+
+  private int mask;
+  private int size = 0;
+  private WorkingOrder[] slots;
+
+  OrderIndex() {
+    this.slots = new WorkingOrder[INITIAL_CAPACITY];
+    this.mask = INITIAL_CAPACITY - 1;
+  }
+
+  /**
+   * Adds an order
+   *
+   * @param order an order that is not in this OrderIndex
+   */
+  void add(WorkingOrder order) {
+    // keep load factor at most one half
+    if ((size + 1) * 2 > slots.length) {
+      rehash(slots.length * 2);
+    }
+    insert(order);
+    size++;
+  }
+
+  /**
+   * Removes all orders
+   */
+  void clear() {
+    Arrays.fill(slots, null);
+    size = 0;
+  }
+
+  /**
+   * Finds an order by its key
+   *
+   * @param source order originator
+   * @param clOrdId packed client order ID
+   * @return the earliest order with the key, or {@code null} if not found
+   */
+  WorkingOrder find(String source, long clOrdId) {
+    for (int i = hash(source, Long.hashCode(clOrdId)) & mask; slots[i] != null;
+        i = (i + 1) & mask) {
+      final WorkingOrder order = slots[i];
+      if (order.isClOrdIdPacked() && order.getClOrdIdAsLong() == clOrdId
+          && source.equals(order.getSource())) {
+        return order;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Finds an order by a key that cannot be packed
+   *
+   * @param source order originator
+   * @param clOrdId client order ID that cannot be packed
+   * @return the earliest order with the key, or {@code null} if not found
+   */
+  WorkingOrder find(String source, String clOrdId) {
+    for (int i = hash(source, clOrdId.hashCode()) & mask; slots[i] != null; i = (i + 1) & mask) {
+      final WorkingOrder order = slots[i];
+      if (!order.isClOrdIdPacked() && clOrdId.equals(order.getClOrdId())
+          && source.equals(order.getSource())) {
+        return order;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Removes an order by identity
+   *
+   * @param order an order to remove
+   * @return {@code true} if the order was found
+   */
+  boolean remove(WorkingOrder order) {
+    int hole = hash(order) & mask;
+    while (slots[hole] != order) {
+      if (slots[hole] == null) {
+        return false;
+      }
+      hole = (hole + 1) & mask;
+    }
+    for (int i = (hole + 1) & mask; slots[i] != null; i = (i + 1) & mask) {
+      final int home = hash(slots[i]) & mask;
+      // an order may move back to the hole if the hole is not before its home slot
+      if (((i - home) & mask) >= ((i - hole) & mask)) {
+        slots[hole] = slots[i];
+        hole = i;
+      }
+    }
+    slots[hole] = null;
+    size--;
+    return true;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private void insert(WorkingOrder order) {
+    int i = hash(order) & mask;
+    while (slots[i] != null) {
+      i = (i + 1) & mask;
+    }
+    slots[i] = order;
+  }
+
+  private void rehash(int capacity) {
+    final WorkingOrder[] oldSlots = slots;
+    final int oldMask = mask;
+    slots = new WorkingOrder[capacity];
+    mask = capacity - 1;
+    // start after an empty slot so that each cluster is re-inserted in probe order, which keeps
+    // orders with the same key in entry order
+    int start = 0;
+    while (oldSlots[start] != null) {
+      start++;
+    }
+    for (int i = 1; i <= oldSlots.length; i++) {
+      final WorkingOrder order = oldSlots[(start + i) & oldMask];
+      if (order != null) {
+        insert(order);
+      }
+    }
+  }
+}
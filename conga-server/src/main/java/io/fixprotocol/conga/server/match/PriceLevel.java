@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.server.match;
+
+/**
+ * Orders resting at a single price, in time priority
+ *
+ * <p>
+ * Orders are linked intrusively through {@link WorkingOrder} so that an order may be appended or
+ * removed in constant time. Instances are reused by an {@link OrderBook} as prices come and go.
+ * <p>
+ * Not thread-safe; it is assumed that order matching is single-threaded.
+ *
+ * @author Don Mendelson
+ *
+ */
+class PriceLevel {
+
+  private WorkingOrder head = null;
+  private int orderCount = 0;
+  private WorkingOrder tail = null;
+  private long ticks;
+
+  /**
+   * Appends an order to the end of the queue
+   *
+   * @param order an order that is not in any PriceLevel
+   */
+  void add(WorkingOrder order) {
+    order.level = this;
+    order.prev = tail;
+    order.next = null;
+    if (tail != null) {
+      tail.next = order;
+    } else {
+      head = order;
+    }
+    tail = order;
+    orderCount++;
+  }
+
+  /**
+   * Unlinks all orders
+   */
+  void clear() {
+    WorkingOrder order = head;
+    while (order != null) {
+      WorkingOrder next = order.next;
+      order.level = null;
+      order.prev = null;
+      order.next = null;
+      order = next;
+    }
+    head = null;
+    tail = null;
+    orderCount = 0;
+  }
+
+  /**
+   * Returns the order with highest time priority
+   *
+   * @return the first order or {@code null} if this PriceLevel is empty
+   */
+  WorkingOrder first() {
+    return head;
+  }
+
+  long getTicks() {
+    return ticks;
+  }
+
+  boolean isEmpty() {
+    return orderCount == 0;
+  }
+
+  /**
+   * Unlinks an order from the queue
+   *
+   * @param order an order in this PriceLevel
+   */
+  void remove(WorkingOrder order) {
+    if (order.prev != null) {
+      order.prev.next = order.next;
+    } else {
+      head = order.next;
+    }
+    if (order.next != null) {
+      order.next.prev = order.prev;
+    } else {
+      tail = order.prev;
+    }
+    order.level = null;
+    order.prev = null;
+    order.next = null;
+    orderCount--;
+  }
+
+  void setTicks(long ticks) {
+    this.ticks = ticks;
+  }
+
+  int size() {
+    return orderCount;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("PriceLevel [ticks=").append(ticks).append(", orderCount=").append(orderCount)
+        .append("]");
+    return builder.toString();
+  }
+
+}
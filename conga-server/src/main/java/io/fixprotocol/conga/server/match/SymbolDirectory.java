@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.server.match;
+
+import java.util.Arrays;
+
+import io.fixprotocol.conga.messages.appl.FixedId;
+
+/**
+ * Assigns a dense integer ID to each symbol
+ *
+ * <p>
+ * Symbols are keyed by their packed form, as read from the fixed-width symbol field of a message,
+ * so that a symbol is looked up without creating or hashing a {@code String}. IDs are assigned in
+ * the order that symbols are added, starting from zero, so they may index an array. The table is
+ * open-addressed with linear probing and grows to keep its load factor at most one half.
+ * <p>
+ * Not thread-safe; it is assumed that order matching is single-threaded.
+ *
+ * @author Don Mendelson
+ *
+ */
+class SymbolDirectory {
+
+  /**
+   * Returned by {@link #getId(long)} when a symbol has not been added
+   */
+  static final int NOT_FOUND = -1;
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  // slot holds ID + 1 so that zero marks an empty slot
+  private int[] idSlots = new int[INITIAL_CAPACITY];
+  private long[] keys = new long[INITIAL_CAPACITY];
+  private int size = 0;
+  private String[] symbols = new String[INITIAL_CAPACITY / 2];
+
+  /**
+   * Adds a symbol
+   *
+   * @param symbol security identifier
+   * @return ID assigned to the symbol
+   * @throws IllegalArgumentException if the symbol is empty, cannot be packed, or was already
+   *         added
+   * @see FixedId#isPackable(CharSequence)
+   */
+  int add(String symbol) {
+    if (symbol.isEmpty() || !FixedId.isPackable(symbol)) {
+      throw new IllegalArgumentException("Invalid symbol " + symbol);
+    }
+    final long key = FixedId.pack(symbol);
+    if (getId(key) != NOT_FOUND) {
+      throw new IllegalArgumentException("Symbol already defined");
+    }
+    if ((size + 1) * 2 > keys.length) {
+      rehash(keys.length * 2);
+    }
+    final int id = size;
+    if (id == symbols.length) {
+      symbols = Arrays.copyOf(symbols, symbols.length * 2);
+    }
+    symbols[id] = symbol;
+    insert(key, id);
+    size++;
+    return id;
+  }
+
+  /**
+   * Removes all symbols; IDs are reassigned from zero
+   */
+  void clear() {
+    Arrays.fill(idSlots, 0);
+    Arrays.fill(keys, 0L);
+    Arrays.fill(symbols, null);
+    size = 0;
+  }
+
+  /**
+   * Returns the ID of a symbol without allocation
+   *
+   * @param symbol a packed symbol
+   * @return ID of the symbol, or {@link #NOT_FOUND} if it has not been added
+   */
+  int getId(long symbol) {
+    if (symbol == 0) {
+      return NOT_FOUND;
+    }
+    final int mask = keys.length - 1;
+    for (int slot = hash(symbol) & mask; idSlots[slot] != 0; slot = (slot + 1) & mask) {
+      if (keys[slot] == symbol) {
+        return idSlots[slot] - 1;
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * Returns a symbol by its ID
+   *
+   * @param id an ID returned by {@link #add(String)}
+   * @return security identifier
+   * @throws IndexOutOfBoundsException if ID has not been assigned
+   */
+  String getSymbol(int id) {
+    if (id < 0 || id >= size) {
+      throw new IndexOutOfBoundsException("Unknown symbol ID " + id);
+    }
+    return symbols[id];
+  }
+
+  /**
+   * @return number of symbols, which is also the next ID to be assigned
+   */
+  int size() {
+    return size;
+  }
+
+  private void insert(long key, int id) {
+    final int mask = keys.length - 1;
+    int slot = hash(key) & mask;
+    while (idSlots[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    idSlots[slot] = id + 1;
+  }
+
+  private void rehash(int capacity) {
+    final long[] oldKeys = keys;
+    final int[] oldIdSlots = idSlots;
+    keys = new long[capacity];
+    idSlots = new int[capacity];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldIdSlots[i] != 0) {
+        insert(oldKeys[i], oldIdSlots[i] - 1);
+      }
+    }
+  }
+
+  private static int hash(long key) {
+    final long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+}
@@ -15,9 +15,15 @@
 
 package io.fixprotocol.conga.server.match;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.concurrent.TimeUnit;
 
+import io.fixprotocol.conga.messages.appl.FixedId;
+import io.fixprotocol.conga.messages.appl.FixedPoint;
 import io.fixprotocol.conga.messages.appl.NewOrderSingle;
 import io.fixprotocol.conga.messages.appl.OrdType;
 import io.fixprotocol.conga.messages.appl.Side;
@@ -25,37 +31,252 @@ import io.fixprotocol.conga.messages.appl.Side;
 /**
  * State of an order while being matched
  * 
+ * <p>
+ * An instance may be reused for another order once it leaves the OrderBook.
+ * 
  * @author Don Mendelson
  *
  */
 class WorkingOrder implements NewOrderSingle {
 
+  /**
+   * Order attributes restored from a snapshot, in place of an incoming order message
+   */
+  private static final class RestoredOrder implements NewOrderSingle {
+    private final String clOrdId;
+    private final int orderQty;
+    private final OrdType ordType;
+    private final long price;
+    private final int priceScale;
+    private final Side side;
+    private final String symbol;
+    private final Instant transactTime;
+
+    RestoredOrder(String symbol, String clOrdId, Side side, OrdType ordType, long price,
+        int priceScale, int orderQty, Instant transactTime) {
+      this.symbol = symbol;
+      this.clOrdId = clOrdId;
+      this.side = side;
+      this.ordType = ordType;
+      this.price = price;
+      this.priceScale = priceScale;
+      this.orderQty = orderQty;
+      this.transactTime = transactTime;
+    }
+
+    @Override
+    public String getClOrdId() {
+      return clOrdId;
+    }
+
+    @Override
+    public int getOrderQty() {
+      return orderQty;
+    }
+
+    @Override
+    public OrdType getOrdType() {
+      return ordType;
+    }
+
+    @Override
+    public BigDecimal getPrice() {
+      return ordType != OrdType.Market ? FixedPoint.toBigDecimal(price, priceScale) : null;
+    }
+
+    @Override
+    public long getScaledPrice(int scale) {
+      return FixedPoint.rescale(price, priceScale, scale);
+    }
+
+    @Override
+    public Side getSide() {
+      return side;
+    }
+
+    @Override
+    public String getSymbol() {
+      return symbol;
+    }
+
+    @Override
+    public Instant getTransactTime() {
+      return transactTime;
+    }
+  }
+
+  /**
+   * Prefix of an order ID formatted from an order number
+   */
+  public static final char ORDER_ID_PREFIX = 'O';
+
+  // Links within a PriceLevel of an OrderBook; maintained by PriceLevel
+  PriceLevel level = null;
+  WorkingOrder next = null;
+  WorkingOrder prev = null;
+
+  // held only if it cannot be packed
+  private String clOrdId;
   private int cumQty = 0;
-  private final Instant entryTime;
+  // nanoseconds since the epoch
+  private long entryTime;
+  private boolean isClOrdIdPacked;
   private int leavesQty = 0;
-  private final NewOrderSingle order;
-  private final String orderId;
-  private final String source;
+  // assigned ID, or null if formatted from orderNumber
+  private String orderId;
+  private long orderNumber;
+  private int orderQty;
+  private OrdType ordType;
+  private long packedClOrdId;
+  private long price;
+  private int priceScale;
+  private Side side;
+  private String source;
+  private String symbol;
+  private Instant transactTime;
 
   /**
    * Wraps an incoming order with state information
    * 
    * <p>
-   * Key fields for equality are source and ClOrdId
+   * Price is held at {@link OrderBook#DEFAULT_PRICE_SCALE}.
    * 
    * @param order incoming order message
    * @param source order originator
    * @param orderId assigned order ID
    * @param entryTime assigned by the system
+   * @throws IllegalArgumentException if the limit price cannot be represented at the default scale
    */
   public WorkingOrder(NewOrderSingle order, String source, String orderId, Instant entryTime) {
-    this.order = order;
-    this.source = source;
-    this.entryTime = entryTime;
-    this.leavesQty = order.getOrderQty();
+    this(order, source, orderId, entryTime, OrderBook.DEFAULT_PRICE_SCALE);
+  }
+
+  /**
+   * Wraps an incoming order with state information
+   * 
+   * <p>
+   * Key fields for equality are source and ClOrdId. All order attributes are copied since the
+   * incoming message may be a flyweight that is reused. Price is held as a fixed-point value so
+   * that it is compared without allocation.
+   * 
+   * @param order incoming order message
+   * @param source order originator
+   * @param orderId assigned order ID
+   * @param entryTime assigned by the system
+   * @param priceScale number of decimal places of price, the same as the OrderBook for its symbol
+   * @throws IllegalArgumentException if the limit price cannot be represented at priceScale
+   */
+  public WorkingOrder(NewOrderSingle order, String source, String orderId, Instant entryTime,
+      int priceScale) {
+    this(order, source, orderId, 0L,
+        TimeUnit.SECONDS.toNanos(entryTime.getEpochSecond()) + entryTime.getNano(), priceScale);
+  }
+
+  /**
+   * Wraps an incoming order with state information without allocating identifiers
+   * 
+   * <p>
+   * The order ID is formatted from an order number only when it is appended or requested, so that
+   * a character buffer may be reused.
+   * 
+   * @param order incoming order message
+   * @param source order originator
+   * @param orderNumber assigned order number, formatted as order ID
+   * @param entryTime assigned by the system as nanoseconds since the epoch
+   * @param priceScale number of decimal places of price, the same as the OrderBook for its symbol
+   * @throws IllegalArgumentException if the limit price cannot be represented at priceScale
+   * @see #appendOrderId(StringBuilder)
+   */
+  public WorkingOrder(NewOrderSingle order, String source, long orderNumber, long entryTime,
+      int priceScale) {
+    this(order, source, null, orderNumber, entryTime, priceScale);
+  }
+
+  /**
+   * Constructor of an order to be populated by
+   * {@link #set(NewOrderSingle, String, String, long, long, int, long)} so that it may be reused
+   */
+  WorkingOrder() {
+
+  }
+
+  private WorkingOrder(NewOrderSingle order, String source, String orderId, long orderNumber,
+      long entryTime, int priceScale) {
+    final long price;
+    if (order.getOrdType() == OrdType.Market) {
+      price = 0;
+    } else {
+      try {
+        price = order.getScaledPrice(priceScale);
+      } catch (ArithmeticException e) {
+        throw new IllegalArgumentException(
+            "Price " + order.getPrice() + " has more than " + priceScale + " decimal places");
+      }
+    }
+    set(order, source, order.getSymbol(), orderNumber, entryTime, priceScale, price);
     this.orderId = orderId;
   }
 
+  /**
+   * Reads an order written by {@link #writeSnapshot(DataOutput)}
+   * 
+   * @param in source of snapshot
+   * @param symbol symbol of the OrderBook of the order
+   * @param side side of the OrderBook of the order
+   * @param priceScale price scale of the OrderBook of the order
+   * @return an order with restored state
+   * @throws IOException if the snapshot cannot be read
+   */
+  static WorkingOrder readSnapshot(DataInput in, String symbol, Side side, int priceScale)
+      throws IOException {
+    final String source = in.readUTF();
+    final String clOrdId = in.readUTF();
+    final String orderId = in.readBoolean() ? in.readUTF() : null;
+    final long orderNumber = in.readLong();
+    final OrdType ordType = OrdType.values()[in.readByte()];
+    final long price = in.readLong();
+    final int orderQty = in.readInt();
+    final int cumQty = in.readInt();
+    final int leavesQty = in.readInt();
+    final long entryTime = in.readLong();
+    final Instant transactTime =
+        in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+    final WorkingOrder order = new WorkingOrder(new RestoredOrder(symbol, clOrdId, side, ordType,
+        price, priceScale, orderQty, transactTime), source, orderId, orderNumber, entryTime,
+        priceScale);
+    order.cumQty = cumQty;
+    order.leavesQty = leavesQty;
+    return order;
+  }
+
+  /**
+   * Appends ClOrdId to a character buffer
+   * 
+   * @param buffer buffer to populate
+   * @return the buffer
+   */
+  public StringBuilder appendClOrdId(StringBuilder buffer) {
+    if (isClOrdIdPacked) {
+      return FixedId.append(packedClOrdId, buffer);
+    } else {
+      return buffer.append(clOrdId);
+    }
+  }
+
+  /**
+   * Appends the order ID to a character buffer
+   * 
+   * @param buffer buffer to populate
+   * @return the buffer
+   */
+  public StringBuilder appendOrderId(StringBuilder buffer) {
+    if (orderId != null) {
+      return buffer.append(orderId);
+    } else {
+      return buffer.append(ORDER_ID_PREFIX).append(orderNumber);
+    }
+  }
+
   public void close() {
     leavesQty = 0;
   }
@@ -65,9 +286,33 @@ class WorkingOrder implements NewOrderSingle {
     leavesQty -= fillQty;
   }
 
+  /**
+   * ClOrdId
+   * 
+   * <p>
+   * For compatibility only; if ClOrdId is packed, a {@code String} is created. Responses use
+   * {@link #appendClOrdId(StringBuilder)}.
+   * 
+   * @return client order ID
+   */
   @Override
   public String getClOrdId() {
-    return order.getClOrdId();
+    return isClOrdIdPacked ? FixedId.toString(packedClOrdId) : clOrdId;
+  }
+
+  /**
+   * ClOrdId packed into a long
+   * 
+   * @return packed ClOrdId
+   * @throws IllegalArgumentException if the ID cannot be packed
+   * @see #isClOrdIdPacked()
+   */
+  @Override
+  public long getClOrdIdAsLong() {
+    if (!isClOrdIdPacked) {
+      throw new IllegalArgumentException("ClOrdId cannot be packed: " + clOrdId);
+    }
+    return packedClOrdId;
   }
 
   public int getCumQty() {
@@ -75,6 +320,13 @@ class WorkingOrder implements NewOrderSingle {
   }
 
   public Instant getEntryTime() {
+    return Instant.ofEpochSecond(0L, entryTime);
+  }
+
+  /**
+   * @return entry time as nanoseconds since the epoch
+   */
+  public long getEntryTimeNanos() {
     return entryTime;
   }
 
@@ -83,51 +335,155 @@ class WorkingOrder implements NewOrderSingle {
   }
 
   public String getOrderId() {
-    return orderId;
+    return orderId != null ? orderId : appendOrderId(new StringBuilder()).toString();
   }
 
   @Override
   public int getOrderQty() {
-    return order.getOrderQty();
+    return orderQty;
   }
 
   @Override
   public OrdType getOrdType() {
-    return order.getOrdType();
+    return ordType;
   }
 
+  /**
+   * Limit price
+   * 
+   * <p>
+   * For compatibility only; matching uses {@link #getScaledPrice()}.
+   * 
+   * @return limit price or {@code null} for a market order
+   */
   @Override
   public BigDecimal getPrice() {
-    return order.getPrice();
+    return ordType != OrdType.Market ? FixedPoint.toBigDecimal(price, priceScale) : null;
+  }
+
+  public int getPriceScale() {
+    return priceScale;
+  }
+
+  /**
+   * Limit price as a fixed-point value
+   * 
+   * @return price multiplied by 10<sup>priceScale</sup>, or zero for a market order
+   */
+  public long getScaledPrice() {
+    return price;
+  }
+
+  @Override
+  public long getScaledPrice(int scale) {
+    return FixedPoint.rescale(price, priceScale, scale);
   }
 
   @Override
   public Side getSide() {
-    return order.getSide();
+    return side;
   }
 
   @Override
   public String getSymbol() {
-    return order.getSymbol();
+    return symbol;
   }
 
   @Override
   public Instant getTransactTime() {
-    return order.getTransactTime();
+    return transactTime;
   }
 
   public String getSource() {
     return source;
   }
 
+  /**
+   * Tells whether ClOrdId is held in packed form
+   * 
+   * @return {@code true} if ClOrdId could be packed
+   * @see io.fixprotocol.conga.messages.appl.FixedId
+   */
+  public boolean isClOrdIdPacked() {
+    return isClOrdIdPacked;
+  }
+
+  /**
+   * Populates this order from an incoming order, replacing all state, so that it may be reused
+   * 
+   * <p>
+   * ClOrdId is held in packed form unless it cannot be packed, and the symbol is supplied by the
+   * caller, so no {@code String} is created.
+   * 
+   * @param order incoming order message
+   * @param source order originator
+   * @param symbol security identifier of the order
+   * @param orderNumber assigned order number, formatted as order ID
+   * @param entryTime assigned by the system as nanoseconds since the epoch
+   * @param priceScale number of decimal places of price, the same as the OrderBook for its symbol
+   * @param price limit price at priceScale, or zero for a market order
+   * @return this order
+   */
+  WorkingOrder set(NewOrderSingle order, String source, String symbol, long orderNumber,
+      long entryTime, int priceScale, long price) {
+    this.source = source;
+    this.symbol = symbol;
+    this.entryTime = entryTime;
+    this.orderQty = order.getOrderQty();
+    this.cumQty = 0;
+    this.leavesQty = orderQty;
+    this.orderId = null;
+    this.orderNumber = orderNumber;
+    this.packedClOrdId = order.getClOrdIdAsLongOrZero();
+    this.isClOrdIdPacked = packedClOrdId != 0;
+    this.clOrdId = isClOrdIdPacked ? null : order.getClOrdId();
+    this.side = order.getSide();
+    this.ordType = order.getOrdType();
+    this.transactTime = order.getTransactTime();
+    this.priceScale = priceScale;
+    this.price = price;
+    return this;
+  }
+
   @Override
   public String toString() {
     StringBuilder builder = new StringBuilder();
-    builder.append("WorkingOrder [cumQty=").append(cumQty).append(", entryTime=").append(entryTime)
-        .append(", leavesQty=").append(leavesQty).append(", order=").append(order)
-        .append(", orderId=").append(orderId).append(", source=").append(source)
-        .append(", getPrice()=").append(getPrice()).append("]");
+    builder.append("WorkingOrder [cumQty=").append(cumQty).append(", entryTime=").append(getEntryTime())
+        .append(", leavesQty=").append(leavesQty).append(", symbol=").append(symbol)
+        .append(", orderId=").append(getOrderId()).append(", source=").append(source)
+        .append(", price=").append(getPrice()).append("]");
     return builder.toString();
   }
 
+  /**
+   * Writes the state of this order
+   * 
+   * <p>
+   * Symbol and side are not written; they are known from the OrderBook.
+   * 
+   * @param out destination of snapshot
+   * @throws IOException if the snapshot cannot be written
+   */
+  void writeSnapshot(DataOutput out) throws IOException {
+    out.writeUTF(source);
+    out.writeUTF(getClOrdId());
+    out.writeBoolean(orderId != null);
+    if (orderId != null) {
+      out.writeUTF(orderId);
+    }
+    out.writeLong(orderNumber);
+    out.writeByte(ordType.ordinal());
+    out.writeLong(price);
+    out.writeInt(getOrderQty());
+    out.writeInt(cumQty);
+    out.writeInt(leavesQty);
+    out.writeLong(entryTime);
+    final Instant transactTime = getTransactTime();
+    out.writeBoolean(transactTime != null);
+    if (transactTime != null) {
+      out.writeLong(transactTime.getEpochSecond());
+      out.writeInt(transactTime.getNano());
+    }
+  }
+
 }
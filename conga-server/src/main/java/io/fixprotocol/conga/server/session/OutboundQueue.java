@@ -0,0 +1,290 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.server.session;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import io.fixprotocol.conga.buffer.BufferSupplier;
+import io.fixprotocol.conga.buffer.BufferSupplier.BufferSupply;
+import io.fixprotocol.conga.server.io.callback.ExchangeSocket;
+
+/**
+ * Bounded, non-blocking queue of outbound messages for one session
+ *
+ * <p>
+ * Each message is copied into a supplied buffer when it is queued, so the caller may release or
+ * reuse its own buffer immediately. Only one write to the transport is in flight at a time; messages
+ * queued while it is in flight are written together when it completes, with all but the last held
+ * by the transport for aggregation. The copy is released by the write completion callback.
+ * <p>
+ * The number of bytes queued and not yet written is bounded. When a message would exceed the bound,
+ * the queue acts according to its {@link SlowConsumerPolicy}, so a slow peer never blocks the
+ * sender for longer than the policy allows.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class OutboundQueue implements AutoCloseable {
+
+  /**
+   * Action when queued bytes would exceed the bound
+   */
+  public enum SlowConsumerPolicy {
+    /**
+     * Close the transport immediately; the peer may recover by retransmission when it reconnects
+     */
+    Disconnect,
+    /**
+     * Wait until the backlog is written, up to a timeout, then disconnect
+     */
+    Throttle
+  }
+
+  private final class Entry implements Consumer<Throwable> {
+    private final ByteBuffer buffer;
+    private final CompletableFuture<ByteBuffer> future;
+    private boolean isLast = false;
+    private final int length;
+    private final ByteBuffer original;
+    private final BufferSupply supply;
+
+    Entry(BufferSupply supply, ByteBuffer buffer, ByteBuffer original,
+        CompletableFuture<ByteBuffer> future) {
+      this.supply = supply;
+      this.buffer = buffer;
+      this.length = buffer.remaining();
+      this.original = original;
+      this.future = future;
+    }
+
+    @Override
+    public void accept(Throwable failure) {
+      release();
+      queuedBytes.addAndGet(-length);
+      if (failure == null) {
+        if (future != null) {
+          future.complete(original);
+        }
+      } else {
+        if (future != null) {
+          future.completeExceptionally(failure);
+        }
+        disconnect();
+      }
+      if (isLast) {
+        isWriting.set(false);
+        drain();
+      }
+    }
+
+    void release() {
+      if (supply != null) {
+        supply.release();
+      }
+    }
+  }
+
+  public static final long DEFAULT_THROTTLE_TIMEOUT = 1000L;
+  public static final int DEFAULT_MAX_QUEUED_BYTES = 1024 * 1024;
+
+  private static final long THROTTLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+  private final BufferSupplier bufferSupplier;
+  private volatile boolean isClosed = false;
+  private final AtomicBoolean isWriting = new AtomicBoolean();
+  private final int maxQueuedBytes;
+  private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicLong queuedBytes = new AtomicLong();
+  private final SlowConsumerPolicy slowConsumerPolicy;
+  private final long throttleTimeoutNanos;
+  private final ExchangeSocket transport;
+
+  /**
+   * Constructor
+   *
+   * @param transport writes messages
+   * @param bufferSupplier supplies buffers to hold copies of queued messages
+   * @param maxQueuedBytes maximum number of bytes queued and not yet written
+   * @param slowConsumerPolicy action when the bound would be exceeded
+   * @param throttleTimeout maximum wait in millis under {@link SlowConsumerPolicy#Throttle}
+   */
+  public OutboundQueue(ExchangeSocket transport, BufferSupplier bufferSupplier, int maxQueuedBytes,
+      SlowConsumerPolicy slowConsumerPolicy, long throttleTimeout) {
+    this.transport = Objects.requireNonNull(transport);
+    this.bufferSupplier = Objects.requireNonNull(bufferSupplier);
+    this.slowConsumerPolicy = Objects.requireNonNull(slowConsumerPolicy);
+    if (maxQueuedBytes <= 0) {
+      throw new IllegalArgumentException("Invalid maximum queued bytes");
+    }
+    this.maxQueuedBytes = maxQueuedBytes;
+    this.throttleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(throttleTimeout);
+  }
+
+  /**
+   * Discard queued messages; the transport is not closed
+   */
+  @Override
+  public void close() {
+    isClosed = true;
+    Entry entry;
+    while ((entry = queue.poll()) != null) {
+      entry.release();
+      queuedBytes.addAndGet(-entry.length);
+      if (entry.future != null) {
+        entry.future.completeExceptionally(new IOException("Session disconnected"));
+      }
+    }
+  }
+
+  /**
+   * Start writing queued messages, including batched ones
+   */
+  public void flush() {
+    drain();
+  }
+
+  /**
+   * @return the number of bytes queued and not yet written
+   */
+  public long getQueuedBytes() {
+    return queuedBytes.get();
+  }
+
+  /**
+   * Queue a message to send
+   *
+   * @param buffer holds a message; its remaining bytes are copied, and its position is not changed
+   * @param isBatched if {@code true}, writing may wait until {@link #flush()}
+   * @param future completed with buffer when the message is written, or exceptionally if it
+   *        fails; may be {@code null}
+   * @throws IOException if the transport is closed or was disconnected as a slow consumer
+   */
+  public void send(ByteBuffer buffer, boolean isBatched, CompletableFuture<ByteBuffer> future)
+      throws IOException {
+    if (isClosed) {
+      throw new IOException("Session disconnected");
+    }
+    final int length = buffer.remaining();
+    if (!reserve(length)) {
+      if (slowConsumerPolicy == SlowConsumerPolicy.Throttle) {
+        throttle(length);
+      } else {
+        disconnect();
+        throw new IOException("Slow consumer disconnected");
+      }
+    }
+    final Entry entry = newEntry(buffer, length, future);
+    queue.offer(entry);
+    if (isClosed) {
+      // closed concurrently; discard what it may have missed
+      close();
+      throw new IOException("Session disconnected");
+    }
+    if (!isBatched) {
+      drain();
+    }
+  }
+
+  private void disconnect() {
+    if (!isClosed) {
+      close();
+      try {
+        transport.close();
+      } catch (IOException e) {
+        // already disconnected
+      }
+    }
+  }
+
+  private void drain() {
+    while (!isClosed && isWriting.compareAndSet(false, true)) {
+      Entry entry = queue.poll();
+      if (entry == null) {
+        isWriting.set(false);
+        // a message may have been queued after poll but before the flag was cleared
+        if (queue.isEmpty()) {
+          return;
+        }
+        continue;
+      }
+      // write all that is queued; the callback of the last write starts the next run
+      do {
+        final Entry next = queue.poll();
+        entry.isLast = next == null;
+        transport.write(entry.buffer, !entry.isLast, entry);
+        entry = next;
+      } while (entry != null);
+      return;
+    }
+  }
+
+  private Entry newEntry(ByteBuffer buffer, int length, CompletableFuture<ByteBuffer> future) {
+    final ByteBuffer src = buffer.duplicate();
+    final BufferSupply supply = bufferSupplier.get();
+    ByteBuffer copy = supply.acquire();
+    if (copy == null || copy.capacity() < length) {
+      // pool exhausted, or a rare message too large for a pooled buffer
+      supply.release();
+      copy = ByteBuffer.allocate(length);
+      copy.put(src);
+      copy.flip();
+      return new Entry(null, copy, buffer, future);
+    }
+    copy.clear();
+    copy.put(src);
+    copy.flip();
+    return new Entry(supply, copy, buffer, future);
+  }
+
+  private boolean reserve(int length) {
+    for (;;) {
+      final long queued = queuedBytes.get();
+      // a single message larger than the bound is accepted if nothing is queued
+      if (queued > 0 && queued + length > maxQueuedBytes) {
+        return false;
+      }
+      if (queuedBytes.compareAndSet(queued, queued + length)) {
+        return true;
+      }
+    }
+  }
+
+  private void throttle(int length) throws IOException {
+    final long deadline = System.nanoTime() + throttleTimeoutNanos;
+    // batched messages must be written for the backlog to shrink
+    drain();
+    while (!reserve(length)) {
+      if (isClosed) {
+        throw new IOException("Session disconnected");
+      }
+      if (System.nanoTime() - deadline > 0) {
+        disconnect();
+        throw new IOException("Slow consumer disconnected");
+      }
+      LockSupport.parkNanos(THROTTLE_PARK_NANOS);
+    }
+  }
+}
@@ -15,38 +15,117 @@
 
 package io.fixprotocol.conga.server.session;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 
+import io.fixprotocol.conga.buffer.BufferPool;
+import io.fixprotocol.conga.buffer.BufferPool.ExhaustedPolicy;
+import io.fixprotocol.conga.buffer.BufferSupplier;
 import io.fixprotocol.conga.server.io.callback.ExchangeSocket;
+import io.fixprotocol.conga.server.session.OutboundQueue.SlowConsumerPolicy;
 import io.fixprotocol.conga.session.Session;
 
 /**
  * Server FIXP session
+ * <p>
+ * Outbound messages are sent without blocking through a bounded {@link OutboundQueue} per
+ * connection, so a slow peer does not delay the sender.
  * 
  * @author Don Mendelson
  *
  */
-public class ServerSession extends Session {
+public class ServerSession extends Session implements Closeable {
 
   public static class Builder extends Session.Builder<ServerSession, Builder> {
 
+    private int maxQueuedBytes = OutboundQueue.DEFAULT_MAX_QUEUED_BYTES;
+    private BufferSupplier outboundBufferSupplier = null;
+    private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.Disconnect;
+    private long throttleTimeout = OutboundQueue.DEFAULT_THROTTLE_TIMEOUT;
+
     @Override
     public ServerSession build() {
       return new ServerSession(this);
     }
 
+    /**
+     * Maximum number of outbound bytes queued and not yet written
+     * 
+     * @param maxQueuedBytes maximum number of bytes
+     * @return this Builder
+     */
+    public Builder maxQueuedBytes(int maxQueuedBytes) {
+      this.maxQueuedBytes = maxQueuedBytes;
+      return this;
+    }
+
+    /**
+     * Supplies buffers to hold queued outbound messages; may be shared by sessions
+     * 
+     * @param outboundBufferSupplier buffer supplier
+     * @return this Builder
+     */
+    public Builder outboundBufferSupplier(BufferSupplier outboundBufferSupplier) {
+      this.outboundBufferSupplier = Objects.requireNonNull(outboundBufferSupplier);
+      return this;
+    }
+
+    /**
+     * Action when the outbound queue is full
+     * 
+     * @param slowConsumerPolicy slow consumer policy
+     * @return this Builder
+     */
+    public Builder slowConsumerPolicy(SlowConsumerPolicy slowConsumerPolicy) {
+      this.slowConsumerPolicy = Objects.requireNonNull(slowConsumerPolicy);
+      return this;
+    }
+
+    /**
+     * Maximum wait for the outbound queue under {@link SlowConsumerPolicy#Throttle}
+     * 
+     * @param throttleTimeout timeout in millis
+     * @return this Builder
+     */
+    public Builder throttleTimeout(long throttleTimeout) {
+      this.throttleTimeout = throttleTimeout;
+      return this;
+    }
   }
 
   public static Builder builder() {
     return new Builder();
   }
 
+  // accessed only by the thread that sends batched application messages
+  private boolean isFlushPending = false;
+  private final int maxQueuedBytes;
+  private final BufferSupplier outboundBufferSupplier;
+  private volatile OutboundQueue outboundQueue;
+  private final SlowConsumerPolicy slowConsumerPolicy;
+  private final long throttleTimeout;
   private ExchangeSocket transport;
 
   private ServerSession(Builder builder) {
     super(builder);
+    this.outboundBufferSupplier = builder.outboundBufferSupplier != null
+        ? builder.outboundBufferSupplier
+        : BufferPool.builder().exhaustedPolicy(ExhaustedPolicy.Reject).build();
+    this.maxQueuedBytes = builder.maxQueuedBytes;
+    this.slowConsumerPolicy = builder.slowConsumerPolicy;
+    this.throttleTimeout = builder.throttleTimeout;
+  }
+
+  /**
+   * Disconnects this session and releases its send cache; the session cannot be resumed
+   */
+  @Override
+  public void close() throws IOException {
+    disconnect();
+    closeSendCache();
   }
 
   @Override
@@ -57,11 +136,15 @@ public class ServerSession extends Session {
     final boolean connected = super.connected(transport, principal);
     if (connected) {
       this.transport = (ExchangeSocket) transport;
+      closeOutboundQueue();
+      this.outboundQueue = new OutboundQueue(this.transport, outboundBufferSupplier,
+          maxQueuedBytes, slowConsumerPolicy, throttleTimeout);
     }
     return connected;
   }
 
   public void disconnect() {
+    closeOutboundQueue();
     if (null != transport) {
       try {
         transport.close();
@@ -72,8 +155,53 @@ public class ServerSession extends Session {
     }
   }
 
+  /**
+   * Start writing any batched messages; does not wait for them to be written
+   */
+  @Override
+  public void flush() throws IOException {
+    final OutboundQueue queue = outboundQueue;
+    if (null != queue) {
+      queue.flush();
+    }
+  }
+
+  /**
+   * @return the number of outbound bytes queued and not yet written
+   */
+  public long getQueuedBytes() {
+    final OutboundQueue queue = outboundQueue;
+    return null != queue ? queue.getQueuedBytes() : 0L;
+  }
+
+  /**
+   * Tells whether batched messages were sent since the last flush
+   * <p>
+   * Not thread-safe; only for use by the thread that sends batched application messages.
+   * 
+   * @return {@code true} if a flush is pending
+   */
+  public boolean isFlushPending() {
+    return isFlushPending;
+  }
+
+  /**
+   * Marks whether batched messages were sent since the last flush
+   * <p>
+   * Lets the sending thread track sessions to flush at the end of a batch without searching its
+   * list of them. Not thread-safe; only for use by the thread that sends batched application
+   * messages.
+   * 
+   * @param isFlushPending {@code true} after sending a batched message, {@code false} when
+   *        flushed
+   */
+  public void setFlushPending(boolean isFlushPending) {
+    this.isFlushPending = isFlushPending;
+  }
+
   @Override
   protected void doDisconnect() {
+    closeOutboundQueue();
     try {
       transport.close();
     } catch (IOException e) {
@@ -87,19 +215,46 @@ public class ServerSession extends Session {
     return false;
   }
 
+  /**
+   * Queue a message to send; does not wait for it to be written
+   */
   @Override
   protected void sendMessage(ByteBuffer buffer) throws IOException {
-    transport.send(buffer);
+    getOutboundQueue().send(buffer, false, null);
+  }
+
+  /**
+   * Queue a message to send; does not wait for it to be written
+   */
+  @Override
+  protected void sendMessage(ByteBuffer buffer, boolean isBatched) throws IOException {
+    getOutboundQueue().send(buffer, isBatched, null);
   }
 
   @Override
   protected CompletableFuture<ByteBuffer> sendMessageAsync(ByteBuffer buffer) {
+    final CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
     try {
-      transport.sendAsync(buffer).get();
-      return CompletableFuture.completedFuture(buffer);
-    } catch (Throwable t) {
-      return CompletableFuture.failedFuture(t);
+      getOutboundQueue().send(buffer, false, future);
+    } catch (IOException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  private void closeOutboundQueue() {
+    final OutboundQueue queue = outboundQueue;
+    if (null != queue) {
+      queue.close();
+    }
+  }
+
+  private OutboundQueue getOutboundQueue() throws IOException {
+    final OutboundQueue queue = outboundQueue;
+    if (null == queue) {
+      throw new IOException("Session not connected");
     }
+    return queue;
   }
 
 }
@@ -15,14 +15,24 @@
 
 package io.fixprotocol.conga.server.session;
 
-import java.util.Timer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 import io.fixprotocol.conga.buffer.BufferCache;
+import io.fixprotocol.conga.buffer.BufferPool;
+import io.fixprotocol.conga.buffer.BufferPool.ExhaustedPolicy;
+import io.fixprotocol.conga.buffer.BufferSupplier;
+import io.fixprotocol.conga.buffer.SlabBufferCache;
 import io.fixprotocol.conga.messages.spi.MessageProvider;
+import io.fixprotocol.conga.server.session.OutboundQueue.SlowConsumerPolicy;
 import io.fixprotocol.conga.session.FlowType;
 import io.fixprotocol.conga.session.SessionFactory;
 import io.fixprotocol.conga.session.SessionMessageConsumer;
+import io.fixprotocol.conga.session.SessionTimer;
 
 /**
  * Creates new instances of ServerSession
@@ -34,9 +44,17 @@ public class ServerSessionFactory implements SessionFactory {
 
   private final Executor executor;
   private final long heartbeatInterval;
+  private int maxQueuedBytes = OutboundQueue.DEFAULT_MAX_QUEUED_BYTES;
   private final MessageProvider messageProvider;
+  // shared by all sessions to hold queued outbound messages. A slow peer may hold many buffers, so
+  // the sending thread must never wait for one; when the pool is exhausted, a message is copied to
+  // the heap and the peer is bounded by its slow consumer policy.
+  private final BufferSupplier outboundBufferSupplier =
+      BufferPool.builder().poolSize(1024).exhaustedPolicy(ExhaustedPolicy.Reject).build();
+  private final Supplier<List<ByteBuffer>> sendCacheSupplier;
   private final SessionMessageConsumer sessionMessageConsumer;
-  private final Timer timer;
+  private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.Disconnect;
+  private final SessionTimer timer;
 
   /**
    * Construct a session factory with parameters to set for each session
@@ -47,13 +65,47 @@ public class ServerSessionFactory implements SessionFactory {
    * @param heartbeatInterval keepalive interval in millis
    */
   public ServerSessionFactory(MessageProvider messageProvider,
-      SessionMessageConsumer sessionMessageConsumer, Timer timer, Executor executor,
+      SessionMessageConsumer sessionMessageConsumer, SessionTimer timer, Executor executor,
       long heartbeatInterval) {
+    this(messageProvider, sessionMessageConsumer, timer, executor, heartbeatInterval,
+        BufferCache::new);
+  }
+
+  /**
+   * Construct a session factory with parameters to set for each session
+   * @param messageProvider provides message encoding
+   * @param sessionMessageConsumer part of a message provider dedicated to session messages
+   * @param timer shared timer for events
+   * @param executor runs tasks asynchronously
+   * @param heartbeatInterval keepalive interval in millis
+   * @param sendCacheCapacity maximum number of sent messages cached by each session
+   * @param sendCacheSize maximum total size in bytes of sent messages cached by each session
+   */
+  public ServerSessionFactory(MessageProvider messageProvider,
+      SessionMessageConsumer sessionMessageConsumer, SessionTimer timer, Executor executor,
+      long heartbeatInterval, int sendCacheCapacity, int sendCacheSize) {
+    this(messageProvider, sessionMessageConsumer, timer, executor, heartbeatInterval,
+        () -> new SlabBufferCache(sendCacheCapacity, sendCacheSize, ByteOrder.nativeOrder()));
+  }
+
+  /**
+   * Construct a session factory with parameters to set for each session
+   * @param messageProvider provides message encoding
+   * @param sessionMessageConsumer part of a message provider dedicated to session messages
+   * @param timer shared timer for events
+   * @param executor runs tasks asynchronously
+   * @param heartbeatInterval keepalive interval in millis
+   * @param sendCacheSupplier creates a cache of sent messages for each session, for retransmission
+   */
+  public ServerSessionFactory(MessageProvider messageProvider,
+      SessionMessageConsumer sessionMessageConsumer, SessionTimer timer, Executor executor,
+      long heartbeatInterval, Supplier<List<ByteBuffer>> sendCacheSupplier) {
     this.messageProvider = messageProvider;
     this.sessionMessageConsumer = sessionMessageConsumer;
     this.timer = timer;
     this.executor = executor;
     this.heartbeatInterval = heartbeatInterval;
+    this.sendCacheSupplier = Objects.requireNonNull(sendCacheSupplier);
   }
 
   @Override
@@ -61,7 +113,23 @@ public class ServerSessionFactory implements SessionFactory {
     return ServerSession.builder().timer(timer).heartbeatInterval(heartbeatInterval)
         .sessionMessenger(messageProvider.getSessionMessenger())
         .sessionMessageConsumer(sessionMessageConsumer).outboundFlowType(FlowType.Recoverable)
-        .sendCache(new BufferCache()).executor(executor).build();
+        .sendCache(sendCacheSupplier.get()).executor(executor)
+        .outboundBufferSupplier(outboundBufferSupplier).maxQueuedBytes(maxQueuedBytes)
+        .slowConsumerPolicy(slowConsumerPolicy).build();
+  }
+
+  /**
+   * Set the bound of the outbound queue of each new session
+   * 
+   * @param maxQueuedBytes maximum number of outbound bytes queued and not yet written
+   * @param slowConsumerPolicy action when the bound would be exceeded
+   */
+  public void setOutboundQueueLimit(int maxQueuedBytes, SlowConsumerPolicy slowConsumerPolicy) {
+    if (maxQueuedBytes <= 0) {
+      throw new IllegalArgumentException("Invalid maximum queued bytes");
+    }
+    this.maxQueuedBytes = maxQueuedBytes;
+    this.slowConsumerPolicy = Objects.requireNonNull(slowConsumerPolicy);
   }
 
 }
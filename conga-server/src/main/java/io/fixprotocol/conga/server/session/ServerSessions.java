@@ -15,6 +15,7 @@
 
 package io.fixprotocol.conga.server.session;
 
+import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -33,6 +34,29 @@ public class ServerSessions {
     this.factory = factory;
   }
 
+  /**
+   * Closes all sessions and releases their send caches
+   * 
+   * @throws IOException if any session fails to close; the first failure is thrown after
+   *         attempting to close the rest
+   */
+  public void close() throws IOException {
+    IOException failure = null;
+    for (ServerSession session : sessions.values()) {
+      try {
+        session.close();
+      } catch (IOException e) {
+        if (null == failure) {
+          failure = e;
+        }
+      }
+    }
+    sessions.clear();
+    if (null != failure) {
+      throw failure;
+    }
+  }
+
   public ServerSession getSession(String id) {
     ServerSession session = sessions.get(id);
     if (null == session) {
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.server.io.callback;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.websocket.common.frames.BinaryFrame;
+import org.eclipse.jetty.websocket.common.frames.ContinuationFrame;
+import org.eclipse.jetty.websocket.common.frames.TextFrame;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.fixprotocol.conga.buffer.RingBufferSupplier;
+
+/**
+ * @author Don Mendelson
+ *
+ */
+public class InboundFrameHandlerTest {
+
+  private static final int CAPACITY = 64;
+
+  private InboundFrameHandler handler;
+  private final List<String> received = new CopyOnWriteArrayList<>();
+  private RingBufferSupplier ringBuffer;
+  private final List<String> sources = new CopyOnWriteArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    ringBuffer = RingBufferSupplier.builder((source, buffer) -> {
+      final byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      sources.add(source);
+      received.add(new String(bytes));
+    }).capacity(CAPACITY).queueDepth(16).build();
+    ringBuffer.start();
+    handler = new InboundFrameHandler(ringBuffer, "trader1");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    ringBuffer.stop();
+  }
+
+  @Test
+  public void singleFrame() throws InterruptedException {
+    assertTrue(handler.onFrame(binary("abc", true)));
+    assertTrue(handler.onFrame(new TextFrame().setPayload("{}")));
+    awaitReceived(2);
+    assertEquals(List.of("abc", "{}"), received);
+    assertEquals(List.of("trader1", "trader1"), sources);
+  }
+
+  @Test
+  public void fragmented() throws InterruptedException {
+    assertTrue(handler.onFrame(binary("ab", false)));
+    assertTrue(handler.onFrame(continuation("cd", false)));
+    assertTrue(handler.onFrame(continuation("ef", true)));
+    assertTrue(handler.onFrame(binary("gh", true)));
+    awaitReceived(2);
+    assertEquals(List.of("abcdef", "gh"), received);
+  }
+
+  @Test
+  public void oversizedFrame() throws InterruptedException {
+    assertFalse(handler.onFrame(binary("x".repeat(CAPACITY + 1), true)));
+    assertTrue(handler.onFrame(binary("next", true)));
+    awaitReceived(1);
+    assertEquals(List.of("next"), received);
+  }
+
+  @Test
+  public void oversizedFragments() throws InterruptedException {
+    assertTrue(handler.onFrame(binary("x".repeat(CAPACITY - 1), false)));
+    assertFalse(handler.onFrame(continuation("yy", false)));
+    // the rest of the discarded message is dropped
+    assertTrue(handler.onFrame(continuation("zz", true)));
+    assertTrue(handler.onFrame(binary("next", true)));
+    awaitReceived(1);
+    assertEquals(List.of("next"), received);
+  }
+
+  private void awaitReceived(int count) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+    while (received.size() < count && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    // allow any unexpected message to arrive
+    Thread.sleep(50);
+  }
+
+  private static BinaryFrame binary(String text, boolean isFin) {
+    final BinaryFrame frame = new BinaryFrame();
+    frame.setPayload(ByteBuffer.wrap(text.getBytes()));
+    frame.setFin(isFin);
+    return frame;
+  }
+
+  private static ContinuationFrame continuation(String text, boolean isFin) {
+    final ContinuationFrame frame = new ContinuationFrame();
+    frame.setPayload(ByteBuffer.wrap(text.getBytes()));
+    frame.setFin(isFin);
+    return frame;
+  }
+}
@@ -19,12 +19,17 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -240,6 +245,132 @@ public class MatchEngineTest {
 
   }
 
+  /**
+   * An execution report that is reused and discards its content, so that it does not allocate
+   */
+  static class ReusableExecution implements MutableExecutionReport {
+
+    private final MutableFill fill = new MutableFill() {
+
+      @Override
+      public void setFillPx(BigDecimal fillPx) {
+        // discarded
+      }
+
+      @Override
+      public void setFillPx(long fillPx, int scale) {
+        // discarded
+      }
+
+      @Override
+      public void setFillQty(int fillQty) {
+        // discarded
+      }
+    };
+
+    @Override
+    public String getSource() {
+      return null;
+    }
+
+    @Override
+    public MutableFill nextFill() {
+      return fill;
+    }
+
+    @Override
+    public void release() {
+      // reused
+    }
+
+    @Override
+    public void setClOrdId(CharSequence clOrdId) {
+      // discarded
+    }
+
+    @Override
+    public void setClOrdId(String clOrdId) {
+      // discarded
+    }
+
+    @Override
+    public void setCumQty(int cumQty) {
+      // discarded
+    }
+
+    @Override
+    public void setExecId(CharSequence execId) {
+      // discarded
+    }
+
+    @Override
+    public void setExecId(String execId) {
+      // discarded
+    }
+
+    @Override
+    public void setExecType(ExecType execType) {
+      // discarded
+    }
+
+    @Override
+    public void setFillCount(int count) {
+      // discarded
+    }
+
+    @Override
+    public void setLeavesQty(int leavesQty) {
+      // discarded
+    }
+
+    @Override
+    public void setOrderId(CharSequence orderId) {
+      // discarded
+    }
+
+    @Override
+    public void setOrderId(String orderId) {
+      // discarded
+    }
+
+    @Override
+    public void setOrdStatus(OrdStatus ordStatus) {
+      // discarded
+    }
+
+    @Override
+    public void setSide(Side side) {
+      // discarded
+    }
+
+    @Override
+    public void setSource(String source) {
+      // discarded
+    }
+
+    @Override
+    public void setSymbol(String symbol) {
+      // discarded
+    }
+
+    @Override
+    public void setTransactTime(Instant time) {
+      // discarded
+    }
+
+    @Override
+    public void setTransactTime(long nanos) {
+      // discarded
+    }
+
+    @Override
+    public ByteBuffer toBuffer() {
+      return null;
+    }
+  }
+
+  private static final int STEADY_STATE_CYCLES = 10000;
+
   private static MutableResponseMessageFactory messageFactory;
 
   @BeforeClass
@@ -334,6 +465,94 @@ public class MatchEngineTest {
     assertTrue(orderBook.getOffers().isEmpty());
   }
 
+  @Test
+  public void orderCancelUnpackedClOrdId() {
+    // too long to pack
+    final String clOrdId = "ClOrdId-12345";
+    TestOrder order =
+        new TestOrder(clOrdId, symbol, Side.Sell, 7, OrdType.Limit, new BigDecimal("12.95"));
+    engine.onOrder(userId, order);
+
+    OrderCancelRequest cancel = new TestCancelRequest(clOrdId, symbol, Side.Sell, Instant.now());
+    List<MutableMessage> responses = engine.onCancelRequest(userId, cancel);
+    assertEquals(1, responses.size());
+    TestExecution execution = (TestExecution) responses.get(0);
+    assertEquals(clOrdId, execution.clOrdId);
+    assertEquals(OrdStatus.Canceled, execution.ordStatus);
+    assertTrue(engine.getOrderBooks().get(symbol).getOffers().isEmpty());
+  }
+
+  @Test
+  public void orderFarFromBookAfterFill() {
+    engine.onOrder(userId,
+        new TestOrder("C1", symbol, Side.Buy, 5, OrdType.Limit, new BigDecimal("1.00")));
+    engine.onOrder(userId,
+        new TestOrder("C2", symbol, Side.Sell, 5, OrdType.Limit, new BigDecimal("12.00")));
+
+    // more ticks from the resting bid than the array of levels may span
+    List<MutableMessage> responses = engine.onOrder(userId,
+        new TestOrder("C3", symbol, Side.Buy, 10, OrdType.Limit, new BigDecimal("20000.00")));
+    assertEquals(2, responses.size());
+    TestExecution fill = (TestExecution) responses.get(0);
+    assertEquals("C2", fill.clOrdId);
+    assertEquals(OrdStatus.Filled, fill.ordStatus);
+    TestExecution booked = (TestExecution) responses.get(1);
+    assertEquals("C3", booked.clOrdId);
+    assertEquals(OrdStatus.PartiallyFilled, booked.ordStatus);
+    assertEquals(5, booked.leavesQty);
+
+    OrderBook orderBook = engine.getOrderBooks().get(symbol);
+    assertEquals(2, orderBook.getBids().size());
+    assertEquals(new BigDecimal("20000.00"), orderBook.getBids().first().getPrice());
+
+    // the far bid has price priority
+    responses = engine.onOrder(userId,
+        new TestOrder("C4", symbol, Side.Sell, 5, OrdType.Limit, new BigDecimal("1.00")));
+    assertEquals(2, responses.size());
+    assertEquals("C3", ((TestExecution) responses.get(0)).clOrdId);
+    assertEquals(new BigDecimal("20000.00"), ((TestExecution) responses.get(1)).fills.get(0).fillPx);
+    assertEquals(new BigDecimal("1.00"), orderBook.getBids().first().getPrice());
+  }
+
+  @Test
+  public void orderNotOnTickRejected() {
+    // five cent ticks
+    engine.defineSymbol(symbol, 2, 5);
+    engine.onOrder(userId,
+        new TestOrder("C1", symbol, Side.Sell, 5, OrdType.Limit, new BigDecimal("12.00")));
+
+    List<MutableMessage> responses = engine.onOrder(userId,
+        new TestOrder("C2", symbol, Side.Buy, 10, OrdType.Limit, new BigDecimal("12.03")));
+    assertEquals(1, responses.size());
+    TestExecution execution = (TestExecution) responses.get(0);
+    assertEquals("C2", execution.clOrdId);
+    assertEquals(ExecType.Rejected, execution.execType);
+    assertEquals(OrdStatus.Rejected, execution.ordStatus);
+
+    OrderBook orderBook = engine.getOrderBooks().get(symbol);
+    assertTrue(orderBook.getBids().isEmpty());
+    assertEquals(5, orderBook.getOffers().first().getLeavesQty());
+  }
+
+  @Test
+  public void orderPriceScaleRejected() {
+    engine.onOrder(userId,
+        new TestOrder("C1", symbol, Side.Sell, 5, OrdType.Limit, new BigDecimal("12.00")));
+
+    // more decimal places than the book
+    List<MutableMessage> responses = engine.onOrder(userId,
+        new TestOrder("C2", symbol, Side.Buy, 10, OrdType.Limit, new BigDecimal("12.345")));
+    assertEquals(1, responses.size());
+    TestExecution execution = (TestExecution) responses.get(0);
+    assertEquals("C2", execution.clOrdId);
+    assertEquals(ExecType.Rejected, execution.execType);
+    assertEquals(OrdStatus.Rejected, execution.ordStatus);
+
+    OrderBook orderBook = engine.getOrderBooks().get(symbol);
+    assertTrue(orderBook.getBids().isEmpty());
+    assertEquals(5, orderBook.getOffers().first().getLeavesQty());
+  }
+
   @Test
   public void orderPartialFill() {
     TestOrder order1 =
@@ -380,6 +599,41 @@ public class MatchEngineTest {
     }
   }
 
+  @Test
+  public void orderSweepToConsumer() {
+    final int depth = 100;
+    for (int i = 0; i < depth; i++) {
+      TestOrder order = new TestOrder("C" + i, symbol, Side.Sell, 1, OrdType.Limit,
+          BigDecimal.valueOf(1200 + i, 2));
+      engine.onOrder(userId, order);
+    }
+
+    List<MutableMessage> responses = new ArrayList<>();
+    TestOrder sweep =
+        new TestOrder("CX", symbol, Side.Buy, depth + 1, OrdType.Market, null);
+    engine.onOrder(userId, sweep, responses::add);
+    assertEquals(depth + 1, responses.size());
+
+    TestExecution first = (TestExecution) responses.get(0);
+    assertEquals("C0", first.clOrdId);
+    assertEquals("O1", first.orderId);
+    assertEquals(OrdStatus.Filled, first.ordStatus);
+    assertEquals(new BigDecimal("12.00"), first.fills.get(0).fillPx);
+
+    TestExecution last = (TestExecution) responses.get(depth);
+    assertEquals("CX", last.clOrdId);
+    assertEquals("O" + (depth + 1), last.orderId);
+    assertEquals(OrdStatus.Canceled, last.ordStatus);
+    assertEquals(depth, last.cumQty);
+    assertEquals(depth, last.fills.size());
+    for (int i = 0; i < depth; i++) {
+      assertEquals(BigDecimal.valueOf(1200 + i, 2), last.fills.get(i).fillPx);
+      assertEquals(1, last.fills.get(i).fillQty);
+    }
+    assertTrue(last.transactTime.isAfter(first.transactTime));
+    assertTrue(engine.getOrderBooks().get(symbol).getOffers().isEmpty());
+  }
+
   @Test
   public void orderTimePriorityBuy() {
     TestOrder order1 =
@@ -452,6 +706,152 @@ public class MatchEngineTest {
     }
   }
 
+  @Test
+  public void snapshot() throws Exception {
+    engine.onOrder(userId,
+        new TestOrder("C1", symbol, Side.Sell, 3, OrdType.Limit, new BigDecimal("12.94")));
+    engine.onOrder(userId,
+        new TestOrder("C2", symbol, Side.Sell, 2, OrdType.Limit, new BigDecimal("12.95")));
+    engine.onOrder("USER2",
+        new TestOrder("C3", symbol, Side.Sell, 3, OrdType.Limit, new BigDecimal("12.95")));
+    engine.onOrder(userId,
+        new TestOrder("C4", symbol, Side.Buy, 4, OrdType.Limit, new BigDecimal("12.94")));
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    engine.writeSnapshot(new DataOutputStream(bytes));
+    final MatchEngine restored = new MatchEngine(messageFactory, new TestClock());
+    restored.readSnapshot(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    assertEquals(engine.getSymbols(), restored.getSymbols());
+
+    final OrderBook orderBook = restored.getOrderBooks().get(symbol);
+    assertEquals(1, orderBook.getBids().size());
+    assertEquals(1, orderBook.getBids().first().getLeavesQty());
+    assertEquals(3, orderBook.getBids().first().getCumQty());
+    assertEquals(2, orderBook.getOffers().size());
+
+    // both engines respond alike to the same order
+    final TestOrder sweep =
+        new TestOrder("C5", symbol, Side.Buy, 4, OrdType.Limit, new BigDecimal("12.95"));
+    final List<MutableMessage> expected = new ArrayList<>(engine.onOrder(userId, sweep));
+    final List<MutableMessage> actual = restored.onOrder(userId, sweep);
+    assertEquals(3, actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      final TestExecution expectedExecution = (TestExecution) expected.get(i);
+      final TestExecution actualExecution = (TestExecution) actual.get(i);
+      assertEquals(expectedExecution.clOrdId, actualExecution.clOrdId);
+      assertEquals(expectedExecution.orderId, actualExecution.orderId);
+      assertEquals(expectedExecution.execId, actualExecution.execId);
+      assertEquals(expectedExecution.cumQty, actualExecution.cumQty);
+      assertEquals(expectedExecution.leavesQty, actualExecution.leavesQty);
+    }
+    assertEquals("O3", ((TestExecution) actual.get(1)).orderId);
+  }
+
+  @Test
+  public void steadyStateAllocation() throws Exception {
+    final ReusableExecution execution = new ReusableExecution();
+    final TestCancelReject cancelReject = new TestCancelReject();
+    final long[] nanos = new long[1];
+    final MatchEngine engine = new MatchEngine(new MutableResponseMessageFactory() {
+
+      @Override
+      public MutableExecutionReport getExecutionReport() {
+        return execution;
+      }
+
+      @Override
+      public MutableOrderCancelReject getOrderCancelReject() {
+        return cancelReject;
+      }
+
+    }, () -> ++nanos[0]);
+    final Consumer<MutableMessage> discard = response -> {
+    };
+    final TestOrder offer =
+        new TestOrder("C1", symbol, Side.Sell, 5, OrdType.Limit, new BigDecimal("12.95"));
+    final TestOrder bid =
+        new TestOrder("C2", symbol, Side.Buy, 5, OrdType.Limit, new BigDecimal("12.96"));
+    final TestOrder resting =
+        new TestOrder("C3", symbol, Side.Sell, 5, OrdType.Limit, new BigDecimal("13.00"));
+    final OrderCancelRequest cancel = new TestCancelRequest("C3", symbol, Side.Sell, Instant.now());
+    final Runnable cycle = () -> {
+      engine.onOrder(userId, offer, discard);
+      engine.onOrder(userId, bid, discard);
+      engine.onOrder(userId, resting, discard);
+      engine.onCancelRequest(userId, cancel, discard);
+    };
+
+    // warm up so that the book, its index and free orders are populated
+    for (int i = 0; i < STEADY_STATE_CYCLES; i++) {
+      cycle.run();
+    }
+    final long before = getThreadAllocatedBytes();
+    if (before < 0) {
+      // not supported by this JVM
+      return;
+    }
+    for (int i = 0; i < STEADY_STATE_CYCLES; i++) {
+      cycle.run();
+    }
+    final long allocated = getThreadAllocatedBytes() - before;
+    // allow for the measurement itself, but not for a single allocation per order
+    assertTrue(allocated + " bytes allocated", allocated < STEADY_STATE_CYCLES);
+    assertTrue(engine.getOrderBooks().get(symbol).getOffers().isEmpty());
+  }
+
+  @Test
+  public void symbolInvalid() {
+    List<MutableMessage> responses = engine.onOrder(userId,
+        new TestOrder("C1", "SYMBOL123", Side.Sell, 7, OrdType.Limit, new BigDecimal("12.95")));
+    assertEquals(1, responses.size());
+    TestExecution execution = (TestExecution) responses.get(0);
+    assertEquals(ExecType.Rejected, execution.execType);
+    assertEquals(OrdStatus.Rejected, execution.ordStatus);
+    assertTrue(engine.getOrderBooks().isEmpty());
+  }
+
+  @Test
+  public void symbolUndefinedRejected() {
+    engine.defineSymbol(symbol, 2, 1);
+    engine.setUndefinedSymbolRejected(true);
+    List<MutableMessage> responses = engine.onOrder(userId,
+        new TestOrder("C1", "SYM2", Side.Sell, 7, OrdType.Limit, new BigDecimal("12.95")));
+    assertEquals(1, responses.size());
+    assertEquals(OrdStatus.Rejected, ((TestExecution) responses.get(0)).ordStatus);
+
+    responses = engine.onOrder(userId,
+        new TestOrder("C2", symbol, Side.Sell, 7, OrdType.Limit, new BigDecimal("12.95")));
+    assertEquals(OrdStatus.New, ((TestExecution) responses.get(0)).ordStatus);
+    assertEquals(1, engine.getOrderBooks().size());
+
+    OrderCancelRequest cancel = new TestCancelRequest("C1", "SYM2", Side.Sell, Instant.now());
+    responses = engine.onCancelRequest(userId, cancel);
+    assertEquals(CxlRejReason.UnknownOrder, ((TestCancelReject) responses.get(0)).cxlRejReason);
+  }
+
+  /**
+   * Returns the number of bytes allocated by the current thread, or -1 if not supported
+   * 
+   * <p>
+   * The management interface is invoked reflectively since this module does not read it.
+   */
+  private static long getThreadAllocatedBytes() throws Exception {
+    final Class<?> beanClass;
+    try {
+      beanClass = Class.forName("com.sun.management.ThreadMXBean");
+    } catch (ClassNotFoundException e) {
+      return -1;
+    }
+    final Object bean = Class.forName("java.lang.management.ManagementFactory")
+        .getMethod("getThreadMXBean").invoke(null);
+    if (!beanClass.isInstance(bean)
+        || !(Boolean) beanClass.getMethod("isThreadAllocatedMemoryEnabled").invoke(bean)) {
+      return -1;
+    }
+    return (Long) beanClass.getMethod("getThreadAllocatedBytes", long.class).invoke(bean,
+        Thread.currentThread().getId());
+  }
+
   /**
    * @throws java.lang.Exception
    */
@@ -20,6 +20,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -28,6 +29,7 @@ import java.util.SortedSet;
 import org.junit.Before;
 import org.junit.Test;
 
+import io.fixprotocol.conga.messages.appl.FixedId;
 import io.fixprotocol.conga.messages.appl.OrdType;
 import io.fixprotocol.conga.messages.appl.Side;
 import io.fixprotocol.conga.server.match.OrderBook;
@@ -129,4 +131,212 @@ public class OrderBookTest {
     assertEquals(2, matches.size());
   }
 
+  @Test
+  public void deepBook() {
+    final int depth = 100000;
+    for (int i = 0; i < depth; i++) {
+      Instant entryTime = clock.instant();
+      final WorkingOrder order = new WorkingOrder(new TestOrder("ClOrdId" + i, symbol, Side.Sell,
+          1, OrdType.Limit, BigDecimal.valueOf(1000 + (i % 5000), 2)), userId, "Order" + i,
+          entryTime);
+      orderBook.addOrder(order);
+    }
+    assertEquals(depth, orderBook.getOffers().size());
+
+    Instant entryTime = clock.instant();
+    final WorkingOrder bid = new WorkingOrder(
+        new TestOrder("ClOrdId-Bid", symbol, Side.Buy, depth, OrdType.Market, null), userId,
+        "Bid1", entryTime);
+    BigDecimal lastPrice = BigDecimal.ZERO;
+    int matched = 0;
+    WorkingOrder match;
+    while ((match = orderBook.findBestMatch(bid)) != null) {
+      assertTrue(match.getPrice().compareTo(lastPrice) >= 0);
+      lastPrice = match.getPrice();
+      assertNotNull(orderBook.removeOrder(match));
+      matched++;
+    }
+    assertEquals(depth, matched);
+    assertTrue(orderBook.getOffers().isEmpty());
+  }
+
+  @Test
+  public void priceRangeGrows() {
+    final BigDecimal[] prices = new BigDecimal[] {new BigDecimal("50.00"),
+        new BigDecimal("0.01"), new BigDecimal("9999.99"), new BigDecimal("50.01")};
+    for (int i = 0; i < prices.length; i++) {
+      Instant entryTime = clock.instant();
+      final WorkingOrder order = new WorkingOrder(
+          new TestOrder("ClOrdId" + i, symbol, Side.Buy, 1, OrdType.Limit, prices[i]), userId,
+          "Order" + i, entryTime);
+      orderBook.addOrder(order);
+    }
+    SortedSet<WorkingOrder> bids = orderBook.getBids();
+    assertEquals(prices.length, bids.size());
+    assertEquals(new BigDecimal("9999.99"), bids.first().getPrice());
+    assertEquals(new BigDecimal("0.01"), bids.last().getPrice());
+    assertNotNull(orderBook.removeOrder(Side.Buy, "ClOrdId2", userId));
+    assertEquals(new BigDecimal("50.01"), orderBook.getBids().first().getPrice());
+  }
+
+  @Test
+  public void priceBeyondLevelCapacity() {
+    final BigDecimal[] prices = new BigDecimal[] {new BigDecimal("1.00"),
+        new BigDecimal("20000.00"), new BigDecimal("30000.00"), new BigDecimal("0.50")};
+    for (int i = 0; i < prices.length; i++) {
+      final WorkingOrder order = new WorkingOrder(
+          new TestOrder("C" + i, symbol, Side.Buy, 1, OrdType.Limit, prices[i]), userId,
+          "Order" + i, clock.instant());
+      orderBook.addOrder(order);
+    }
+    SortedSet<WorkingOrder> bids = orderBook.getBids();
+    assertEquals(prices.length, bids.size());
+    assertEquals(new BigDecimal("30000.00"), bids.first().getPrice());
+    assertEquals(new BigDecimal("0.50"), bids.last().getPrice());
+
+    final WorkingOrder offer = new WorkingOrder(
+        new TestOrder("C-Offer", symbol, Side.Sell, 1, OrdType.Limit, new BigDecimal("0.01")),
+        userId, "Offer1", clock.instant());
+    assertEquals(new BigDecimal("30000.00"), orderBook.findBestMatch(offer).getPrice());
+    assertNotNull(orderBook.removeOrder(Side.Buy, "C2", userId));
+    assertEquals(new BigDecimal("20000.00"), orderBook.findBestMatch(offer).getPrice());
+
+    // when the levels near the first order empty, they are re-centered on the next order
+    assertNotNull(orderBook.removeOrder(Side.Buy, "C0", userId));
+    assertNotNull(orderBook.removeOrder(Side.Buy, "C3", userId));
+    final WorkingOrder near = new WorkingOrder(
+        new TestOrder("C4", symbol, Side.Buy, 1, OrdType.Limit, new BigDecimal("19999.99")),
+        userId, "Order4", clock.instant());
+    orderBook.addOrder(near);
+    bids = orderBook.getBids();
+    assertEquals(2, bids.size());
+    assertEquals(new BigDecimal("20000.00"), bids.first().getPrice());
+    assertEquals(near, bids.last());
+    assertNotNull(orderBook.removeOrder(Side.Buy, "C1", userId));
+    assertEquals(near, orderBook.findBestMatch(offer));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void priceNotOnTick() {
+    final WorkingOrder order = new WorkingOrder(
+        new TestOrder("ClOrdId1", symbol, Side.Buy, 7, OrdType.Limit, new BigDecimal("12.345")),
+        userId, "Order1", clock.instant());
+    orderBook.addOrder(order);
+  }
+
+  @Test
+  public void priceScaleAndTickSize() {
+    // four decimal places, quarter cent ticks
+    final OrderBook book = new OrderBook(4, 25, 16);
+    assertEquals(4, book.getPriceScale());
+    final WorkingOrder onTick = new WorkingOrder(
+        new TestOrder("ClOrdId1", symbol, Side.Buy, 1, OrdType.Limit, new BigDecimal("1.0025")),
+        userId, "Order1", clock.instant(), 4);
+    assertEquals(10025L, onTick.getScaledPrice());
+    assertEquals(1002500L, onTick.getScaledPrice(6));
+    book.addOrder(onTick);
+    assertEquals(new BigDecimal("1.0025"), book.getBids().first().getPrice());
+
+    final WorkingOrder offTick = new WorkingOrder(
+        new TestOrder("ClOrdId2", symbol, Side.Buy, 1, OrdType.Limit, new BigDecimal("1.001")),
+        userId, "Order2", clock.instant(), 4);
+    try {
+      book.addOrder(offTick);
+      fail("Price not on tick accepted");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    final WorkingOrder otherScale = new WorkingOrder(
+        new TestOrder("ClOrdId3", symbol, Side.Buy, 1, OrdType.Limit, new BigDecimal("1.00")),
+        userId, "Order3", clock.instant());
+    try {
+      book.addOrder(otherScale);
+      fail("Price scale mismatch accepted");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    assertEquals(1, book.getBids().size());
+  }
+
+  @Test
+  public void duplicateClOrdId() {
+    final WorkingOrder first = new WorkingOrder(
+        new TestOrder("C1", symbol, Side.Buy, 1, OrdType.Limit, new BigDecimal("12.34")), userId,
+        "Order1", clock.instant());
+    orderBook.addOrder(first);
+    final WorkingOrder second = new WorkingOrder(
+        new TestOrder("C1", symbol, Side.Buy, 2, OrdType.Limit, new BigDecimal("12.33")), userId,
+        "Order2", clock.instant());
+    orderBook.addOrder(second);
+    assertEquals(first, orderBook.findOrder(Side.Buy, "C1", userId));
+
+    // the earliest is found first, then the next once it is removed
+    assertEquals(first, orderBook.removeOrder(first));
+    assertEquals(second, orderBook.findOrder(Side.Buy, "C1", userId));
+    assertEquals(second, orderBook.removeOrder(Side.Buy, "C1", userId));
+    assertNull(orderBook.findOrder(Side.Buy, "C1", userId));
+    assertTrue(orderBook.getBids().isEmpty());
+  }
+
+  @Test
+  public void findOrderByIdAfterRehash() {
+    final int count = 1000;
+    final WorkingOrder[] orders = new WorkingOrder[count];
+    for (int i = 0; i < count; i++) {
+      // every tenth ClOrdId is used twice
+      orders[i] = new WorkingOrder(new TestOrder(duplicatedClOrdId(i), symbol, Side.Sell, 1,
+          OrdType.Limit, BigDecimal.valueOf(1000 + i, 2)), userId, "Order" + i, clock.instant());
+      orderBook.addOrder(orders[i]);
+    }
+    for (int i = 0; i < count; i += 2) {
+      assertNotNull(orderBook.removeOrder(orders[i]));
+    }
+    for (int i = 1; i < count; i += 2) {
+      assertEquals(orders[i], orderBook.findOrder(Side.Sell, duplicatedClOrdId(i), userId));
+      assertEquals(orders[i], orderBook.removeOrder(Side.Sell, duplicatedClOrdId(i), userId));
+    }
+    assertTrue(orderBook.getOffers().isEmpty());
+  }
+
+  @Test
+  public void findOrderById() {
+    for (int i = 1; i <= 10; i++) {
+      Instant entryTime = clock.instant();
+      final WorkingOrder order = new WorkingOrder(
+          new TestOrder("ClOrdId" + i, symbol, Side.Sell, i, OrdType.Limit, BigDecimal.valueOf(i)),
+          userId, "Order" + i, entryTime);
+      orderBook.addOrder(order);
+    }
+    WorkingOrder order5 = orderBook.findOrder(Side.Sell, "ClOrdId5", userId);
+    assertNotNull(order5);
+    assertEquals("Order5", order5.getOrderId());
+    assertEquals(order5, orderBook.findOrder(Side.Sell, FixedId.pack("ClOrdId5"), userId));
+    // too long to pack
+    WorkingOrder order10 = orderBook.findOrder(Side.Sell, "ClOrdId10", userId);
+    assertNotNull(order10);
+    assertEquals("Order10", order10.getOrderId());
+    assertNull(orderBook.findOrder(Side.Buy, "ClOrdId5", userId));
+    assertNull(orderBook.findOrder(Side.Sell, "ClOrdId5", "USER2"));
+
+    assertEquals(order5, orderBook.removeOrder(Side.Sell, "ClOrdId5", userId));
+    assertNull(orderBook.findOrder(Side.Sell, "ClOrdId5", userId));
+    assertNull(orderBook.removeOrder(Side.Sell, "ClOrdId5", userId));
+
+    // removal after a fill
+    WorkingOrder order1 = orderBook.findOrder(Side.Sell, "ClOrdId1", userId);
+    order1.execute(order1.getLeavesQty());
+    assertEquals(0, order1.getLeavesQty());
+    assertNotNull(orderBook.removeOrder(order1));
+    assertNull(orderBook.findOrder(Side.Sell, "ClOrdId1", userId));
+
+    orderBook.clear();
+    assertNull(orderBook.findOrder(Side.Sell, "ClOrdId2", userId));
+    assertTrue(orderBook.getOffers().isEmpty());
+  }
+
+  private static String duplicatedClOrdId(int i) {
+    return "C" + (i % 10 == 9 ? i - 1 : i);
+  }
+
 }
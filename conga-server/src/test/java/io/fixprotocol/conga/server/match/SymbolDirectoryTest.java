@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.server.match;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.fixprotocol.conga.messages.appl.FixedId;
+
+/**
+ * @author Don Mendelson
+ *
+ */
+public class SymbolDirectoryTest {
+
+  private SymbolDirectory directory;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = new SymbolDirectory();
+  }
+
+  @Test
+  public void add() {
+    assertEquals(0, directory.add("SYM1"));
+    assertEquals(1, directory.add("SYM2"));
+    assertEquals(0, directory.getId(FixedId.pack("SYM1")));
+    assertEquals(1, directory.getId(FixedId.pack("SYM2")));
+    assertEquals(SymbolDirectory.NOT_FOUND, directory.getId(FixedId.pack("SYM3")));
+    assertEquals(SymbolDirectory.NOT_FOUND, directory.getId(0L));
+    assertEquals("SYM2", directory.getSymbol(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void addDuplicate() {
+    directory.add("SYM1");
+    directory.add("SYM1");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void addTooLong() {
+    directory.add("SYMBOL123");
+  }
+
+  @Test
+  public void clear() {
+    directory.add("SYM1");
+    directory.clear();
+    assertEquals(0, directory.size());
+    assertEquals(SymbolDirectory.NOT_FOUND, directory.getId(FixedId.pack("SYM1")));
+    assertEquals(0, directory.add("SYM2"));
+  }
+
+  @Test
+  public void grow() {
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i, directory.add("S" + i));
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i, directory.getId(FixedId.pack("S" + i)));
+    }
+    assertEquals(1000, directory.size());
+  }
+
+}
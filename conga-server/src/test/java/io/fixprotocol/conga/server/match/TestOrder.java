@@ -18,6 +18,7 @@ package io.fixprotocol.conga.server.match;
 import java.math.BigDecimal;
 import java.time.Instant;
 
+import io.fixprotocol.conga.messages.appl.FixedPoint;
 import io.fixprotocol.conga.messages.appl.NewOrderSingle;
 import io.fixprotocol.conga.messages.appl.OrdType;
 import io.fixprotocol.conga.messages.appl.Side;
@@ -28,10 +29,13 @@ class TestOrder implements NewOrderSingle {
   private int orderQty;
   private OrdType ordType;
   private BigDecimal price;
+  private int priceScale;
   private Side side;
   private String symbol;
 
   private Instant transactTime = Instant.now();
+  // price as fixed-point, so that it is read without allocation
+  private long unscaledPrice;
 
   public TestOrder(String clOrdId, String symbol, Side side, int orderQty, OrdType ordType,
       BigDecimal price) {
@@ -42,6 +46,10 @@ class TestOrder implements NewOrderSingle {
     this.orderQty = orderQty;
     this.ordType = ordType;
     this.price = price;
+    if (price != null) {
+      this.unscaledPrice = price.unscaledValue().longValueExact();
+      this.priceScale = price.scale();
+    }
   }
 
   @Override
@@ -64,6 +72,11 @@ class TestOrder implements NewOrderSingle {
     return price;
   }
 
+  @Override
+  public long getScaledPrice(int scale) {
+    return FixedPoint.rescale(unscaledPrice, priceScale, scale);
+  }
+
   @Override
   public Side getSide() {
     return side;
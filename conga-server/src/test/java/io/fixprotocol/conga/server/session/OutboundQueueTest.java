@@ -0,0 +1,193 @@
+/*
+ * Copyright 2018 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package io.fixprotocol.conga.server.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.fixprotocol.conga.buffer.BufferPool;
+import io.fixprotocol.conga.server.io.callback.ExchangeSocket;
+import io.fixprotocol.conga.server.session.OutboundQueue.SlowConsumerPolicy;
+
+/**
+ * @author Don Mendelson
+ *
+ */
+public class OutboundQueueTest {
+
+  /**
+   * Holds writes until completed by the test, like a peer with a full TCP window
+   */
+  private static class TestSocket implements ExchangeSocket {
+    final List<Consumer<Throwable>> callbacks = new ArrayList<>();
+    final List<Boolean> batched = new ArrayList<>();
+    boolean isClosed = false;
+    final List<String> written = new ArrayList<>();
+
+    @Override
+    public void close() {
+      isClosed = true;
+    }
+
+    void completeAll() {
+      final List<Consumer<Throwable>> completing = new ArrayList<>(callbacks);
+      callbacks.clear();
+      completing.forEach(c -> c.accept(null));
+    }
+
+    @Override
+    public void flush() {
+
+    }
+
+    @Override
+    public void send(ByteBuffer buffer) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Future<Void> sendAsync(ByteBuffer buffer) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void sendBatched(ByteBuffer buffer) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void write(ByteBuffer buffer, boolean isBatched, Consumer<Throwable> callback) {
+      final byte[] bytes = new byte[buffer.remaining()];
+      buffer.duplicate().get(bytes);
+      written.add(new String(bytes));
+      batched.add(isBatched);
+      callbacks.add(callback);
+    }
+  }
+
+  private BufferPool pool;
+  private TestSocket socket;
+
+  @Before
+  public void setUp() throws Exception {
+    pool = new BufferPool();
+    socket = new TestSocket();
+  }
+
+  @Test
+  public void coalesce() throws IOException {
+    OutboundQueue queue =
+        new OutboundQueue(socket, pool, 1024, SlowConsumerPolicy.Disconnect, 100);
+    queue.send(message("a"), false, null);
+    assertEquals(1, socket.written.size());
+    // queued while the first write is in flight
+    queue.send(message("b"), false, null);
+    queue.send(message("c"), true, null);
+    queue.send(message("d"), false, null);
+    assertEquals(1, socket.written.size());
+    socket.completeAll();
+    assertEquals(List.of("a", "b", "c", "d"), socket.written);
+    assertEquals(List.of(false, true, true, false), socket.batched);
+    socket.completeAll();
+    assertEquals(0, queue.getQueuedBytes());
+    assertEquals(pool.getPoolSize(), pool.size());
+  }
+
+  @Test
+  public void batchedUntilFlush() throws IOException {
+    OutboundQueue queue =
+        new OutboundQueue(socket, pool, 1024, SlowConsumerPolicy.Disconnect, 100);
+    queue.send(message("a"), true, null);
+    queue.send(message("b"), true, null);
+    assertEquals(0, socket.written.size());
+    queue.flush();
+    assertEquals(List.of("a", "b"), socket.written);
+    assertEquals(List.of(true, false), socket.batched);
+  }
+
+  @Test
+  public void completion() throws Exception {
+    OutboundQueue queue =
+        new OutboundQueue(socket, pool, 1024, SlowConsumerPolicy.Disconnect, 100);
+    final ByteBuffer buffer = message("a");
+    final CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+    queue.send(buffer, false, future);
+    assertFalse(future.isDone());
+    // caller may reuse its buffer as soon as it is queued
+    buffer.clear();
+    buffer.put("x".getBytes());
+    socket.completeAll();
+    assertTrue(future.isDone());
+    assertEquals(List.of("a"), socket.written);
+  }
+
+  @Test
+  public void slowConsumerDisconnect() throws IOException {
+    OutboundQueue queue = new OutboundQueue(socket, pool, 8, SlowConsumerPolicy.Disconnect, 100);
+    queue.send(message("abcd"), false, null);
+    queue.send(message("efgh"), false, null);
+    try {
+      queue.send(message("ijkl"), false, null);
+      fail("Expected slow consumer to be disconnected");
+    } catch (IOException e) {
+      assertTrue(socket.isClosed);
+    }
+    socket.completeAll();
+    assertEquals(0, queue.getQueuedBytes());
+    assertEquals(pool.getPoolSize(), pool.size());
+  }
+
+  @Test
+  public void slowConsumerThrottle() throws Exception {
+    OutboundQueue queue = new OutboundQueue(socket, pool, 8, SlowConsumerPolicy.Throttle, 5000);
+    queue.send(message("abcd"), false, null);
+    queue.send(message("efgh"), false, null);
+    Thread completer = new Thread(() -> {
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      synchronized (socket) {
+        socket.completeAll();
+      }
+    });
+    completer.start();
+    queue.send(message("ijkl"), false, null);
+    completer.join();
+    assertFalse(socket.isClosed);
+  }
+
+  private static ByteBuffer message(String text) {
+    final ByteBuffer buffer = ByteBuffer.allocate(64);
+    buffer.put(text.getBytes());
+    buffer.flip();
+    return buffer;
+  }
+}